@@ -58,12 +58,16 @@ COMMENT ON COLUMN api_instance_registry.metadata IS '额外扩展信息，JSONB
 COMMENT ON COLUMN api_instance_registry.created_at IS '记录创建时间';
 COMMENT ON COLUMN api_instance_registry.updated_at IS '记录最后更新时间，每次更新时自动修改';
 
+-- 同一项目下 (api_type, business_id) 唯一，批量注册依赖它以 ON CONFLICT (project_id, api_type, business_id) DO NOTHING 跳过已存在的实例
+-- 旧库补建该索引见 upgrade_001_api_instance_registry_unique_business.sql
+CREATE UNIQUE INDEX uk_api_instance_registry_business ON api_instance_registry (project_id, api_type, business_id);
+
 ---
 -- Table: api_instance_metrics
 -- Description: 记录每个 API 实例在特定时间窗口内的实时和历史调用指标，是 Gateway 智能决策的核心数据来源。
 ---
 CREATE TABLE api_instance_metrics (
-    id VARCHAR(36) PRIMARY KEY, -- 指标记录的唯一标识符 (UUID 字符串，由应用层生成)
+    id VARCHAR(36) NOT NULL, -- 指标记录的唯一标识符 (UUID 字符串，由应用层生成)
     registry_id VARCHAR(36) NOT NULL, -- 关联的 API 业务实例 ID，外键关联 api_instance_registry 表
     timestamp_window TIMESTAMP NOT NULL DEFAULT date_trunc('minute', NOW()), -- 指标统计的时间窗口起始点 1分钟内的请求监控
     success_count BIGINT NOT NULL DEFAULT 0, -- 该时间窗口内成功的 API 调用次数
@@ -72,8 +76,20 @@ CREATE TABLE api_instance_metrics (
     concurrency INT NOT NULL DEFAULT 0, -- 该时间窗口内观察到的最大或当前活跃并发连接数
     current_gateway_status VARCHAR(32) NOT NULL DEFAULT 'HEALTHY', -- Gateway 根据内部逻辑判断的 API 实例状态
     last_reported_at TIMESTAMP NOT NULL DEFAULT NOW(), -- 最后一次上报数据到该指标记录的时间
-    additional_metrics JSONB DEFAULT '{}'::JSONB -- 额外指标，JSONB 格式
-);
+    additional_metrics JSONB DEFAULT '{}'::JSONB, -- 额外指标，JSONB 格式
+    prompt_tokens BIGINT NOT NULL DEFAULT 0, -- 该时间窗口内累计的输入 token 数
+    completion_tokens BIGINT NOT NULL DEFAULT 0, -- 该时间窗口内累计的输出 token 数
+    total_cost DOUBLE PRECISION NOT NULL DEFAULT 0, -- 该时间窗口内累计的调用费用
+    latency_histogram BYTEA, -- 该时间窗口内的延迟分布（HdrHistogram 紧凑编码）
+    error_counts BIGINT[], -- 该时间窗口内按错误分类的失败次数，下标为错误分类序号
+    PRIMARY KEY (id, timestamp_window) -- 分区表的主键必须包含分区键
+) PARTITION BY RANGE (timestamp_window); -- 按天进行范围分区，分区由应用内的调度器预创建和过期清理
+
+-- 默认分区：兜底尚未预创建日分区的数据，创建日分区时会把对应日期的数据迁出
+CREATE TABLE api_instance_metrics_default PARTITION OF api_instance_metrics DEFAULT;
+
+-- 按实例 + 时间窗口查询（最新指标、时间范围扫描）
+CREATE INDEX idx_api_instance_metrics_registry_window ON api_instance_metrics (registry_id, timestamp_window DESC);
 
 -- 添加表级别和列级别评论
 COMMENT ON TABLE api_instance_metrics IS '存储 API 实例的实时和历史调用指标，用于 Gateway 的高可用决策和智能调度';
@@ -86,7 +102,121 @@ COMMENT ON COLUMN api_instance_metrics.total_latency_ms IS '该时间窗口内
 COMMENT ON COLUMN api_instance_metrics.concurrency IS '该时间窗口内观察到的最大或当前活跃并发连接数（由上报方提供，用于实时负载均衡）';
 COMMENT ON COLUMN api_instance_metrics.current_gateway_status IS 'Gateway 根据内部逻辑判断的 API 实例状态：HEALTHY, DEGRADED, FAULTY, CIRCUIT_BREAKER_OPEN';
 COMMENT ON COLUMN api_instance_metrics.last_reported_at IS '最后一次上报数据到该指标记录的时间';
-COMMENT ON COLUMN api_instance_metrics.additional_metrics IS '额外指标，JSONB 格式 (例如：{"total_prompt_tokens": 12345, "total_completion_tokens": 67890, "total_cost": 0.123})';
+COMMENT ON COLUMN api_instance_metrics.additional_metrics IS '额外指标，JSONB 格式，仅保留历史数据；token 和费用已改为 prompt_tokens、completion_tokens、total_cost 数值列累加';
+COMMENT ON COLUMN api_instance_metrics.prompt_tokens IS '该时间窗口内累计的输入 token 数，由上报的 usageMetrics.prompt_tokens（或 promptTokens）累加';
+COMMENT ON COLUMN api_instance_metrics.completion_tokens IS '该时间窗口内累计的输出 token 数，由上报的 usageMetrics.completion_tokens（或 completionTokens）累加';
+COMMENT ON COLUMN api_instance_metrics.total_cost IS '该时间窗口内累计的调用费用，由上报的 usageMetrics.cost（或 totalCost）累加';
+COMMENT ON COLUMN api_instance_metrics.latency_histogram IS '该时间窗口内的延迟分布，HdrHistogram 紧凑二进制编码（毫秒，2 位有效数字），可合并后计算任意时间范围的 P50/P95/P99';
+COMMENT ON COLUMN api_instance_metrics.error_counts IS '该时间窗口内按错误分类的失败次数，依次为 TIMEOUT, RATE_LIMITED, SERVER_ERROR, AUTH_ERROR, CLIENT_ERROR, UNKNOWN；熔断只统计实例故障（超时、服务端错误、鉴权失败、未知）';
+
+---
+-- Function: ensure_metrics_partition
+-- Description: 创建 api_instance_metrics 指定日期的日分区（api_instance_metrics_pYYYYMMDD），已存在时直接返回。
+-- 如果默认分区中已经落入了该日期的数据，先迁移到新表再挂载，避免 ATTACH 校验失败。
+---
+CREATE OR REPLACE FUNCTION ensure_metrics_partition(p_day DATE) RETURNS BOOLEAN
+LANGUAGE plpgsql AS $$
+DECLARE
+    v_partition TEXT := 'api_instance_metrics_p' || to_char(p_day, 'YYYYMMDD');
+    v_from TIMESTAMP := p_day;
+    v_to TIMESTAMP := p_day + 1;
+BEGIN
+    IF to_regclass(v_partition) IS NOT NULL THEN
+        RETURN FALSE;
+    END IF;
+
+    -- 迁移期间阻止新数据写入默认分区，保证 ATTACH 时默认分区中不再有该日期的数据
+    LOCK TABLE api_instance_metrics_default IN EXCLUSIVE MODE;
+
+    EXECUTE format('CREATE TABLE %I (LIKE api_instance_metrics INCLUDING DEFAULTS INCLUDING CONSTRAINTS)', v_partition);
+
+    EXECUTE format(
+        'WITH moved AS (DELETE FROM api_instance_metrics_default WHERE timestamp_window >= %L AND timestamp_window < %L RETURNING *) '
+        'INSERT INTO %I SELECT * FROM moved', v_from, v_to, v_partition);
+
+    EXECUTE format('ALTER TABLE api_instance_metrics ATTACH PARTITION %I FOR VALUES FROM (%L) TO (%L)',
+        v_partition, v_from, v_to);
+    RETURN TRUE;
+END;
+$$;
+
+---
+-- Function: drop_expired_metrics_partitions
+-- Description: 分离并删除早于指定日期的 api_instance_metrics 日分区，同时清理默认分区中的过期数据，返回删除的分区数量。
+---
+CREATE OR REPLACE FUNCTION drop_expired_metrics_partitions(p_before DATE) RETURNS INTEGER
+LANGUAGE plpgsql AS $$
+DECLARE
+    v_partition TEXT;
+    v_dropped INTEGER := 0;
+BEGIN
+    FOR v_partition IN
+        SELECT c.relname
+        FROM pg_inherits i
+        JOIN pg_class c ON c.oid = i.inhrelid
+        WHERE i.inhparent = 'api_instance_metrics'::regclass
+          AND c.relname ~ '^api_instance_metrics_p[0-9]{8}$'
+          AND to_date(substring(c.relname FROM 23), 'YYYYMMDD') < p_before
+        ORDER BY c.relname
+    LOOP
+        EXECUTE format('ALTER TABLE api_instance_metrics DETACH PARTITION %I', v_partition);
+        EXECUTE format('DROP TABLE %I', v_partition);
+        v_dropped := v_dropped + 1;
+    END LOOP;
+
+    DELETE FROM api_instance_metrics_default WHERE timestamp_window < p_before;
+    RETURN v_dropped;
+END;
+$$;
+
+COMMENT ON FUNCTION ensure_metrics_partition(DATE) IS '预创建 api_instance_metrics 的日分区，由网关调度器定时调用';
+COMMENT ON FUNCTION drop_expired_metrics_partitions(DATE) IS '按保留期分离并删除过期的 api_instance_metrics 日分区，由网关调度器定时调用';
+
+---
+-- Table: api_instance_metrics_rollup
+-- Description: 由已关闭的分钟指标逐级汇总的多粒度指标（5 分钟、1 小时、1 天），监控查询按时间范围选择最粗的可用粒度。
+---
+CREATE TABLE api_instance_metrics_rollup (
+    id VARCHAR(36) PRIMARY KEY, -- 汇总记录的唯一标识符 (UUID 字符串，由应用层生成)
+    registry_id VARCHAR(36) NOT NULL, -- 关联的 API 业务实例 ID
+    resolution VARCHAR(16) NOT NULL, -- 汇总粒度：FIVE_MINUTES, ONE_HOUR, ONE_DAY
+    bucket_start TIMESTAMP NOT NULL, -- 时间桶起始点，按粒度对齐
+    success_count BIGINT NOT NULL DEFAULT 0, -- 时间桶内成功的 API 调用次数
+    failure_count BIGINT NOT NULL DEFAULT 0, -- 时间桶内失败的 API 调用次数
+    total_latency_ms BIGINT NOT NULL DEFAULT 0, -- 时间桶内所有 API 调用的总延迟（毫秒）
+    current_gateway_status VARCHAR(32) NOT NULL DEFAULT 'HEALTHY', -- 时间桶内最后一个分钟窗口的网关状态
+    last_reported_at TIMESTAMP, -- 时间桶内最后一次上报的时间
+    latency_histogram BYTEA -- 时间桶内的延迟分布，由分钟窗口的直方图合并而来
+);
+
+CREATE UNIQUE INDEX uk_api_instance_metrics_rollup_bucket ON api_instance_metrics_rollup (resolution, bucket_start, registry_id);
+
+COMMENT ON TABLE api_instance_metrics_rollup IS '多粒度汇总指标，由后台任务从已关闭的分钟指标增量汇总，用于长时间范围的监控查询';
+COMMENT ON COLUMN api_instance_metrics_rollup.id IS '汇总记录的唯一标识符 (UUID 字符串，由应用层生成)';
+COMMENT ON COLUMN api_instance_metrics_rollup.registry_id IS '关联的 API 业务实例 ID';
+COMMENT ON COLUMN api_instance_metrics_rollup.resolution IS '汇总粒度：FIVE_MINUTES (5分钟), ONE_HOUR (1小时), ONE_DAY (1天)';
+COMMENT ON COLUMN api_instance_metrics_rollup.bucket_start IS '时间桶起始点，按粒度对齐';
+COMMENT ON COLUMN api_instance_metrics_rollup.success_count IS '时间桶内成功的 API 调用次数';
+COMMENT ON COLUMN api_instance_metrics_rollup.failure_count IS '时间桶内失败的 API 调用次数';
+COMMENT ON COLUMN api_instance_metrics_rollup.total_latency_ms IS '时间桶内所有 API 调用的总延迟（毫秒）';
+COMMENT ON COLUMN api_instance_metrics_rollup.current_gateway_status IS '时间桶内最后一个分钟窗口的网关状态';
+COMMENT ON COLUMN api_instance_metrics_rollup.last_reported_at IS '时间桶内最后一次上报的时间';
+COMMENT ON COLUMN api_instance_metrics_rollup.latency_histogram IS '时间桶内的延迟分布，由各分钟窗口的 HdrHistogram 合并后重新编码';
+
+---
+-- Table: api_instance_metrics_rollup_watermark
+-- Description: 记录每个汇总粒度已汇总到的时间点，汇总任务据此增量推进，查询侧据此拼接汇总数据与分钟指标。
+---
+CREATE TABLE api_instance_metrics_rollup_watermark (
+    resolution VARCHAR(16) PRIMARY KEY, -- 汇总粒度
+    watermark TIMESTAMP NOT NULL, -- 已汇总到的时间点（不含）
+    updated_at TIMESTAMP NOT NULL DEFAULT NOW() -- 记录最后更新时间
+);
+
+COMMENT ON TABLE api_instance_metrics_rollup_watermark IS '指标汇总水位线，早于水位线的时间桶均已汇总完成';
+COMMENT ON COLUMN api_instance_metrics_rollup_watermark.resolution IS '汇总粒度：FIVE_MINUTES, ONE_HOUR, ONE_DAY';
+COMMENT ON COLUMN api_instance_metrics_rollup_watermark.watermark IS '已汇总到的时间点（不含）';
+COMMENT ON COLUMN api_instance_metrics_rollup_watermark.updated_at IS '记录最后更新时间';
 
 ---
 -- Table: api_keys
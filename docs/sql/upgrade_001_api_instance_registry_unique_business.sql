@@ -0,0 +1,35 @@
+-- =====================================================================
+-- 升级脚本：为 api_instance_registry 补建 (project_id, api_type, business_id) 唯一索引
+-- 适用于在该索引加入 sql.sql 之前初始化的数据库；新库由 sql.sql 直接创建，无需执行。
+-- 批量注册以 ON CONFLICT (project_id, api_type, business_id) DO NOTHING 跳过已存在的实例，缺少该索引时语句会直接报错。
+--
+-- 执行方式：psql -U gateway_user -d api_gateway -f docs/sql/upgrade_001_api_instance_registry_unique_business.sql
+-- 脚本可重复执行。执行期间锁住 api_instance_registry 的写入，建议在低峰期进行。
+-- =====================================================================
+
+BEGIN;
+
+-- 阻止并发写入，避免清理之后、建索引之前又产生重复记录
+LOCK TABLE api_instance_registry IN SHARE ROW EXCLUSIVE MODE;
+
+-- 每组重复记录保留最近更新的一条（更新时间相同时保留最早创建的），其余删除
+-- 被删除实例的历史指标不迁移，随指标分区的保留期自然清理
+DELETE FROM api_instance_registry r
+USING (
+    SELECT id
+    FROM (
+        SELECT id,
+               ROW_NUMBER() OVER (
+                   PARTITION BY project_id, api_type, business_id
+                   ORDER BY updated_at DESC, created_at ASC, id ASC
+               ) AS rn
+        FROM api_instance_registry
+    ) ranked
+    WHERE ranked.rn > 1
+) duplicates
+WHERE r.id = duplicates.id;
+
+CREATE UNIQUE INDEX IF NOT EXISTS uk_api_instance_registry_business
+    ON api_instance_registry (project_id, api_type, business_id);
+
+COMMIT;
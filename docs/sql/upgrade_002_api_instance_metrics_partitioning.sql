@@ -0,0 +1,208 @@
+-- =====================================================================
+-- 升级脚本：把 api_instance_metrics 改为按天分区的表，并补建指标汇总相关的表和分区管理函数
+-- 适用于在分区、token/费用列、延迟直方图、错误分类和多粒度汇总加入 sql.sql 之前初始化的数据库；新库由 sql.sql 直接创建，无需执行。
+-- 旧表被重命名为 api_instance_metrics_legacy，数据复制到新的分区表后保留旧表，确认无误后手动删除。
+-- 旧数据的 prompt_tokens、completion_tokens、total_cost 记为 0，latency_histogram、error_counts 为空：
+-- 旧版 additional_metrics 只保存最后一次上报的 usageMetrics，不是窗口内的累计值，不回填到数值列，原样保留。
+--
+-- 执行方式：psql -U gateway_user -d api_gateway -f docs/sql/upgrade_002_api_instance_metrics_partitioning.sql
+-- 执行前先停止网关，脚本在一个事务中完成，期间锁住 api_instance_metrics；表已经是分区表时脚本报错退出，不做任何修改。
+-- =====================================================================
+
+BEGIN;
+
+DO $$
+BEGIN
+    IF (SELECT relkind FROM pg_class WHERE oid = 'api_instance_metrics'::regclass) = 'p' THEN
+        RAISE EXCEPTION 'api_instance_metrics 已经是分区表，无需执行本脚本';
+    END IF;
+END;
+$$;
+
+-- 阻止读写，直到新表就绪
+LOCK TABLE api_instance_metrics IN ACCESS EXCLUSIVE MODE;
+
+-- 重命名旧表；主键索引跟着改名，给新表的主键让出名字
+ALTER TABLE api_instance_metrics RENAME TO api_instance_metrics_legacy;
+ALTER TABLE api_instance_metrics_legacy RENAME CONSTRAINT api_instance_metrics_pkey TO api_instance_metrics_legacy_pkey;
+
+---
+-- Table: api_instance_metrics
+---
+CREATE TABLE api_instance_metrics (
+    id VARCHAR(36) NOT NULL, -- 指标记录的唯一标识符 (UUID 字符串，由应用层生成)
+    registry_id VARCHAR(36) NOT NULL, -- 关联的 API 业务实例 ID，外键关联 api_instance_registry 表
+    timestamp_window TIMESTAMP NOT NULL DEFAULT date_trunc('minute', NOW()), -- 指标统计的时间窗口起始点 1分钟内的请求监控
+    success_count BIGINT NOT NULL DEFAULT 0, -- 该时间窗口内成功的 API 调用次数
+    failure_count BIGINT NOT NULL DEFAULT 0, -- 该时间窗口内失败的 API 调用次数
+    total_latency_ms BIGINT NOT NULL DEFAULT 0, -- 该时间窗口内所有 API 调用的总延迟（毫秒）
+    concurrency INT NOT NULL DEFAULT 0, -- 该时间窗口内观察到的最大或当前活跃并发连接数
+    current_gateway_status VARCHAR(32) NOT NULL DEFAULT 'HEALTHY', -- Gateway 根据内部逻辑判断的 API 实例状态
+    last_reported_at TIMESTAMP NOT NULL DEFAULT NOW(), -- 最后一次上报数据到该指标记录的时间
+    additional_metrics JSONB DEFAULT '{}'::JSONB, -- 额外指标，JSONB 格式
+    prompt_tokens BIGINT NOT NULL DEFAULT 0, -- 该时间窗口内累计的输入 token 数
+    completion_tokens BIGINT NOT NULL DEFAULT 0, -- 该时间窗口内累计的输出 token 数
+    total_cost DOUBLE PRECISION NOT NULL DEFAULT 0, -- 该时间窗口内累计的调用费用
+    latency_histogram BYTEA, -- 该时间窗口内的延迟分布（HdrHistogram 紧凑编码）
+    error_counts BIGINT[], -- 该时间窗口内按错误分类的失败次数，下标为错误分类序号
+    PRIMARY KEY (id, timestamp_window) -- 分区表的主键必须包含分区键
+) PARTITION BY RANGE (timestamp_window); -- 按天进行范围分区，分区由应用内的调度器预创建和过期清理
+
+-- 默认分区：兜底尚未预创建日分区的数据，创建日分区时会把对应日期的数据迁出
+CREATE TABLE api_instance_metrics_default PARTITION OF api_instance_metrics DEFAULT;
+
+-- 按实例 + 时间窗口查询（最新指标、时间范围扫描）
+CREATE INDEX idx_api_instance_metrics_registry_window ON api_instance_metrics (registry_id, timestamp_window DESC);
+
+-- 添加表级别和列级别评论
+COMMENT ON TABLE api_instance_metrics IS '存储 API 实例的实时和历史调用指标，用于 Gateway 的高可用决策和智能调度';
+COMMENT ON COLUMN api_instance_metrics.id IS '指标记录的唯一标识符 (UUID 字符串，由应用层生成)';
+COMMENT ON COLUMN api_instance_metrics.registry_id IS '关联的 API 业务实例 ID，外键关联 api_instance_registry 表';
+COMMENT ON COLUMN api_instance_metrics.timestamp_window IS '指标统计的时间窗口起始点 (YYYY-MM-DD HH:MM:00)，例如，记录从该时间点开始的 1 分钟内的聚合数据';
+COMMENT ON COLUMN api_instance_metrics.success_count IS '该时间窗口内成功的 API 调用次数';
+COMMENT ON COLUMN api_instance_metrics.failure_count IS '该时间窗口内失败的 API 调用次数';
+COMMENT ON COLUMN api_instance_metrics.total_latency_ms IS '该时间窗口内所有 API 调用的总延迟（毫秒），用于计算平均延迟';
+COMMENT ON COLUMN api_instance_metrics.concurrency IS '该时间窗口内观察到的最大或当前活跃并发连接数（由上报方提供，用于实时负载均衡）';
+COMMENT ON COLUMN api_instance_metrics.current_gateway_status IS 'Gateway 根据内部逻辑判断的 API 实例状态：HEALTHY, DEGRADED, FAULTY, CIRCUIT_BREAKER_OPEN';
+COMMENT ON COLUMN api_instance_metrics.last_reported_at IS '最后一次上报数据到该指标记录的时间';
+COMMENT ON COLUMN api_instance_metrics.additional_metrics IS '额外指标，JSONB 格式，仅保留历史数据；token 和费用已改为 prompt_tokens、completion_tokens、total_cost 数值列累加';
+COMMENT ON COLUMN api_instance_metrics.prompt_tokens IS '该时间窗口内累计的输入 token 数，由上报的 usageMetrics.prompt_tokens（或 promptTokens）累加';
+COMMENT ON COLUMN api_instance_metrics.completion_tokens IS '该时间窗口内累计的输出 token 数，由上报的 usageMetrics.completion_tokens（或 completionTokens）累加';
+COMMENT ON COLUMN api_instance_metrics.total_cost IS '该时间窗口内累计的调用费用，由上报的 usageMetrics.cost（或 totalCost）累加';
+COMMENT ON COLUMN api_instance_metrics.latency_histogram IS '该时间窗口内的延迟分布，HdrHistogram 紧凑二进制编码（毫秒，2 位有效数字），可合并后计算任意时间范围的 P50/P95/P99';
+COMMENT ON COLUMN api_instance_metrics.error_counts IS '该时间窗口内按错误分类的失败次数，依次为 TIMEOUT, RATE_LIMITED, SERVER_ERROR, AUTH_ERROR, CLIENT_ERROR, UNKNOWN；熔断只统计实例故障（超时、服务端错误、鉴权失败、未知）';
+
+---
+-- Function: ensure_metrics_partition
+-- Description: 创建 api_instance_metrics 指定日期的日分区（api_instance_metrics_pYYYYMMDD），已存在时直接返回。
+-- 如果默认分区中已经落入了该日期的数据，先迁移到新表再挂载，避免 ATTACH 校验失败。
+---
+CREATE OR REPLACE FUNCTION ensure_metrics_partition(p_day DATE) RETURNS BOOLEAN
+LANGUAGE plpgsql AS $$
+DECLARE
+    v_partition TEXT := 'api_instance_metrics_p' || to_char(p_day, 'YYYYMMDD');
+    v_from TIMESTAMP := p_day;
+    v_to TIMESTAMP := p_day + 1;
+BEGIN
+    IF to_regclass(v_partition) IS NOT NULL THEN
+        RETURN FALSE;
+    END IF;
+
+    -- 迁移期间阻止新数据写入默认分区，保证 ATTACH 时默认分区中不再有该日期的数据
+    LOCK TABLE api_instance_metrics_default IN EXCLUSIVE MODE;
+
+    EXECUTE format('CREATE TABLE %I (LIKE api_instance_metrics INCLUDING DEFAULTS INCLUDING CONSTRAINTS)', v_partition);
+
+    EXECUTE format(
+        'WITH moved AS (DELETE FROM api_instance_metrics_default WHERE timestamp_window >= %L AND timestamp_window < %L RETURNING *) '
+        'INSERT INTO %I SELECT * FROM moved', v_from, v_to, v_partition);
+
+    EXECUTE format('ALTER TABLE api_instance_metrics ATTACH PARTITION %I FOR VALUES FROM (%L) TO (%L)',
+        v_partition, v_from, v_to);
+    RETURN TRUE;
+END;
+$$;
+
+---
+-- Function: drop_expired_metrics_partitions
+-- Description: 分离并删除早于指定日期的 api_instance_metrics 日分区，同时清理默认分区中的过期数据，返回删除的分区数量。
+---
+CREATE OR REPLACE FUNCTION drop_expired_metrics_partitions(p_before DATE) RETURNS INTEGER
+LANGUAGE plpgsql AS $$
+DECLARE
+    v_partition TEXT;
+    v_dropped INTEGER := 0;
+BEGIN
+    FOR v_partition IN
+        SELECT c.relname
+        FROM pg_inherits i
+        JOIN pg_class c ON c.oid = i.inhrelid
+        WHERE i.inhparent = 'api_instance_metrics'::regclass
+          AND c.relname ~ '^api_instance_metrics_p[0-9]{8}$'
+          AND to_date(substring(c.relname FROM 23), 'YYYYMMDD') < p_before
+        ORDER BY c.relname
+    LOOP
+        EXECUTE format('ALTER TABLE api_instance_metrics DETACH PARTITION %I', v_partition);
+        EXECUTE format('DROP TABLE %I', v_partition);
+        v_dropped := v_dropped + 1;
+    END LOOP;
+
+    DELETE FROM api_instance_metrics_default WHERE timestamp_window < p_before;
+    RETURN v_dropped;
+END;
+$$;
+
+COMMENT ON FUNCTION ensure_metrics_partition(DATE) IS '预创建 api_instance_metrics 的日分区，由网关调度器定时调用';
+COMMENT ON FUNCTION drop_expired_metrics_partitions(DATE) IS '按保留期分离并删除过期的 api_instance_metrics 日分区，由网关调度器定时调用';
+
+-- 按旧数据覆盖的日期预先建好日分区，复制时数据直接落入各自的分区，不经过默认分区
+DO $$
+DECLARE
+    v_day DATE;
+BEGIN
+    FOR v_day IN SELECT DISTINCT timestamp_window::DATE FROM api_instance_metrics_legacy ORDER BY 1
+    LOOP
+        PERFORM ensure_metrics_partition(v_day);
+    END LOOP;
+END;
+$$;
+
+-- 复制旧数据，新增列使用默认值
+INSERT INTO api_instance_metrics (
+    id, registry_id, timestamp_window, success_count, failure_count, total_latency_ms,
+    concurrency, current_gateway_status, last_reported_at, additional_metrics
+)
+SELECT id, registry_id, timestamp_window, success_count, failure_count, total_latency_ms,
+       concurrency, current_gateway_status, last_reported_at, additional_metrics
+FROM api_instance_metrics_legacy;
+
+---
+-- Table: api_instance_metrics_rollup
+-- Description: 由已关闭的分钟指标逐级汇总的多粒度指标（5 分钟、1 小时、1 天），监控查询按时间范围选择最粗的可用粒度。
+---
+CREATE TABLE IF NOT EXISTS api_instance_metrics_rollup (
+    id VARCHAR(36) PRIMARY KEY, -- 汇总记录的唯一标识符 (UUID 字符串，由应用层生成)
+    registry_id VARCHAR(36) NOT NULL, -- 关联的 API 业务实例 ID
+    resolution VARCHAR(16) NOT NULL, -- 汇总粒度：FIVE_MINUTES, ONE_HOUR, ONE_DAY
+    bucket_start TIMESTAMP NOT NULL, -- 时间桶起始点，按粒度对齐
+    success_count BIGINT NOT NULL DEFAULT 0, -- 时间桶内成功的 API 调用次数
+    failure_count BIGINT NOT NULL DEFAULT 0, -- 时间桶内失败的 API 调用次数
+    total_latency_ms BIGINT NOT NULL DEFAULT 0, -- 时间桶内所有 API 调用的总延迟（毫秒）
+    current_gateway_status VARCHAR(32) NOT NULL DEFAULT 'HEALTHY', -- 时间桶内最后一个分钟窗口的网关状态
+    last_reported_at TIMESTAMP, -- 时间桶内最后一次上报的时间
+    latency_histogram BYTEA -- 时间桶内的延迟分布，由分钟窗口的直方图合并而来
+);
+
+CREATE UNIQUE INDEX IF NOT EXISTS uk_api_instance_metrics_rollup_bucket ON api_instance_metrics_rollup (resolution, bucket_start, registry_id);
+
+COMMENT ON TABLE api_instance_metrics_rollup IS '多粒度汇总指标，由后台任务从已关闭的分钟指标增量汇总，用于长时间范围的监控查询';
+COMMENT ON COLUMN api_instance_metrics_rollup.id IS '汇总记录的唯一标识符 (UUID 字符串，由应用层生成)';
+COMMENT ON COLUMN api_instance_metrics_rollup.registry_id IS '关联的 API 业务实例 ID';
+COMMENT ON COLUMN api_instance_metrics_rollup.resolution IS '汇总粒度：FIVE_MINUTES (5分钟), ONE_HOUR (1小时), ONE_DAY (1天)';
+COMMENT ON COLUMN api_instance_metrics_rollup.bucket_start IS '时间桶起始点，按粒度对齐';
+COMMENT ON COLUMN api_instance_metrics_rollup.success_count IS '时间桶内成功的 API 调用次数';
+COMMENT ON COLUMN api_instance_metrics_rollup.failure_count IS '时间桶内失败的 API 调用次数';
+COMMENT ON COLUMN api_instance_metrics_rollup.total_latency_ms IS '时间桶内所有 API 调用的总延迟（毫秒）';
+COMMENT ON COLUMN api_instance_metrics_rollup.current_gateway_status IS '时间桶内最后一个分钟窗口的网关状态';
+COMMENT ON COLUMN api_instance_metrics_rollup.last_reported_at IS '时间桶内最后一次上报的时间';
+COMMENT ON COLUMN api_instance_metrics_rollup.latency_histogram IS '时间桶内的延迟分布，由各分钟窗口的 HdrHistogram 合并后重新编码';
+
+---
+-- Table: api_instance_metrics_rollup_watermark
+-- Description: 记录每个汇总粒度已汇总到的时间点，汇总任务据此增量推进，查询侧据此拼接汇总数据与分钟指标。
+---
+CREATE TABLE IF NOT EXISTS api_instance_metrics_rollup_watermark (
+    resolution VARCHAR(16) PRIMARY KEY, -- 汇总粒度
+    watermark TIMESTAMP NOT NULL, -- 已汇总到的时间点（不含）
+    updated_at TIMESTAMP NOT NULL DEFAULT NOW() -- 记录最后更新时间
+);
+
+COMMENT ON TABLE api_instance_metrics_rollup_watermark IS '指标汇总水位线，早于水位线的时间桶均已汇总完成';
+COMMENT ON COLUMN api_instance_metrics_rollup_watermark.resolution IS '汇总粒度：FIVE_MINUTES, ONE_HOUR, ONE_DAY';
+COMMENT ON COLUMN api_instance_metrics_rollup_watermark.watermark IS '已汇总到的时间点（不含）';
+COMMENT ON COLUMN api_instance_metrics_rollup_watermark.updated_at IS '记录最后更新时间';
+
+COMMIT;
+
+-- 确认新表数据无误后删除旧表：
+-- DROP TABLE api_instance_metrics_legacy;
@@ -4,6 +4,7 @@ import org.mybatis.spring.annotation.MapperScan;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.autoconfigure.orm.jpa.HibernateJpaAutoConfiguration;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 /**
  * API Premium Gateway 主启动类
@@ -15,6 +16,7 @@ import org.springframework.boot.autoconfigure.orm.jpa.HibernateJpaAutoConfigurat
     HibernateJpaAutoConfiguration.class
 })
 @MapperScan("org.xhy.gateway.domain.**.repository")
+@EnableScheduling
 public class ApiPremiumGatewayApplication {
 
     public static void main(String[] args) {
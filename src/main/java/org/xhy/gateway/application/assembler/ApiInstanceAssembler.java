@@ -4,7 +4,9 @@ import org.springframework.beans.BeanUtils;
 import org.springframework.stereotype.Component;
 import org.xhy.gateway.application.dto.ApiInstanceDTO;
 import org.xhy.gateway.domain.apiinstance.entity.ApiInstanceEntity;
+import org.xhy.gateway.domain.apiinstance.entity.ApiType;
 import org.xhy.gateway.interfaces.api.request.api_instance.ApiInstanceCreateRequest;
+import org.xhy.gateway.interfaces.api.request.api_instance.ApiInstanceDesiredStateRequest;
 import org.xhy.gateway.interfaces.api.request.api_instance.ApiInstanceUpdateRequest;
 
 import java.util.List;
@@ -103,4 +105,19 @@ public class ApiInstanceAssembler {
                 .collect(Collectors.toList());
     }
 
-}
\ No newline at end of file
+    /**
+     * 将期望状态中的实例转换为实体列表，项目和类型取自请求整体
+     */
+    public static List<ApiInstanceEntity> toEntityList(List<ApiInstanceDesiredStateRequest.DesiredInstance> instances,
+                                                       String projectId, ApiType apiType) {
+        return instances.stream()
+                .map(instance -> {
+                    ApiInstanceEntity entity = new ApiInstanceEntity();
+                    BeanUtils.copyProperties(instance, entity);
+                    entity.setProjectId(projectId);
+                    entity.setApiType(apiType);
+                    return entity;
+                })
+                .collect(Collectors.toList());
+    }
+}
@@ -2,9 +2,12 @@ package org.xhy.gateway.application.assembler;
 
 import org.springframework.stereotype.Component;
 import org.xhy.gateway.application.dto.ApiInstanceMonitoringDTO;
+import org.xhy.gateway.application.dto.LiveInstanceMetricsDTO;
 import org.xhy.gateway.domain.apiinstance.entity.ApiInstanceEntity;
 import org.xhy.gateway.domain.metrics.entity.ApiInstanceMetricsEntity;
 import org.xhy.gateway.domain.metrics.entity.GatewayStatus;
+import org.xhy.gateway.domain.metrics.entity.LatencyHistogram;
+import org.xhy.gateway.domain.metrics.entity.LiveInstanceMetrics;
 
 /**
  * 监控装配器
@@ -44,6 +47,10 @@ public class MonitoringAssembler {
             dto.setSuccessRate(metrics.getSuccessRate());
             dto.setFailureRate(metrics.getFailureRate());
             dto.setAverageLatency(metrics.getAverageLatencyMs());
+            LatencyHistogram latency = LatencyHistogram.fromBytes(metrics.getLatencyHistogram());
+            dto.setP50Latency(latency.getPercentile(50));
+            dto.setP95Latency(latency.getPercentile(95));
+            dto.setP99Latency(latency.getPercentile(99));
             dto.setConcurrency(metrics.getConcurrency());
             dto.setRecentCalls(metrics.getTotalCallCount());
             dto.setSuccessCount(metrics.getSuccessCount());
@@ -64,4 +71,19 @@ public class MonitoringAssembler {
         
         return dto;
     }
-} 
\ No newline at end of file
+
+    /**
+     * 将内存中的实时指标转换为推送DTO
+     */
+    public static LiveInstanceMetricsDTO toLiveMetricsDTO(LiveInstanceMetrics metrics) {
+        LiveInstanceMetricsDTO dto = new LiveInstanceMetricsDTO();
+        dto.setInstanceId(metrics.getInstanceId());
+        dto.setGatewayStatus(metrics.getGatewayStatus());
+        dto.setCallCount(metrics.getCallCount());
+        dto.setSuccessRate(metrics.getSuccessRate());
+        dto.setAverageLatency(metrics.getAverageLatencyMs());
+        dto.setInFlight(metrics.getInFlight());
+        dto.setLastReportedAt(metrics.getLastReportedAt());
+        return dto;
+    }
+}
@@ -40,7 +40,8 @@ public class SelectionAssembler {
                 request.getApiIdentifier(),
                 request.getApiType(),
                 null, // 使用默认负载均衡策略
-                affinityContext
+                affinityContext,
+                request.getExpectedTokens()
         );
     }
 
@@ -24,6 +24,7 @@ public class ApiInstanceDTO {
     private Map<String, Object> routingParams;
     private ApiInstanceStatus status;
     private Map<String, Object> metadata;
+    private Boolean stale;  // 实例选择结果是否来自数据库不可用时的内存快照
 
     public ApiInstanceDTO() {}
 
@@ -107,5 +108,13 @@ public class ApiInstanceDTO {
         this.projectName = projectName;
     }
 
+    public Boolean getStale() {
+        return stale;
+    }
+
+    public void setStale(Boolean stale) {
+        this.stale = stale;
+    }
+
 
 } 
\ No newline at end of file
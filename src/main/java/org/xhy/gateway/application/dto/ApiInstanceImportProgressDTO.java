@@ -0,0 +1,94 @@
+package org.xhy.gateway.application.dto;
+
+import java.util.List;
+
+/**
+ * API实例流式导入进度DTO
+ * 每写入一个分块输出一条，最后一条 finished 为 true 并带上被拒绝行的原因
+ *
+ * @author xhy
+ * @since 1.0.0
+ */
+public class ApiInstanceImportProgressDTO {
+
+    /**
+     * 已读取的实例行数
+     */
+    private Long received;
+
+    /**
+     * 已写入数据库（新建或更新）的实例数
+     */
+    private Long upserted;
+
+    /**
+     * 校验不通过被跳过的行数
+     */
+    private Long rejected;
+
+    /**
+     * 导入是否结束
+     */
+    private Boolean finished;
+
+    /**
+     * 导入中止的原因，正常结束时为空
+     */
+    private String error;
+
+    /**
+     * 被拒绝行的行号和原因，最多保留前若干条
+     */
+    private List<String> rejections;
+
+    public ApiInstanceImportProgressDTO() {
+    }
+
+    public Long getReceived() {
+        return received;
+    }
+
+    public void setReceived(Long received) {
+        this.received = received;
+    }
+
+    public Long getUpserted() {
+        return upserted;
+    }
+
+    public void setUpserted(Long upserted) {
+        this.upserted = upserted;
+    }
+
+    public Long getRejected() {
+        return rejected;
+    }
+
+    public void setRejected(Long rejected) {
+        this.rejected = rejected;
+    }
+
+    public Boolean getFinished() {
+        return finished;
+    }
+
+    public void setFinished(Boolean finished) {
+        this.finished = finished;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+
+    public List<String> getRejections() {
+        return rejections;
+    }
+
+    public void setRejections(List<String> rejections) {
+        this.rejections = rejections;
+    }
+}
@@ -70,6 +70,21 @@ public class ApiInstanceMonitoringDTO {
      */
     private Double averageLatency;
 
+    /**
+     * 最新时间窗口的延迟中位数（毫秒），无延迟分布数据时为空
+     */
+    private Double p50Latency;
+
+    /**
+     * 最新时间窗口的 P95 延迟（毫秒）
+     */
+    private Double p95Latency;
+
+    /**
+     * 最新时间窗口的 P99 延迟（毫秒）
+     */
+    private Double p99Latency;
+
     /**
      * 当前并发数
      */
@@ -201,6 +216,30 @@ public class ApiInstanceMonitoringDTO {
         this.averageLatency = averageLatency;
     }
 
+    public Double getP50Latency() {
+        return p50Latency;
+    }
+
+    public void setP50Latency(Double p50Latency) {
+        this.p50Latency = p50Latency;
+    }
+
+    public Double getP95Latency() {
+        return p95Latency;
+    }
+
+    public void setP95Latency(Double p95Latency) {
+        this.p95Latency = p95Latency;
+    }
+
+    public Double getP99Latency() {
+        return p99Latency;
+    }
+
+    public void setP99Latency(Double p99Latency) {
+        this.p99Latency = p99Latency;
+    }
+
     public Integer getConcurrency() {
         return concurrency;
     }
@@ -279,6 +318,7 @@ public class ApiInstanceMonitoringDTO {
                 ", successRate=" + successRate +
                 ", failureRate=" + failureRate +
                 ", averageLatency=" + averageLatency +
+                ", p99Latency=" + p99Latency +
                 ", concurrency=" + concurrency +
                 ", recentCalls=" + recentCalls +
                 ", successCount=" + successCount +
@@ -0,0 +1,81 @@
+package org.xhy.gateway.application.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * 降级模式状态DTO
+ * 数据库不可用时路由改用内存快照，上报暂存本地日志
+ *
+ * @author xhy
+ * @since 1.0.0
+ */
+public class DegradedModeDTO {
+
+    /**
+     * 是否处于降级模式
+     */
+    private Boolean degraded;
+
+    /**
+     * 数据库开始不可用的时间
+     */
+    private LocalDateTime databaseUnavailableSince;
+
+    /**
+     * 最近一次数据库访问错误
+     */
+    private String lastDatabaseError;
+
+    /**
+     * 内存中的候选实例快照条数
+     */
+    private Long routingSnapshotEntries;
+
+    /**
+     * 本地日志中尚未写入数据库的上报数
+     */
+    private Long spooledReports;
+
+    public DegradedModeDTO() {
+    }
+
+    public Boolean getDegraded() {
+        return degraded;
+    }
+
+    public void setDegraded(Boolean degraded) {
+        this.degraded = degraded;
+    }
+
+    public LocalDateTime getDatabaseUnavailableSince() {
+        return databaseUnavailableSince;
+    }
+
+    public void setDatabaseUnavailableSince(LocalDateTime databaseUnavailableSince) {
+        this.databaseUnavailableSince = databaseUnavailableSince;
+    }
+
+    public String getLastDatabaseError() {
+        return lastDatabaseError;
+    }
+
+    public void setLastDatabaseError(String lastDatabaseError) {
+        this.lastDatabaseError = lastDatabaseError;
+    }
+
+    public Long getRoutingSnapshotEntries() {
+        return routingSnapshotEntries;
+    }
+
+    public void setRoutingSnapshotEntries(Long routingSnapshotEntries) {
+        this.routingSnapshotEntries = routingSnapshotEntries;
+    }
+
+    public Long getSpooledReports() {
+        return spooledReports;
+    }
+
+    public void setSpooledReports(Long spooledReports) {
+        this.spooledReports = spooledReports;
+    }
+}
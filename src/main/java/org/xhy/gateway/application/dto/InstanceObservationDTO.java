@@ -15,6 +15,11 @@ import java.time.LocalDateTime;
  */
 public class InstanceObservationDTO {
 
+    /**
+     * 实例ID
+     */
+    private String instanceId;
+
     /**
      * 项目名称
      */
@@ -60,6 +65,21 @@ public class InstanceObservationDTO {
      */
     private Double averageLatency;
 
+    /**
+     * 指定时间窗口内的延迟中位数（毫秒），无延迟分布数据时为空
+     */
+    private Double p50Latency;
+
+    /**
+     * 指定时间窗口内的 P95 延迟（毫秒）
+     */
+    private Double p95Latency;
+
+    /**
+     * 指定时间窗口内的 P99 延迟（毫秒）
+     */
+    private Double p99Latency;
+
     /**
      * 最后活跃时间
      */
@@ -68,6 +88,14 @@ public class InstanceObservationDTO {
     public InstanceObservationDTO() {
     }
 
+    public String getInstanceId() {
+        return instanceId;
+    }
+
+    public void setInstanceId(String instanceId) {
+        this.instanceId = instanceId;
+    }
+
     public String getProjectName() {
         return projectName;
     }
@@ -140,6 +168,30 @@ public class InstanceObservationDTO {
         this.averageLatency = averageLatency;
     }
 
+    public Double getP50Latency() {
+        return p50Latency;
+    }
+
+    public void setP50Latency(Double p50Latency) {
+        this.p50Latency = p50Latency;
+    }
+
+    public Double getP95Latency() {
+        return p95Latency;
+    }
+
+    public void setP95Latency(Double p95Latency) {
+        this.p95Latency = p95Latency;
+    }
+
+    public Double getP99Latency() {
+        return p99Latency;
+    }
+
+    public void setP99Latency(Double p99Latency) {
+        this.p99Latency = p99Latency;
+    }
+
     public LocalDateTime getLastActiveTime() {
         return lastActiveTime;
     }
@@ -151,7 +203,8 @@ public class InstanceObservationDTO {
     @Override
     public String toString() {
         return "InstanceObservationDTO{" +
-                "projectName='" + projectName + '\'' +
+                "instanceId='" + instanceId + '\'' +
+                ", projectName='" + projectName + '\'' +
                 ", apiIdentifier='" + apiIdentifier + '\'' +
                 ", apiType=" + apiType +
                 ", businessId='" + businessId + '\'' +
@@ -160,6 +213,7 @@ public class InstanceObservationDTO {
                 ", callCount=" + callCount +
                 ", successRate=" + successRate +
                 ", averageLatency=" + averageLatency +
+                ", p99Latency=" + p99Latency +
                 ", lastActiveTime=" + lastActiveTime +
                 '}';
     }
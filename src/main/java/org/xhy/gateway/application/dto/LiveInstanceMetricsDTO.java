@@ -0,0 +1,122 @@
+package org.xhy.gateway.application.dto;
+
+import org.xhy.gateway.domain.metrics.entity.GatewayStatus;
+
+import java.time.LocalDateTime;
+
+/**
+ * 实例实时指标DTO
+ * 实时监控推送中单个实例的状态，成功率和延迟均为最近一分钟的滚动值
+ *
+ * @author xhy
+ * @since 1.0.0
+ */
+public class LiveInstanceMetricsDTO {
+
+    /**
+     * 实例ID
+     */
+    private String instanceId;
+
+    /**
+     * 网关状态
+     */
+    private GatewayStatus gatewayStatus;
+
+    /**
+     * 最近一分钟的调用次数
+     */
+    private Long callCount;
+
+    /**
+     * 最近一分钟的成功率（百分比），无调用时为空
+     */
+    private Double successRate;
+
+    /**
+     * 最近一分钟的平均延迟（毫秒），无调用时为空
+     */
+    private Double averageLatency;
+
+    /**
+     * 在途调用数（已选出尚未上报）
+     */
+    private Integer inFlight;
+
+    /**
+     * 最后上报时间
+     */
+    private LocalDateTime lastReportedAt;
+
+    public LiveInstanceMetricsDTO() {
+    }
+
+    public String getInstanceId() {
+        return instanceId;
+    }
+
+    public void setInstanceId(String instanceId) {
+        this.instanceId = instanceId;
+    }
+
+    public GatewayStatus getGatewayStatus() {
+        return gatewayStatus;
+    }
+
+    public void setGatewayStatus(GatewayStatus gatewayStatus) {
+        this.gatewayStatus = gatewayStatus;
+    }
+
+    public Long getCallCount() {
+        return callCount;
+    }
+
+    public void setCallCount(Long callCount) {
+        this.callCount = callCount;
+    }
+
+    public Double getSuccessRate() {
+        return successRate;
+    }
+
+    public void setSuccessRate(Double successRate) {
+        this.successRate = successRate;
+    }
+
+    public Double getAverageLatency() {
+        return averageLatency;
+    }
+
+    public void setAverageLatency(Double averageLatency) {
+        this.averageLatency = averageLatency;
+    }
+
+    public Integer getInFlight() {
+        return inFlight;
+    }
+
+    public void setInFlight(Integer inFlight) {
+        this.inFlight = inFlight;
+    }
+
+    public LocalDateTime getLastReportedAt() {
+        return lastReportedAt;
+    }
+
+    public void setLastReportedAt(LocalDateTime lastReportedAt) {
+        this.lastReportedAt = lastReportedAt;
+    }
+
+    @Override
+    public String toString() {
+        return "LiveInstanceMetricsDTO{" +
+                "instanceId='" + instanceId + '\'' +
+                ", gatewayStatus=" + gatewayStatus +
+                ", callCount=" + callCount +
+                ", successRate=" + successRate +
+                ", averageLatency=" + averageLatency +
+                ", inFlight=" + inFlight +
+                ", lastReportedAt=" + lastReportedAt +
+                '}';
+    }
+}
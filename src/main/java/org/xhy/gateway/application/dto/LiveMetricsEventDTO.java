@@ -0,0 +1,71 @@
+package org.xhy.gateway.application.dto;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 实时指标推送事件DTO
+ * snapshot 事件携带全部实例；delta 事件只携带自上次推送以来发生变化的实例和已移除的实例ID
+ *
+ * @author xhy
+ * @since 1.0.0
+ */
+public class LiveMetricsEventDTO {
+
+    /**
+     * 新增或发生变化的实例
+     */
+    private List<LiveInstanceMetricsDTO> instances;
+
+    /**
+     * 已不再跟踪的实例ID
+     */
+    private List<String> removed;
+
+    /**
+     * 数据时间点
+     */
+    private LocalDateTime asOf;
+
+    public LiveMetricsEventDTO() {
+    }
+
+    public LiveMetricsEventDTO(List<LiveInstanceMetricsDTO> instances, List<String> removed, LocalDateTime asOf) {
+        this.instances = instances;
+        this.removed = removed;
+        this.asOf = asOf;
+    }
+
+    public List<LiveInstanceMetricsDTO> getInstances() {
+        return instances;
+    }
+
+    public void setInstances(List<LiveInstanceMetricsDTO> instances) {
+        this.instances = instances;
+    }
+
+    public List<String> getRemoved() {
+        return removed;
+    }
+
+    public void setRemoved(List<String> removed) {
+        this.removed = removed;
+    }
+
+    public LocalDateTime getAsOf() {
+        return asOf;
+    }
+
+    public void setAsOf(LocalDateTime asOf) {
+        this.asOf = asOf;
+    }
+
+    @Override
+    public String toString() {
+        return "LiveMetricsEventDTO{" +
+                "instances=" + instances +
+                ", removed=" + removed +
+                ", asOf=" + asOf +
+                '}';
+    }
+}
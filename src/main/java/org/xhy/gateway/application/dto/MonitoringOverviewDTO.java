@@ -1,5 +1,7 @@
 package org.xhy.gateway.application.dto;
 
+import java.time.LocalDateTime;
+
 /**
  * 监控概览DTO
  * 用于监控页面展示核心指标统计
@@ -39,6 +41,11 @@ public class MonitoringOverviewDTO {
      */
     private Long totalCalls;
 
+    /**
+     * 数据截止时间（快照计算时间）
+     */
+    private LocalDateTime asOf;
+
     public MonitoringOverviewDTO() {
     }
 
@@ -100,6 +107,14 @@ public class MonitoringOverviewDTO {
         this.totalCalls = totalCalls;
     }
 
+    public LocalDateTime getAsOf() {
+        return asOf;
+    }
+
+    public void setAsOf(LocalDateTime asOf) {
+        this.asOf = asOf;
+    }
+
     @Override
     public String toString() {
         return "MonitoringOverviewDTO{" +
@@ -109,6 +124,7 @@ public class MonitoringOverviewDTO {
                 ", averageSuccessRate=" + averageSuccessRate +
                 ", averageLatency=" + averageLatency +
                 ", totalCalls=" + totalCalls +
+                ", asOf=" + asOf +
                 '}';
     }
 } 
\ No newline at end of file
@@ -1,5 +1,7 @@
 package org.xhy.gateway.application.dto;
 
+import java.time.LocalDateTime;
+
 /**
  * 观测概览DTO
  * 用于观测页面顶部的统计卡片展示
@@ -49,6 +51,11 @@ public class ObservationOverviewDTO {
      */
     private Double averageLatency;
 
+    /**
+     * 观测快照的计算时间
+     */
+    private LocalDateTime asOf;
+
     public ObservationOverviewDTO() {
     }
 
@@ -129,6 +136,14 @@ public class ObservationOverviewDTO {
         this.averageLatency = averageLatency;
     }
 
+    public LocalDateTime getAsOf() {
+        return asOf;
+    }
+
+    public void setAsOf(LocalDateTime asOf) {
+        this.asOf = asOf;
+    }
+
     @Override
     public String toString() {
         return "ObservationOverviewDTO{" +
@@ -140,6 +155,7 @@ public class ObservationOverviewDTO {
                 ", totalCallCount=" + totalCallCount +
                 ", averageSuccessRate=" + averageSuccessRate +
                 ", averageLatency=" + averageLatency +
+                ", asOf=" + asOf +
                 '}';
     }
 } 
\ No newline at end of file
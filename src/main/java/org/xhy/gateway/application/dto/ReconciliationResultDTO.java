@@ -0,0 +1,114 @@
+package org.xhy.gateway.application.dto;
+
+/**
+ * API实例期望状态同步结果DTO
+ *
+ * @author xhy
+ * @since 1.0.0
+ */
+public class ReconciliationResultDTO {
+
+    private String apiType;
+
+    /**
+     * 新建的实例数
+     */
+    private Integer created;
+
+    /**
+     * 配置被更新的实例数
+     */
+    private Integer updated;
+
+    /**
+     * 从非活跃状态恢复为活跃的实例数
+     */
+    private Integer reactivated;
+
+    /**
+     * 期望中不存在、被停用或删除的实例数
+     */
+    private Integer removed;
+
+    /**
+     * 多出实例的处理方式：DEACTIVATE 或 DELETE
+     */
+    private String absentAction;
+
+    /**
+     * 无需变更的实例数
+     */
+    private Integer unchanged;
+
+    /**
+     * 同步后该类型的活跃实例数
+     */
+    private Integer activeInstances;
+
+    public ReconciliationResultDTO() {
+    }
+
+    public String getApiType() {
+        return apiType;
+    }
+
+    public void setApiType(String apiType) {
+        this.apiType = apiType;
+    }
+
+    public Integer getCreated() {
+        return created;
+    }
+
+    public void setCreated(Integer created) {
+        this.created = created;
+    }
+
+    public Integer getUpdated() {
+        return updated;
+    }
+
+    public void setUpdated(Integer updated) {
+        this.updated = updated;
+    }
+
+    public Integer getReactivated() {
+        return reactivated;
+    }
+
+    public void setReactivated(Integer reactivated) {
+        this.reactivated = reactivated;
+    }
+
+    public Integer getRemoved() {
+        return removed;
+    }
+
+    public void setRemoved(Integer removed) {
+        this.removed = removed;
+    }
+
+    public String getAbsentAction() {
+        return absentAction;
+    }
+
+    public void setAbsentAction(String absentAction) {
+        this.absentAction = absentAction;
+    }
+
+    public Integer getUnchanged() {
+        return unchanged;
+    }
+
+    public void setUnchanged(Integer unchanged) {
+        this.unchanged = unchanged;
+    }
+
+    public Integer getActiveInstances() {
+        return activeInstances;
+    }
+
+    public void setActiveInstances(Integer activeInstances) {
+        this.activeInstances = activeInstances;
+    }
+}
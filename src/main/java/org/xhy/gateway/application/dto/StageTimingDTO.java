@@ -0,0 +1,98 @@
+package org.xhy.gateway.application.dto;
+
+/**
+ * 阶段耗时DTO
+ * 单个热路径阶段自启动或上次重置以来的耗时分布，单位为微秒
+ *
+ * @author xhy
+ * @since 1.0.0
+ */
+public class StageTimingDTO {
+
+    /**
+     * 阶段名称，例如 select.strategy
+     */
+    private String stage;
+
+    /**
+     * 记录次数
+     */
+    private Long count;
+
+    private Double p50Micros;
+    private Double p99Micros;
+    private Double p999Micros;
+    private Double maxMicros;
+    private Double meanMicros;
+
+    public StageTimingDTO() {
+    }
+
+    public String getStage() {
+        return stage;
+    }
+
+    public void setStage(String stage) {
+        this.stage = stage;
+    }
+
+    public Long getCount() {
+        return count;
+    }
+
+    public void setCount(Long count) {
+        this.count = count;
+    }
+
+    public Double getP50Micros() {
+        return p50Micros;
+    }
+
+    public void setP50Micros(Double p50Micros) {
+        this.p50Micros = p50Micros;
+    }
+
+    public Double getP99Micros() {
+        return p99Micros;
+    }
+
+    public void setP99Micros(Double p99Micros) {
+        this.p99Micros = p99Micros;
+    }
+
+    public Double getP999Micros() {
+        return p999Micros;
+    }
+
+    public void setP999Micros(Double p999Micros) {
+        this.p999Micros = p999Micros;
+    }
+
+    public Double getMaxMicros() {
+        return maxMicros;
+    }
+
+    public void setMaxMicros(Double maxMicros) {
+        this.maxMicros = maxMicros;
+    }
+
+    public Double getMeanMicros() {
+        return meanMicros;
+    }
+
+    public void setMeanMicros(Double meanMicros) {
+        this.meanMicros = meanMicros;
+    }
+
+    @Override
+    public String toString() {
+        return "StageTimingDTO{" +
+                "stage='" + stage + '\'' +
+                ", count=" + count +
+                ", p50Micros=" + p50Micros +
+                ", p99Micros=" + p99Micros +
+                ", p999Micros=" + p999Micros +
+                ", maxMicros=" + maxMicros +
+                '}';
+    }
+}
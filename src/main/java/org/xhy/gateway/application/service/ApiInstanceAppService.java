@@ -4,19 +4,26 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.xhy.gateway.application.assembler.ApiInstanceAssembler;
 import org.xhy.gateway.application.dto.ApiInstanceDTO;
+import org.xhy.gateway.application.dto.ReconciliationResultDTO;
 import org.xhy.gateway.domain.apiinstance.entity.ApiInstanceEntity;
 import org.xhy.gateway.domain.apiinstance.entity.ApiInstanceStatus;
 import org.xhy.gateway.domain.apiinstance.entity.ApiType;
 import org.xhy.gateway.domain.apiinstance.service.ApiInstanceDomainService;
+import org.xhy.gateway.domain.apiinstance.service.RoutingSnapshotService;
 import org.xhy.gateway.domain.project.service.ProjectDomainService;
 import org.xhy.gateway.interfaces.api.request.api_instance.ApiInstanceCreateRequest;
 import org.xhy.gateway.interfaces.api.request.api_instance.ApiInstanceUpdateRequest;
 import org.xhy.gateway.interfaces.api.request.api_instance.ApiInstanceBatchDeleteRequest;
+import org.xhy.gateway.interfaces.api.request.api_instance.ApiInstanceBulkStatusRequest;
+import org.xhy.gateway.interfaces.api.request.api_instance.ApiInstanceDesiredStateRequest;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 /**
@@ -35,9 +42,13 @@ public class ApiInstanceAppService {
 
     private final ProjectDomainService projectDomainService;
 
-    public ApiInstanceAppService(ApiInstanceDomainService apiInstanceDomainService, ProjectDomainService projectDomainService) {
+    private final RoutingSnapshotService routingSnapshotService;
+
+    public ApiInstanceAppService(ApiInstanceDomainService apiInstanceDomainService, ProjectDomainService projectDomainService,
+                                 RoutingSnapshotService routingSnapshotService) {
         this.apiInstanceDomainService = apiInstanceDomainService;
         this.projectDomainService = projectDomainService;
+        this.routingSnapshotService = routingSnapshotService;
     }
 
     /**
@@ -103,6 +114,52 @@ public class ApiInstanceAppService {
         return result;
     }
 
+    /**
+     * 批量 upsert API实例
+     * 每次调用一个事务，供流式导入按分块提交
+     *
+     * @return 新建和更新的实例总数
+     */
+    @Transactional
+    public int upsertApiInstances(List<ApiInstanceCreateRequest> requests, String projectId) {
+        List<ApiInstanceEntity> entities = ApiInstanceAssembler.toEntityList(requests, projectId);
+        return apiInstanceDomainService.upsertApiInstances(entities);
+    }
+
+    /**
+     * 按期望状态同步某一类API实例
+     * 差异在内存中计算，所有变更在一个事务中以少量集合语句完成；提交后用变更后的活跃实例一次性刷新路由快照
+     */
+    @Transactional
+    public ReconciliationResultDTO reconcileApiInstances(String projectId, ApiInstanceDesiredStateRequest request) {
+        projectDomainService.validateProjectExists(projectId);
+        ApiType apiType = ApiType.fromCode(request.getApiType());
+        boolean deleteAbsent = request.isDeleteAbsent();
+
+        List<ApiInstanceEntity> desired = ApiInstanceAssembler.toEntityList(request.getInstances(), projectId, apiType);
+        ApiInstanceDomainService.ReconciliationPlan plan =
+                apiInstanceDomainService.planReconciliation(projectId, apiType, desired);
+
+        ReconciliationResultDTO result = new ReconciliationResultDTO();
+        result.setApiType(apiType.getCode());
+        result.setCreated(plan.getCreateCount());
+        result.setUpdated(plan.getUpdateCount());
+        result.setReactivated(plan.getReactivateCount());
+        result.setRemoved(deleteAbsent ? plan.getAbsentCount() : plan.getAbsentActiveCount());
+        result.setAbsentAction(deleteAbsent ? "DELETE" : "DEACTIVATE");
+        result.setUnchanged(plan.getUnchangedCount());
+
+        if (plan.isEmpty()) {
+            result.setActiveInstances(plan.getUnchangedCount());
+            return result;
+        }
+
+        List<ApiInstanceEntity> activeInstances = apiInstanceDomainService.applyReconciliation(plan, deleteAbsent);
+        result.setActiveInstances(activeInstances.size());
+        afterCommit(() -> routingSnapshotService.replaceCandidates(projectId, apiType, activeInstances));
+        return result;
+    }
+
     /**
      * 根据ID获取API实例详情
      */
@@ -248,6 +305,44 @@ public class ApiInstanceAppService {
         return ApiInstanceAssembler.toDTO(updatedEntity);
     }
 
+    /**
+     * 批量变更API实例状态
+     * 一条 UPDATE 完成，提交后用该类型的活跃实例刷新一次路由快照
+     *
+     * @return 状态实际发生变化的实例数
+     */
+    @Transactional
+    public int bulkChangeStatus(String projectId, ApiInstanceBulkStatusRequest request, ApiInstanceStatus status) {
+        projectDomainService.validateProjectExists(projectId);
+        ApiType apiType = ApiType.fromCode(request.getApiType());
+
+        ApiInstanceDomainService.InstanceStatusFilter filter = new ApiInstanceDomainService.InstanceStatusFilter(
+                request.getBusinessIds(), request.getApiIdentifier(), request.getMetadataLabels());
+        int updated = apiInstanceDomainService.bulkUpdateStatus(projectId, apiType, filter, status);
+
+        if (updated > 0) {
+            List<ApiInstanceEntity> activeInstances = apiInstanceDomainService.getActiveApiInstances(projectId, apiType);
+            afterCommit(() -> routingSnapshotService.replaceCandidates(projectId, apiType, activeInstances));
+        }
+        return updated;
+    }
+
+    /**
+     * 在当前事务提交后执行，没有事务时立即执行
+     */
+    private void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
     /**
      * 获取所有API实例（包含项目信息）- 用于管理后台
      */
@@ -258,16 +353,14 @@ public class ApiInstanceAppService {
         List<ApiInstanceEntity> entities = apiInstanceDomainService.getAllInstancesWithProjects(projectId, status);
         List<ApiInstanceDTO> dtos = ApiInstanceAssembler.toDTOList(entities);
         
-        // 填充项目名称
+        // 批量填充项目名称：所有项目一次解析，避免逐个实例查询
+        List<String> projectIds = dtos.stream()
+                .map(ApiInstanceDTO::getProjectId)
+                .distinct()
+                .collect(Collectors.toList());
+        Map<String, String> projectNames = projectDomainService.getProjectNamesByIds(projectIds);
         for (ApiInstanceDTO dto : dtos) {
-            // 获取项目名称
-            try {
-                String pName = projectDomainService.getProjectNameById(dto.getProjectId());
-                dto.setProjectName(pName);
-            } catch (Exception e) {
-                logger.warn("获取项目名称失败，项目ID: {}", dto.getProjectId());
-                dto.setProjectName("未知项目");
-            }
+            dto.setProjectName(projectNames.getOrDefault(dto.getProjectId(), "未知项目"));
         }
         
         return dtos;
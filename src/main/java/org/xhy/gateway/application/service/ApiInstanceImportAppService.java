@@ -0,0 +1,180 @@
+package org.xhy.gateway.application.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.xhy.gateway.application.dto.ApiInstanceImportProgressDTO;
+import org.xhy.gateway.domain.project.service.ProjectDomainService;
+import org.xhy.gateway.interfaces.api.request.api_instance.ApiInstanceCreateRequest;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * API实例流式导入应用服务
+ * 从 NDJSON（每行一个实例）输入流中逐条解析实例，凑满一个分块就 upsert 一次并回调进度，
+ * 内存中只保留当前分块，占用与导入总量无关。每个分块单独提交，中途失败时之前的分块已经生效。
+ * 进度回调失败（通常是客户端已断开）时停止读取后续数据，不再回调。
+ *
+ * @author xhy
+ * @since 1.0.0
+ */
+@Service
+public class ApiInstanceImportAppService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ApiInstanceImportAppService.class);
+
+    /**
+     * 最终结果中最多保留的被拒绝行数
+     */
+    private static final int MAX_REPORTED_REJECTIONS = 100;
+
+    private final ApiInstanceAppService apiInstanceAppService;
+    private final ProjectDomainService projectDomainService;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+    private final int chunkSize;
+
+    public ApiInstanceImportAppService(ApiInstanceAppService apiInstanceAppService,
+                                       ProjectDomainService projectDomainService,
+                                       ObjectMapper objectMapper,
+                                       Validator validator,
+                                       @Value("${gateway.instances.import.chunk-size:500}") int chunkSize) {
+        this.apiInstanceAppService = apiInstanceAppService;
+        this.projectDomainService = projectDomainService;
+        this.objectMapper = objectMapper;
+        this.validator = validator;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * 导入实例
+     * 校验不通过的行被跳过并记录行号；JSON 格式错误、写库失败或进度回调失败时中止，已读取的完整分块保持已提交
+     *
+     * @param input    NDJSON 输入流
+     * @param projectId 项目ID
+     * @param progressListener 每个分块提交后以及结束时回调；抛出异常时导入停止，且不再被回调
+     * @return 最终进度
+     */
+    public ApiInstanceImportProgressDTO importInstances(InputStream input, String projectId,
+                                                        Consumer<ApiInstanceImportProgressDTO> progressListener) {
+        projectDomainService.validateProjectExists(projectId);
+        logger.info("开始流式导入API实例，项目ID: {}，分块大小: {}", projectId, chunkSize);
+
+        ImportState state = new ImportState();
+        List<ApiInstanceCreateRequest> chunk = new ArrayList<>(chunkSize);
+        try (MappingIterator<ApiInstanceCreateRequest> iterator =
+                     objectMapper.readerFor(ApiInstanceCreateRequest.class).readValues(input)) {
+            while (iterator.hasNextValue()) {
+                ApiInstanceCreateRequest request = iterator.nextValue();
+                state.received++;
+
+                Set<ConstraintViolation<ApiInstanceCreateRequest>> violations = validator.validate(request);
+                if (!violations.isEmpty()) {
+                    state.reject(iterator.getCurrentLocation().getLineNr(), violations.stream()
+                            .map(ConstraintViolation::getMessage)
+                            .collect(Collectors.joining("; ")));
+                    continue;
+                }
+
+                chunk.add(request);
+                if (chunk.size() >= chunkSize) {
+                    state.upserted += apiInstanceAppService.upsertApiInstances(chunk, projectId);
+                    chunk.clear();
+                    notifyProgress(progressListener, state.toProgress(false));
+                }
+            }
+            if (!chunk.isEmpty()) {
+                state.upserted += apiInstanceAppService.upsertApiInstances(chunk, projectId);
+            }
+        } catch (JsonProcessingException e) {
+            int lineNumber = e.getLocation() == null ? -1 : e.getLocation().getLineNr();
+            state.error = "第 " + lineNumber + " 行不是合法的实例 JSON: " + e.getOriginalMessage();
+        } catch (IOException e) {
+            state.error = "读取导入数据失败: " + e.getMessage();
+        } catch (ProgressListenerException e) {
+            logger.warn("流式导入API实例进度回调失败，停止导入，项目ID: {}，已写入: {}",
+                    projectId, state.upserted, e.getCause());
+            state.error = "进度回调失败: " + e.getCause().getMessage();
+            return state.toProgress(true);
+        } catch (RuntimeException e) {
+            logger.error("流式导入API实例写入失败，项目ID: {}", projectId, e);
+            state.error = "写入失败: " + e.getMessage();
+        }
+
+        ApiInstanceImportProgressDTO result = state.toProgress(true);
+        logger.info("流式导入API实例结束，项目ID: {}，读取: {}，写入: {}，拒绝: {}，错误: {}",
+                projectId, result.getReceived(), result.getUpserted(), result.getRejected(), result.getError());
+        try {
+            notifyProgress(progressListener, result);
+        } catch (ProgressListenerException e) {
+            logger.warn("流式导入API实例最终进度回调失败，项目ID: {}", projectId, e.getCause());
+        }
+        return result;
+    }
+
+    /**
+     * 调用进度回调，把回调自身的异常包装起来，与解析和写库失败区分开
+     */
+    private void notifyProgress(Consumer<ApiInstanceImportProgressDTO> progressListener,
+                                ApiInstanceImportProgressDTO progress) {
+        try {
+            progressListener.accept(progress);
+        } catch (RuntimeException e) {
+            throw new ProgressListenerException(e);
+        }
+    }
+
+    /**
+     * 进度回调失败
+     */
+    private static class ProgressListenerException extends RuntimeException {
+
+        ProgressListenerException(RuntimeException cause) {
+            super(cause);
+        }
+    }
+
+    /**
+     * 单次导入的累计状态
+     */
+    private static class ImportState {
+
+        private long received;
+        private long upserted;
+        private long rejected;
+        private String error;
+        private final List<String> rejections = new ArrayList<>();
+
+        void reject(int lineNumber, String reason) {
+            rejected++;
+            if (rejections.size() < MAX_REPORTED_REJECTIONS) {
+                rejections.add("第 " + lineNumber + " 行: " + reason);
+            }
+        }
+
+        ApiInstanceImportProgressDTO toProgress(boolean finished) {
+            ApiInstanceImportProgressDTO progress = new ApiInstanceImportProgressDTO();
+            progress.setReceived(received);
+            progress.setUpserted(upserted);
+            progress.setRejected(rejected);
+            progress.setFinished(finished);
+            if (finished) {
+                progress.setError(error);
+                progress.setRejections(List.copyOf(rejections));
+            }
+            return progress;
+        }
+    }
+}
@@ -1,5 +1,8 @@
 package org.xhy.gateway.application.service;
 
+import cn.hutool.crypto.digest.DigestUtil;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
@@ -7,6 +10,9 @@ import org.springframework.util.StringUtils;
 import org.xhy.gateway.domain.apikey.service.ApiKeyDomainService;
 import org.xhy.gateway.domain.project.service.ProjectDomainService;
 import org.xhy.gateway.infrastructure.context.ApiContext;
+import org.xhy.gateway.infrastructure.datasource.DatabaseAvailability;
+
+import java.util.concurrent.TimeUnit;
 
 /**
  * 认证应用服务
@@ -22,11 +28,23 @@ public class AuthenticationAppService {
 
     private final ApiKeyDomainService apiKeyDomainService;
     private final ProjectDomainService projectDomainService;
+    private final DatabaseAvailability databaseAvailability;
+
+    /**
+     * 最近认证通过的 API Key（SHA-256 摘要）与项目ID，数据库不可用时据此放行
+     * 内存中不保存明文 Key；数量有上限，长时间未再认证的 Key 过期后在降级期间不再放行。
+     */
+    private final Cache<String, String> authenticatedKeys = Caffeine.newBuilder()
+            .maximumSize(10000)
+            .expireAfterWrite(24, TimeUnit.HOURS)
+            .build();
 
     public AuthenticationAppService(ApiKeyDomainService apiKeyDomainService, 
-                                   ProjectDomainService projectDomainService) {
+                                   ProjectDomainService projectDomainService,
+                                   DatabaseAvailability databaseAvailability) {
         this.apiKeyDomainService = apiKeyDomainService;
         this.projectDomainService = projectDomainService;
+        this.databaseAvailability = databaseAvailability;
     }
 
     /**
@@ -77,9 +95,15 @@ public class AuthenticationAppService {
                 return AuthenticationResult.failure("API Key是必需的", 401);
             }
 
+            // 数据库处于降级模式，不等待连接超时
+            if (!databaseAvailability.allowQuery()) {
+                return authenticateFromSnapshot(apiKey);
+            }
+
             // 2. 验证API Key是否有效
             if (!apiKeyDomainService.isValidApiKey(apiKey)) {
                 logger.warn("无效的API Key: {}", apiKey);
+                authenticatedKeys.invalidate(keyDigest(apiKey));
                 return AuthenticationResult.failure("无效的API Key", 401);
             }
 
@@ -87,16 +111,20 @@ public class AuthenticationAppService {
             String projectId = projectDomainService.getProjectIdByApiKey(apiKey);
             if (!StringUtils.hasText(projectId)) {
                 logger.warn("API Key未关联任何项目: {}", apiKey);
+                authenticatedKeys.invalidate(keyDigest(apiKey));
                 return AuthenticationResult.failure("API Key未关联项目", 403);
             }
 
             // 4. 验证项目是否活跃
             if (!projectDomainService.isProjectActive(projectId)) {
                 logger.warn("项目不活跃或不存在: projectId={}, apiKey={}", projectId, apiKey);
+                authenticatedKeys.invalidate(keyDigest(apiKey));
                 return AuthenticationResult.failure("项目不活跃或不存在", 403);
             }
 
             // 5. 认证成功，设置上下文
+            databaseAvailability.recordSuccess();
+            authenticatedKeys.put(keyDigest(apiKey), projectId);
             ApiContext.setApiKey(apiKey);
             ApiContext.setProjectId(projectId);
 
@@ -104,11 +132,34 @@ public class AuthenticationAppService {
             return AuthenticationResult.success(apiKey, projectId);
 
         } catch (Exception e) {
+            if (DatabaseAvailability.isUnavailableError(e)) {
+                databaseAvailability.recordFailure(e);
+                return authenticateFromSnapshot(apiKey);
+            }
             logger.error("API Key认证过程发生异常: apiKey={}", apiKey, e);
             return AuthenticationResult.failure("认证服务异常", 500);
         }
     }
 
+    /**
+     * 数据库不可用时的认证：只放行最近一次认证通过的 API Key
+     */
+    private AuthenticationResult authenticateFromSnapshot(String apiKey) {
+        String projectId = authenticatedKeys.getIfPresent(keyDigest(apiKey));
+        if (projectId == null) {
+            logger.warn("数据库不可用，API Key 没有可用的认证记录: {}", apiKey);
+            return AuthenticationResult.failure("认证服务暂时不可用", 503);
+        }
+        ApiContext.setApiKey(apiKey);
+        ApiContext.setProjectId(projectId);
+        logger.debug("数据库不可用，按最近的认证记录放行: apiKey={}, projectId={}", apiKey, projectId);
+        return AuthenticationResult.success(apiKey, projectId);
+    }
+
+    private static String keyDigest(String apiKey) {
+        return DigestUtil.sha256Hex(apiKey);
+    }
+
     /**
      * 清理认证上下文
      */
@@ -0,0 +1,97 @@
+package org.xhy.gateway.application.service;
+
+import org.HdrHistogram.Histogram;
+import org.springframework.stereotype.Service;
+import org.xhy.gateway.application.dto.DegradedModeDTO;
+import org.xhy.gateway.application.dto.StageTimingDTO;
+import org.xhy.gateway.domain.apiinstance.service.RoutingSnapshotService;
+import org.xhy.gateway.infrastructure.datasource.DatabaseAvailability;
+import org.xhy.gateway.infrastructure.metrics.StageTimings;
+import org.xhy.gateway.infrastructure.metrics.TimedStage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 诊断应用服务
+ * 提供热路径分阶段耗时等排查性能问题用的数据，以及数据库故障时的降级状态
+ *
+ * @author xhy
+ * @since 1.0.0
+ */
+@Service
+public class DiagnosticsAppService {
+
+    private static final double NANOS_PER_MICRO = 1000.0;
+
+    private final StageTimings stageTimings;
+    private final DatabaseAvailability databaseAvailability;
+    private final RoutingSnapshotService routingSnapshotService;
+    private final ReportIngestionAppService reportIngestionAppService;
+
+    public DiagnosticsAppService(StageTimings stageTimings,
+                                 DatabaseAvailability databaseAvailability,
+                                 RoutingSnapshotService routingSnapshotService,
+                                 ReportIngestionAppService reportIngestionAppService) {
+        this.stageTimings = stageTimings;
+        this.databaseAvailability = databaseAvailability;
+        this.routingSnapshotService = routingSnapshotService;
+        this.reportIngestionAppService = reportIngestionAppService;
+    }
+
+    /**
+     * 是否处于降级模式（数据库不可用）
+     */
+    public boolean isDegraded() {
+        return !databaseAvailability.isAvailable();
+    }
+
+    /**
+     * 获取降级模式状态，包含数据库的原始错误信息，只通过管理接口暴露
+     */
+    public DegradedModeDTO getDegradedMode() {
+        DegradedModeDTO dto = new DegradedModeDTO();
+        dto.setDegraded(!databaseAvailability.isAvailable());
+        dto.setDatabaseUnavailableSince(databaseAvailability.getUnavailableSince());
+        dto.setLastDatabaseError(databaseAvailability.getLastError());
+        dto.setRoutingSnapshotEntries(routingSnapshotService.getCandidateSnapshotCount());
+        long spooled = 0;
+        for (long backlog : reportIngestionAppService.getSpoolBacklogs()) {
+            spooled += backlog;
+        }
+        dto.setSpooledReports(spooled);
+        return dto;
+    }
+
+    /**
+     * 获取各阶段的耗时分位数，按阶段定义顺序返回
+     */
+    public List<StageTimingDTO> getStageTimings() {
+        Map<TimedStage, Histogram> snapshot = stageTimings.snapshot();
+        List<StageTimingDTO> result = new ArrayList<>(snapshot.size());
+        snapshot.forEach((stage, histogram) -> result.add(toStageTimingDTO(stage, histogram)));
+        return result;
+    }
+
+    /**
+     * 清空阶段耗时，便于观察某次变更或压测前后的分布
+     */
+    public void resetStageTimings() {
+        stageTimings.reset();
+    }
+
+    private StageTimingDTO toStageTimingDTO(TimedStage stage, Histogram histogram) {
+        StageTimingDTO dto = new StageTimingDTO();
+        dto.setStage(stage.getCode());
+        dto.setCount(histogram.getTotalCount());
+        if (histogram.getTotalCount() > 0) {
+            dto.setP50Micros(histogram.getValueAtPercentile(50) / NANOS_PER_MICRO);
+            dto.setP99Micros(histogram.getValueAtPercentile(99) / NANOS_PER_MICRO);
+            dto.setP999Micros(histogram.getValueAtPercentile(99.9) / NANOS_PER_MICRO);
+            dto.setMaxMicros(histogram.getMaxValue() / NANOS_PER_MICRO);
+            dto.setMeanMicros(histogram.getMean() / NANOS_PER_MICRO);
+        }
+        return dto;
+    }
+}
@@ -11,11 +11,14 @@ import org.xhy.gateway.domain.apiinstance.entity.ApiInstanceStatus;
 import org.xhy.gateway.domain.apiinstance.repository.ApiInstanceRepository;
 import org.xhy.gateway.domain.metrics.entity.ApiInstanceMetricsEntity;
 import org.xhy.gateway.domain.metrics.entity.GatewayStatus;
+import org.xhy.gateway.domain.metrics.entity.LatencyHistogram;
+import org.xhy.gateway.domain.metrics.entity.MetricsResolution;
 import org.xhy.gateway.domain.metrics.repository.ApiInstanceMetricsRepository;
-import org.xhy.gateway.domain.project.entity.ProjectEntity;
-import org.xhy.gateway.domain.project.repository.ProjectRepository;
+import org.xhy.gateway.domain.metrics.service.MetricsQueryDomainService;
+import org.xhy.gateway.domain.project.service.ProjectDomainService;
 import org.xhy.gateway.interfaces.api.request.monitoring.InstanceObservationRequest;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
@@ -33,16 +36,24 @@ public class InstanceObservationAppService {
 
     private static final Logger logger = LoggerFactory.getLogger(InstanceObservationAppService.class);
 
+    /**
+     * 观测窗口内至少划分的时间桶数量，用于选择汇总粒度
+     */
+    private static final int OBSERVATION_MIN_BUCKETS = 6;
+
     private final ApiInstanceRepository apiInstanceRepository;
     private final ApiInstanceMetricsRepository apiInstanceMetricsRepository;
-    private final ProjectRepository projectRepository;
+    private final ProjectDomainService projectDomainService;
+    private final MetricsQueryDomainService metricsQueryDomainService;
 
     public InstanceObservationAppService(ApiInstanceRepository apiInstanceRepository,
                                        ApiInstanceMetricsRepository apiInstanceMetricsRepository,
-                                       ProjectRepository projectRepository) {
+                                       ProjectDomainService projectDomainService,
+                                       MetricsQueryDomainService metricsQueryDomainService) {
         this.apiInstanceRepository = apiInstanceRepository;
         this.apiInstanceMetricsRepository = apiInstanceMetricsRepository;
-        this.projectRepository = projectRepository;
+        this.projectDomainService = projectDomainService;
+        this.metricsQueryDomainService = metricsQueryDomainService;
     }
 
     /**
@@ -177,23 +188,13 @@ public class InstanceObservationAppService {
         
         logger.info("查询指标数据，实例ID列表: {}, 开始时间: {}", instanceIds, startTime);
         
-        // 查询时间范围内的所有指标数据
-        LambdaQueryWrapper<ApiInstanceMetricsEntity> wrapper = new LambdaQueryWrapper<>();
-        wrapper.in(ApiInstanceMetricsEntity::getRegistryId, instanceIds)
-               .ge(ApiInstanceMetricsEntity::getTimestampWindow, startTime)
-               .orderByDesc(ApiInstanceMetricsEntity::getTimestampWindow);
-        
-        List<ApiInstanceMetricsEntity> allMetrics = apiInstanceMetricsRepository.selectList(wrapper);
-        logger.info("查询到 {} 条指标数据", allMetrics.size());
-        if (!allMetrics.isEmpty()) {
-            logger.info("指标数据registry_id列表: {}", allMetrics.stream().map(ApiInstanceMetricsEntity::getRegistryId).distinct().toList());
-        } else {
-            logger.warn("未找到匹配的指标数据，尝试查询所有指标数据进行诊断...");
-            // 诊断性查询：查看数据库中都有哪些registry_id
-            List<ApiInstanceMetricsEntity> allMetricsForDiag = apiInstanceMetricsRepository.selectList(null);
-            logger.warn("数据库中所有指标数据的registry_id: {}", 
-                allMetricsForDiag.stream().map(ApiInstanceMetricsEntity::getRegistryId).distinct().toList());
-        }
+        // 按观测窗口选择汇总粒度，窗口较短时直接读取分钟指标
+        LocalDateTime endTime = LocalDateTime.now();
+        MetricsResolution resolution = MetricsResolution.coarsestWithin(
+                Duration.between(startTime, endTime).dividedBy(OBSERVATION_MIN_BUCKETS));
+        List<ApiInstanceMetricsEntity> allMetrics = metricsQueryDomainService.findMetrics(
+                instanceIds, startTime, endTime, resolution);
+        logger.info("查询到 {} 条指标数据，汇总粒度: {}", allMetrics.size(), resolution);
         
         // 按实例ID分组并聚合数据
         return allMetrics.stream()
@@ -225,6 +226,8 @@ public class InstanceObservationAppService {
         long totalSuccessCount = metrics.stream().mapToLong(ApiInstanceMetricsEntity::getSuccessCount).sum();
         long totalFailureCount = metrics.stream().mapToLong(ApiInstanceMetricsEntity::getFailureCount).sum();
         long totalLatencyMs = metrics.stream().mapToLong(ApiInstanceMetricsEntity::getTotalLatencyMs).sum();
+        LatencyHistogram latency = new LatencyHistogram();
+        metrics.forEach(m -> latency.merge(m.getLatencyHistogram()));
         
         // 创建聚合结果
         ApiInstanceMetricsEntity aggregated = new ApiInstanceMetricsEntity();
@@ -233,6 +236,7 @@ public class InstanceObservationAppService {
         aggregated.setSuccessCount(totalSuccessCount);
         aggregated.setFailureCount(totalFailureCount);
         aggregated.setTotalLatencyMs(totalLatencyMs);
+        aggregated.setLatencyHistogram(latency.getTotalCount() > 0 ? latency.toBytes() : null);
         aggregated.setCurrentGatewayStatus(latest.getCurrentGatewayStatus());
         aggregated.setLastReportedAt(latest.getLastReportedAt());
         
@@ -259,12 +263,17 @@ public class InstanceObservationAppService {
         // 获取聚合指标数据
         Map<String, ApiInstanceMetricsEntity> metricsMap = getAggregatedMetrics(instances, startTime);
         
+        // 获取每个实例最新的指标，用于当前网关状态和最后活跃时间（不受观测窗口限制）
+        Map<String, ApiInstanceMetricsEntity> latestMetricsMap = metricsQueryDomainService.findLatestMetrics(
+                instances.stream().map(ApiInstanceEntity::getId).toList());
+        
         // 获取项目名称映射
         Map<String, String> projectNameMap = getProjectNameMap(instances);
         
         // 转换为DTO列表
         List<InstanceObservationDTO> result = instances.stream()
-                .map(instance -> convertToObservationDTO(instance, metricsMap.get(instance.getId()), projectNameMap))
+                .map(instance -> convertToObservationDTO(instance, metricsMap.get(instance.getId()),
+                        latestMetricsMap.get(instance.getId()), projectNameMap))
                 .filter(dto -> matchesGatewayStatusFilter(dto, request.getGatewayStatus()))
                 .collect(Collectors.toList());
         
@@ -273,27 +282,15 @@ public class InstanceObservationAppService {
     }
 
     /**
-     * 获取项目名称映射
+     * 获取项目名称映射（优先走项目缓存）
      */
     private Map<String, String> getProjectNameMap(List<ApiInstanceEntity> instances) {
         List<String> projectIds = instances.stream()
                 .map(ApiInstanceEntity::getProjectId)
                 .distinct()
                 .collect(Collectors.toList());
-        
-        if (projectIds.isEmpty()) {
-            return Map.of();
-        }
-        
-        LambdaQueryWrapper<ProjectEntity> wrapper = new LambdaQueryWrapper<>();
-        wrapper.in(ProjectEntity::getId, projectIds);
-        List<ProjectEntity> projects = projectRepository.selectList(wrapper);
-        
-        return projects.stream()
-                .collect(Collectors.toMap(
-                        ProjectEntity::getId,
-                        ProjectEntity::getName
-                ));
+
+        return projectDomainService.getProjectNamesByIds(projectIds);
     }
 
     /**
@@ -301,10 +298,12 @@ public class InstanceObservationAppService {
      */
     private InstanceObservationDTO convertToObservationDTO(ApiInstanceEntity instance, 
                                                           ApiInstanceMetricsEntity metrics, 
+                                                          ApiInstanceMetricsEntity latestMetrics,
                                                           Map<String, String> projectNameMap) {
         InstanceObservationDTO dto = new InstanceObservationDTO();
         
         // 基础信息
+        dto.setInstanceId(instance.getId());
         dto.setProjectName(projectNameMap.get(instance.getProjectId()));
         dto.setApiIdentifier(instance.getApiIdentifier());
         dto.setApiType(instance.getApiType());
@@ -317,6 +316,10 @@ public class InstanceObservationAppService {
             dto.setCallCount(metrics.getTotalCallCount());
             dto.setSuccessRate(metrics.getSuccessRate());
             dto.setAverageLatency(metrics.getAverageLatencyMs());
+            LatencyHistogram latency = LatencyHistogram.fromBytes(metrics.getLatencyHistogram());
+            dto.setP50Latency(latency.getPercentile(50));
+            dto.setP95Latency(latency.getPercentile(95));
+            dto.setP99Latency(latency.getPercentile(99));
             dto.setLastActiveTime(metrics.getLastReportedAt());
         } else {
             // 无指标数据时的默认值
@@ -327,6 +330,12 @@ public class InstanceObservationAppService {
             dto.setLastActiveTime(null);
         }
         
+        // 观测窗口外仍有历史指标时，使用最新一条记录的状态和上报时间
+        if (latestMetrics != null) {
+            dto.setGatewayStatus(latestMetrics.getCurrentGatewayStatus());
+            dto.setLastActiveTime(latestMetrics.getLastReportedAt());
+        }
+        
         return dto;
     }
 
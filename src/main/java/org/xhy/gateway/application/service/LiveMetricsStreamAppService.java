@@ -0,0 +1,258 @@
+package org.xhy.gateway.application.service;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.xhy.gateway.application.assembler.MonitoringAssembler;
+import org.xhy.gateway.application.dto.LiveInstanceMetricsDTO;
+import org.xhy.gateway.application.dto.LiveMetricsEventDTO;
+import org.xhy.gateway.domain.metrics.entity.LiveInstanceMetrics;
+import org.xhy.gateway.domain.metrics.service.LiveMetricsDomainService;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * 实时指标推送应用服务
+ * 管理后台通过 SSE 订阅实例的实时状态：订阅时先收到一次全量 snapshot 事件，之后由定时任务每秒计算一次，
+ * 只把发生变化的实例作为 delta 事件推送给所有订阅者。数据来自内存，订阅者数量不会增加数据库查询。
+ * 事件在锁内计算并放入每个订阅者自己的发送队列，由发送线程池写出，锁内不做网络写入，
+ * 一个慢连接不会拖住定时任务和其他订阅者；同一订阅者的事件按入队顺序发送，积压过多的订阅者被断开，由浏览器重连后重新拿快照。
+ *
+ * @author xhy
+ * @since 1.0.0
+ */
+@Service
+public class LiveMetricsStreamAppService {
+
+    private static final Logger logger = LoggerFactory.getLogger(LiveMetricsStreamAppService.class);
+
+    /**
+     * 单个连接的最长保持时间，超时后浏览器的 EventSource 会自动重连
+     */
+    private static final long STREAM_TIMEOUT_MS = 30 * 60 * 1000L;
+
+    /**
+     * 发送线程数，只影响慢连接之间的相互影响，订阅者数量多时也不需要更多
+     */
+    private static final int SENDER_THREADS = 2;
+
+    /**
+     * 单个订阅者允许积压的事件数，超过说明连接跟不上推送频率
+     */
+    private static final int MAX_PENDING_EVENTS = 8;
+
+    private static final String EVENT_SNAPSHOT = "snapshot";
+    private static final String EVENT_DELTA = "delta";
+
+    private final LiveMetricsDomainService liveMetricsDomainService;
+
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+
+    private final ExecutorService sender;
+
+    /**
+     * 上一次推送给订阅者的状态，作为计算增量的基准
+     */
+    private Map<String, LiveInstanceMetrics> lastPushed = new HashMap<>();
+
+    public LiveMetricsStreamAppService(LiveMetricsDomainService liveMetricsDomainService) {
+        this.liveMetricsDomainService = liveMetricsDomainService;
+        AtomicInteger threadIndex = new AtomicInteger();
+        this.sender = Executors.newFixedThreadPool(SENDER_THREADS, runnable -> {
+            Thread thread = new Thread(runnable, "live-metrics-sender-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * 订阅实时指标
+     * 先发送一次全量数据，后续的增量都以此为基准
+     */
+    public SseEmitter subscribe() {
+        return subscribe(new SseEmitter(STREAM_TIMEOUT_MS));
+    }
+
+    SseEmitter subscribe(SseEmitter emitter) {
+        Subscriber subscriber = new Subscriber(emitter);
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(() -> subscribers.remove(subscriber));
+        emitter.onError(e -> subscribers.remove(subscriber));
+
+        synchronized (this) {
+            if (subscribers.isEmpty()) {
+                lastPushed = currentState();
+            }
+            // 快照和加入订阅列表在同一把锁内完成，之后计算的增量一定排在快照之后
+            LiveMetricsEventDTO snapshot = new LiveMetricsEventDTO(toDTOs(lastPushed.values()), List.of(),
+                    LocalDateTime.now());
+            subscribers.add(subscriber);
+            subscriber.enqueue(new PendingEvent(EVENT_SNAPSHOT, snapshot));
+        }
+        logger.info("新增实时指标订阅，当前订阅数: {}", subscribers.size());
+        return emitter;
+    }
+
+    /**
+     * 计算与上一次推送相比的变化并广播给所有订阅者，由定时任务调用
+     * 计算快照时会顺带清理长时间无活动的实例
+     */
+    public void push() {
+        synchronized (this) {
+            if (subscribers.isEmpty()) {
+                // 没有订阅者时不计算快照，但仍要清理空闲实例，否则已删除实例的状态会一直留在内存中
+                liveMetricsDomainService.evictIdle();
+                lastPushed = new HashMap<>();
+                return;
+            }
+
+            Map<String, LiveInstanceMetrics> current = currentState();
+            List<LiveInstanceMetrics> changed = current.values().stream()
+                    .filter(metrics -> !metrics.equals(lastPushed.get(metrics.getInstanceId())))
+                    .collect(Collectors.toList());
+            List<String> removed = lastPushed.keySet().stream()
+                    .filter(instanceId -> !current.containsKey(instanceId))
+                    .collect(Collectors.toList());
+            lastPushed = current;
+
+            if (changed.isEmpty() && removed.isEmpty()) {
+                // 没有变化时发送注释行作为心跳，同时及时发现已断开的连接
+                subscribers.forEach(subscriber -> subscriber.enqueue(PendingEvent.HEARTBEAT));
+                return;
+            }
+
+            LiveMetricsEventDTO delta = new LiveMetricsEventDTO(toDTOs(changed), removed, LocalDateTime.now());
+            PendingEvent event = new PendingEvent(EVENT_DELTA, delta);
+            subscribers.forEach(subscriber -> subscriber.enqueue(event));
+            logger.debug("实时指标增量推送: changed={}, removed={}, subscribers={}",
+                    changed.size(), removed.size(), subscribers.size());
+        }
+    }
+
+    /**
+     * 当前订阅数
+     */
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    @PreDestroy
+    public void stop() {
+        sender.shutdownNow();
+    }
+
+    private Map<String, LiveInstanceMetrics> currentState() {
+        return liveMetricsDomainService.snapshot().stream()
+                .collect(Collectors.toMap(LiveInstanceMetrics::getInstanceId, metrics -> metrics));
+    }
+
+    private List<LiveInstanceMetricsDTO> toDTOs(Iterable<LiveInstanceMetrics> metrics) {
+        List<LiveInstanceMetricsDTO> result = new ArrayList<>();
+        metrics.forEach(m -> result.add(MonitoringAssembler.toLiveMetricsDTO(m)));
+        return result;
+    }
+
+    /**
+     * 待发送的事件，name 为 null 表示心跳注释行
+     */
+    private record PendingEvent(String name, LiveMetricsEventDTO data) {
+
+        static final PendingEvent HEARTBEAT = new PendingEvent(null, null);
+    }
+
+    /**
+     * 订阅者及其发送队列
+     * 同一时刻最多有一个发送任务在处理它的队列，保证事件按入队顺序写出
+     */
+    private final class Subscriber {
+
+        private final SseEmitter emitter;
+        private final Queue<PendingEvent> pending = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger pendingCount = new AtomicInteger();
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private volatile boolean closed;
+
+        Subscriber(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+
+        void enqueue(PendingEvent event) {
+            if (closed) {
+                return;
+            }
+            if (pendingCount.incrementAndGet() > MAX_PENDING_EVENTS) {
+                logger.debug("实时指标订阅积压 {} 个事件，断开连接", MAX_PENDING_EVENTS);
+                close();
+                return;
+            }
+            pending.add(event);
+            scheduleDrain();
+        }
+
+        private void scheduleDrain() {
+            if (draining.compareAndSet(false, true)) {
+                try {
+                    sender.execute(this::drain);
+                } catch (RejectedExecutionException e) {
+                    // 应用正在关闭
+                    draining.set(false);
+                    close();
+                }
+            }
+        }
+
+        private void drain() {
+            PendingEvent event;
+            while (!closed && (event = pending.poll()) != null) {
+                pendingCount.decrementAndGet();
+                if (!send(event)) {
+                    close();
+                    return;
+                }
+            }
+            draining.set(false);
+            // 释放标记之后才入队的事件由这里补发
+            if (!closed && !pending.isEmpty()) {
+                scheduleDrain();
+            }
+        }
+
+        private boolean send(PendingEvent event) {
+            try {
+                if (event.name() == null) {
+                    emitter.send(SseEmitter.event().comment("heartbeat"));
+                } else {
+                    emitter.send(SseEmitter.event().name(event.name()).data(event.data(), MediaType.APPLICATION_JSON));
+                }
+                return true;
+            } catch (IOException | IllegalStateException e) {
+                logger.debug("实时指标推送失败，移除订阅: {}", e.getMessage());
+                return false;
+            }
+        }
+
+        private void close() {
+            closed = true;
+            subscribers.remove(this);
+            pending.clear();
+            emitter.complete();
+        }
+    }
+}
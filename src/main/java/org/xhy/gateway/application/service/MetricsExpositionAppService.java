@@ -0,0 +1,124 @@
+package org.xhy.gateway.application.service;
+
+import org.springframework.stereotype.Service;
+import org.xhy.gateway.domain.apiinstance.service.AffinityService;
+import org.xhy.gateway.domain.metrics.entity.GatewayStatus;
+import org.xhy.gateway.domain.metrics.entity.LiveInstanceMetrics;
+import org.xhy.gateway.domain.metrics.service.LiveMetricsDomainService;
+import org.xhy.gateway.infrastructure.metrics.GatewayMetrics;
+import org.xhy.gateway.infrastructure.metrics.OpenMetricsWriter;
+
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 指标导出应用服务
+ * 汇总进程内的计数器、实时状态和亲和性绑定，生成 OpenMetrics 文本；全部来自内存，不访问数据库
+ *
+ * @author xhy
+ * @since 1.0.0
+ */
+@Service
+public class MetricsExpositionAppService {
+
+    private final GatewayMetrics gatewayMetrics;
+    private final LiveMetricsDomainService liveMetricsDomainService;
+    private final AffinityService affinityService;
+    private final ReportIngestionAppService reportIngestionAppService;
+
+    public MetricsExpositionAppService(GatewayMetrics gatewayMetrics,
+                                       LiveMetricsDomainService liveMetricsDomainService,
+                                       AffinityService affinityService,
+                                       ReportIngestionAppService reportIngestionAppService) {
+        this.gatewayMetrics = gatewayMetrics;
+        this.liveMetricsDomainService = liveMetricsDomainService;
+        this.affinityService = affinityService;
+        this.reportIngestionAppService = reportIngestionAppService;
+    }
+
+    /**
+     * 生成 OpenMetrics 格式的指标文本
+     */
+    public String scrape() {
+        OpenMetricsWriter writer = new OpenMetricsWriter();
+        writeCallMetrics(writer);
+        writeInstanceStates(writer);
+        writeSelectionMetrics(writer);
+        writeAuthenticationMetrics(writer);
+
+        writer.family("gateway_affinity_bindings", "gauge", "Number of live affinity bindings.")
+                .sample("gateway_affinity_bindings", affinityService.getBindingCount());
+        return writer.finish();
+    }
+
+    private void writeCallMetrics(OpenMetricsWriter writer) {
+        // 按实例ID排序，保证多次抓取的输出顺序稳定
+        Map<String, GatewayMetrics.InstanceCallMetrics> calls = new TreeMap<>(gatewayMetrics.getCallMetrics());
+
+        writer.family("gateway_calls", "counter", "Reported upstream calls by instance and outcome.");
+        calls.forEach((instanceId, metrics) -> writer
+                .sample("gateway_calls_total", metrics.getSuccessCount(), "instance", instanceId, "outcome", "success")
+                .sample("gateway_calls_total", metrics.getFailureCount(), "instance", instanceId, "outcome", "failure"));
+
+        writer.family("gateway_call_errors", "counter", "Failed upstream calls by instance and error class.");
+        calls.forEach((instanceId, metrics) -> new TreeMap<>(metrics.getErrors()).forEach((errorClass, count) ->
+                writer.sample("gateway_call_errors_total", count.sum(), "instance", instanceId, "error_class", errorClass)));
+
+        writer.family("gateway_reports_dropped", "counter", "Call result reports dropped without being recorded, by reason.");
+        new TreeMap<>(gatewayMetrics.getDroppedReports()).forEach((reason, count) ->
+                writer.sample("gateway_reports_dropped_total", count.sum(), "reason", reason));
+
+        writer.family("gateway_report_queue_depth", "gauge", "Reports waiting in the ingestion ring buffer by shard.");
+        int[] depths = reportIngestionAppService.getQueueDepths();
+        for (int shard = 0; shard < depths.length; shard++) {
+            writer.sample("gateway_report_queue_depth", depths[shard], "shard", String.valueOf(shard));
+        }
+        writer.family("gateway_report_queue_capacity", "gauge", "Capacity of each ingestion ring buffer shard.")
+                .sample("gateway_report_queue_capacity", reportIngestionAppService.getQueueCapacityPerShard());
+
+        writer.family("gateway_report_spool_backlog", "gauge", "Spooled reports not yet written to the database by shard.");
+        long[] backlogs = reportIngestionAppService.getSpoolBacklogs();
+        for (int shard = 0; shard < backlogs.length; shard++) {
+            writer.sample("gateway_report_spool_backlog", backlogs[shard], "shard", String.valueOf(shard));
+        }
+
+        writer.family("gateway_call_latency_seconds", "histogram", "Reported upstream call latency by instance.");
+        calls.forEach((instanceId, metrics) ->
+                writer.histogram("gateway_call_latency_seconds", metrics.getLatency(), "instance", instanceId));
+    }
+
+    private void writeInstanceStates(OpenMetricsWriter writer) {
+        List<LiveInstanceMetrics> instances = liveMetricsDomainService.snapshot();
+
+        writer.family("gateway_instance_status", "stateset", "Gateway status (circuit breaker state) by instance.");
+        for (LiveInstanceMetrics instance : instances) {
+            for (GatewayStatus status : GatewayStatus.values()) {
+                writer.sample("gateway_instance_status", status == instance.getGatewayStatus() ? 1 : 0,
+                        "instance", instance.getInstanceId(), "gateway_instance_status", status.name());
+            }
+        }
+
+        writer.family("gateway_instance_in_flight", "gauge", "Selected calls not yet reported by instance.");
+        for (LiveInstanceMetrics instance : instances) {
+            writer.sample("gateway_instance_in_flight", instance.getInFlight(), "instance", instance.getInstanceId());
+        }
+    }
+
+    private void writeSelectionMetrics(OpenMetricsWriter writer) {
+        writer.family("gateway_selection_duration_seconds", "histogram", "Time spent selecting an instance.")
+                .histogram("gateway_selection_duration_seconds", gatewayMetrics.getSelectionDuration());
+
+        writer.family("gateway_selections", "counter", "Instance selections by result.");
+        new TreeMap<>(gatewayMetrics.getSelectionResults()).forEach((result, count) ->
+                writer.sample("gateway_selections_total", count.sum(), "result", result));
+    }
+
+    private void writeAuthenticationMetrics(OpenMetricsWriter writer) {
+        writer.family("gateway_authentications", "counter", "API key authentications by result.");
+        Map<String, LongAdder> results = new TreeMap<>(gatewayMetrics.getAuthenticationResults());
+        results.forEach((result, count) ->
+                writer.sample("gateway_authentications_total", count.sum(), "result", result));
+    }
+}
@@ -0,0 +1,45 @@
+package org.xhy.gateway.application.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.xhy.gateway.domain.metrics.entity.MetricsResolution;
+import org.xhy.gateway.domain.metrics.service.MetricsRollupDomainService;
+
+import java.time.LocalDateTime;
+
+/**
+ * 指标汇总应用服务
+ * 每个粒度的汇总写入与水位线推进在同一个事务中完成
+ *
+ * @author xhy
+ * @since 1.0.0
+ */
+@Service
+public class MetricsRollupAppService {
+
+    private static final Logger logger = LoggerFactory.getLogger(MetricsRollupAppService.class);
+
+    private final MetricsRollupDomainService metricsRollupDomainService;
+
+    public MetricsRollupAppService(MetricsRollupDomainService metricsRollupDomainService) {
+        this.metricsRollupDomainService = metricsRollupDomainService;
+    }
+
+    /**
+     * 汇总指定粒度下一批已关闭的时间桶
+     *
+     * @param resolution 目标粒度
+     * @param closedBefore 分钟指标的关闭边界
+     * @return 写入的汇总记录数
+     */
+    @Transactional(rollbackFor = Exception.class)
+    public int rollup(MetricsResolution resolution, LocalDateTime closedBefore) {
+        int written = metricsRollupDomainService.rollupClosedBuckets(resolution, closedBefore);
+        if (written > 0) {
+            logger.info("指标汇总写入 {} 条记录: resolution={}", written, resolution);
+        }
+        return written;
+    }
+}
@@ -14,9 +14,10 @@ import org.xhy.gateway.domain.apiinstance.entity.ApiInstanceStatus;
 import org.xhy.gateway.domain.apiinstance.repository.ApiInstanceRepository;
 import org.xhy.gateway.domain.metrics.entity.ApiInstanceMetricsEntity;
 import org.xhy.gateway.domain.metrics.entity.GatewayStatus;
+import org.xhy.gateway.domain.metrics.entity.MetricsTimeBucket;
 import org.xhy.gateway.domain.metrics.repository.ApiInstanceMetricsRepository;
-import org.xhy.gateway.domain.project.entity.ProjectEntity;
-import org.xhy.gateway.domain.project.repository.ProjectRepository;
+import org.xhy.gateway.domain.metrics.service.MetricsQueryDomainService;
+import org.xhy.gateway.domain.project.service.ProjectDomainService;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
@@ -41,15 +42,18 @@ public class MonitoringAppService {
 
     private final ApiInstanceRepository apiInstanceRepository;
     private final ApiInstanceMetricsRepository apiInstanceMetricsRepository;
-    private final ProjectRepository projectRepository;
+    private final ProjectDomainService projectDomainService;
+    private final MetricsQueryDomainService metricsQueryDomainService;
 
 
     public MonitoringAppService(ApiInstanceRepository apiInstanceRepository,
                                ApiInstanceMetricsRepository apiInstanceMetricsRepository,
-                               ProjectRepository projectRepository) {
+                               ProjectDomainService projectDomainService,
+                               MetricsQueryDomainService metricsQueryDomainService) {
         this.apiInstanceRepository = apiInstanceRepository;
         this.apiInstanceMetricsRepository = apiInstanceMetricsRepository;
-        this.projectRepository = projectRepository;
+        this.projectDomainService = projectDomainService;
+        this.metricsQueryDomainService = metricsQueryDomainService;
     }
 
     /**
@@ -168,7 +172,7 @@ public class MonitoringAppService {
                 .map(ApiInstanceEntity::getId)
                 .collect(Collectors.toList());
 
-        Map<String, ApiInstanceMetricsEntity> latestMetrics = getLatestMetricsMap(instanceIds);
+        Map<String, ApiInstanceMetricsEntity> latestMetrics = metricsQueryDomainService.findLatestMetrics(instanceIds);
 
         // 组装结果
         List<ApiInstanceMonitoringDTO> result = instances.stream()
@@ -191,7 +195,7 @@ public class MonitoringAppService {
     }
 
     /**
-     * 获取项目名称映射
+     * 获取项目名称映射（优先走项目缓存）
      */
     private Map<String, String> getProjectNamesMap(List<ApiInstanceEntity> instances) {
         List<String> projectIds = instances.stream()
@@ -199,44 +203,7 @@ public class MonitoringAppService {
                 .distinct()
                 .collect(Collectors.toList());
 
-        LambdaQueryWrapper<ProjectEntity> projectWrapper = new LambdaQueryWrapper<>();
-        projectWrapper.in(ProjectEntity::getId, projectIds);
-        List<ProjectEntity> projects = projectRepository.selectList(projectWrapper);
-        
-        return projects.stream()
-                .collect(Collectors.toMap(
-                        ProjectEntity::getId,
-                        ProjectEntity::getName
-                ));
-    }
-
-    /**
-     * 获取最新指标数据映射
-     */
-    private Map<String, ApiInstanceMetricsEntity> getLatestMetricsMap(List<String> instanceIds) {
-        logger.debug("获取最新指标数据映射，实例ID列表: {}", instanceIds);
-        
-        // 获取每个实例的最新指标数据
-        Map<String, ApiInstanceMetricsEntity> result = new java.util.HashMap<>();
-         
-        for (String instanceId : instanceIds) {
-            LambdaQueryWrapper<ApiInstanceMetricsEntity> wrapper = new LambdaQueryWrapper<>();
-            wrapper.eq(ApiInstanceMetricsEntity::getRegistryId, instanceId)
-                   .orderByDesc(ApiInstanceMetricsEntity::getTimestampWindow)
-                   .last("LIMIT 1");
-            List<ApiInstanceMetricsEntity> metrics = apiInstanceMetricsRepository.selectList(wrapper);
-            
-            if (metrics.isEmpty()) {
-                logger.debug("实例 {} 暂无指标数据", instanceId);
-                result.put(instanceId, null);
-            } else {
-                logger.debug("实例 {} 找到指标数据: {}", instanceId, metrics.get(0).getId());
-                result.put(instanceId, metrics.get(0));
-            }
-        }
-        
-        logger.debug("指标数据映射获取完成，共 {} 个实例", result.size());
-        return result;
+        return projectDomainService.getProjectNamesByIds(projectIds);
     }
 
     /**
@@ -253,13 +220,8 @@ public class MonitoringAppService {
         
         logger.debug("时间范围：从 {} 到 {}", startTime, endTime);
         
-        // 查询时间范围内的指标数据
-        LambdaQueryWrapper<ApiInstanceMetricsEntity> wrapper = new LambdaQueryWrapper<>();
-        wrapper.ge(ApiInstanceMetricsEntity::getTimestampWindow, startTime)
-               .le(ApiInstanceMetricsEntity::getTimestampWindow, endTime)
-               .orderBy(true, true, ApiInstanceMetricsEntity::getTimestampWindow);
-        
         // 如果指定了项目ID，需要过滤相关实例
+        List<String> instanceIds = null;
         if (projectId != null && !projectId.isEmpty()) {
             // 先获取项目下的所有实例ID
             LambdaQueryWrapper<ApiInstanceEntity> instanceWrapper = new LambdaQueryWrapper<>();
@@ -271,22 +233,23 @@ public class MonitoringAppService {
                 return createEmptyTimeSeriesData();
             }
             
-            List<String> instanceIds = instances.stream()
+            instanceIds = instances.stream()
                     .map(ApiInstanceEntity::getId)
                     .collect(Collectors.toList());
-            wrapper.in(ApiInstanceMetricsEntity::getRegistryId, instanceIds);
         }
         
-        List<ApiInstanceMetricsEntity> metrics = apiInstanceMetricsRepository.selectList(wrapper);
-        logger.debug("查询到 {} 条指标数据", metrics.size());
+        // 在数据库中按展示间隔聚合，每个时间桶只返回一行
+        int intervalMinutes = determineTimeInterval(hours);
+        List<MetricsTimeBucket> buckets = metricsQueryDomainService.aggregateTimeBuckets(
+                instanceIds, startTime, endTime, intervalMinutes);
+        logger.debug("聚合得到 {} 个时间桶，时间间隔: {} 分钟", buckets.size(), intervalMinutes);
         
-        if (metrics.isEmpty()) {
+        if (buckets.isEmpty()) {
 
             return new TimeSeriesDTO();
         }
         
-        // 按时间窗口聚合数据
-        return aggregateTimeSeriesData(metrics, hours);
+        return toTimeSeriesData(buckets);
     }
     
     /**
@@ -320,69 +283,25 @@ public class MonitoringAppService {
     }
     
     /**
-     * 聚合时间序列数据
+     * 将时间桶转换为时间序列数据
+     * 成功率和延迟均按调用量加权
      */
-    private TimeSeriesDTO aggregateTimeSeriesData(List<ApiInstanceMetricsEntity> metrics, int hours) {
-        logger.info("开始聚合时间序列数据，总数据量: {}, 时间范围: {}小时", metrics.size(), hours);
-        
-        // 根据时间范围确定合理的时间间隔
-        int intervalMinutes = determineTimeInterval(hours);
-        logger.debug("使用时间间隔: {} 分钟", intervalMinutes);
-        
-        // 按时间窗口分组
-        Map<LocalDateTime, List<ApiInstanceMetricsEntity>> timeGroups = metrics.stream()
-                .collect(Collectors.groupingBy(m -> alignTimeWindow(m.getTimestampWindow(), intervalMinutes)));
-        
+    private TimeSeriesDTO toTimeSeriesData(List<MetricsTimeBucket> buckets) {
         List<TimePointDTO> callVolumeData = new ArrayList<>();
         List<TimePointDTO> successRateData = new ArrayList<>();
         List<TimePointDTO> latencyData = new ArrayList<>();
         
-        // 按时间排序并聚合
-        timeGroups.entrySet().stream()
-                .sorted(Map.Entry.comparingByKey())
-                .forEach(entry -> {
-                    LocalDateTime timeWindow = entry.getKey();
-                    List<ApiInstanceMetricsEntity> groupMetrics = entry.getValue();
-                    String timeKey = formatTimeForDisplay(timeWindow);
-                    
-                    logger.debug("处理时间窗口: {}, 数据量: {}", timeKey, groupMetrics.size());
-                    
-                    // 计算聚合值
-                    long totalCalls = groupMetrics.stream()
-                            .mapToLong(m -> m.getSuccessCount() + m.getFailureCount())
-                            .sum();
-                    
-                    double avgSuccessRate = groupMetrics.stream()
-                            .mapToDouble(ApiInstanceMetricsEntity::getSuccessRate)
-                            .average()
-                            .orElse(0.0);
-                    
-                    double avgLatency = groupMetrics.stream()
-                            .mapToDouble(ApiInstanceMetricsEntity::getAverageLatencyMs)
-                            .average()
-                            .orElse(0.0);
-                    
-                    logger.debug("时间窗口 {} 聚合结果: 调用量={}, 成功率={:.2f}%, 延迟={:.2f}ms", 
-                            timeKey, totalCalls, avgSuccessRate, avgLatency);
-                    
-                    callVolumeData.add(new TimePointDTO(timeKey, (double) totalCalls));
-                    successRateData.add(new TimePointDTO(timeKey, avgSuccessRate));
-                    latencyData.add(new TimePointDTO(timeKey, avgLatency));
-                });
+        for (MetricsTimeBucket bucket : buckets) {
+            String timeKey = formatTimeForDisplay(bucket.getBucketStart());
+            callVolumeData.add(new TimePointDTO(timeKey, (double) bucket.getTotalCallCount()));
+            successRateData.add(new TimePointDTO(timeKey, bucket.getSuccessRate()));
+            latencyData.add(new TimePointDTO(timeKey, bucket.getAverageLatencyMs()));
+        }
         
         logger.info("时间序列数据聚合完成，生成了 {} 个数据点", callVolumeData.size());
         return new TimeSeriesDTO(callVolumeData, successRateData, latencyData);
     }
     
-    /**
-     * 将时间对齐到时间窗口边界
-     */
-    private LocalDateTime alignTimeWindow(LocalDateTime dateTime, int intervalMinutes) {
-        // 将时间对齐到间隔边界
-        int minute = (dateTime.getMinute() / intervalMinutes) * intervalMinutes;
-        return dateTime.withMinute(minute).withSecond(0).withNano(0);
-    }
-    
     /**
      * 格式化时间用于显示
      */
@@ -0,0 +1,177 @@
+package org.xhy.gateway.application.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.xhy.gateway.application.dto.MonitoringOverviewDTO;
+import org.xhy.gateway.application.dto.ObservationOverviewDTO;
+import org.xhy.gateway.interfaces.api.request.monitoring.InstanceObservationRequest;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * 监控快照应用服务
+ * 概览数据按项目和时间窗口在后台定时计算并缓存在内存中，管理后台的查询直接读取快照，不再访问数据库。
+ * 首次访问某个维度时同步计算一次，之后由定时任务刷新；长时间无人访问的快照会被淘汰。
+ *
+ * @author xhy
+ * @since 1.0.0
+ */
+@Service
+public class MonitoringSnapshotAppService {
+
+    private static final Logger logger = LoggerFactory.getLogger(MonitoringSnapshotAppService.class);
+
+    /**
+     * 快照闲置超过该时长后不再刷新并被淘汰
+     */
+    private static final Duration IDLE_EVICTION = Duration.ofMinutes(10);
+
+    /**
+     * 全部项目的快照键
+     */
+    private static final String ALL_PROJECTS = "*";
+
+    private final MonitoringAppService monitoringAppService;
+    private final InstanceObservationAppService instanceObservationAppService;
+
+    private final Map<String, Snapshot<MonitoringOverviewDTO>> monitoringSnapshots = new ConcurrentHashMap<>();
+    private final Map<ObservationKey, Snapshot<ObservationOverviewDTO>> observationSnapshots = new ConcurrentHashMap<>();
+
+    public MonitoringSnapshotAppService(MonitoringAppService monitoringAppService,
+                                        InstanceObservationAppService instanceObservationAppService) {
+        this.monitoringAppService = monitoringAppService;
+        this.instanceObservationAppService = instanceObservationAppService;
+    }
+
+    /**
+     * 获取监控概览快照
+     */
+    public MonitoringOverviewDTO getMonitoringOverview(String projectId) {
+        String key = projectKey(projectId);
+        return monitoringSnapshots
+                .computeIfAbsent(key, k -> new Snapshot<>(() -> computeMonitoringOverview(projectId)))
+                .get();
+    }
+
+    /**
+     * 获取观测概览快照
+     */
+    public ObservationOverviewDTO getObservationOverview(InstanceObservationRequest request) {
+        ObservationKey key = ObservationKey.of(request);
+        return observationSnapshots
+                .computeIfAbsent(key, k -> new Snapshot<>(() -> computeObservationOverview(k)))
+                .get();
+    }
+
+    /**
+     * 刷新快照
+     *
+     * @param projectId 项目ID，为空时刷新全部快照
+     */
+    public void refresh(String projectId) {
+        String key = projectId == null || projectId.isEmpty() ? null : projectKey(projectId);
+        monitoringSnapshots.forEach((k, snapshot) -> {
+            if (key == null || key.equals(k)) {
+                snapshot.refresh();
+            }
+        });
+        observationSnapshots.forEach((k, snapshot) -> {
+            if (key == null || key.equals(k.project())) {
+                snapshot.refresh();
+            }
+        });
+        logger.debug("监控快照刷新完成: projectId={}, monitoring={}, observation={}",
+                projectId, monitoringSnapshots.size(), observationSnapshots.size());
+    }
+
+    /**
+     * 刷新全部快照并淘汰闲置快照，由定时任务调用
+     */
+    public void refreshAll() {
+        LocalDateTime idleBefore = LocalDateTime.now().minus(IDLE_EVICTION);
+        monitoringSnapshots.values().removeIf(snapshot -> snapshot.isIdleSince(idleBefore));
+        observationSnapshots.values().removeIf(snapshot -> snapshot.isIdleSince(idleBefore));
+        refresh(null);
+    }
+
+    private MonitoringOverviewDTO computeMonitoringOverview(String projectId) {
+        MonitoringOverviewDTO overview = monitoringAppService.getMonitoringOverview(projectId);
+        overview.setAsOf(LocalDateTime.now());
+        return overview;
+    }
+
+    private ObservationOverviewDTO computeObservationOverview(ObservationKey key) {
+        ObservationOverviewDTO overview = instanceObservationAppService.getObservationOverview(key.toRequest());
+        overview.setAsOf(LocalDateTime.now());
+        return overview;
+    }
+
+    private static String projectKey(String projectId) {
+        return projectId == null || projectId.isEmpty() ? ALL_PROJECTS : projectId;
+    }
+
+    /**
+     * 单个维度的快照
+     * 首次读取时同步计算，刷新失败时保留上一次的结果
+     */
+    private static final class Snapshot<T> {
+
+        private final Supplier<T> loader;
+        private volatile T value;
+        private volatile LocalDateTime lastAccessedAt = LocalDateTime.now();
+
+        private Snapshot(Supplier<T> loader) {
+            this.loader = loader;
+        }
+
+        private T get() {
+            lastAccessedAt = LocalDateTime.now();
+            T current = value;
+            if (current == null) {
+                synchronized (this) {
+                    if (value == null) {
+                        value = loader.get();
+                    }
+                    current = value;
+                }
+            }
+            return current;
+        }
+
+        private void refresh() {
+            try {
+                T refreshed = loader.get();
+                value = refreshed;
+            } catch (Exception e) {
+                logger.warn("监控快照刷新失败，继续使用上一次的快照", e);
+            }
+        }
+
+        private boolean isIdleSince(LocalDateTime time) {
+            return lastAccessedAt.isBefore(time);
+        }
+    }
+
+    /**
+     * 观测快照的维度：项目、时间窗口、实例状态（网关状态只影响列表过滤，不影响概览）
+     */
+    private record ObservationKey(String project, String timeWindow, String instanceStatus) {
+
+        private static ObservationKey of(InstanceObservationRequest request) {
+            return new ObservationKey(projectKey(request.getProjectId()), request.getTimeWindow().toLowerCase(),
+                    request.getInstanceStatus() == null ? "" : request.getInstanceStatus());
+        }
+
+        private InstanceObservationRequest toRequest() {
+            InstanceObservationRequest request = new InstanceObservationRequest(timeWindow);
+            request.setProjectId(ALL_PROJECTS.equals(project) ? null : project);
+            request.setInstanceStatus(instanceStatus.isEmpty() ? null : instanceStatus);
+            return request;
+        }
+    }
+}
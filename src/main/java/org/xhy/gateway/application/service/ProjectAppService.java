@@ -9,6 +9,7 @@ import org.xhy.gateway.application.dto.ProjectDTO;
 import org.xhy.gateway.application.dto.ProjectSimpleDTO;
 import org.xhy.gateway.domain.apikey.service.ApiKeyDomainService;
 import org.xhy.gateway.domain.project.entity.ProjectEntity;
+import org.xhy.gateway.domain.project.entity.ProjectStatus;
 import org.xhy.gateway.domain.project.service.ProjectDomainService;
 import org.xhy.gateway.interfaces.api.request.ProjectCreateRequest;
 
@@ -129,6 +130,19 @@ public class ProjectAppService {
         return ProjectAssembler.toDTOList(projectEntities);
     }
 
+    /**
+     * 变更项目状态（管理员权限）
+     * 需要事务支持，提交后项目缓存随之失效
+     */
+    @Transactional(rollbackFor = Exception.class)
+    public ProjectDTO changeProjectStatus(String projectId, String status) {
+        logger.info("应用层变更项目状态，项目ID: {}，状态: {}", projectId, status);
+
+        ProjectEntity project = projectDomainService.changeProjectStatus(projectId, ProjectStatus.fromCode(status));
+
+        return ProjectAssembler.toDTO(project);
+    }
+
     /**
      * 删除项目（管理员权限）
      * 需要事务支持，会级联删除相关数据
@@ -0,0 +1,473 @@
+package org.xhy.gateway.application.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.xhy.gateway.domain.metrics.command.CallResultCommand;
+import org.xhy.gateway.domain.metrics.entity.ErrorClass;
+import org.xhy.gateway.domain.metrics.entity.UsageMetric;
+import org.xhy.gateway.infrastructure.datasource.DatabaseAvailability;
+import org.xhy.gateway.infrastructure.dedup.ReportIdempotencyFilter;
+import org.xhy.gateway.infrastructure.exception.ServiceUnavailableException;
+import org.xhy.gateway.infrastructure.ingest.RingBuffer;
+import org.xhy.gateway.infrastructure.ingest.ShardedRingBuffer;
+import org.xhy.gateway.infrastructure.metrics.GatewayMetrics;
+import org.xhy.gateway.infrastructure.metrics.StageTimings;
+import org.xhy.gateway.infrastructure.metrics.TimedStage;
+import org.xhy.gateway.infrastructure.spool.SegmentedSpool;
+import org.xhy.gateway.interfaces.api.request.ReportResultRequest;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * 调用结果摄取应用服务
+ * 上报请求在 Tomcat 线程上只做去重和入队，写入按实例分片的预分配环形缓冲区后立即返回；
+ * 每个分片由一个消费线程按顺序记录指标，同一实例的上报总是由同一个线程处理。
+ * 缓冲区满时按 gateway.metrics.report.ingest.overflow-policy 处理：drop 丢弃并计数，reject 返回 503 让客户端重试。
+ * 启用本地日志时，消费线程先把上报追加到所在分片的日志再写数据库，写入成功后确认；数据库不可用时上报留在日志中，
+ * 按退避间隔重试，恢复后按原顺序补放，进程重启后也会先补放上次未确认的记录。
+ * 日志补放是至少一次语义：确认发生在数据库事务提交之后，两者之间进程崩溃时，已写入数据库的记录会在重启后再补放一次，
+ * 对应的调用次数和延迟会被重复计入；幂等键只保存在内存中，无法识别这类重复。
+ *
+ * @author xhy
+ * @since 1.0.0
+ */
+@Service
+public class ReportIngestionAppService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReportIngestionAppService.class);
+
+    /**
+     * 停机时等待缓冲区排空的最长时间
+     */
+    private static final long SHUTDOWN_TIMEOUT_MS = 10_000;
+
+    /**
+     * 数据库不可用时重试补放的初始间隔和最大间隔
+     */
+    private static final long REPLAY_RETRY_INITIAL_MS = 1_000;
+    private static final long REPLAY_RETRY_MAX_MS = 30_000;
+
+    /**
+     * 每次最多补放的记录数，避免补放期间长时间不消费新的上报
+     */
+    private static final int REPLAY_BATCH_SIZE = 256;
+
+    /**
+     * 日志刷盘的最小间隔
+     */
+    private static final long SPOOL_FORCE_INTERVAL_MS = 1_000;
+
+    private final SelectionAppService selectionAppService;
+    private final ReportIdempotencyFilter reportIdempotencyFilter;
+    private final GatewayMetrics gatewayMetrics;
+    private final StageTimings stageTimings;
+    private final DatabaseAvailability databaseAvailability;
+    private final OverflowPolicy overflowPolicy;
+    private final ShardedRingBuffer<ReportEvent> ringBuffer;
+
+    private final boolean spoolEnabled;
+    private final Path spoolDirectory;
+    private final int spoolSegmentRecords;
+    private final int spoolMaxSegments;
+
+    private ShardProcessor[] processors;
+
+    public ReportIngestionAppService(SelectionAppService selectionAppService,
+                                     ReportIdempotencyFilter reportIdempotencyFilter,
+                                     GatewayMetrics gatewayMetrics,
+                                     StageTimings stageTimings,
+                                     DatabaseAvailability databaseAvailability,
+                                     @Value("${gateway.metrics.report.ingest.shards:4}") int shards,
+                                     @Value("${gateway.metrics.report.ingest.capacity-per-shard:8192}") int capacityPerShard,
+                                     @Value("${gateway.metrics.report.ingest.overflow-policy:drop}") String overflowPolicy,
+                                     @Value("${gateway.metrics.report.spool.enabled:true}") boolean spoolEnabled,
+                                     @Value("${gateway.metrics.report.spool.dir:${java.io.tmpdir}/api-premium-gateway/spool}") String spoolDirectory,
+                                     @Value("${gateway.metrics.report.spool.segment-records:32768}") int spoolSegmentRecords,
+                                     @Value("${gateway.metrics.report.spool.max-segments-per-shard:16}") int spoolMaxSegments) {
+        this.selectionAppService = selectionAppService;
+        this.reportIdempotencyFilter = reportIdempotencyFilter;
+        this.gatewayMetrics = gatewayMetrics;
+        this.stageTimings = stageTimings;
+        this.databaseAvailability = databaseAvailability;
+        this.overflowPolicy = OverflowPolicy.valueOf(overflowPolicy.toUpperCase(Locale.ROOT));
+        this.ringBuffer = new ShardedRingBuffer<>("report-ingest", shards, capacityPerShard, ReportEvent::new);
+        this.spoolEnabled = spoolEnabled;
+        this.spoolDirectory = Paths.get(spoolDirectory);
+        this.spoolSegmentRecords = spoolSegmentRecords;
+        this.spoolMaxSegments = spoolMaxSegments;
+    }
+
+    @PostConstruct
+    public void start() {
+        processors = new ShardProcessor[ringBuffer.getShardCount()];
+        for (int shard = 0; shard < processors.length; shard++) {
+            processors[shard] = new ShardProcessor(shard, openSpool(shard));
+        }
+        ringBuffer.start(shard -> processors[shard]);
+        logger.info("调用结果摄取队列已启动: shards={}, capacityPerShard={}, overflowPolicy={}, spool={}",
+                ringBuffer.getShardCount(), ringBuffer.getCapacityPerShard(), overflowPolicy,
+                spoolEnabled ? spoolDirectory.toAbsolutePath() : "disabled");
+    }
+
+    @PreDestroy
+    public void stop() {
+        boolean terminated = ringBuffer.shutdown(SHUTDOWN_TIMEOUT_MS);
+        for (ShardProcessor processor : processors) {
+            if (processor.spool == null) {
+                continue;
+            }
+            // 消费线程仍在运行时不能解除映射，只刷盘
+            if (terminated) {
+                processor.spool.close();
+            } else {
+                processor.spool.force();
+            }
+        }
+        // 排空时记录的延迟分布还在内存中，停机前落库
+        try {
+            selectionAppService.flushLatencyHistograms();
+        } catch (Exception e) {
+            logger.warn("停机时延迟分布落库失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 接收一次调用结果上报，入队后立即返回
+     */
+    public void submit(ReportResultRequest request, String projectId) {
+        long startNanos = System.nanoTime();
+
+        String idempotencyKey = request.getIdempotencyKey();
+        if (!reportIdempotencyFilter.tryAcquire(projectId, idempotencyKey)) {
+            logger.debug("忽略重复的调用结果上报: instanceId={}, idempotencyKey={}",
+                    request.getInstanceId(), idempotencyKey);
+            gatewayMetrics.recordDroppedReport("duplicate");
+            return;
+        }
+
+        boolean published = false;
+        try {
+            published = ringBuffer.tryPublish(request.getInstanceId().hashCode(), ReportEvent.TRANSLATOR, request, projectId);
+        } finally {
+            reportIdempotencyFilter.release(projectId, idempotencyKey, published);
+        }
+
+        if (!published) {
+            if (overflowPolicy == OverflowPolicy.REJECT) {
+                gatewayMetrics.recordDroppedReport("rejected");
+                throw new ServiceUnavailableException("调用结果上报队列已满，请稍后重试");
+            }
+            gatewayMetrics.recordDroppedReport("queue_full");
+            logger.debug("调用结果上报队列已满，丢弃上报: instanceId={}", request.getInstanceId());
+            return;
+        }
+
+        stageTimings.record(TimedStage.REPORT_ENQUEUE, startNanos);
+    }
+
+    /**
+     * 各分片待处理的上报数
+     */
+    public int[] getQueueDepths() {
+        int[] depths = new int[ringBuffer.getShardCount()];
+        for (int i = 0; i < depths.length; i++) {
+            depths[i] = ringBuffer.getDepth(i);
+        }
+        return depths;
+    }
+
+    public int getQueueCapacityPerShard() {
+        return ringBuffer.getCapacityPerShard();
+    }
+
+    /**
+     * 各分片本地日志中待写入数据库的上报数
+     */
+    public long[] getSpoolBacklogs() {
+        long[] backlogs = new long[processors.length];
+        for (int i = 0; i < backlogs.length; i++) {
+            SegmentedSpool spool = processors[i].spool;
+            backlogs[i] = spool == null ? 0 : spool.getBacklog();
+        }
+        return backlogs;
+    }
+
+    /**
+     * 打开分片的本地日志，失败时不使用日志，直接写数据库
+     */
+    private SegmentedSpool openSpool(int shard) {
+        if (!spoolEnabled) {
+            return null;
+        }
+        Path directory = spoolDirectory.resolve("shard-" + shard);
+        try {
+            return new SegmentedSpool(directory, ReportEvent.RECORD_SIZE, spoolSegmentRecords, spoolMaxSegments);
+        } catch (IOException e) {
+            logger.error("打开上报日志失败，分片 {} 将直接写数据库: dir={}", shard, directory, e);
+            return null;
+        }
+    }
+
+    /**
+     * 单条上报的处理结果
+     */
+    private enum Outcome {
+        RECORDED,
+        FAILED,
+        DATABASE_UNAVAILABLE
+    }
+
+    /**
+     * 分片处理器，只在该分片的消费线程上运行，独占该分片的本地日志
+     * 每条记录先写数据库再确认，确认前崩溃会导致重启后重复补放（至少一次）。
+     */
+    private final class ShardProcessor implements RingBuffer.Handler<ReportEvent> {
+
+        private final int shard;
+        private final SegmentedSpool spool;
+        private final ReportEvent replaySlot = new ReportEvent();
+
+        private long retryAt;
+        private long retryDelayMs = REPLAY_RETRY_INITIAL_MS;
+        private long lastForcedAt;
+        private boolean dirty;
+
+        private ShardProcessor(int shard, SegmentedSpool spool) {
+            this.shard = shard;
+            this.spool = spool;
+        }
+
+        @Override
+        public void onEvent(ReportEvent event) {
+            boolean spooled = spool != null && spool.append(ReportEvent.ENCODER, event);
+            dirty |= spooled;
+            if (spooled && spool.getBacklog() > 1) {
+                // 日志里还有更早的记录，按顺序补放，本条稍后处理
+                replay();
+                return;
+            }
+            if (!spooled && System.currentTimeMillis() < retryAt) {
+                gatewayMetrics.recordDroppedReport(spool == null ? "record_failed" : "spool_full");
+                return;
+            }
+
+            Outcome outcome = record(event);
+            if (outcome != Outcome.DATABASE_UNAVAILABLE) {
+                if (spooled) {
+                    spool.acknowledge();
+                }
+            } else if (!spooled) {
+                gatewayMetrics.recordDroppedReport(spool == null ? "record_failed" : "spool_full");
+            }
+        }
+
+        @Override
+        public void onIdle() {
+            if (spool == null) {
+                return;
+            }
+            if (spool.getBacklog() > 0) {
+                replay();
+            }
+            long now = System.currentTimeMillis();
+            if (dirty && now - lastForcedAt >= SPOOL_FORCE_INTERVAL_MS) {
+                spool.force();
+                dirty = false;
+                lastForcedAt = now;
+            }
+        }
+
+        /**
+         * 按顺序补放日志中未确认的记录，数据库仍不可用时等到下一次重试时间
+         */
+        private void replay() {
+            if (System.currentTimeMillis() < retryAt) {
+                return;
+            }
+            int replayed = 0;
+            while (replayed < REPLAY_BATCH_SIZE && spool.peek(ReportEvent.DECODER, replaySlot)) {
+                if (record(replaySlot) == Outcome.DATABASE_UNAVAILABLE) {
+                    return;
+                }
+                spool.acknowledge();
+                replayed++;
+            }
+            if (replayed > 0 && spool.getBacklog() == 0) {
+                logger.info("上报日志已补放完毕: shard={}", shard);
+            }
+        }
+
+        private Outcome record(ReportEvent event) {
+            long startNanos = System.nanoTime();
+            try {
+                selectionAppService.recordCallResult(event.toCommand());
+                retryAt = 0;
+                retryDelayMs = REPLAY_RETRY_INITIAL_MS;
+                databaseAvailability.recordSuccess();
+                return Outcome.RECORDED;
+            } catch (Exception e) {
+                if (!DatabaseAvailability.isUnavailableError(e)) {
+                    gatewayMetrics.recordDroppedReport("record_failed");
+                    logger.error("记录调用结果失败: instanceId={}", event.instanceId, e);
+                    return Outcome.FAILED;
+                }
+                databaseAvailability.recordFailure(e);
+                logger.warn("数据库不可用，上报暂存本地日志: shard={}, backlog={}, retryIn={}ms, error={}", shard,
+                        spool == null ? 0 : spool.getBacklog(), retryDelayMs, e.getMessage());
+                retryAt = System.currentTimeMillis() + retryDelayMs;
+                retryDelayMs = Math.min(retryDelayMs * 2, REPLAY_RETRY_MAX_MS);
+                return Outcome.DATABASE_UNAVAILABLE;
+            } finally {
+                stageTimings.record(TimedStage.REPORT_TOTAL, startNanos);
+            }
+        }
+    }
+
+    /**
+     * 缓冲区满时的处理方式
+     */
+    private enum OverflowPolicy {
+        DROP,
+        REJECT
+    }
+
+    /**
+     * 环形缓冲区的槽位，创建后循环复用
+     * 数值字段用基本类型保存，只有已登记的使用指标会被保留；未上报的使用指标以 -1 / NaN 表示。
+     * 写入本地日志时编码为 124 字节的定长记录（加校验和共 128 字节），错误信息只保留分类，实例ID限 64 个 ASCII 字符。
+     */
+    private static final class ReportEvent {
+
+        static final int RECORD_SIZE = 124;
+
+        private static final int MAX_INSTANCE_ID_LENGTH = 64;
+
+        static final RingBuffer.Translator<ReportEvent, ReportResultRequest, String> TRANSLATOR =
+                (slot, request, projectId) -> slot.fill(request, projectId);
+
+        static final SegmentedSpool.RecordWriter<ReportEvent> ENCODER = (buffer, event) -> event.encode(buffer);
+
+        static final SegmentedSpool.RecordReader<ReportEvent> DECODER = (buffer, event) -> event.decode(buffer);
+
+        private String projectId;
+        private String instanceId;
+        private boolean success;
+        private long latencyMs;
+        private String errorType;
+        private String errorMessage;
+        private long callTimestamp;
+        private long receivedAt;
+        private long promptTokens;
+        private long completionTokens;
+        private double totalCost;
+
+        private void fill(ReportResultRequest request, String projectId) {
+            this.projectId = projectId;
+            this.instanceId = request.getInstanceId();
+            this.success = request.getSuccess();
+            this.latencyMs = request.getLatencyMs();
+            this.errorType = request.getErrorType();
+            this.errorMessage = request.getErrorMessage();
+            this.callTimestamp = request.getCallTimestamp();
+            this.receivedAt = System.currentTimeMillis();
+            this.promptTokens = -1;
+            this.completionTokens = -1;
+            this.totalCost = Double.NaN;
+
+            Map<String, Object> usageMetrics = request.getUsageMetrics();
+            if (usageMetrics == null) {
+                return;
+            }
+            for (Map.Entry<String, Object> entry : usageMetrics.entrySet()) {
+                UsageMetric metric = UsageMetric.fromKey(entry.getKey());
+                if (metric == null || !(entry.getValue() instanceof Number value)) {
+                    continue;
+                }
+                switch (metric) {
+                    case PROMPT_TOKENS -> promptTokens = Math.max(promptTokens, 0) + value.longValue();
+                    case COMPLETION_TOKENS -> completionTokens = Math.max(completionTokens, 0) + value.longValue();
+                    case COST -> totalCost = (Double.isNaN(totalCost) ? 0.0 : totalCost) + value.doubleValue();
+                }
+            }
+        }
+
+        /**
+         * 编码为日志记录，实例ID过长或含非 ASCII 字符时返回 false
+         */
+        private boolean encode(ByteBuffer buffer) {
+            int idLength = instanceId.length();
+            if (idLength > MAX_INSTANCE_ID_LENGTH) {
+                return false;
+            }
+            ErrorClass errorClass = success ? null : ErrorClass.classify(errorType, errorMessage);
+            buffer.put((byte) (success ? 1 : 0));
+            buffer.put((byte) (errorClass == null ? -1 : errorClass.ordinal()));
+            buffer.put((byte) idLength);
+            buffer.put((byte) 0);
+            buffer.putLong(latencyMs);
+            buffer.putLong(callTimestamp);
+            buffer.putLong(receivedAt);
+            buffer.putLong(promptTokens);
+            buffer.putLong(completionTokens);
+            buffer.putDouble(totalCost);
+            for (int i = 0; i < idLength; i++) {
+                char c = instanceId.charAt(i);
+                if (c > 0x7F) {
+                    return false;
+                }
+                buffer.put((byte) c);
+            }
+            return true;
+        }
+
+        private void decode(ByteBuffer buffer) {
+            success = buffer.get() == 1;
+            byte errorOrdinal = buffer.get();
+            int idLength = buffer.get();
+            buffer.get();
+            latencyMs = buffer.getLong();
+            callTimestamp = buffer.getLong();
+            receivedAt = buffer.getLong();
+            promptTokens = buffer.getLong();
+            completionTokens = buffer.getLong();
+            totalCost = buffer.getDouble();
+            instanceId = new String(buffer.array(), buffer.position(), idLength, StandardCharsets.US_ASCII);
+            // 分类码本身会被归入同一分类
+            errorType = errorOrdinal < 0 ? null : ErrorClass.values()[errorOrdinal].getCode();
+            errorMessage = null;
+            projectId = null;
+        }
+
+        private CallResultCommand toCommand() {
+            Map<String, Object> usageMetrics = null;
+            if (promptTokens >= 0 || completionTokens >= 0 || !Double.isNaN(totalCost)) {
+                usageMetrics = new HashMap<>(4);
+                if (promptTokens >= 0) {
+                    usageMetrics.put(UsageMetric.PROMPT_TOKENS.getKey(), promptTokens);
+                }
+                if (completionTokens >= 0) {
+                    usageMetrics.put(UsageMetric.COMPLETION_TOKENS.getKey(), completionTokens);
+                }
+                if (!Double.isNaN(totalCost)) {
+                    usageMetrics.put(UsageMetric.COST.getKey(), totalCost);
+                }
+            }
+            CallResultCommand command = new CallResultCommand(instanceId, success, latencyMs,
+                    errorMessage, errorType, usageMetrics, callTimestamp);
+            command.setProjectId(projectId);
+            command.setReceivedAt(receivedAt);
+            return command;
+        }
+    }
+}
@@ -10,16 +10,26 @@ import org.xhy.gateway.application.dto.ApiInstanceDTO;
 import org.xhy.gateway.domain.apiinstance.command.InstanceSelectionCommand;
 import org.xhy.gateway.domain.apiinstance.entity.ApiInstanceEntity;
 import org.xhy.gateway.domain.apiinstance.service.ApiInstanceSelectionDomainService;
+import org.xhy.gateway.domain.apiinstance.service.RoutingSnapshotService;
 import org.xhy.gateway.domain.metrics.command.CallResultCommand;
+import org.xhy.gateway.domain.metrics.entity.ErrorClass;
 import org.xhy.gateway.domain.metrics.entity.InstanceMetricsEntity;
+import org.xhy.gateway.domain.metrics.service.LiveMetricsDomainService;
 import org.xhy.gateway.domain.metrics.service.MetricsCollectionDomainService;
 import org.xhy.gateway.domain.project.service.ProjectDomainService;
+import org.xhy.gateway.infrastructure.datasource.DatabaseAvailability;
 import org.xhy.gateway.infrastructure.exception.BusinessException;
-import org.xhy.gateway.interfaces.api.request.ReportResultRequest;
+import org.xhy.gateway.infrastructure.exception.EntityNotFoundException;
+import org.xhy.gateway.infrastructure.exception.ServiceUnavailableException;
+import org.xhy.gateway.infrastructure.metrics.GatewayMetrics;
+import org.xhy.gateway.infrastructure.metrics.StageTimings;
+import org.xhy.gateway.infrastructure.metrics.TimedStage;
 import org.xhy.gateway.interfaces.api.request.SelectInstanceRequest;
 
 import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 /**
@@ -38,14 +48,28 @@ public class SelectionAppService {
     private final ApiInstanceSelectionDomainService apiInstanceSelectionDomainService;
     private final MetricsCollectionDomainService metricsCollectionDomainService;
     private final ProjectDomainService projectDomainService;
-
+    private final LiveMetricsDomainService liveMetricsDomainService;
+    private final GatewayMetrics gatewayMetrics;
+    private final StageTimings stageTimings;
+    private final RoutingSnapshotService routingSnapshotService;
+    private final DatabaseAvailability databaseAvailability;
 
     public SelectionAppService(ApiInstanceSelectionDomainService apiInstanceSelectionDomainService, 
                               MetricsCollectionDomainService metricsCollectionDomainService,
-                              ProjectDomainService projectDomainService) {
+                              ProjectDomainService projectDomainService,
+                              LiveMetricsDomainService liveMetricsDomainService,
+                              GatewayMetrics gatewayMetrics,
+                              StageTimings stageTimings,
+                              RoutingSnapshotService routingSnapshotService,
+                              DatabaseAvailability databaseAvailability) {
         this.apiInstanceSelectionDomainService = apiInstanceSelectionDomainService;
         this.metricsCollectionDomainService = metricsCollectionDomainService;
         this.projectDomainService = projectDomainService;
+        this.liveMetricsDomainService = liveMetricsDomainService;
+        this.gatewayMetrics = gatewayMetrics;
+        this.stageTimings = stageTimings;
+        this.routingSnapshotService = routingSnapshotService;
+        this.databaseAvailability = databaseAvailability;
     }
 
     /**
@@ -56,6 +80,23 @@ public class SelectionAppService {
     public ApiInstanceDTO selectBestInstance(SelectInstanceRequest request, String currentProjectId) {
         logger.info("应用层开始选择API实例: {}", request);
 
+        long startNanos = System.nanoTime();
+        String result = "success";
+        try {
+            return selectWithFallback(request, currentProjectId);
+        } catch (BusinessException e) {
+            result = e.getErrorCode();
+            throw e;
+        } catch (RuntimeException e) {
+            result = "error";
+            throw e;
+        } finally {
+            gatewayMetrics.recordSelection(System.nanoTime() - startNanos, result);
+            stageTimings.record(TimedStage.SELECT_TOTAL, startNanos);
+        }
+    }
+
+    private ApiInstanceDTO selectWithFallback(SelectInstanceRequest request, String currentProjectId) {
         try {
             // 首先尝试正常的实例选择
             return selectInstanceInternal(request, currentProjectId);
@@ -76,16 +117,25 @@ public class SelectionAppService {
     /**
      * 内部实例选择方法
      * 应用层编排领域服务的核心方法
+     * 数据库不可用时项目校验、候选实例和指标都取自最近一次成功查询的快照，返回结果标记为 stale
      */
     private ApiInstanceDTO selectInstanceInternal(SelectInstanceRequest request, String currentProjectId) {
         // 1. 应用层通过Assembler将Request对象转换成领域命令对象
         InstanceSelectionCommand command = SelectionAssembler.toCommand(request, currentProjectId);
+        SnapshotUsage snapshotUsage = new SnapshotUsage();
 
         // 2. 验证项目存在（调用project领域服务）
-        projectDomainService.validateProjectExists(command.getProjectId());
+        long stageStart = System.nanoTime();
+        validateProjectExists(command.getProjectId(), snapshotUsage);
+        stageStart = stageTimings.record(TimedStage.SELECT_PROJECT_VALIDATION, stageStart);
 
         // 3. 查找候选实例（调用apiinstance领域服务）
-        List<ApiInstanceEntity> candidates = apiInstanceSelectionDomainService.findCandidateInstances(command);
+        List<ApiInstanceEntity> candidates = queryOrSnapshot(
+                () -> apiInstanceSelectionDomainService.findCandidateInstances(command),
+                result -> routingSnapshotService.saveCandidates(command, result),
+                () -> routingSnapshotService.getCandidates(command),
+                snapshotUsage);
+        stageStart = stageTimings.record(TimedStage.SELECT_CANDIDATE_LOOKUP, stageStart);
         if (candidates.isEmpty()) {
             throw new BusinessException("NO_AVAILABLE_INSTANCE", 
                     String.format("没有可用的API实例: projectId=%s, apiIdentifier=%s, apiType=%s", 
@@ -96,26 +146,97 @@ public class SelectionAppService {
         List<String> instanceIds = candidates.stream()
                 .map(ApiInstanceEntity::getId)
                 .collect(Collectors.toList());
-        Map<String, InstanceMetricsEntity> metricsMap = metricsCollectionDomainService.getInstanceMetrics(instanceIds);
+        Map<String, InstanceMetricsEntity> metricsMap = queryOrSnapshot(
+                () -> metricsCollectionDomainService.getInstanceMetrics(instanceIds),
+                routingSnapshotService::saveMetrics,
+                () -> routingSnapshotService.getMetrics(instanceIds),
+                snapshotUsage);
+        // 附上内存中的近期 p99 和 token/请求消耗，供尾延迟和容量感知的策略使用
+        liveMetricsDomainService.applyLiveSignals(metricsMap);
+        stageStart = stageTimings.record(TimedStage.SELECT_METRICS_LOOKUP, stageStart);
 
         // 5. 过滤掉被熔断的实例（调用apiinstance领域服务）
         List<ApiInstanceEntity> healthyInstances = apiInstanceSelectionDomainService.filterHealthyInstances(candidates, metricsMap);
         if (healthyInstances.isEmpty()) {
+            stageTimings.record(TimedStage.SELECT_HEALTH_FILTER, stageStart);
             throw new BusinessException("NO_HEALTHY_INSTANCE", "所有API实例都不可用或被熔断");
         }
+        // 被限流的实例短时退避，不参与本次选择
+        healthyInstances = apiInstanceSelectionDomainService.filterRateLimitedInstances(healthyInstances,
+                liveMetricsDomainService.getRateLimitedInstances(instanceIds));
+        stageStart = stageTimings.record(TimedStage.SELECT_HEALTH_FILTER, stageStart);
 
         // 6. 使用策略选择最佳实例（调用apiinstance领域服务）
         ApiInstanceEntity selectedEntity = apiInstanceSelectionDomainService.selectInstanceWithStrategy(
                 healthyInstances, metricsMap, command);
+        stageStart = stageTimings.record(TimedStage.SELECT_STRATEGY, stageStart);
 
-        // 7. 转换为DTO返回
+        // 7. 记录在途调用，待结果上报时扣减
+        liveMetricsDomainService.recordDispatched(selectedEntity.getId());
+
+        // 8. 转换为DTO返回
         ApiInstanceDTO result = ApiInstanceAssembler.toDTO(selectedEntity);
+        result.setStale(snapshotUsage.stale);
+        stageTimings.record(TimedStage.SELECT_ASSEMBLE, stageStart);
 
         logger.info("应用层选择API实例成功: businessId={}, instanceId={}", 
                 result.getBusinessId(), result.getId());
         return result;
     }
 
+    /**
+     * 校验项目存在，数据库不可用时以快照中确认过的项目为准
+     */
+    private void validateProjectExists(String projectId, SnapshotUsage snapshotUsage) {
+        try {
+            queryOrSnapshot(
+                    () -> {
+                        projectDomainService.validateProjectExists(projectId);
+                        return Boolean.TRUE;
+                    },
+                    exists -> routingSnapshotService.saveProjectExists(projectId),
+                    () -> routingSnapshotService.isProjectKnown(projectId) ? Boolean.TRUE : null,
+                    snapshotUsage);
+        } catch (EntityNotFoundException e) {
+            routingSnapshotService.removeProject(projectId);
+            throw e;
+        }
+    }
+
+    /**
+     * 查询数据库并刷新快照；数据库不可达或处于降级探测间隔内时返回快照
+     * 没有快照可用时返回 503，其他异常照常抛出
+     */
+    private <T> T queryOrSnapshot(Supplier<T> query, Consumer<T> saveSnapshot, Supplier<T> snapshot,
+                                  SnapshotUsage snapshotUsage) {
+        if (databaseAvailability.allowQuery()) {
+            try {
+                T result = query.get();
+                databaseAvailability.recordSuccess();
+                saveSnapshot.accept(result);
+                return result;
+            } catch (RuntimeException e) {
+                if (!DatabaseAvailability.isUnavailableError(e)) {
+                    throw e;
+                }
+                databaseAvailability.recordFailure(e);
+            }
+        }
+        T cached = snapshot.get();
+        if (cached == null) {
+            throw new ServiceUnavailableException("数据库不可用，且没有可用的路由快照");
+        }
+        snapshotUsage.stale = true;
+        return cached;
+    }
+
+    /**
+     * 记录一次选择是否用到了快照
+     */
+    private static final class SnapshotUsage {
+        private boolean stale;
+    }
+
     /**
      * 尝试降级实例选择
      */
@@ -170,6 +291,7 @@ public class SelectionAppService {
         fallbackRequest.setApiType(originalRequest.getApiType()); // 复用相同的apiType
         fallbackRequest.setAffinityKey(originalRequest.getAffinityKey());
         fallbackRequest.setAffinityType(originalRequest.getAffinityType());
+        fallbackRequest.setExpectedTokens(originalRequest.getExpectedTokens());
         // 降级请求不再传递降级链，避免无限递归
         fallbackRequest.setFallbackChain(null);
         
@@ -177,20 +299,29 @@ public class SelectionAppService {
     }
 
     /**
-     * 上报调用结果
-     * 需要事务支持，因为涉及指标数据更新
+     * 记录一次调用结果
+     * 由上报摄取的消费线程调用
      */
     @Transactional(rollbackFor = Exception.class)
-    public void reportCallResult(ReportResultRequest request, String projectId) {
-        logger.info("应用层开始处理调用结果上报: instanceId={}, success={}", 
-                request.getInstanceId(), request.getSuccess());
-
-        // 应用层通过Assembler将Request对象转换成领域命令对象
-        CallResultCommand command = SelectionAssembler.toCommand(request, projectId);
-
-        // 调用领域服务处理结果上报
-        metricsCollectionDomainService.recordCallResult(command);
+    public void recordCallResult(CallResultCommand command) {
+        long recordStart = System.nanoTime();
+        boolean recorded = metricsCollectionDomainService.recordCallResult(command);
+        stageTimings.record(TimedStage.REPORT_RECORD, recordStart);
+        if (recorded) {
+            ErrorClass errorClass = command.getErrorClass();
+            gatewayMetrics.recordCall(command.getInstanceId(), command.getSuccess(), command.getLatencyMs(),
+                    errorClass == null ? null : errorClass.getCode());
+        } else {
+            gatewayMetrics.recordDroppedReport("too_late");
+        }
+    }
 
-        logger.info("应用层调用结果上报处理完成");
+    /**
+     * 把内存中新增的延迟分布合并进数据库
+     * 加行锁读出已有分布再写回，需要事务
+     */
+    @Transactional(rollbackFor = Exception.class)
+    public int flushLatencyHistograms() {
+        return metricsCollectionDomainService.flushLatencyHistograms();
     }
-} 
\ No newline at end of file
+}
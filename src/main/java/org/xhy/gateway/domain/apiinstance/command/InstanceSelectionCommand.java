@@ -33,7 +33,7 @@ public class InstanceSelectionCommand {
     private final String apiType;
 
     /**
-     * 负载均衡策略
+     * 负载均衡策略，为 null 时由路由的 routingParams.load_balancing_type 决定
      */
     private final LoadBalancingType loadBalancingType;
 
@@ -42,8 +42,13 @@ public class InstanceSelectionCommand {
      */
     private final AffinityContext affinityContext;
 
+    /**
+     * 预计消耗的 token 数（可选）
+     */
+    private final Long expectedTokens;
+
     public InstanceSelectionCommand(String projectId, String userId, String apiIdentifier, String apiType) {
-        this(projectId, userId, apiIdentifier, apiType, LoadBalancingType.SMART, null);
+        this(projectId, userId, apiIdentifier, apiType, null, null);
     }
 
     public InstanceSelectionCommand(String projectId, String userId, String apiIdentifier, String apiType, LoadBalancingType loadBalancingType) {
@@ -52,12 +57,19 @@ public class InstanceSelectionCommand {
 
     public InstanceSelectionCommand(String projectId, String userId, String apiIdentifier, String apiType, 
                                   LoadBalancingType loadBalancingType, AffinityContext affinityContext) {
+        this(projectId, userId, apiIdentifier, apiType, loadBalancingType, affinityContext, null);
+    }
+
+    public InstanceSelectionCommand(String projectId, String userId, String apiIdentifier, String apiType,
+                                  LoadBalancingType loadBalancingType, AffinityContext affinityContext,
+                                  Long expectedTokens) {
         this.projectId = projectId;
         this.userId = userId;
         this.apiIdentifier = apiIdentifier;
         this.apiType = apiType;
-        this.loadBalancingType = loadBalancingType != null ? loadBalancingType : LoadBalancingType.SMART;
+        this.loadBalancingType = loadBalancingType;
         this.affinityContext = affinityContext;
+        this.expectedTokens = expectedTokens;
     }
 
     /**
@@ -91,6 +103,10 @@ public class InstanceSelectionCommand {
         return affinityContext;
     }
 
+    public Long getExpectedTokens() {
+        return expectedTokens;
+    }
+
     @Override
     public String toString() {
         return "InstanceSelectionCommand{" +
@@ -100,6 +116,7 @@ public class InstanceSelectionCommand {
                 ", apiType='" + apiType + '\'' +
                 ", loadBalancingType=" + loadBalancingType +
                 ", affinityContext=" + affinityContext +
+                ", expectedTokens=" + expectedTokens +
                 '}';
     }
 } 
\ No newline at end of file
@@ -2,6 +2,7 @@ package org.xhy.gateway.domain.apiinstance.entity;
 
 import com.baomidou.mybatisplus.annotation.*;
 import org.apache.ibatis.type.JdbcType;
+import org.xhy.gateway.infrastructure.mybatis.UpsertKey;
 import org.xhy.gateway.infrastructure.typehandler.PostgreSQLJsonbTypeHandler;
 
 import java.time.LocalDateTime;
@@ -15,6 +16,7 @@ import java.util.Map;
  * @since 1.0.0
  */
 @TableName(value = "api_instance_registry", autoResultMap = true)
+@UpsertKey(columns = {"project_id", "api_type", "business_id"}, preserved = {"status"})
 public class ApiInstanceEntity {
 
     /**
@@ -164,6 +166,46 @@ public class ApiInstanceEntity {
         return 1; // 默认权重
     }
 
+    /**
+     * 获取路由指定的负载均衡策略（从路由参数中），未配置时返回 null
+     */
+    public LoadBalancingType getLoadBalancingType() {
+        if (routingParams != null && routingParams.get("load_balancing_type") instanceof String code) {
+            return LoadBalancingType.fromCode(code);
+        }
+        return null;
+    }
+
+    /**
+     * 获取每分钟 token 上限（从路由参数中），未配置时返回 null
+     */
+    public Long getTpmLimit() {
+        if (routingParams != null && routingParams.get("tpm_limit") instanceof Number limit) {
+            return limit.longValue();
+        }
+        return null;
+    }
+
+    /**
+     * 获取每分钟请求上限（从路由参数中），未配置时返回 null
+     */
+    public Long getRpmLimit() {
+        if (routingParams != null && routingParams.get("rpm_limit") instanceof Number limit) {
+            return limit.longValue();
+        }
+        return null;
+    }
+
+    /**
+     * 获取 p99 延迟 SLO（毫秒，从路由参数中），未配置时返回 null
+     */
+    public Long getP99SloMs() {
+        if (routingParams != null && routingParams.get("p99_slo_ms") instanceof Number slo) {
+            return slo.longValue();
+        }
+        return null;
+    }
+
     // Getter 和 Setter 方法
     public String getId() {
         return id;
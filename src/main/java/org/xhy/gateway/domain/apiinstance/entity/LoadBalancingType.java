@@ -27,7 +27,17 @@ public enum LoadBalancingType {
     /**
      * 延迟优先策略
      */
-    LATENCY_FIRST("latency_first", "延迟优先");
+    LATENCY_FIRST("latency_first", "延迟优先"),
+
+    /**
+     * 尾延迟SLO策略 - 避开近期 p99 超过路由 SLO 的实例
+     */
+    P99_SLO("p99_slo", "尾延迟SLO"),
+
+    /**
+     * 令牌余量策略 - 按 TPM/RPM 剩余容量分配请求
+     */
+    TOKEN_AWARE("token_aware", "令牌余量优先");
 
 
     private final String code;
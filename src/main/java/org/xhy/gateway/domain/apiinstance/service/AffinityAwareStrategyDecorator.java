@@ -3,6 +3,7 @@ package org.xhy.gateway.domain.apiinstance.service;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
+import org.xhy.gateway.domain.apiinstance.command.InstanceSelectionCommand;
 import org.xhy.gateway.domain.apiinstance.entity.AffinityContext;
 import org.xhy.gateway.domain.apiinstance.entity.AffinityStrength;
 import org.xhy.gateway.domain.apiinstance.entity.ApiInstanceEntity;
@@ -36,20 +37,21 @@ public class AffinityAwareStrategyDecorator {
      * @param candidates 候选实例列表
      * @param metricsMap 实例指标映射
      * @param strategy 负载均衡策略
-     * @param affinityContext 亲和性上下文
+     * @param command 实例选择命令，携带亲和性上下文和请求提示
      * @return 选中的实例
      */
     public ApiInstanceEntity selectInstanceWithAffinity(
             List<ApiInstanceEntity> candidates,
             Map<String, InstanceMetricsEntity> metricsMap,
             LoadBalancingStrategy strategy,
-            AffinityContext affinityContext) {
+            InstanceSelectionCommand command) {
 
+        AffinityContext affinityContext = command.getAffinityContext();
         affinityContext = null;
         // 1. 如果没有亲和性要求，直接使用负载均衡策略
         if (affinityContext == null || !affinityContext.isValid()) {
             logger.debug("无亲和性要求，直接使用负载均衡策略: {}", strategy.getClass().getSimpleName());
-            return strategy.selectInstance(candidates, metricsMap);
+            return strategy.selectInstance(candidates, metricsMap, command);
         }
 
         // 2. 检查是否有现有的亲和性绑定
@@ -78,12 +80,12 @@ public class AffinityAwareStrategyDecorator {
                 logger.warn("亲和性绑定的实例不可用: {} -> {}", 
                     affinityContext.getBindingKey(), boundInstanceId);
                 
-                return handleUnavailableBinding(candidates, metricsMap, strategy, affinityContext);
+                return handleUnavailableBinding(candidates, metricsMap, strategy, affinityContext, command);
             }
         }
 
         // 4. 没有现有绑定，使用负载均衡策略选择新实例并创建绑定
-        ApiInstanceEntity selectedInstance = strategy.selectInstance(candidates, metricsMap);
+        ApiInstanceEntity selectedInstance = strategy.selectInstance(candidates, metricsMap, command);
         
         if (selectedInstance != null) {
             affinityService.createBinding(
@@ -106,7 +108,8 @@ public class AffinityAwareStrategyDecorator {
             List<ApiInstanceEntity> candidates,
             Map<String, InstanceMetricsEntity> metricsMap,
             LoadBalancingStrategy strategy,
-            AffinityContext affinityContext) {
+            AffinityContext affinityContext,
+            InstanceSelectionCommand command) {
 
         AffinityStrength strength = affinityContext.getStrength();
 
@@ -128,7 +131,7 @@ public class AffinityAwareStrategyDecorator {
                     affinityContext.getAffinityKey()
                 );
 
-                ApiInstanceEntity newInstance = strategy.selectInstance(candidates, metricsMap);
+                ApiInstanceEntity newInstance = strategy.selectInstance(candidates, metricsMap, command);
                 if (newInstance != null) {
                     affinityService.createBinding(
                         affinityContext.getAffinityType(),
@@ -145,7 +148,7 @@ public class AffinityAwareStrategyDecorator {
             default:
                 // 无亲和性：直接使用负载均衡策略
                 logger.debug("无亲和性模式，直接使用负载均衡策略");
-                return strategy.selectInstance(candidates, metricsMap);
+                return strategy.selectInstance(candidates, metricsMap, command);
         }
     }
 
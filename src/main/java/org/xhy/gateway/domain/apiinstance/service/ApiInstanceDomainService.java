@@ -1,6 +1,12 @@
 package org.xhy.gateway.domain.apiinstance.service;
 
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.conditions.update.LambdaUpdateWrapper;
+import com.baomidou.mybatisplus.core.metadata.TableFieldInfo;
+import com.baomidou.mybatisplus.core.metadata.TableInfoHelper;
+import com.baomidou.mybatisplus.core.toolkit.LambdaUtils;
+import com.baomidou.mybatisplus.core.toolkit.support.SFunction;
+import org.apache.ibatis.reflection.property.PropertyNamer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
@@ -11,10 +17,13 @@ import org.xhy.gateway.domain.apiinstance.repository.ApiInstanceRepository;
 import org.xhy.gateway.infrastructure.exception.EntityNotFoundException;
 import org.xhy.gateway.infrastructure.exception.BusinessException;
 
+import java.time.LocalDateTime;
 import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 import java.util.stream.Collectors;
 
@@ -30,6 +39,11 @@ public class ApiInstanceDomainService {
 
     private static final Logger logger = LoggerFactory.getLogger(ApiInstanceDomainService.class);
 
+    /**
+     * 单条批量插入语句包含的最大行数，避免超过 PostgreSQL 单条语句的参数上限
+     */
+    private static final int BATCH_INSERT_SIZE = 1000;
+
     private final ApiInstanceRepository apiInstanceRepository;
 
     public ApiInstanceDomainService(ApiInstanceRepository apiInstanceRepository) {
@@ -79,7 +93,8 @@ public class ApiInstanceDomainService {
 
     /**
      * 批量创建API实例
-     * 提高创建多个实例时的性能
+     * 每批用一条多行 INSERT 写入，已存在（项目、类型、业务ID相同）的实例由唯一索引跳过，
+     * 返回实际新建的实例
      */
     public List<ApiInstanceEntity> batchCreateApiInstances(List<ApiInstanceEntity> apiInstanceEntities) {
         if (apiInstanceEntities == null || apiInstanceEntities.isEmpty()) {
@@ -89,85 +104,251 @@ public class ApiInstanceDomainService {
 
         logger.info("开始批量创建API实例，数量: {}", apiInstanceEntities.size());
 
-        // 批量查询已存在的实例
-        List<ApiInstanceEntity> existingInstances = batchQueryExistingInstances(apiInstanceEntities);
-        
-        // 构建已存在实例的唯一标识集合，用于快速查找
-        Set<String> existingKeys = existingInstances.stream()
-                .map(instance -> buildUniqueKey(instance.getProjectId(), instance.getApiType(), instance.getBusinessId()))
-                .collect(Collectors.toSet());
+        List<ApiInstanceEntity> createdInstances = new ArrayList<>(apiInstanceEntities.size());
+        for (int from = 0; from < apiInstanceEntities.size(); from += BATCH_INSERT_SIZE) {
+            List<ApiInstanceEntity> batch = apiInstanceEntities.subList(from,
+                    Math.min(from + BATCH_INSERT_SIZE, apiInstanceEntities.size()));
+            int inserted = apiInstanceRepository.insertBatchOnConflictDoNothing(batch);
+            if (inserted == batch.size()) {
+                createdInstances.addAll(batch);
+            } else if (inserted > 0) {
+                createdInstances.addAll(filterInserted(batch));
+            }
+        }
 
-        // 过滤掉已存在的实例
-        List<ApiInstanceEntity> newInstances = apiInstanceEntities.stream()
-                .filter(entity -> {
-                    String key = buildUniqueKey(entity.getProjectId(), entity.getApiType(), entity.getBusinessId());
-                    boolean exists = existingKeys.contains(key);
-                    if (exists) {
-                        logger.info("API实例已存在，跳过创建：projectId={}, apiType={}, businessId={}", 
-                            entity.getProjectId(), entity.getApiType(), entity.getBusinessId());
-                    }
-                    return !exists;
-                })
-                .collect(Collectors.toList());
-
-        if (newInstances.isEmpty()) {
+        if (createdInstances.isEmpty()) {
             logger.info("所有API实例都已存在，无需创建");
-            return new ArrayList<>();
+            return createdInstances;
         }
 
-        // 批量插入新实例
-        for (ApiInstanceEntity entity : newInstances) {
-            apiInstanceRepository.insert(entity);
+        logger.info("批量创建API实例成功，成功创建数量: {}，跳过重复数量: {}",
+            createdInstances.size(), apiInstanceEntities.size() - createdInstances.size());
+        return createdInstances;
+    }
+
+    /**
+     * 批量 upsert API实例
+     * 不存在的实例新建，已存在的实例（项目、类型、业务ID相同）覆盖标识符、路由参数和元数据，状态保持不变；
+     * 同一批内重复的实例以最后一条为准
+     *
+     * @return 新建和更新的实例总数
+     */
+    public int upsertApiInstances(List<ApiInstanceEntity> apiInstanceEntities) {
+        if (apiInstanceEntities == null || apiInstanceEntities.isEmpty()) {
+            return 0;
         }
 
-        logger.info("批量创建API实例成功，成功创建数量: {}，跳过重复数量: {}", 
-            newInstances.size(), apiInstanceEntities.size() - newInstances.size());
-        return newInstances;
+        Map<String, ApiInstanceEntity> distinct = new LinkedHashMap<>();
+        for (ApiInstanceEntity entity : apiInstanceEntities) {
+            distinct.put(entity.getProjectId() + ":" + entity.getApiType() + ":" + entity.getBusinessId(), entity);
+        }
+        List<ApiInstanceEntity> entities = new ArrayList<>(distinct.values());
+
+        int affected = 0;
+        for (int from = 0; from < entities.size(); from += BATCH_INSERT_SIZE) {
+            affected += apiInstanceRepository.insertBatchOnConflictDoUpdate(
+                    entities.subList(from, Math.min(from + BATCH_INSERT_SIZE, entities.size())));
+        }
+
+        logger.debug("批量upsert API实例完成，提交数量: {}，去重后: {}，影响行数: {}",
+                apiInstanceEntities.size(), entities.size(), affected);
+        return affected;
     }
 
     /**
-     * 批量查询已存在的实例
+     * 计算期望状态与注册表的差异
+     * 一次查出该项目该类型的全部实例，在内存中对比：期望中不存在的新建，配置不同的更新，
+     * 期望中存在但未激活的重新激活，注册表中多出的作为待移除
+     *
+     * @param desired 期望的完整实例集合，业务ID不能重复
      */
-    private List<ApiInstanceEntity> batchQueryExistingInstances(List<ApiInstanceEntity> apiInstanceEntities) {
-        if (apiInstanceEntities.isEmpty()) {
-            return new ArrayList<>();
+    public ReconciliationPlan planReconciliation(String projectId, ApiType apiType, List<ApiInstanceEntity> desired) {
+        Map<String, ApiInstanceEntity> desiredByBusinessId = new LinkedHashMap<>();
+        for (ApiInstanceEntity entity : desired) {
+            if (desiredByBusinessId.put(entity.getBusinessId(), entity) != null) {
+                throw new BusinessException("DUPLICATE_BUSINESS_ID", "期望状态中业务ID重复: " + entity.getBusinessId());
+            }
+        }
+
+        LambdaQueryWrapper<ApiInstanceEntity> queryWrapper = new LambdaQueryWrapper<>();
+        queryWrapper.eq(ApiInstanceEntity::getProjectId, projectId)
+                   .eq(ApiInstanceEntity::getApiType, apiType);
+        List<ApiInstanceEntity> existing = apiInstanceRepository.selectList(queryWrapper);
+
+        ReconciliationPlan plan = new ReconciliationPlan(projectId, apiType);
+        Map<String, ApiInstanceEntity> existingByBusinessId = new HashMap<>(existing.size());
+        for (ApiInstanceEntity current : existing) {
+            existingByBusinessId.put(current.getBusinessId(), current);
+            ApiInstanceEntity target = desiredByBusinessId.get(current.getBusinessId());
+            if (target == null) {
+                plan.absent.add(current);
+                continue;
+            }
+            boolean changed = !sameConfiguration(current, target);
+            if (changed) {
+                plan.updates.add(target);
+            }
+            if (!current.isAvailable()) {
+                plan.reactivations.add(current.getId());
+            } else if (!changed) {
+                plan.unchanged++;
+            }
+        }
+        for (ApiInstanceEntity target : desiredByBusinessId.values()) {
+            if (!existingByBusinessId.containsKey(target.getBusinessId())) {
+                plan.creates.add(target);
+            }
+        }
+        return plan;
+    }
+
+    /**
+     * 按差异执行变更，需要在调用方的事务中执行
+     * 新建和更新合并为多行 upsert，重新激活和移除各一条按主键的 UPDATE / DELETE（超过分块大小时分批）
+     *
+     * @param deleteAbsent 多出的实例是删除还是停用
+     * @return 变更后该项目该类型的活跃实例，用于刷新路由快照
+     */
+    public List<ApiInstanceEntity> applyReconciliation(ReconciliationPlan plan, boolean deleteAbsent) {
+        List<ApiInstanceEntity> upserts = new ArrayList<>(plan.creates.size() + plan.updates.size());
+        upserts.addAll(plan.creates);
+        upserts.addAll(plan.updates);
+        for (int from = 0; from < upserts.size(); from += BATCH_INSERT_SIZE) {
+            apiInstanceRepository.insertBatchOnConflictDoUpdate(
+                    upserts.subList(from, Math.min(from + BATCH_INSERT_SIZE, upserts.size())));
         }
 
-        // 收集所有需要检查的条件和待检查的唯一key集合
-        Set<String> projectIds = new HashSet<>();
-        Set<ApiType> apiTypes = new HashSet<>();
-        Set<String> businessIds = new HashSet<>();
-        Set<String> keysToCheck = new HashSet<>();
+        updateStatusByIds(plan.reactivations, ApiInstanceStatus.ACTIVE);
 
-        for (ApiInstanceEntity entity : apiInstanceEntities) {
-            projectIds.add(entity.getProjectId());
-            apiTypes.add(entity.getApiType());
-            businessIds.add(entity.getBusinessId());
-            keysToCheck.add(buildUniqueKey(entity.getProjectId(), entity.getApiType(), entity.getBusinessId()));
+        if (deleteAbsent) {
+            List<String> absentIds = plan.absent.stream().map(ApiInstanceEntity::getId).collect(Collectors.toList());
+            for (int from = 0; from < absentIds.size(); from += BATCH_INSERT_SIZE) {
+                apiInstanceRepository.deleteByIds(absentIds.subList(from, Math.min(from + BATCH_INSERT_SIZE, absentIds.size())));
+            }
+        } else {
+            updateStatusByIds(plan.absent.stream()
+                    .filter(ApiInstanceEntity::isAvailable)
+                    .map(ApiInstanceEntity::getId)
+                    .collect(Collectors.toList()), ApiInstanceStatus.INACTIVE);
+        }
+
+        logger.info("API实例期望状态同步完成，项目ID: {}，类型: {}，新建: {}，更新: {}，重新激活: {}，{}: {}，未变化: {}",
+                plan.getProjectId(), plan.getApiType(), plan.getCreateCount(), plan.getUpdateCount(),
+                plan.getReactivateCount(), deleteAbsent ? "删除" : "停用",
+                deleteAbsent ? plan.getAbsentCount() : plan.getAbsentActiveCount(), plan.getUnchangedCount());
+
+        return getActiveApiInstances(plan.getProjectId(), plan.getApiType());
+    }
+
+    /**
+     * 批量变更实例状态
+     * 按筛选条件生成一条 UPDATE，只修改状态和更新时间，已处于目标状态的实例不计入
+     *
+     * @return 状态实际发生变化的实例数
+     */
+    public int bulkUpdateStatus(String projectId, ApiType apiType, InstanceStatusFilter filter, ApiInstanceStatus status) {
+        if (filter.isEmpty()) {
+            throw new BusinessException("EMPTY_INSTANCE_FILTER", "批量变更状态至少需要一个筛选条件");
         }
 
-        // 构建查询条件：查询所有可能重复的记录
+        LambdaUpdateWrapper<ApiInstanceEntity> updateWrapper = new LambdaUpdateWrapper<>();
+        updateWrapper.set(ApiInstanceEntity::getStatus, status)
+                     .set(ApiInstanceEntity::getUpdatedAt, LocalDateTime.now())
+                     .eq(ApiInstanceEntity::getProjectId, projectId)
+                     .eq(ApiInstanceEntity::getApiType, apiType)
+                     .ne(ApiInstanceEntity::getStatus, status);
+        if (filter.getBusinessIds() != null && !filter.getBusinessIds().isEmpty()) {
+            updateWrapper.in(ApiInstanceEntity::getBusinessId, filter.getBusinessIds());
+        }
+        if (filter.getApiIdentifier() != null && !filter.getApiIdentifier().isBlank()) {
+            updateWrapper.eq(ApiInstanceEntity::getApiIdentifier, filter.getApiIdentifier());
+        }
+        if (filter.getMetadataLabels() != null && !filter.getMetadataLabels().isEmpty()) {
+            // 包装器的条件方法只能拿整列与值比较，表达不了按动态键取 JSONB 字段（->>），只能写成 SQL 片段；
+            // 列名与包装器一样从实体的表元数据解析，键和值仍以参数绑定
+            String metadataColumn = columnOf(ApiInstanceEntity::getMetadata);
+            filter.getMetadataLabels().forEach((key, value) ->
+                    updateWrapper.apply(metadataColumn + " ->> CAST({0} AS TEXT) = CAST({1} AS TEXT)", key, value));
+        }
+
+        int updated = apiInstanceRepository.update(updateWrapper);
+        logger.info("批量变更API实例状态，项目ID: {}，类型: {}，目标状态: {}，变更数量: {}",
+                projectId, apiType, status, updated);
+        return updated;
+    }
+
+    /**
+     * 从实体的表元数据解析字段对应的列名，与 SQL 注入器和 Lambda 包装器使用同一份映射
+     */
+    private static String columnOf(SFunction<ApiInstanceEntity, ?> getter) {
+        String property = PropertyNamer.methodToProperty(LambdaUtils.extract(getter).getImplMethodName());
+        return TableInfoHelper.getTableInfo(ApiInstanceEntity.class).getFieldList().stream()
+                .filter(field -> field.getProperty().equals(property))
+                .map(TableFieldInfo::getColumn)
+                .findFirst()
+                .orElseThrow(() -> new IllegalStateException("实体字段没有映射到列: " + property));
+    }
+
+    /**
+     * 获取某个项目某类API的全部活跃实例
+     */
+    public List<ApiInstanceEntity> getActiveApiInstances(String projectId, ApiType apiType) {
         LambdaQueryWrapper<ApiInstanceEntity> queryWrapper = new LambdaQueryWrapper<>();
-        queryWrapper.in(ApiInstanceEntity::getProjectId, projectIds)
-                   .in(ApiInstanceEntity::getApiType, apiTypes)
-                   .in(ApiInstanceEntity::getBusinessId, businessIds);
-
-        List<ApiInstanceEntity> allCandidates = apiInstanceRepository.selectList(queryWrapper);
-
-        // 使用Set提高匹配效率：只返回真正匹配的记录
-        return allCandidates.stream()
-                .filter(existing -> {
-                    String existingKey = buildUniqueKey(existing.getProjectId(), existing.getApiType(), existing.getBusinessId());
-                    return keysToCheck.contains(existingKey);
-                })
-                .collect(Collectors.toList());
+        queryWrapper.eq(ApiInstanceEntity::getProjectId, projectId)
+                   .eq(ApiInstanceEntity::getApiType, apiType)
+                   .eq(ApiInstanceEntity::getStatus, ApiInstanceStatus.ACTIVE);
+        return apiInstanceRepository.selectList(queryWrapper);
+    }
+
+    /**
+     * 按主键批量修改状态，只更新状态和更新时间两列
+     */
+    private void updateStatusByIds(List<String> ids, ApiInstanceStatus status) {
+        for (int from = 0; from < ids.size(); from += BATCH_INSERT_SIZE) {
+            LambdaUpdateWrapper<ApiInstanceEntity> updateWrapper = new LambdaUpdateWrapper<>();
+            updateWrapper.set(ApiInstanceEntity::getStatus, status)
+                         .set(ApiInstanceEntity::getUpdatedAt, LocalDateTime.now())
+                         .in(ApiInstanceEntity::getId, ids.subList(from, Math.min(from + BATCH_INSERT_SIZE, ids.size())));
+            apiInstanceRepository.update(updateWrapper);
+        }
     }
 
     /**
-     * 构建唯一标识Key
+     * 期望配置与现有配置是否一致，空的参数和元数据视为相同
      */
-    private String buildUniqueKey(String projectId, ApiType apiType, String businessId) {
-        return projectId + ":" + apiType.name() + ":" + businessId;
+    private boolean sameConfiguration(ApiInstanceEntity current, ApiInstanceEntity target) {
+        return Objects.equals(current.getApiIdentifier(), target.getApiIdentifier())
+                && Objects.equals(current.getUserId(), target.getUserId())
+                && Objects.equals(emptyIfNull(current.getRoutingParams()), emptyIfNull(target.getRoutingParams()))
+                && Objects.equals(emptyIfNull(current.getMetadata()), emptyIfNull(target.getMetadata()));
+    }
+
+    private Map<String, Object> emptyIfNull(Map<String, Object> map) {
+        return map == null ? Map.of() : map;
+    }
+
+    /**
+     * 从部分写入的批次中找出真正插入的实例
+     * 每个实体插入前都分配了新的主键，被跳过的行主键不会出现在表中，按主键回查即可区分
+     */
+    private List<ApiInstanceEntity> filterInserted(List<ApiInstanceEntity> batch) {
+        List<String> ids = batch.stream().map(ApiInstanceEntity::getId).collect(Collectors.toList());
+        LambdaQueryWrapper<ApiInstanceEntity> queryWrapper = new LambdaQueryWrapper<>();
+        queryWrapper.select(ApiInstanceEntity::getId).in(ApiInstanceEntity::getId, ids);
+        Set<String> insertedIds = apiInstanceRepository.selectList(queryWrapper).stream()
+                .map(ApiInstanceEntity::getId)
+                .collect(Collectors.toSet());
+
+        List<ApiInstanceEntity> inserted = new ArrayList<>(insertedIds.size());
+        for (ApiInstanceEntity entity : batch) {
+            if (insertedIds.contains(entity.getId())) {
+                inserted.add(entity);
+            } else {
+                logger.info("API实例已存在，跳过创建：projectId={}, apiType={}, businessId={}",
+                    entity.getProjectId(), entity.getApiType(), entity.getBusinessId());
+            }
+        }
+        return inserted;
     }
 
     /**
@@ -391,6 +572,96 @@ public class ApiInstanceDomainService {
         return totalDeletedCount;
     }
 
+    /**
+     * 期望状态同步计划
+     */
+    public static class ReconciliationPlan {
+        private final String projectId;
+        private final ApiType apiType;
+        private final List<ApiInstanceEntity> creates = new ArrayList<>();
+        private final List<ApiInstanceEntity> updates = new ArrayList<>();
+        private final List<String> reactivations = new ArrayList<>();
+        private final List<ApiInstanceEntity> absent = new ArrayList<>();
+        private int unchanged;
+
+        ReconciliationPlan(String projectId, ApiType apiType) {
+            this.projectId = projectId;
+            this.apiType = apiType;
+        }
+
+        public String getProjectId() {
+            return projectId;
+        }
+
+        public ApiType getApiType() {
+            return apiType;
+        }
+
+        public int getCreateCount() {
+            return creates.size();
+        }
+
+        public int getUpdateCount() {
+            return updates.size();
+        }
+
+        public int getReactivateCount() {
+            return reactivations.size();
+        }
+
+        public int getAbsentCount() {
+            return absent.size();
+        }
+
+        /**
+         * 多出的实例中当前仍活跃的数量，停用模式下只有它们会被修改
+         */
+        public int getAbsentActiveCount() {
+            return (int) absent.stream().filter(ApiInstanceEntity::isAvailable).count();
+        }
+
+        public int getUnchangedCount() {
+            return unchanged;
+        }
+
+        public boolean isEmpty() {
+            return creates.isEmpty() && updates.isEmpty() && reactivations.isEmpty() && absent.isEmpty();
+        }
+    }
+
+    /**
+     * 批量状态变更的筛选条件，非空的条件同时生效
+     */
+    public static class InstanceStatusFilter {
+        private final List<String> businessIds;
+        private final String apiIdentifier;
+        private final Map<String, String> metadataLabels;
+
+        public InstanceStatusFilter(List<String> businessIds, String apiIdentifier, Map<String, String> metadataLabels) {
+            this.businessIds = businessIds;
+            this.apiIdentifier = apiIdentifier;
+            this.metadataLabels = metadataLabels;
+        }
+
+        public List<String> getBusinessIds() {
+            return businessIds;
+        }
+
+        public String getApiIdentifier() {
+            return apiIdentifier;
+        }
+
+        public Map<String, String> getMetadataLabels() {
+            return metadataLabels;
+        }
+
+        public boolean isEmpty() {
+            return (businessIds == null || businessIds.isEmpty())
+                    && (apiIdentifier == null || apiIdentifier.isBlank())
+                    && (metadataLabels == null || metadataLabels.isEmpty());
+        }
+    }
+
     /**
      * API实例删除键
      */
@@ -14,9 +14,11 @@ import org.xhy.gateway.domain.apiinstance.strategy.LoadBalancingStrategy;
 import org.xhy.gateway.domain.apiinstance.strategy.LoadBalancingStrategyFactory;
 import org.xhy.gateway.domain.metrics.entity.InstanceMetricsEntity;
 import org.xhy.gateway.infrastructure.exception.BusinessException;
+import org.xhy.gateway.infrastructure.jfr.GatewaySelectionEvent;
 
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 /**
@@ -91,6 +93,25 @@ public class ApiInstanceSelectionDomainService {
                 .collect(Collectors.toList());
     }
 
+    /**
+     * 暂时避开处于限流退避期的实例
+     * 限流只说明实例短时间内没有余量，不代表故障；全部实例都在退避时不过滤，交给上游自行排队或重试
+     */
+    public List<ApiInstanceEntity> filterRateLimitedInstances(List<ApiInstanceEntity> instances,
+                                                              Set<String> rateLimitedInstanceIds) {
+        if (rateLimitedInstanceIds.isEmpty()) {
+            return instances;
+        }
+        List<ApiInstanceEntity> available = instances.stream()
+                .filter(instance -> !rateLimitedInstanceIds.contains(instance.getId()))
+                .collect(Collectors.toList());
+        if (available.isEmpty()) {
+            logger.warn("所有候选实例都处于限流退避期，忽略退避: 实例数={}", instances.size());
+            return instances;
+        }
+        return available;
+    }
+
     /**
      * 使用策略选择最佳实例
      * 使用用户指定的负载均衡策略，支持亲和性绑定
@@ -103,31 +124,66 @@ public class ApiInstanceSelectionDomainService {
     public ApiInstanceEntity selectInstanceWithStrategy(List<ApiInstanceEntity> healthyInstances, 
                                                        Map<String, InstanceMetricsEntity> metricsMap,
                                                        InstanceSelectionCommand command) {
-        logger.info("开始使用策略选择最佳API实例: 候选实例数={}, 策略={}", 
-                healthyInstances.size(), command.getLoadBalancingType());
+        GatewaySelectionEvent event = new GatewaySelectionEvent();
+        event.begin();
 
         if (healthyInstances.isEmpty()) {
             throw new BusinessException("NO_HEALTHY_INSTANCE", "没有健康的API实例可供选择");
         }
 
+        LoadBalancingType loadBalancingType = resolveLoadBalancingType(command, healthyInstances);
+        logger.info("开始使用策略选择最佳API实例: 候选实例数={}, 策略={}", healthyInstances.size(), loadBalancingType);
+
         // 使用亲和性感知的策略选择实例
-        LoadBalancingStrategy strategy = strategyFactory.getStrategy(LoadBalancingType.ROUND_ROBIN);
+        LoadBalancingStrategy strategy = strategyFactory.getStrategy(loadBalancingType);
         ApiInstanceEntity selected = affinityDecorator.selectInstanceWithAffinity(
             healthyInstances, 
             metricsMap, 
             strategy, 
-            command.getAffinityContext()
+            command
         );
 
         if (command.hasAffinityRequirement()) {
             logger.info("选择API实例成功（含亲和性）: businessId={}, instanceId={}, strategy={}, affinity={}", 
-                    selected.getBusinessId(), selected.getId(), command.getLoadBalancingType(), 
+                    selected.getBusinessId(), selected.getId(), loadBalancingType, 
                     command.getAffinityContext().getBindingKey());
         } else {
             logger.info("选择API实例成功: businessId={}, instanceId={}, strategy={}", 
-                    selected.getBusinessId(), selected.getId(), command.getLoadBalancingType());
+                    selected.getBusinessId(), selected.getId(), loadBalancingType);
+        }
+
+        // 事件未开启时不填充字段，避免额外的字符串拼接
+        if (event.shouldCommit()) {
+            event.routeGroup = command.getProjectId() + ":" + command.getApiType() + ":" + command.getApiIdentifier();
+            event.candidateCount = healthyInstances.size();
+            event.strategy = strategy.getStrategyName();
+            event.affinityKey = command.hasAffinityRequirement() ? command.getAffinityContext().getBindingKey() : null;
+            event.chosenInstance = selected.getId();
+            event.commit();
         }
         
         return selected;
     }
+
+    /**
+     * 确定本次选择使用的策略
+     * 命令中指定的策略优先；否则使用路由在实例 routingParams.load_balancing_type 中指定的策略（如 p99_slo），都未指定时使用轮询
+     */
+    private LoadBalancingType resolveLoadBalancingType(InstanceSelectionCommand command,
+                                                       List<ApiInstanceEntity> instances) {
+        if (command.getLoadBalancingType() != null) {
+            return command.getLoadBalancingType();
+        }
+        for (ApiInstanceEntity instance : instances) {
+            try {
+                LoadBalancingType type = instance.getLoadBalancingType();
+                if (type != null) {
+                    return type;
+                }
+            } catch (IllegalArgumentException e) {
+                logger.warn("实例配置了未知的负载均衡策略，忽略: instanceId={}, {}", instance.getId(), e.getMessage());
+            }
+        }
+        return LoadBalancingType.ROUND_ROBIN;
+    }
 } 
\ No newline at end of file
@@ -0,0 +1,108 @@
+package org.xhy.gateway.domain.apiinstance.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.stereotype.Service;
+import org.xhy.gateway.domain.apiinstance.command.InstanceSelectionCommand;
+import org.xhy.gateway.domain.apiinstance.entity.ApiInstanceEntity;
+import org.xhy.gateway.domain.apiinstance.entity.ApiType;
+import org.xhy.gateway.domain.metrics.entity.InstanceMetricsEntity;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 路由快照服务
+ * 保存每次从数据库成功查到的候选实例、实例指标和已确认存在的项目，数据库不可用时用这份最近快照继续路由。
+ * 快照只在查询成功时覆盖，不会过期；候选实例、实例指标和项目都有数量上限，超出时淘汰最久未用的条目。
+ *
+ * @author xhy
+ * @since 1.0.0
+ */
+@Service
+public class RoutingSnapshotService {
+
+    private final Cache<CandidateKey, List<ApiInstanceEntity>> candidates = Caffeine.newBuilder()
+            .maximumSize(10000)
+            .build();
+
+    private final Cache<String, InstanceMetricsEntity> metrics = Caffeine.newBuilder()
+            .maximumSize(100000)
+            .build();
+
+    private final Cache<String, Boolean> existingProjects = Caffeine.newBuilder()
+            .maximumSize(10000)
+            .build();
+
+    public void saveCandidates(InstanceSelectionCommand command, List<ApiInstanceEntity> instances) {
+        candidates.put(buildCandidateKey(command), List.copyOf(instances));
+    }
+
+    /**
+     * 最近一次查到的候选实例，没有快照时返回 null
+     */
+    public List<ApiInstanceEntity> getCandidates(InstanceSelectionCommand command) {
+        return candidates.getIfPresent(buildCandidateKey(command));
+    }
+
+    /**
+     * 用某个项目某类 API 的全部活跃实例重算已有的候选实例快照
+     * 实例批量变更提交后调用一次，不必等下一次选择查询；过滤条件与候选实例查询一致，尚无快照的查询条件不新建
+     */
+    public void replaceCandidates(String projectId, ApiType apiType, List<ApiInstanceEntity> activeInstances) {
+        for (CandidateKey key : candidates.asMap().keySet()) {
+            if (!key.projectId().equals(projectId) || !apiType.getCode().equals(key.apiType())) {
+                continue;
+            }
+            List<ApiInstanceEntity> matched = activeInstances.stream()
+                    .filter(ApiInstanceEntity::isAvailable)
+                    .filter(instance -> key.apiIdentifier().equals(instance.getApiIdentifier())
+                            || key.apiIdentifier().equals(instance.getBusinessId()))
+                    .filter(instance -> key.userId().isEmpty() || key.userId().equals(instance.getUserId()))
+                    .toList();
+            candidates.put(key, matched);
+        }
+    }
+
+    public void saveMetrics(Map<String, InstanceMetricsEntity> metricsMap) {
+        metrics.putAll(metricsMap);
+    }
+
+    /**
+     * 最近一次查到的实例指标，没有快照的实例不出现在结果中
+     */
+    public Map<String, InstanceMetricsEntity> getMetrics(Collection<String> instanceIds) {
+        return metrics.getAllPresent(instanceIds);
+    }
+
+    public void saveProjectExists(String projectId) {
+        existingProjects.put(projectId, Boolean.TRUE);
+    }
+
+    public void removeProject(String projectId) {
+        existingProjects.invalidate(projectId);
+    }
+
+    public boolean isProjectKnown(String projectId) {
+        return existingProjects.getIfPresent(projectId) != null;
+    }
+
+    /**
+     * 快照中的候选实例查询条数
+     */
+    public long getCandidateSnapshotCount() {
+        return candidates.estimatedSize();
+    }
+
+    private CandidateKey buildCandidateKey(InstanceSelectionCommand command) {
+        return new CandidateKey(command.getProjectId(), command.getApiType(), command.getApiIdentifier(),
+                command.getUserId() == null ? "" : command.getUserId().trim());
+    }
+
+    /**
+     * 候选实例查询条件
+     */
+    private record CandidateKey(String projectId, String apiType, String apiIdentifier, String userId) {
+    }
+}
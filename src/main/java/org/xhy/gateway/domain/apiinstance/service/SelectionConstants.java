@@ -46,6 +46,18 @@ public final class SelectionConstants {
      * 熔断冷却时间 (秒)
      */
     public static final long CIRCUIT_BREAKER_COOLDOWN_SECONDS = 30;
+
+    // ======== 限流退避配置 ========
+
+    /**
+     * 首次被限流（429）后的退避时间 (毫秒)，连续限流时逐次翻倍
+     */
+    public static final long RATE_LIMIT_BACKOFF_INITIAL_MS = 1000;
+
+    /**
+     * 限流退避时间上限 (毫秒)
+     */
+    public static final long RATE_LIMIT_BACKOFF_MAX_MS = 30_000;
     
     // ======== 时间窗口配置 ========
     
@@ -1,5 +1,6 @@
 package org.xhy.gateway.domain.apiinstance.strategy;
 
+import org.xhy.gateway.domain.apiinstance.command.InstanceSelectionCommand;
 import org.xhy.gateway.domain.apiinstance.entity.ApiInstanceEntity;
 import org.xhy.gateway.domain.apiinstance.entity.LoadBalancingType;
 import org.xhy.gateway.domain.metrics.entity.InstanceMetricsEntity;
@@ -41,6 +42,21 @@ public interface LoadBalancingStrategy {
     ApiInstanceEntity selectInstance(List<ApiInstanceEntity> candidates, 
                                    Map<String, InstanceMetricsEntity> metricsMap);
 
+    /**
+     * 结合本次请求的提示选择最佳实例
+     * 需要请求信息（如预计 token 数）的策略覆盖此方法，其余策略沿用 {@link #selectInstance(List, Map)}
+     *
+     * @param candidates 候选实例列表
+     * @param metricsMap 实例指标映射
+     * @param command 实例选择命令
+     * @return 选中的实例
+     */
+    default ApiInstanceEntity selectInstance(List<ApiInstanceEntity> candidates,
+                                           Map<String, InstanceMetricsEntity> metricsMap,
+                                           InstanceSelectionCommand command) {
+        return selectInstance(candidates, metricsMap);
+    }
+
     /**
      * 策略是否适用于当前场景
      * 
@@ -0,0 +1,125 @@
+package org.xhy.gateway.domain.apiinstance.strategy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import org.xhy.gateway.domain.apiinstance.entity.ApiInstanceEntity;
+import org.xhy.gateway.domain.apiinstance.entity.LoadBalancingType;
+import org.xhy.gateway.domain.metrics.entity.InstanceMetricsEntity;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 尾延迟SLO负载均衡策略
+ * 以实例近期的 p99 延迟对照路由参数 p99_slo_ms：p99 超过 SLO 的实例被排除，
+ * 在达标实例中随机取两个、选 p99 占 SLO 比例更低的一个（two choices），避免所有流量涌向同一个最快实例；
+ * 全部实例都超标时不拒绝请求，而是选择超标程度最轻的实例。
+ * 没有配置 SLO 或近期样本不足的实例视为达标。p99 来自内存中的流式直方图，不访问数据库。
+ *
+ * @author xhy
+ * @since 1.0.0
+ */
+@Component
+public class P99SloStrategy implements LoadBalancingStrategy {
+
+    private static final Logger logger = LoggerFactory.getLogger(P99SloStrategy.class);
+
+    @Override
+    public String getStrategyName() {
+        return "P99_SLO";
+    }
+
+    @Override
+    public String getDescription() {
+        return "尾延迟SLO策略：排除近期 p99 超过路由 SLO 的实例，全部超标时选择超标最轻的实例";
+    }
+
+    @Override
+    public LoadBalancingType getStrategyType() {
+        return LoadBalancingType.P99_SLO;
+    }
+
+    @Override
+    public ApiInstanceEntity selectInstance(List<ApiInstanceEntity> candidates,
+                                          Map<String, InstanceMetricsEntity> metricsMap) {
+
+        if (candidates.isEmpty()) {
+            throw new IllegalArgumentException("候选实例列表不能为空");
+        }
+
+        // 过滤掉被熔断的实例
+        List<ApiInstanceEntity> availableInstances = candidates.stream()
+                .filter(instance -> {
+                    InstanceMetricsEntity metrics = metricsMap.get(instance.getId());
+                    return metrics == null || !metrics.isCircuitBreakerOpen();
+                })
+                .toList();
+
+        if (availableInstances.isEmpty()) {
+            logger.warn("所有实例都被熔断，返回第一个实例");
+            return candidates.get(0);
+        }
+
+        List<ApiInstanceEntity> compliant = new ArrayList<>(availableInstances.size());
+        for (ApiInstanceEntity instance : availableInstances) {
+            if (getSloRatio(instance, metricsMap) <= 1.0) {
+                compliant.add(instance);
+            }
+        }
+
+        if (compliant.isEmpty()) {
+            ApiInstanceEntity leastViolating = availableInstances.stream()
+                    .min(Comparator.comparingDouble(instance -> getSloRatio(instance, metricsMap)))
+                    .orElse(availableInstances.get(0));
+            logger.warn("所有实例近期 p99 均超过 SLO，选择超标最轻的实例: businessId={}, p99/SLO={}",
+                    leastViolating.getBusinessId(), getSloRatio(leastViolating, metricsMap));
+            return leastViolating;
+        }
+
+        ApiInstanceEntity selected = pickOfTwo(compliant, metricsMap);
+        logger.debug("尾延迟SLO策略选择实例: businessId={}, 达标实例数={}/{}",
+                selected.getBusinessId(), compliant.size(), availableInstances.size());
+        return selected;
+    }
+
+    @Override
+    public boolean isApplicable(List<ApiInstanceEntity> candidates,
+                               Map<String, InstanceMetricsEntity> metricsMap) {
+        // 至少有一个实例配置了 SLO 才有意义
+        return candidates.stream().anyMatch(instance -> instance.getP99SloMs() != null);
+    }
+
+    /**
+     * 在达标实例中随机取两个，选择 p99 占 SLO 比例更低的一个
+     */
+    private ApiInstanceEntity pickOfTwo(List<ApiInstanceEntity> compliant, Map<String, InstanceMetricsEntity> metricsMap) {
+        if (compliant.size() == 1) {
+            return compliant.get(0);
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int first = random.nextInt(compliant.size());
+        int second = random.nextInt(compliant.size() - 1);
+        if (second >= first) {
+            second++;
+        }
+        ApiInstanceEntity a = compliant.get(first);
+        ApiInstanceEntity b = compliant.get(second);
+        return getSloRatio(a, metricsMap) <= getSloRatio(b, metricsMap) ? a : b;
+    }
+
+    /**
+     * 近期 p99 与 SLO 的比值，大于 1 表示超标；没有 SLO 或没有足够样本时返回 0
+     */
+    private double getSloRatio(ApiInstanceEntity instance, Map<String, InstanceMetricsEntity> metricsMap) {
+        Long slo = instance.getP99SloMs();
+        InstanceMetricsEntity metrics = metricsMap.get(instance.getId());
+        if (slo == null || slo <= 0 || metrics == null || metrics.getRecentP99Latency() == null) {
+            return 0.0;
+        }
+        return metrics.getRecentP99Latency() / slo;
+    }
+}
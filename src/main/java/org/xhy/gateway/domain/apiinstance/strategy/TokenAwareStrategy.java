@@ -0,0 +1,145 @@
+package org.xhy.gateway.domain.apiinstance.strategy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import org.xhy.gateway.domain.apiinstance.command.InstanceSelectionCommand;
+import org.xhy.gateway.domain.apiinstance.entity.ApiInstanceEntity;
+import org.xhy.gateway.domain.apiinstance.entity.LoadBalancingType;
+import org.xhy.gateway.domain.metrics.entity.InstanceMetricsEntity;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.xhy.gateway.domain.apiinstance.service.SelectionConstants.MIN_INSTANCE_WEIGHT;
+
+/**
+ * 令牌余量负载均衡策略
+ * 模型类实例真正的容量上限是每分钟 token 数（TPM）和请求数（RPM），在 routingParams 中以 tpm_limit、rpm_limit 声明。
+ * 用最近一分钟的消耗算出每个实例的剩余比例，扣除本次请求预计的 token 数后余量不足的实例不参与选择，
+ * 其余实例按剩余比例加权随机，使流量按余量分摊；未声明上限的实例视为余量充足。
+ * 所有实例都不够时选择余量最多的一个，由上游自行处理可能的 429。
+ *
+ * @author xhy
+ * @since 1.0.0
+ */
+@Component
+public class TokenAwareStrategy implements LoadBalancingStrategy {
+
+    private static final Logger logger = LoggerFactory.getLogger(TokenAwareStrategy.class);
+
+    @Override
+    public String getStrategyName() {
+        return "TOKEN_AWARE";
+    }
+
+    @Override
+    public String getDescription() {
+        return "令牌余量策略：按实例 TPM/RPM 的剩余比例分配请求，避免触发上游限流";
+    }
+
+    @Override
+    public LoadBalancingType getStrategyType() {
+        return LoadBalancingType.TOKEN_AWARE;
+    }
+
+    @Override
+    public ApiInstanceEntity selectInstance(List<ApiInstanceEntity> candidates,
+                                          Map<String, InstanceMetricsEntity> metricsMap) {
+        return selectByHeadroom(candidates, metricsMap, 0);
+    }
+
+    @Override
+    public ApiInstanceEntity selectInstance(List<ApiInstanceEntity> candidates,
+                                          Map<String, InstanceMetricsEntity> metricsMap,
+                                          InstanceSelectionCommand command) {
+        Long expectedTokens = command.getExpectedTokens();
+        return selectByHeadroom(candidates, metricsMap, expectedTokens == null ? 0 : expectedTokens);
+    }
+
+    @Override
+    public boolean isApplicable(List<ApiInstanceEntity> candidates,
+                               Map<String, InstanceMetricsEntity> metricsMap) {
+        // 至少有一个实例声明了容量上限
+        return candidates.stream()
+                .anyMatch(instance -> instance.getTpmLimit() != null || instance.getRpmLimit() != null);
+    }
+
+    private ApiInstanceEntity selectByHeadroom(List<ApiInstanceEntity> candidates,
+                                               Map<String, InstanceMetricsEntity> metricsMap,
+                                               long expectedTokens) {
+        if (candidates.isEmpty()) {
+            throw new IllegalArgumentException("候选实例列表不能为空");
+        }
+
+        // 过滤掉被熔断的实例
+        List<ApiInstanceEntity> availableInstances = candidates.stream()
+                .filter(instance -> {
+                    InstanceMetricsEntity metrics = metricsMap.get(instance.getId());
+                    return metrics == null || !metrics.isCircuitBreakerOpen();
+                })
+                .toList();
+
+        if (availableInstances.isEmpty()) {
+            logger.warn("所有实例都被熔断，返回第一个实例");
+            return candidates.get(0);
+        }
+
+        List<ApiInstanceEntity> eligible = new ArrayList<>(availableInstances.size());
+        List<Double> weights = new ArrayList<>(availableInstances.size());
+        double totalWeight = 0;
+        ApiInstanceEntity mostHeadroom = null;
+        double mostHeadroomRatio = Double.NEGATIVE_INFINITY;
+
+        for (ApiInstanceEntity instance : availableInstances) {
+            double ratio = getHeadroomRatio(instance, metricsMap.get(instance.getId()), expectedTokens);
+            if (ratio > mostHeadroomRatio) {
+                mostHeadroomRatio = ratio;
+                mostHeadroom = instance;
+            }
+            if (ratio >= 0) {
+                double weight = Math.max(ratio, MIN_INSTANCE_WEIGHT);
+                eligible.add(instance);
+                weights.add(weight);
+                totalWeight += weight;
+            }
+        }
+
+        if (eligible.isEmpty()) {
+            logger.warn("所有实例的 TPM/RPM 余量都不足，选择余量最多的实例: businessId={}, expectedTokens={}",
+                    mostHeadroom.getBusinessId(), expectedTokens);
+            return mostHeadroom;
+        }
+
+        double random = ThreadLocalRandom.current().nextDouble() * totalWeight;
+        for (int i = 0; i < eligible.size(); i++) {
+            random -= weights.get(i);
+            if (random <= 0) {
+                return eligible.get(i);
+            }
+        }
+        return eligible.get(eligible.size() - 1);
+    }
+
+    /**
+     * 计算实例在接下本次请求后的剩余容量比例，取 TPM 和 RPM 中更紧的一个
+     * 小于 0 表示余量不足；未声明上限的维度按 1 计
+     */
+    private double getHeadroomRatio(ApiInstanceEntity instance, InstanceMetricsEntity metrics, long expectedTokens) {
+        long usedTokens = metrics == null || metrics.getRecentTokens() == null ? 0 : metrics.getRecentTokens();
+        long usedRequests = metrics == null || metrics.getRecentRequests() == null ? 0 : metrics.getRecentRequests();
+
+        double ratio = 1.0;
+        Long tpmLimit = instance.getTpmLimit();
+        if (tpmLimit != null && tpmLimit > 0) {
+            ratio = Math.min(ratio, (double) (tpmLimit - usedTokens - expectedTokens) / tpmLimit);
+        }
+        Long rpmLimit = instance.getRpmLimit();
+        if (rpmLimit != null && rpmLimit > 0) {
+            ratio = Math.min(ratio, (double) (rpmLimit - usedRequests - 1) / rpmLimit);
+        }
+        return ratio;
+    }
+}
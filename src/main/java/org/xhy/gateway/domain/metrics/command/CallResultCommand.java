@@ -1,5 +1,8 @@
 package org.xhy.gateway.domain.metrics.command;
 
+import org.xhy.gateway.domain.metrics.entity.ErrorClass;
+import org.xhy.gateway.domain.metrics.entity.UsageMetric;
+
 import java.util.Map;
 
 /**
@@ -13,6 +16,11 @@ public class CallResultCommand {
 
     private String projectId;
 
+    /**
+     * 网关接收上报的时间戳（毫秒），为空表示刚刚接收
+     */
+    private Long receivedAt;
+
     /**
      * 实例ID
      */
@@ -68,6 +76,14 @@ public class CallResultCommand {
         this.projectId = projectId;
     }
 
+    public Long getReceivedAt() {
+        return receivedAt;
+    }
+
+    public void setReceivedAt(Long receivedAt) {
+        this.receivedAt = receivedAt;
+    }
+
     public String getInstanceId() {
         return instanceId;
     }
@@ -88,6 +104,31 @@ public class CallResultCommand {
         return errorType;
     }
 
+    /**
+     * 失败调用的错误分类，成功时返回 null
+     */
+    public ErrorClass getErrorClass() {
+        return Boolean.TRUE.equals(success) ? null : ErrorClass.classify(errorType, errorMessage);
+    }
+
+    /**
+     * 本次调用消耗的 token 数（输入 + 输出），未上报时为 0
+     */
+    public long getTotalTokens() {
+        if (usageMetrics == null) {
+            return 0;
+        }
+        long tokens = 0;
+        for (Map.Entry<String, Object> entry : usageMetrics.entrySet()) {
+            UsageMetric metric = UsageMetric.fromKey(entry.getKey());
+            if ((metric == UsageMetric.PROMPT_TOKENS || metric == UsageMetric.COMPLETION_TOKENS)
+                    && entry.getValue() instanceof Number value) {
+                tokens += value.longValue();
+            }
+        }
+        return tokens;
+    }
+
     public Map<String, Object> getUsageMetrics() {
         return usageMetrics;
     }
@@ -79,6 +79,12 @@ public class ApiInstanceMetricsEntity {
     @TableField(value = "additional_metrics", typeHandler = JacksonTypeHandler.class, jdbcType = JdbcType.OTHER)
     private Map<String, Object> additionalMetrics;
 
+    /**
+     * 该时间窗口内的延迟分布，{@link LatencyHistogram} 的二进制编码
+     */
+    @TableField("latency_histogram")
+    private byte[] latencyHistogram;
+
     // 构造函数
     public ApiInstanceMetricsEntity() {
         this.successCount = 0L;
@@ -267,6 +273,14 @@ public class ApiInstanceMetricsEntity {
         this.additionalMetrics = additionalMetrics;
     }
 
+    public byte[] getLatencyHistogram() {
+        return latencyHistogram;
+    }
+
+    public void setLatencyHistogram(byte[] latencyHistogram) {
+        this.latencyHistogram = latencyHistogram;
+    }
+
     @Override
     public String toString() {
         return "ApiInstanceMetricsEntity{" +
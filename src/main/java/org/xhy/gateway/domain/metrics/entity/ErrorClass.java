@@ -0,0 +1,154 @@
+package org.xhy.gateway.domain.metrics.entity;
+
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 调用失败的错误分类
+ * 由上报的 errorType（兼顾 errorMessage）归类得到，决定一次失败如何影响实例状态：
+ * 超时、5xx、鉴权失败和无法识别的错误算作实例故障，计入熔断；客户端错误不计入熔断；
+ * 限流（429）只触发短时退避。按序号存放在计数数组中，新增分类只能追加在末尾。
+ *
+ * @author xhy
+ * @since 1.0.0
+ */
+public enum ErrorClass {
+
+    /**
+     * 调用超时
+     */
+    TIMEOUT("TIMEOUT", "超时", true),
+
+    /**
+     * 被上游限流（HTTP 429）
+     */
+    RATE_LIMITED("RATE_LIMITED", "限流", false),
+
+    /**
+     * 上游服务端错误（HTTP 5xx、连接失败）
+     */
+    SERVER_ERROR("SERVER_ERROR", "服务端错误", true),
+
+    /**
+     * 鉴权失败（HTTP 401/403），通常是实例的密钥或权限配置有误
+     */
+    AUTH_ERROR("AUTH_ERROR", "鉴权失败", true),
+
+    /**
+     * 客户端错误（HTTP 4xx），请求本身有问题，与实例健康无关
+     */
+    CLIENT_ERROR("CLIENT_ERROR", "客户端错误", false),
+
+    /**
+     * 无法识别的错误，按实例故障处理
+     */
+    UNKNOWN("UNKNOWN", "未知错误", true);
+
+    /**
+     * errorType 中独立出现的状态码：前后不能紧挨字母、数字或小数点，避免命中请求 ID、耗时等数字的一部分
+     */
+    private static final Pattern STATUS_TOKEN = Pattern.compile("(?<![A-Z0-9.])([1-5]\\d\\d)(?![A-Z0-9.])");
+
+    /**
+     * errorMessage 中的状态码只认结构化的写法，如 HTTP 503、HTTP/1.1 429、status: 401、"status_code":500、error 429
+     */
+    private static final Pattern STATUS_FIELD = Pattern.compile(
+            "(?:HTTP(?:/\\d(?:\\.\\d)?)?|STATUS(?:[ _]?CODE)?|CODE|ERROR)\\W{0,3}([1-5]\\d\\d)(?![A-Z0-9.])");
+
+    private final String code;
+    private final String description;
+    private final boolean instanceFault;
+
+    ErrorClass(String code, String description, boolean instanceFault) {
+        this.code = code;
+        this.description = description;
+        this.instanceFault = instanceFault;
+    }
+
+    public String getCode() {
+        return code;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    /**
+     * 是否属于实例自身的故障，只有实例故障计入熔断
+     */
+    public boolean isInstanceFault() {
+        return instanceFault;
+    }
+
+    /**
+     * 根据上报的错误类型和错误信息归类
+     * errorType 可以是 HTTP 状态码（如 429、503），也可以是描述性的类型（如 TIMEOUT、RATE_LIMIT）；
+     * errorType 无法识别时再从 errorMessage 中查找结构化的状态码和关键字
+     */
+    public static ErrorClass classify(String errorType, String errorMessage) {
+        ErrorClass byType = classifyText(errorType, STATUS_TOKEN);
+        if (byType != UNKNOWN) {
+            return byType;
+        }
+        return classifyText(errorMessage, STATUS_FIELD);
+    }
+
+    /**
+     * 依次按超时、限流、鉴权关键字，状态码，服务端、客户端关键字归类
+     * 鉴权关键字先于状态码和客户端关键字，INVALID_API_KEY 这类错误即使带着 400 也按鉴权失败处理
+     */
+    private static ErrorClass classifyText(String text, Pattern statusPattern) {
+        if (text == null || text.isBlank()) {
+            return UNKNOWN;
+        }
+        String value = text.trim().toUpperCase(Locale.ROOT);
+
+        if (value.contains("TIMEOUT") || value.contains("TIMED OUT") || value.contains("TIMED_OUT")) {
+            return TIMEOUT;
+        }
+        if (value.contains("RATE_LIMIT") || value.contains("RATE LIMIT") || value.contains("RATELIMIT")
+                || value.contains("TOO_MANY_REQUESTS") || value.contains("TOO MANY REQUESTS")) {
+            return RATE_LIMITED;
+        }
+        if (value.contains("AUTH") || value.contains("FORBIDDEN") || value.contains("PERMISSION")
+                || value.contains("API_KEY") || value.contains("API KEY") || value.contains("APIKEY")
+                || value.contains("CREDENTIAL") || value.contains("ACCESS_DENIED") || value.contains("ACCESS DENIED")) {
+            return AUTH_ERROR;
+        }
+
+        Matcher status = statusPattern.matcher(value);
+        if (status.find()) {
+            ErrorClass byStatus = classifyStatus(Integer.parseInt(status.group(1)));
+            if (byStatus != UNKNOWN) {
+                return byStatus;
+            }
+        }
+
+        if (value.contains("SERVER") || value.contains("UNAVAILABLE") || value.contains("BAD_GATEWAY")
+                || value.contains("CONNECTION") || value.contains("NETWORK")) {
+            return SERVER_ERROR;
+        }
+        if (value.contains("CLIENT") || value.contains("BAD_REQUEST") || value.contains("INVALID")
+                || value.contains("VALIDATION") || value.contains("NOT_FOUND")) {
+            return CLIENT_ERROR;
+        }
+        return UNKNOWN;
+    }
+
+    private static ErrorClass classifyStatus(int status) {
+        if (status == 429) {
+            return RATE_LIMITED;
+        }
+        if (status == 401 || status == 403) {
+            return AUTH_ERROR;
+        }
+        if (status >= 500) {
+            return SERVER_ERROR;
+        }
+        if (status >= 400) {
+            return CLIENT_ERROR;
+        }
+        return UNKNOWN;
+    }
+}
@@ -3,8 +3,10 @@ package org.xhy.gateway.domain.metrics.entity;
 import com.baomidou.mybatisplus.annotation.*;
 import com.baomidou.mybatisplus.extension.handlers.JacksonTypeHandler;
 import org.apache.ibatis.type.JdbcType;
+import org.xhy.gateway.infrastructure.typehandler.PostgreSQLBigintArrayTypeHandler;
 
 import java.time.LocalDateTime;
+import java.util.Arrays;
 import java.util.Map;
 
 /**
@@ -72,11 +74,59 @@ public class InstanceMetricsEntity {
     private LocalDateTime lastReportedAt;
 
     /**
-     * 额外指标，JSONB 格式
+     * 额外指标，JSONB 格式；上报的 token 和费用已改为累加到下面的数值列，这里不再写入
      */
     @TableField(value = "additional_metrics", typeHandler = JacksonTypeHandler.class, jdbcType = JdbcType.OTHER)
     private Map<String, Object> additionalMetrics;
 
+    /**
+     * 该时间窗口内累计的输入 token 数
+     */
+    @TableField("prompt_tokens")
+    private Long promptTokens;
+
+    /**
+     * 该时间窗口内累计的输出 token 数
+     */
+    @TableField("completion_tokens")
+    private Long completionTokens;
+
+    /**
+     * 该时间窗口内累计的调用费用
+     */
+    @TableField("total_cost")
+    private Double totalCost;
+
+    /**
+     * 该时间窗口内的延迟分布，{@link LatencyHistogram} 的二进制编码
+     */
+    @TableField("latency_histogram")
+    private byte[] latencyHistogram;
+
+    /**
+     * 该时间窗口内按错误分类的失败次数，下标为 {@link ErrorClass} 的序号
+     */
+    @TableField(value = "error_counts", typeHandler = PostgreSQLBigintArrayTypeHandler.class)
+    private long[] errorCounts;
+
+    /**
+     * 当前节点内存中统计的近期 p99 延迟（毫秒），不持久化，选择实例时由应用层填充
+     */
+    @TableField(exist = false)
+    private Double recentP99Latency;
+
+    /**
+     * 当前节点最近一分钟选中该实例的次数，不持久化，选择实例时由应用层填充
+     */
+    @TableField(exist = false)
+    private Long recentRequests;
+
+    /**
+     * 当前节点最近一分钟上报的 token 消耗，不持久化，选择实例时由应用层填充
+     */
+    @TableField(exist = false)
+    private Long recentTokens;
+
     // 构造函数
     public InstanceMetricsEntity() {
         this.currentGatewayStatus = GatewayStatus.HEALTHY;
@@ -84,6 +134,9 @@ public class InstanceMetricsEntity {
         this.failureCount = 0L;
         this.totalLatencyMs = 0L;
         this.concurrency = 0;
+        this.promptTokens = 0L;
+        this.completionTokens = 0L;
+        this.totalCost = 0.0;
     }
 
     // 领域行为方法
@@ -111,6 +164,74 @@ public class InstanceMetricsEntity {
         return successCount + failureCount;
     }
 
+    /**
+     * 累加一次上报的使用指标
+     * 只累加已登记的数值指标，未登记或非数值的键被丢弃
+     *
+     * @return 被丢弃的键数量
+     */
+    public int accumulateUsage(Map<String, Object> usageMetrics) {
+        int dropped = 0;
+        for (Map.Entry<String, Object> entry : usageMetrics.entrySet()) {
+            UsageMetric metric = UsageMetric.fromKey(entry.getKey());
+            if (metric == null || !(entry.getValue() instanceof Number value)) {
+                dropped++;
+                continue;
+            }
+            switch (metric) {
+                case PROMPT_TOKENS -> promptTokens = nullToZero(promptTokens) + value.longValue();
+                case COMPLETION_TOKENS -> completionTokens = nullToZero(completionTokens) + value.longValue();
+                case COST -> totalCost = (totalCost == null ? 0.0 : totalCost) + value.doubleValue();
+            }
+        }
+        return dropped;
+    }
+
+    private static long nullToZero(Long value) {
+        return value == null ? 0L : value;
+    }
+
+    /**
+     * 记录一次失败的错误分类
+     */
+    public void recordError(ErrorClass errorClass) {
+        int size = ErrorClass.values().length;
+        if (errorCounts == null || errorCounts.length < size) {
+            errorCounts = errorCounts == null ? new long[size] : Arrays.copyOf(errorCounts, size);
+        }
+        errorCounts[errorClass.ordinal()]++;
+    }
+
+    /**
+     * 获取某个错误分类的失败次数
+     */
+    public long getErrorCount(ErrorClass errorClass) {
+        int index = errorClass.ordinal();
+        return errorCounts == null || index >= errorCounts.length ? 0 : errorCounts[index];
+    }
+
+    /**
+     * 获取实例故障次数
+     * 失败次数扣除客户端错误和限流；没有分类的历史失败按故障计
+     */
+    public long getInstanceFaultCount() {
+        long nonFault = 0;
+        for (ErrorClass errorClass : ErrorClass.values()) {
+            if (!errorClass.isInstanceFault()) {
+                nonFault += getErrorCount(errorClass);
+            }
+        }
+        return Math.max(0, failureCount - nonFault);
+    }
+
+    /**
+     * 计算熔断使用的健康率，只有实例故障算作不健康
+     */
+    public double getFaultFreeRate() {
+        long total = successCount + failureCount;
+        return total == 0 ? 1.0 : 1.0 - (double) getInstanceFaultCount() / total;
+    }
+
     /**
      * 检查是否健康
      */
@@ -213,6 +334,70 @@ public class InstanceMetricsEntity {
         this.additionalMetrics = additionalMetrics;
     }
 
+    public byte[] getLatencyHistogram() {
+        return latencyHistogram;
+    }
+
+    public void setLatencyHistogram(byte[] latencyHistogram) {
+        this.latencyHistogram = latencyHistogram;
+    }
+
+    public Long getPromptTokens() {
+        return promptTokens;
+    }
+
+    public void setPromptTokens(Long promptTokens) {
+        this.promptTokens = promptTokens;
+    }
+
+    public Long getCompletionTokens() {
+        return completionTokens;
+    }
+
+    public void setCompletionTokens(Long completionTokens) {
+        this.completionTokens = completionTokens;
+    }
+
+    public Double getTotalCost() {
+        return totalCost;
+    }
+
+    public void setTotalCost(Double totalCost) {
+        this.totalCost = totalCost;
+    }
+
+    public long[] getErrorCounts() {
+        return errorCounts;
+    }
+
+    public void setErrorCounts(long[] errorCounts) {
+        this.errorCounts = errorCounts;
+    }
+
+    public Double getRecentP99Latency() {
+        return recentP99Latency;
+    }
+
+    public void setRecentP99Latency(Double recentP99Latency) {
+        this.recentP99Latency = recentP99Latency;
+    }
+
+    public Long getRecentRequests() {
+        return recentRequests;
+    }
+
+    public void setRecentRequests(Long recentRequests) {
+        this.recentRequests = recentRequests;
+    }
+
+    public Long getRecentTokens() {
+        return recentTokens;
+    }
+
+    public void setRecentTokens(Long recentTokens) {
+        this.recentTokens = recentTokens;
+    }
+
     @Override
     public String toString() {
         return "InstanceMetricsEntity{" +
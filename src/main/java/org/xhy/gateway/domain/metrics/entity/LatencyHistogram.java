@@ -0,0 +1,132 @@
+package org.xhy.gateway.domain.metrics.entity;
+
+import org.HdrHistogram.AbstractHistogram;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.IntCountsHistogram;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * 延迟分布
+ * 基于 HdrHistogram 的可合并直方图，单位毫秒，2 位有效数字（相对误差 1%）。
+ * 每个分钟窗口一份，以 HdrHistogram 的紧凑二进制格式随指标记录持久化，任意时间范围的分位数由多份直方图合并得到。
+ * 另有只在内存中短期使用的低精度版本，见 {@link #compact()}。
+ *
+ * @author xhy
+ * @since 1.0.0
+ */
+public class LatencyHistogram {
+
+    /**
+     * 可记录的最大延迟（毫秒），更大的值按该值记录
+     */
+    private static final long MAX_TRACKABLE_MS = 10 * 60 * 1000L;
+
+    private static final int SIGNIFICANT_DIGITS = 2;
+
+    /**
+     * 低精度版本的有效数字位数（相对误差 10%）
+     */
+    private static final int COMPACT_SIGNIFICANT_DIGITS = 1;
+
+    private final AbstractHistogram histogram;
+
+    public LatencyHistogram() {
+        this.histogram = new Histogram(MAX_TRACKABLE_MS, SIGNIFICANT_DIGITS);
+    }
+
+    private LatencyHistogram(AbstractHistogram histogram) {
+        this.histogram = histogram;
+    }
+
+    /**
+     * 创建低精度直方图
+     * 1 位有效数字、int 计数，约 1.6 KB（默认精度约 15 KB），用于按实例常驻内存、只需要粗略分位数的场景，不用于持久化
+     */
+    public static LatencyHistogram compact() {
+        return new LatencyHistogram(new IntCountsHistogram(MAX_TRACKABLE_MS, COMPACT_SIGNIFICANT_DIGITS));
+    }
+
+    /**
+     * 从持久化的字节恢复，为空时返回空直方图
+     */
+    public static LatencyHistogram fromBytes(byte[] bytes) {
+        if (bytes == null || bytes.length == 0) {
+            return new LatencyHistogram();
+        }
+        return new LatencyHistogram(Histogram.decodeFromByteBuffer(ByteBuffer.wrap(bytes), MAX_TRACKABLE_MS));
+    }
+
+    /**
+     * 记录一次调用延迟
+     */
+    public synchronized void record(long latencyMs) {
+        histogram.recordValue(Math.max(0, Math.min(latencyMs, MAX_TRACKABLE_MS)));
+    }
+
+    /**
+     * 合并另一份直方图
+     */
+    public synchronized void merge(LatencyHistogram other) {
+        if (other != null) {
+            histogram.add(other.histogram);
+        }
+    }
+
+    /**
+     * 合并一份持久化的直方图
+     */
+    public void merge(byte[] bytes) {
+        if (bytes != null && bytes.length > 0) {
+            merge(fromBytes(bytes));
+        }
+    }
+
+    /**
+     * 获取分位数对应的延迟（毫秒），没有数据时返回 null
+     *
+     * @param percentile 百分位，例如 99.0
+     */
+    public synchronized Double getPercentile(double percentile) {
+        if (histogram.getTotalCount() == 0) {
+            return null;
+        }
+        return (double) histogram.getValueAtPercentile(percentile);
+    }
+
+    public synchronized long getTotalCount() {
+        return histogram.getTotalCount();
+    }
+
+    /**
+     * 清空计数，复用已分配的内存
+     */
+    public synchronized void reset() {
+        histogram.reset();
+    }
+
+    /**
+     * 编码为紧凑的二进制格式（ZigZag LEB128），空桶不占空间
+     */
+    public synchronized byte[] toBytes() {
+        ByteBuffer buffer = ByteBuffer.allocate(histogram.getNeededByteBufferCapacity());
+        int length = histogram.encodeIntoByteBuffer(buffer);
+        return Arrays.copyOf(buffer.array(), length);
+    }
+
+    /**
+     * 合并多份持久化的直方图，全部为空时返回 null
+     */
+    public static byte[] mergeBytes(byte[] left, byte[] right) {
+        if (left == null || left.length == 0) {
+            return right;
+        }
+        if (right == null || right.length == 0) {
+            return left;
+        }
+        LatencyHistogram merged = fromBytes(left);
+        merged.merge(right);
+        return merged.toBytes();
+    }
+}
@@ -0,0 +1,115 @@
+package org.xhy.gateway.domain.metrics.entity;
+
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+/**
+ * 实例实时指标
+ * 内存中滚动窗口的某一时刻快照，不落库；两次快照内容相同表示该实例在这段时间内没有变化
+ *
+ * @author xhy
+ * @since 1.0.0
+ */
+public class LiveInstanceMetrics {
+
+    private final String instanceId;
+    private final GatewayStatus gatewayStatus;
+
+    /**
+     * 滚动窗口内的调用次数
+     */
+    private final long callCount;
+
+    /**
+     * 滚动窗口内的成功率（百分比），无调用时为 null
+     */
+    private final Double successRate;
+
+    /**
+     * 滚动窗口内的平均延迟（毫秒），无调用时为 null
+     */
+    private final Double averageLatencyMs;
+
+    /**
+     * 已选出但尚未上报结果的调用数
+     */
+    private final int inFlight;
+
+    private final LocalDateTime lastReportedAt;
+
+    public LiveInstanceMetrics(String instanceId, GatewayStatus gatewayStatus, long callCount,
+                               Double successRate, Double averageLatencyMs, int inFlight,
+                               LocalDateTime lastReportedAt) {
+        this.instanceId = instanceId;
+        this.gatewayStatus = gatewayStatus;
+        this.callCount = callCount;
+        this.successRate = successRate;
+        this.averageLatencyMs = averageLatencyMs;
+        this.inFlight = inFlight;
+        this.lastReportedAt = lastReportedAt;
+    }
+
+    public String getInstanceId() {
+        return instanceId;
+    }
+
+    public GatewayStatus getGatewayStatus() {
+        return gatewayStatus;
+    }
+
+    public long getCallCount() {
+        return callCount;
+    }
+
+    public Double getSuccessRate() {
+        return successRate;
+    }
+
+    public Double getAverageLatencyMs() {
+        return averageLatencyMs;
+    }
+
+    public int getInFlight() {
+        return inFlight;
+    }
+
+    public LocalDateTime getLastReportedAt() {
+        return lastReportedAt;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof LiveInstanceMetrics that)) {
+            return false;
+        }
+        return callCount == that.callCount
+                && inFlight == that.inFlight
+                && Objects.equals(instanceId, that.instanceId)
+                && gatewayStatus == that.gatewayStatus
+                && Objects.equals(successRate, that.successRate)
+                && Objects.equals(averageLatencyMs, that.averageLatencyMs)
+                && Objects.equals(lastReportedAt, that.lastReportedAt);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(instanceId, gatewayStatus, callCount, successRate, averageLatencyMs, inFlight,
+                lastReportedAt);
+    }
+
+    @Override
+    public String toString() {
+        return "LiveInstanceMetrics{" +
+                "instanceId='" + instanceId + '\'' +
+                ", gatewayStatus=" + gatewayStatus +
+                ", callCount=" + callCount +
+                ", successRate=" + successRate +
+                ", averageLatencyMs=" + averageLatencyMs +
+                ", inFlight=" + inFlight +
+                ", lastReportedAt=" + lastReportedAt +
+                '}';
+    }
+}
@@ -0,0 +1,121 @@
+package org.xhy.gateway.domain.metrics.entity;
+
+import com.baomidou.mybatisplus.annotation.EnumValue;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * 指标汇总粒度枚举
+ * 原始指标为 1 分钟粒度，后台按 5 分钟、1 小时、1 天逐级汇总
+ *
+ * @author xhy
+ * @since 1.0.0
+ */
+public enum MetricsResolution {
+
+    /**
+     * 5 分钟粒度 - 由 1 分钟原始指标汇总
+     */
+    FIVE_MINUTES("FIVE_MINUTES", 5, "5分钟"),
+
+    /**
+     * 1 小时粒度 - 由 5 分钟汇总数据汇总
+     */
+    ONE_HOUR("ONE_HOUR", 60, "1小时"),
+
+    /**
+     * 1 天粒度 - 由 1 小时汇总数据汇总
+     */
+    ONE_DAY("ONE_DAY", 1440, "1天");
+
+    @EnumValue
+    private final String code;
+    private final int minutes;
+    private final String description;
+
+    MetricsResolution(String code, int minutes, String description) {
+        this.code = code;
+        this.minutes = minutes;
+        this.description = description;
+    }
+
+    public String getCode() {
+        return code;
+    }
+
+    public int getMinutes() {
+        return minutes;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public Duration getDuration() {
+        return Duration.ofMinutes(minutes);
+    }
+
+    /**
+     * 汇总数据的来源粒度，5 分钟粒度的来源是原始分钟指标，返回 null
+     */
+    public MetricsResolution getSource() {
+        switch (this) {
+            case ONE_HOUR:
+                return FIVE_MINUTES;
+            case ONE_DAY:
+                return ONE_HOUR;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * 将时间向下对齐到该粒度的桶边界
+     */
+    public LocalDateTime alignDown(LocalDateTime time) {
+        switch (this) {
+            case ONE_DAY:
+                return time.truncatedTo(ChronoUnit.DAYS);
+            case ONE_HOUR:
+                return time.truncatedTo(ChronoUnit.HOURS);
+            default:
+                LocalDateTime minute = time.truncatedTo(ChronoUnit.MINUTES);
+                return minute.withMinute(minute.getMinute() / minutes * minutes);
+        }
+    }
+
+    /**
+     * 将时间向上对齐到该粒度的桶边界
+     */
+    public LocalDateTime alignUp(LocalDateTime time) {
+        LocalDateTime aligned = alignDown(time);
+        return aligned.equals(time) ? aligned : aligned.plusMinutes(minutes);
+    }
+
+    /**
+     * 选择桶长度不超过给定时长的最粗粒度，没有合适粒度时返回 null（使用原始分钟指标）
+     */
+    public static MetricsResolution coarsestWithin(Duration maxBucket) {
+        MetricsResolution result = null;
+        for (MetricsResolution resolution : values()) {
+            if (resolution.getDuration().compareTo(maxBucket) <= 0) {
+                result = resolution;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 根据代码获取枚举
+     */
+    public static MetricsResolution fromCode(String code) {
+        for (MetricsResolution resolution : values()) {
+            if (resolution.code.equals(code)) {
+                return resolution;
+            }
+        }
+        throw new IllegalArgumentException("未知的指标汇总粒度: " + code);
+    }
+}
@@ -0,0 +1,242 @@
+package org.xhy.gateway.domain.metrics.entity;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableField;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import org.xhy.gateway.infrastructure.mybatis.UpsertKey;
+
+import java.time.LocalDateTime;
+
+/**
+ * 指标汇总实体
+ * 对应数据库表：api_instance_metrics_rollup，每个实例每个粒度每个时间桶一条记录
+ *
+ * @author xhy
+ * @since 1.0.0
+ */
+@TableName(value = "api_instance_metrics_rollup", autoResultMap = true)
+@UpsertKey(columns = {"resolution", "bucket_start", "registry_id"})
+public class MetricsRollupEntity {
+
+    /**
+     * 汇总记录的唯一标识符
+     */
+    @TableId(type = IdType.ASSIGN_UUID)
+    private String id;
+
+    /**
+     * 关联的 API 业务实例 ID
+     */
+    @TableField("registry_id")
+    private String registryId;
+
+    /**
+     * 汇总粒度
+     */
+    @TableField("resolution")
+    private MetricsResolution resolution;
+
+    /**
+     * 时间桶起始点，按粒度对齐
+     */
+    @TableField("bucket_start")
+    private LocalDateTime bucketStart;
+
+    /**
+     * 时间桶内成功的 API 调用次数
+     */
+    @TableField("success_count")
+    private Long successCount;
+
+    /**
+     * 时间桶内失败的 API 调用次数
+     */
+    @TableField("failure_count")
+    private Long failureCount;
+
+    /**
+     * 时间桶内所有 API 调用的总延迟（毫秒）
+     */
+    @TableField("total_latency_ms")
+    private Long totalLatencyMs;
+
+    /**
+     * 时间桶内最后一个分钟窗口的网关状态
+     */
+    @TableField("current_gateway_status")
+    private GatewayStatus currentGatewayStatus;
+
+    /**
+     * 时间桶内最后一次上报的时间
+     */
+    @TableField("last_reported_at")
+    private LocalDateTime lastReportedAt;
+
+    /**
+     * 时间桶内的延迟分布，由各分钟窗口的直方图合并而来
+     */
+    @TableField("latency_histogram")
+    private byte[] latencyHistogram;
+
+    /**
+     * 汇总过程中合并的延迟分布，写库前编码到 latencyHistogram
+     */
+    @TableField(exist = false)
+    private LatencyHistogram mergedLatency;
+
+    public MetricsRollupEntity() {
+        this.successCount = 0L;
+        this.failureCount = 0L;
+        this.totalLatencyMs = 0L;
+        this.currentGatewayStatus = GatewayStatus.HEALTHY;
+    }
+
+    public MetricsRollupEntity(String registryId, MetricsResolution resolution, LocalDateTime bucketStart) {
+        this();
+        this.registryId = registryId;
+        this.resolution = resolution;
+        this.bucketStart = bucketStart;
+    }
+
+    // 领域行为方法
+
+    /**
+     * 累加一段更细粒度的计数和延迟分布，并以时间最新的一段作为桶的状态
+     */
+    public void accumulate(long success, long failure, long latencyMs, byte[] histogram,
+                           GatewayStatus status, LocalDateTime reportedAt) {
+        this.successCount += success;
+        this.failureCount += failure;
+        this.totalLatencyMs += latencyMs;
+        if (histogram != null && histogram.length > 0) {
+            if (mergedLatency == null) {
+                // 从库中读出的桶以已有的分布为起点
+                mergedLatency = LatencyHistogram.fromBytes(latencyHistogram);
+            }
+            mergedLatency.merge(histogram);
+        }
+        if (reportedAt != null && (lastReportedAt == null || !reportedAt.isBefore(lastReportedAt))) {
+            this.lastReportedAt = reportedAt;
+            if (status != null) {
+                this.currentGatewayStatus = status;
+            }
+        }
+    }
+
+    /**
+     * 将累加得到的延迟分布编码到持久化字段，写库前调用
+     */
+    public void encodeLatencyHistogram() {
+        if (mergedLatency != null) {
+            this.latencyHistogram = mergedLatency.toBytes();
+        }
+    }
+
+    /**
+     * 转换为与分钟指标同构的实体，便于查询侧统一处理
+     */
+    public ApiInstanceMetricsEntity toMetricsEntity() {
+        ApiInstanceMetricsEntity metrics = new ApiInstanceMetricsEntity(registryId, bucketStart);
+        metrics.setSuccessCount(successCount);
+        metrics.setFailureCount(failureCount);
+        metrics.setTotalLatencyMs(totalLatencyMs);
+        metrics.setCurrentGatewayStatus(currentGatewayStatus);
+        metrics.setLastReportedAt(lastReportedAt);
+        metrics.setLatencyHistogram(latencyHistogram);
+        return metrics;
+    }
+
+    // Getter 和 Setter 方法
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getRegistryId() {
+        return registryId;
+    }
+
+    public void setRegistryId(String registryId) {
+        this.registryId = registryId;
+    }
+
+    public MetricsResolution getResolution() {
+        return resolution;
+    }
+
+    public void setResolution(MetricsResolution resolution) {
+        this.resolution = resolution;
+    }
+
+    public LocalDateTime getBucketStart() {
+        return bucketStart;
+    }
+
+    public void setBucketStart(LocalDateTime bucketStart) {
+        this.bucketStart = bucketStart;
+    }
+
+    public Long getSuccessCount() {
+        return successCount;
+    }
+
+    public void setSuccessCount(Long successCount) {
+        this.successCount = successCount;
+    }
+
+    public Long getFailureCount() {
+        return failureCount;
+    }
+
+    public void setFailureCount(Long failureCount) {
+        this.failureCount = failureCount;
+    }
+
+    public Long getTotalLatencyMs() {
+        return totalLatencyMs;
+    }
+
+    public void setTotalLatencyMs(Long totalLatencyMs) {
+        this.totalLatencyMs = totalLatencyMs;
+    }
+
+    public GatewayStatus getCurrentGatewayStatus() {
+        return currentGatewayStatus;
+    }
+
+    public void setCurrentGatewayStatus(GatewayStatus currentGatewayStatus) {
+        this.currentGatewayStatus = currentGatewayStatus;
+    }
+
+    public LocalDateTime getLastReportedAt() {
+        return lastReportedAt;
+    }
+
+    public void setLastReportedAt(LocalDateTime lastReportedAt) {
+        this.lastReportedAt = lastReportedAt;
+    }
+
+    public byte[] getLatencyHistogram() {
+        return latencyHistogram;
+    }
+
+    public void setLatencyHistogram(byte[] latencyHistogram) {
+        this.latencyHistogram = latencyHistogram;
+    }
+
+    @Override
+    public String toString() {
+        return "MetricsRollupEntity{" +
+                "registryId='" + registryId + '\'' +
+                ", resolution=" + resolution +
+                ", bucketStart=" + bucketStart +
+                ", successCount=" + successCount +
+                ", failureCount=" + failureCount +
+                ", totalLatencyMs=" + totalLatencyMs +
+                '}';
+    }
+}
@@ -0,0 +1,70 @@
+package org.xhy.gateway.domain.metrics.entity;
+
+import com.baomidou.mybatisplus.annotation.FieldFill;
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableField;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+
+import java.time.LocalDateTime;
+
+/**
+ * 指标汇总水位线实体
+ * 对应数据库表：api_instance_metrics_rollup_watermark，记录每个粒度已汇总到的时间点（不含）
+ *
+ * @author xhy
+ * @since 1.0.0
+ */
+@TableName("api_instance_metrics_rollup_watermark")
+public class MetricsRollupWatermarkEntity {
+
+    /**
+     * 汇总粒度
+     */
+    @TableId(value = "resolution", type = IdType.INPUT)
+    private MetricsResolution resolution;
+
+    /**
+     * 已汇总到的时间点，早于该时间点的时间桶均已汇总完成
+     */
+    @TableField("watermark")
+    private LocalDateTime watermark;
+
+    /**
+     * 记录最后更新时间
+     */
+    @TableField(value = "updated_at", fill = FieldFill.INSERT_UPDATE)
+    private LocalDateTime updatedAt;
+
+    public MetricsRollupWatermarkEntity() {
+    }
+
+    public MetricsRollupWatermarkEntity(MetricsResolution resolution, LocalDateTime watermark) {
+        this.resolution = resolution;
+        this.watermark = watermark;
+    }
+
+    public MetricsResolution getResolution() {
+        return resolution;
+    }
+
+    public void setResolution(MetricsResolution resolution) {
+        this.resolution = resolution;
+    }
+
+    public LocalDateTime getWatermark() {
+        return watermark;
+    }
+
+    public void setWatermark(LocalDateTime watermark) {
+        this.watermark = watermark;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+}
@@ -0,0 +1,74 @@
+package org.xhy.gateway.domain.metrics.entity;
+
+import java.time.LocalDateTime;
+
+/**
+ * 指标时间桶
+ * 时间序列查询在数据库中按时间桶聚合后的结果，一个时间桶一条，不区分实例
+ *
+ * @author xhy
+ * @since 1.0.0
+ */
+public class MetricsTimeBucket {
+
+    /**
+     * 时间桶起始点
+     */
+    private final LocalDateTime bucketStart;
+
+    private long successCount;
+    private long failureCount;
+    private long totalLatencyMs;
+
+    public MetricsTimeBucket(LocalDateTime bucketStart) {
+        this.bucketStart = bucketStart;
+    }
+
+    /**
+     * 合并一段计数（同一时间桶可能同时来自汇总表和分钟指标表）
+     */
+    public void merge(long success, long failure, long latencyMs) {
+        this.successCount += success;
+        this.failureCount += failure;
+        this.totalLatencyMs += latencyMs;
+    }
+
+    /**
+     * 获取总调用次数
+     */
+    public long getTotalCallCount() {
+        return successCount + failureCount;
+    }
+
+    /**
+     * 按调用量加权的成功率（百分比）
+     */
+    public double getSuccessRate() {
+        long total = getTotalCallCount();
+        return total == 0 ? 0.0 : (double) successCount / total * 100;
+    }
+
+    /**
+     * 按调用量加权的平均延迟（毫秒）
+     */
+    public double getAverageLatencyMs() {
+        long total = getTotalCallCount();
+        return total == 0 ? 0.0 : (double) totalLatencyMs / total;
+    }
+
+    public LocalDateTime getBucketStart() {
+        return bucketStart;
+    }
+
+    public long getSuccessCount() {
+        return successCount;
+    }
+
+    public long getFailureCount() {
+        return failureCount;
+    }
+
+    public long getTotalLatencyMs() {
+        return totalLatencyMs;
+    }
+}
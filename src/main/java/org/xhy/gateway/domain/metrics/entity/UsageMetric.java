@@ -0,0 +1,60 @@
+package org.xhy.gateway.domain.metrics.entity;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 已登记的使用指标
+ * 上报的 usageMetrics 中只有这些键会在时间窗口内累加并落到对应的数值列，其余键直接丢弃。
+ * 兼容下划线和驼峰两种写法。
+ *
+ * @author xhy
+ * @since 1.0.0
+ */
+public enum UsageMetric {
+
+    /**
+     * 输入 token 数
+     */
+    PROMPT_TOKENS("prompt_tokens", "promptTokens"),
+
+    /**
+     * 输出 token 数
+     */
+    COMPLETION_TOKENS("completion_tokens", "completionTokens"),
+
+    /**
+     * 调用费用
+     */
+    COST("cost", "totalCost", "total_cost");
+
+    private static final Map<String, UsageMetric> BY_KEY = new HashMap<>();
+
+    static {
+        for (UsageMetric metric : values()) {
+            for (String key : metric.keys) {
+                BY_KEY.put(key, metric);
+            }
+        }
+    }
+
+    private final String[] keys;
+
+    UsageMetric(String... keys) {
+        this.keys = keys;
+    }
+
+    /**
+     * 标准键名
+     */
+    public String getKey() {
+        return keys[0];
+    }
+
+    /**
+     * 根据上报的键查找指标，未登记时返回 null
+     */
+    public static UsageMetric fromKey(String key) {
+        return BY_KEY.get(key);
+    }
+}
@@ -0,0 +1,17 @@
+package org.xhy.gateway.domain.metrics.repository;
+
+import org.apache.ibatis.annotations.Mapper;
+import org.xhy.gateway.domain.metrics.entity.MetricsRollupEntity;
+import org.xhy.gateway.infrastructure.mybatis.BatchInsertMapper;
+
+/**
+ * 指标汇总仓储接口
+ * 使用 MyBatis Plus BaseMapper 及注入的批量插入方法，禁止手写 SQL
+ * 
+ * @author xhy
+ * @since 1.0.0
+ */
+@Mapper
+public interface MetricsRollupRepository extends BatchInsertMapper<MetricsRollupEntity> {
+
+} 
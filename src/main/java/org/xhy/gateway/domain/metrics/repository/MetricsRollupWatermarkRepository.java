@@ -0,0 +1,17 @@
+package org.xhy.gateway.domain.metrics.repository;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import org.apache.ibatis.annotations.Mapper;
+import org.xhy.gateway.domain.metrics.entity.MetricsRollupWatermarkEntity;
+
+/**
+ * 指标汇总水位线仓储接口
+ * 使用 MyBatis Plus BaseMapper，禁止手写 SQL
+ * 
+ * @author xhy
+ * @since 1.0.0
+ */
+@Mapper
+public interface MetricsRollupWatermarkRepository extends BaseMapper<MetricsRollupWatermarkEntity> {
+
+} 
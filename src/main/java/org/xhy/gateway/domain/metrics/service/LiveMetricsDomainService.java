@@ -0,0 +1,330 @@
+package org.xhy.gateway.domain.metrics.service;
+
+import org.springframework.stereotype.Service;
+import org.xhy.gateway.domain.metrics.entity.ErrorClass;
+import org.xhy.gateway.domain.metrics.entity.GatewayStatus;
+import org.xhy.gateway.domain.metrics.entity.InstanceMetricsEntity;
+import org.xhy.gateway.domain.metrics.entity.LatencyHistogram;
+import org.xhy.gateway.domain.metrics.entity.LiveInstanceMetrics;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+import static org.xhy.gateway.domain.apiinstance.service.SelectionConstants.RATE_LIMIT_BACKOFF_INITIAL_MS;
+import static org.xhy.gateway.domain.apiinstance.service.SelectionConstants.RATE_LIMIT_BACKOFF_MAX_MS;
+
+/**
+ * 实时指标领域服务
+ * 在内存中按实例维护最近一分钟的滚动计数和在途调用数，供实时监控推送使用；
+ * 另外按分钟保留最近几分钟的延迟直方图，供尾延迟感知的路由策略读取 p99，并统计最近一分钟的请求数和 token 消耗，
+ * 供按 RPM/TPM 余量路由的策略使用；
+ * 实例被上游限流（429）时在这里记录短时退避，退避期间选择时暂时避开该实例，而不是熔断。
+ * 数据只存在于当前节点，重启后从空开始；持久化的分钟指标仍以 {@link MetricsCollectionDomainService} 为准。
+ * 每个实例常驻约 10 KB：计数按秒存放，延迟直方图使用低精度版本（相对误差 10%，只用于路由时比较 p99）。
+ * 长时间没有选择或上报的实例（包括已删除的实例）由 {@link #evictIdle()} 移除。
+ *
+ * @author xhy
+ * @since 1.0.0
+ */
+@Service
+public class LiveMetricsDomainService {
+
+    /**
+     * 滚动窗口长度（秒），每秒一个槽位
+     */
+    private static final int WINDOW_SECONDS = 60;
+
+    /**
+     * 超过该时长没有任何选择或上报的实例，在途数清零并从内存中移除
+     */
+    private static final long IDLE_SECONDS = 600;
+
+    /**
+     * 计算近期 p99 使用的分钟直方图个数
+     */
+    private static final int LATENCY_WINDOW_MINUTES = 3;
+
+    /**
+     * 近期样本少于该数量时 p99 不可信，按无数据处理
+     */
+    private static final long MIN_LATENCY_SAMPLES = 20;
+
+    private final Map<String, InstanceState> states = new ConcurrentHashMap<>();
+
+    /**
+     * 毫秒时钟，测试中可替换
+     */
+    private final LongSupplier clock;
+
+    public LiveMetricsDomainService() {
+        this(System::currentTimeMillis);
+    }
+
+    LiveMetricsDomainService(LongSupplier clock) {
+        this.clock = clock;
+    }
+
+    /**
+     * 记录一次实例被选中（调用开始）
+     */
+    public void recordDispatched(String instanceId) {
+        states.computeIfAbsent(instanceId, InstanceState::new).dispatched(nowSeconds());
+    }
+
+    /**
+     * 记录一次调用结果（调用结束）
+     *
+     * @param errorClass    失败的错误分类，成功时为 null
+     * @param tokens        本次调用消耗的 token 数，未上报时为 0
+     * @param gatewayStatus 上报处理后实例的网关状态
+     */
+    public void recordCompleted(String instanceId, boolean success, ErrorClass errorClass, long latencyMs,
+                                long tokens, GatewayStatus gatewayStatus) {
+        InstanceState state = states.computeIfAbsent(instanceId, InstanceState::new);
+        state.completed(nowSeconds(), success, latencyMs, tokens, gatewayStatus);
+        state.updateBackoff(success, errorClass, clock.getAsLong());
+    }
+
+    /**
+     * 获取当前处于限流退避期的实例
+     */
+    public Set<String> getRateLimitedInstances(Collection<String> instanceIds) {
+        long nowMillis = clock.getAsLong();
+        Set<String> result = new HashSet<>();
+        for (String instanceId : instanceIds) {
+            InstanceState state = states.get(instanceId);
+            if (state != null && state.isBackingOff(nowMillis)) {
+                result.add(instanceId);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 获取全部实例当前的实时指标，同时清理长时间无活动的实例
+     */
+    public List<LiveInstanceMetrics> snapshot() {
+        evictIdle();
+        long now = nowSeconds();
+        List<LiveInstanceMetrics> result = new ArrayList<>(states.size());
+        for (InstanceState state : states.values()) {
+            result.add(state.toMetrics(now));
+        }
+        return result;
+    }
+
+    /**
+     * 把内存中的近期信号附到选择使用的指标上：最近几分钟的 p99 延迟，以及最近一分钟的请求数和 token 消耗
+     * p99 在每个实例上按秒缓存，选择路径上只是内存读取；样本不足时 p99 为 null
+     */
+    public void applyLiveSignals(Map<String, InstanceMetricsEntity> metricsMap) {
+        long now = nowSeconds();
+        metricsMap.forEach((instanceId, metrics) -> {
+            InstanceState state = states.get(instanceId);
+            if (state != null) {
+                state.applyTo(metrics, now);
+            }
+        });
+    }
+
+    /**
+     * 移除长时间没有选择或上报的实例，由定时任务调用，不依赖是否有人订阅实时指标
+     *
+     * @return 移除的实例数
+     */
+    public int evictIdle() {
+        long now = nowSeconds();
+        int before = states.size();
+        states.values().removeIf(state -> state.isIdle(now));
+        return before - states.size();
+    }
+
+    /**
+     * 当前在内存中维护的实例数
+     */
+    public int size() {
+        return states.size();
+    }
+
+    private long nowSeconds() {
+        return clock.getAsLong() / 1000;
+    }
+
+    /**
+     * 单个实例的滚动窗口状态，槽位按秒复用
+     */
+    private static final class InstanceState {
+
+        private final String instanceId;
+        private final long[] slotSeconds = new long[WINDOW_SECONDS];
+        private final int[] successCounts = new int[WINDOW_SECONDS];
+        private final int[] failureCounts = new int[WINDOW_SECONDS];
+        private final long[] latencySums = new long[WINDOW_SECONDS];
+        private final int[] dispatchCounts = new int[WINDOW_SECONDS];
+        private final long[] tokenCounts = new long[WINDOW_SECONDS];
+        private final long[] latencyMinutes = new long[LATENCY_WINDOW_MINUTES];
+        private final LatencyHistogram[] latencyHistograms = new LatencyHistogram[LATENCY_WINDOW_MINUTES];
+
+        /**
+         * 计算 p99 时合并用的直方图，每次计算前清空复用
+         */
+        private LatencyHistogram mergedLatency;
+
+        private Double cachedP99;
+        private long cachedP99Second = -1;
+
+        private int rateLimitStreak;
+        private long backoffUntilMillis;
+
+        private int inFlight;
+        private GatewayStatus gatewayStatus = GatewayStatus.HEALTHY;
+        private LocalDateTime lastReportedAt;
+        private long lastActiveSecond;
+
+        private InstanceState(String instanceId) {
+            this.instanceId = instanceId;
+        }
+
+        private synchronized void dispatched(long now) {
+            inFlight++;
+            dispatchCounts[currentSlot(now)]++;
+            lastActiveSecond = now;
+        }
+
+        private synchronized void completed(long now, boolean success, long latencyMs, long tokens,
+                                            GatewayStatus status) {
+            // 客户端可能不经选择直接上报，在途数不低于 0
+            if (inFlight > 0) {
+                inFlight--;
+            }
+            int slot = currentSlot(now);
+            tokenCounts[slot] += tokens;
+            if (success) {
+                successCounts[slot]++;
+            } else {
+                failureCounts[slot]++;
+            }
+            latencySums[slot] += latencyMs;
+            recordLatency(now / 60, latencyMs);
+            if (status != null) {
+                gatewayStatus = status;
+            }
+            lastReportedAt = LocalDateTime.now();
+            lastActiveSecond = now;
+        }
+
+        private synchronized LiveInstanceMetrics toMetrics(long now) {
+            long success = 0;
+            long failure = 0;
+            long latency = 0;
+            for (int i = 0; i < WINDOW_SECONDS; i++) {
+                if (now - slotSeconds[i] < WINDOW_SECONDS) {
+                    success += successCounts[i];
+                    failure += failureCounts[i];
+                    latency += latencySums[i];
+                }
+            }
+            long total = success + failure;
+            Double successRate = total == 0 ? null : (double) success / total * 100;
+            Double averageLatency = total == 0 ? null : (double) latency / total;
+            return new LiveInstanceMetrics(instanceId, gatewayStatus, total, successRate, averageLatency,
+                    inFlight, lastReportedAt);
+        }
+
+        /**
+         * 连续限流时退避时间逐次翻倍，一次成功即清零；其他错误不影响退避
+         */
+        private synchronized void updateBackoff(boolean success, ErrorClass errorClass, long nowMillis) {
+            if (success) {
+                rateLimitStreak = 0;
+                return;
+            }
+            if (errorClass == ErrorClass.RATE_LIMITED) {
+                long backoff = RATE_LIMIT_BACKOFF_INITIAL_MS << Math.min(rateLimitStreak, 16);
+                backoffUntilMillis = nowMillis + Math.min(backoff, RATE_LIMIT_BACKOFF_MAX_MS);
+                rateLimitStreak++;
+            }
+        }
+
+        private synchronized boolean isBackingOff(long nowMillis) {
+            return nowMillis < backoffUntilMillis;
+        }
+
+        /**
+         * 获取当前秒对应的槽位，槽位属于更早的一秒时先清零
+         */
+        private int currentSlot(long now) {
+            int slot = slotOf(now);
+            if (slotSeconds[slot] != now) {
+                slotSeconds[slot] = now;
+                successCounts[slot] = 0;
+                failureCounts[slot] = 0;
+                latencySums[slot] = 0;
+                dispatchCounts[slot] = 0;
+                tokenCounts[slot] = 0;
+            }
+            return slot;
+        }
+
+        private synchronized void applyTo(InstanceMetricsEntity metrics, long now) {
+            long requests = 0;
+            long tokens = 0;
+            for (int i = 0; i < WINDOW_SECONDS; i++) {
+                if (now - slotSeconds[i] < WINDOW_SECONDS) {
+                    requests += dispatchCounts[i];
+                    tokens += tokenCounts[i];
+                }
+            }
+            metrics.setRecentRequests(requests);
+            metrics.setRecentTokens(tokens);
+            metrics.setRecentP99Latency(recentP99(now));
+        }
+
+        private void recordLatency(long minute, long latencyMs) {
+            int slot = (int) (minute % LATENCY_WINDOW_MINUTES);
+            if (latencyHistograms[slot] == null) {
+                latencyHistograms[slot] = LatencyHistogram.compact();
+                latencyMinutes[slot] = minute;
+            } else if (latencyMinutes[slot] != minute) {
+                latencyHistograms[slot].reset();
+                latencyMinutes[slot] = minute;
+            }
+            latencyHistograms[slot].record(latencyMs);
+        }
+
+        private Double recentP99(long now) {
+            if (cachedP99Second == now) {
+                return cachedP99;
+            }
+            long minute = now / 60;
+            if (mergedLatency == null) {
+                mergedLatency = LatencyHistogram.compact();
+            }
+            LatencyHistogram merged = mergedLatency;
+            merged.reset();
+            for (int i = 0; i < LATENCY_WINDOW_MINUTES; i++) {
+                if (latencyHistograms[i] != null && minute - latencyMinutes[i] < LATENCY_WINDOW_MINUTES) {
+                    merged.merge(latencyHistograms[i]);
+                }
+            }
+            cachedP99 = merged.getTotalCount() < MIN_LATENCY_SAMPLES ? null : merged.getPercentile(99.0);
+            cachedP99Second = now;
+            return cachedP99;
+        }
+
+        private synchronized boolean isIdle(long now) {
+            return now - lastActiveSecond > IDLE_SECONDS;
+        }
+
+        private static int slotOf(long second) {
+            return (int) (second % WINDOW_SECONDS);
+        }
+    }
+}
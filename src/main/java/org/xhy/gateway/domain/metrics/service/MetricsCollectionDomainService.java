@@ -1,17 +1,30 @@
 package org.xhy.gateway.domain.metrics.service;
 
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.conditions.update.LambdaUpdateWrapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.xhy.gateway.domain.metrics.command.CallResultCommand;
+import org.xhy.gateway.domain.metrics.entity.ErrorClass;
 import org.xhy.gateway.domain.metrics.entity.GatewayStatus;
 import org.xhy.gateway.domain.metrics.entity.InstanceMetricsEntity;
+import org.xhy.gateway.domain.metrics.entity.LatencyHistogram;
 import org.xhy.gateway.domain.metrics.repository.MetricsRepository;
+import org.xhy.gateway.infrastructure.jfr.GatewayReportEvent;
 
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 import static org.xhy.gateway.domain.apiinstance.service.SelectionConstants.*;
@@ -29,40 +42,99 @@ public class MetricsCollectionDomainService {
     private static final Logger logger = LoggerFactory.getLogger(MetricsCollectionDomainService.class);
 
     private final MetricsRepository metricsRepository;
+    private final LiveMetricsDomainService liveMetricsDomainService;
+    private final MetricsRollupDomainService metricsRollupDomainService;
 
-    public MetricsCollectionDomainService(MetricsRepository metricsRepository) {
+    /**
+     * 迟到上报的最大容忍时长（分钟），调用时间早于当前窗口减去该时长的上报直接丢弃
+     */
+    private final int latenessHorizonMinutes;
+
+    /**
+     * 各实例各分钟窗口自上次落库以来新增的延迟分布
+     * 上报只记入内存，由 {@link #flushLatencyHistograms()} 定时编码并与数据库中已有的分布合并，
+     * 不在每次上报时编码，也不会覆盖其他节点写入的同一窗口分布。
+     */
+    private final Map<WindowKey, LatencyHistogram> pendingLatency = new ConcurrentHashMap<>();
+
+    public MetricsCollectionDomainService(MetricsRepository metricsRepository,
+                                          LiveMetricsDomainService liveMetricsDomainService,
+                                          MetricsRollupDomainService metricsRollupDomainService,
+                                          @Value("${gateway.metrics.report.lateness-horizon-minutes:15}") int latenessHorizonMinutes) {
         this.metricsRepository = metricsRepository;
+        this.liveMetricsDomainService = liveMetricsDomainService;
+        this.metricsRollupDomainService = metricsRollupDomainService;
+        this.latenessHorizonMinutes = latenessHorizonMinutes;
     }
 
     /**
      * 记录API调用结果
+     * 按调用时间戳归入对应的分钟窗口；迟到但仍在容忍范围内的上报补记到旧窗口，
+     * 旧窗口已被汇总时同步修正汇总数据，超出容忍范围的上报丢弃。
+     * 容忍范围从网关接收上报的时间算起，数据库故障期间积压、稍后补放的上报不会因此被丢弃
      * 
      * @param command 调用结果命令对象
+     * @return 是否被记录，超出迟到容忍范围被丢弃时返回 false
      */
-    public void recordCallResult(CallResultCommand command) {
+    public boolean recordCallResult(CallResultCommand command) {
+        GatewayReportEvent event = new GatewayReportEvent();
+        event.begin();
         
         logger.info("开始记录调用结果: {}", command);
 
-        // 获取或创建当前时间窗口的指标记录
         LocalDateTime currentWindow = getCurrentTimeWindow();
-        InstanceMetricsEntity metrics = getOrCreateMetrics(command.getInstanceId(), currentWindow);
+        LocalDateTime receivedWindow = resolveCallWindow(command.getReceivedAt(), currentWindow);
+        LocalDateTime callWindow = resolveCallWindow(command.getCallTimestamp(), receivedWindow);
+        if (callWindow.isBefore(receivedWindow.minusMinutes(latenessHorizonMinutes))) {
+            logger.warn("调用结果上报过晚，已丢弃: instanceId={}, callWindow={}, horizon={}min",
+                    command.getInstanceId(), callWindow, latenessHorizonMinutes);
+            return false;
+        }
+        boolean late = callWindow.isBefore(currentWindow);
+
+        // 获取或创建调用所在时间窗口的指标记录
+        InstanceMetricsEntity metrics = getOrCreateMetrics(command.getInstanceId(), callWindow);
 
         // 更新指标
-        updateMetrics(metrics, command.getSuccess(), command.getLatencyMs(), command.getUsageMetrics());
+        ErrorClass errorClass = command.getErrorClass();
+        updateMetrics(metrics, command.getSuccess(), errorClass, command.getLatencyMs(), command.getUsageMetrics());
 
         // 更新Gateway状态
         updateGatewayStatus(metrics);
 
-        // 保存指标
+        // 保存指标；延迟分布不随计数一起写回，由定时落库合并
+        metrics.setLatencyHistogram(null);
         if (metrics.getId() == null) {
             metricsRepository.insert(metrics);
-            logger.debug("创建新的指标记录: instanceId={}, window={}", command.getInstanceId(), currentWindow);
+            logger.debug("创建新的指标记录: instanceId={}, window={}", command.getInstanceId(), callWindow);
         } else {
-            metricsRepository.updateById(metrics);
-            logger.debug("更新指标记录: instanceId={}, window={}", command.getInstanceId(), currentWindow);
+            // 带上时间窗口条件，使更新只命中对应的日分区
+            LambdaUpdateWrapper<InstanceMetricsEntity> updateWrapper = new LambdaUpdateWrapper<>();
+            updateWrapper.eq(InstanceMetricsEntity::getId, metrics.getId())
+                        .eq(InstanceMetricsEntity::getTimestampWindow, metrics.getTimestampWindow());
+            metricsRepository.update(metrics, updateWrapper);
+            logger.debug("更新指标记录: instanceId={}, window={}", command.getInstanceId(), callWindow);
+        }
+
+        // 旧窗口可能已经被汇总，补记到对应的汇总桶
+        if (late) {
+            metricsRollupDomainService.amendLateReport(command.getInstanceId(), callWindow,
+                    command.getSuccess(), command.getLatencyMs());
+        }
+
+        // 同步到内存中的实时指标，供实时监控推送；旧窗口的状态不代表实例当前状态，不覆盖
+        liveMetricsDomainService.recordCompleted(command.getInstanceId(), command.getSuccess(), errorClass,
+                command.getLatencyMs(), command.getTotalTokens(), late ? null : metrics.getCurrentGatewayStatus());
+
+        if (event.shouldCommit()) {
+            event.instance = command.getInstanceId();
+            event.latency = command.getLatencyMs();
+            event.success = command.getSuccess();
+            event.commit();
         }
 
         logger.info("调用结果记录完成: instanceId={}", command.getInstanceId());
+        return true;
     }
 
     /**
@@ -74,6 +146,19 @@ public class MetricsCollectionDomainService {
         return now.withSecond(0).withNano(0);
     }
 
+    /**
+     * 根据时间戳（毫秒）确定所属的分钟窗口
+     * 未提供时间戳或因时钟偏差晚于给定窗口时，归入给定窗口
+     */
+    private LocalDateTime resolveCallWindow(Long callTimestamp, LocalDateTime currentWindow) {
+        if (callTimestamp == null) {
+            return currentWindow;
+        }
+        LocalDateTime callWindow = LocalDateTime.ofInstant(Instant.ofEpochMilli(callTimestamp), ZoneId.systemDefault())
+                .withSecond(0).withNano(0);
+        return callWindow.isAfter(currentWindow) ? currentWindow : callWindow;
+    }
+
     /**
      * 获取或创建指标记录
      */
@@ -101,37 +186,124 @@ public class MetricsCollectionDomainService {
     /**
      * 更新指标数据
      */
-    private void updateMetrics(InstanceMetricsEntity metrics, Boolean success, Long latencyMs, 
-                             Map<String, Object> usageMetrics) {
+    private void updateMetrics(InstanceMetricsEntity metrics, Boolean success, ErrorClass errorClass,
+                             Long latencyMs, Map<String, Object> usageMetrics) {
         
         if (success) {
             metrics.setSuccessCount(metrics.getSuccessCount() + 1);
         } else {
             metrics.setFailureCount(metrics.getFailureCount() + 1);
+            metrics.recordError(errorClass);
         }
 
         // 累计延迟
         metrics.setTotalLatencyMs(metrics.getTotalLatencyMs() + latencyMs);
+        recordLatency(metrics, latencyMs);
 
-        // 合并使用指标
+        // 累加已登记的使用指标，其余键丢弃
         if (usageMetrics != null && !usageMetrics.isEmpty()) {
-            Map<String, Object> existingMetrics = metrics.getAdditionalMetrics();
-            if (existingMetrics == null) {
-                metrics.setAdditionalMetrics(usageMetrics);
-            } else {
-                // 合并指标数据
-                existingMetrics.putAll(usageMetrics);
-                metrics.setAdditionalMetrics(existingMetrics);
+            int dropped = metrics.accumulateUsage(usageMetrics);
+            if (dropped > 0) {
+                logger.debug("丢弃未登记的使用指标: instanceId={}, dropped={}", metrics.getRegistryId(), dropped);
+            }
+        }
+    }
+
+    /**
+     * 将延迟记入该窗口待落库的分布
+     * compute 与落库时的 remove 在同一个键上互斥，落库取走的分布不会再被写入
+     */
+    private void recordLatency(InstanceMetricsEntity metrics, long latencyMs) {
+        pendingLatency.compute(new WindowKey(metrics.getRegistryId(), metrics.getTimestampWindow()), (key, pending) -> {
+            LatencyHistogram histogram = pending != null ? pending : new LatencyHistogram();
+            histogram.record(latencyMs);
+            return histogram;
+        });
+    }
+
+    /**
+     * 把内存中待落库的延迟分布合并进数据库
+     * 逐条 SELECT ... FOR UPDATE 读出已有分布，合并后只更新分布列，多个节点同时落库同一窗口时不会互相覆盖；
+     * 按实例和窗口排序加锁，避免节点间死锁。需要在事务中调用，事务回滚时取出的分布放回内存等下次落库。
+     * 指标记录尚未提交（插入它的事务还在进行）时分布放回内存，超出迟到容忍范围仍找不到记录的丢弃。
+     *
+     * @return 合并写入的窗口数
+     */
+    public int flushLatencyHistograms() {
+        List<WindowKey> keys = new ArrayList<>(pendingLatency.keySet());
+        if (keys.isEmpty()) {
+            return 0;
+        }
+        keys.sort(Comparator.comparing(WindowKey::registryId).thenComparing(WindowKey::window));
+
+        Map<WindowKey, LatencyHistogram> drained = new HashMap<>();
+        for (WindowKey key : keys) {
+            LatencyHistogram histogram = pendingLatency.remove(key);
+            if (histogram != null) {
+                drained.put(key, histogram);
             }
         }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) {
+                        drained.forEach(MetricsCollectionDomainService.this::restorePendingLatency);
+                    }
+                }
+            });
+        }
+
+        LocalDateTime horizon = getCurrentTimeWindow().minusMinutes(latenessHorizonMinutes);
+        int flushed = 0;
+        for (WindowKey key : keys) {
+            LatencyHistogram histogram = drained.get(key);
+            if (histogram == null) {
+                continue;
+            }
+            LambdaQueryWrapper<InstanceMetricsEntity> queryWrapper = new LambdaQueryWrapper<>();
+            queryWrapper.select(InstanceMetricsEntity::getId, InstanceMetricsEntity::getLatencyHistogram)
+                       .eq(InstanceMetricsEntity::getRegistryId, key.registryId())
+                       .eq(InstanceMetricsEntity::getTimestampWindow, key.window())
+                       .last("FOR UPDATE");
+            InstanceMetricsEntity stored = metricsRepository.selectOne(queryWrapper);
+            if (stored == null) {
+                drained.remove(key);
+                if (key.window().isBefore(horizon)) {
+                    logger.debug("延迟分布对应的指标记录不存在，已丢弃: instanceId={}, window={}",
+                            key.registryId(), key.window());
+                } else {
+                    restorePendingLatency(key, histogram);
+                }
+                continue;
+            }
+
+            // 合并到数据库中的分布上，取出的分布保持不变，回滚时原样放回
+            LatencyHistogram merged = LatencyHistogram.fromBytes(stored.getLatencyHistogram());
+            merged.merge(histogram);
+            LambdaUpdateWrapper<InstanceMetricsEntity> updateWrapper = new LambdaUpdateWrapper<>();
+            updateWrapper.set(InstanceMetricsEntity::getLatencyHistogram, merged.toBytes())
+                        .eq(InstanceMetricsEntity::getId, stored.getId())
+                        .eq(InstanceMetricsEntity::getTimestampWindow, key.window());
+            metricsRepository.update(null, updateWrapper);
+            flushed++;
+        }
+        return flushed;
+    }
+
+    private void restorePendingLatency(WindowKey key, LatencyHistogram histogram) {
+        pendingLatency.merge(key, histogram, (pending, restored) -> {
+            pending.merge(restored);
+            return pending;
+        });
     }
 
     /**
      * 更新Gateway状态
-     * 根据当前指标判断实例健康状况
+     * 根据当前指标判断实例健康状况，熔断只看实例故障，客户端错误和限流不计入
      */
     private void updateGatewayStatus(InstanceMetricsEntity metrics) {
-        double successRate = metrics.getSuccessRate();
+        double successRate = metrics.getFaultFreeRate();
         long totalCalls = metrics.getTotalCount();
 
         // 如果调用次数太少，保持健康状态
@@ -142,7 +314,7 @@ public class MetricsCollectionDomainService {
 
         // 判断是否需要熔断
         if (successRate < CIRCUIT_BREAKER_ERROR_RATE_THRESHOLD) {
-            logger.warn("实例错误率过高，触发熔断: instanceId={}, successRate={}, totalCalls={}", 
+            logger.warn("实例故障率过高，触发熔断: instanceId={}, faultFreeRate={}, totalCalls={}", 
                     metrics.getRegistryId(), successRate, totalCalls);
             metrics.updateGatewayStatus(GatewayStatus.CIRCUIT_BREAKER_OPEN);
             return;
@@ -192,4 +364,10 @@ public class MetricsCollectionDomainService {
                                         ? existing : replacement
                 ));
     }
-} 
\ No newline at end of file
+
+    /**
+     * 实例的某个分钟窗口
+     */
+    private record WindowKey(String registryId, LocalDateTime window) {
+    }
+}
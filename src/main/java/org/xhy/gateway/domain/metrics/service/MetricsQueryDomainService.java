@@ -0,0 +1,249 @@
+package org.xhy.gateway.domain.metrics.service;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.baomidou.mybatisplus.core.metadata.TableInfoHelper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.xhy.gateway.domain.metrics.entity.ApiInstanceMetricsEntity;
+import org.xhy.gateway.domain.metrics.entity.MetricsResolution;
+import org.xhy.gateway.domain.metrics.entity.MetricsRollupEntity;
+import org.xhy.gateway.domain.metrics.entity.MetricsTimeBucket;
+import org.xhy.gateway.domain.metrics.repository.ApiInstanceMetricsRepository;
+import org.xhy.gateway.domain.metrics.repository.MetricsRollupRepository;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 指标查询领域服务
+ * 按时间范围读取指标，已汇总的区间读取汇总表，尚未汇总的首尾区间读取分钟指标
+ *
+ * @author xhy
+ * @since 1.0.0
+ */
+@Service
+public class MetricsQueryDomainService {
+
+    private static final Logger logger = LoggerFactory.getLogger(MetricsQueryDomainService.class);
+
+    private final ApiInstanceMetricsRepository apiInstanceMetricsRepository;
+    private final MetricsRollupRepository metricsRollupRepository;
+    private final MetricsRollupDomainService metricsRollupDomainService;
+
+    public MetricsQueryDomainService(ApiInstanceMetricsRepository apiInstanceMetricsRepository,
+                                     MetricsRollupRepository metricsRollupRepository,
+                                     MetricsRollupDomainService metricsRollupDomainService) {
+        this.apiInstanceMetricsRepository = apiInstanceMetricsRepository;
+        this.metricsRollupRepository = metricsRollupRepository;
+        this.metricsRollupDomainService = metricsRollupDomainService;
+    }
+
+    /**
+     * 查询时间范围内的指标数据，按时间窗口倒序返回
+     * 汇总数据以时间桶起始点作为 timestampWindow，与分钟指标同构
+     *
+     * @param instanceIds 实例ID列表，为 null 时查询全部实例
+     * @param startTime 开始时间（含）
+     * @param endTime 结束时间（含）
+     * @param resolution 期望读取的汇总粒度，为 null 时只读取分钟指标
+     */
+    public List<ApiInstanceMetricsEntity> findMetrics(List<String> instanceIds, LocalDateTime startTime,
+                                                      LocalDateTime endTime, MetricsResolution resolution) {
+        if (instanceIds != null && instanceIds.isEmpty()) {
+            return List.of();
+        }
+
+        LocalDateTime[] rollupSpan = findRollupSpan(resolution, startTime, endTime);
+        if (rollupSpan == null) {
+            return findMinuteMetrics(instanceIds, startTime, endTime, true);
+        }
+        LocalDateTime rollupFrom = rollupSpan[0];
+        LocalDateTime rollupTo = rollupSpan[1];
+
+        List<ApiInstanceMetricsEntity> result = new ArrayList<>();
+        result.addAll(findMinuteMetrics(instanceIds, rollupTo, endTime, true));
+        result.addAll(findRollupMetrics(instanceIds, resolution, rollupFrom, rollupTo));
+        if (rollupFrom.isAfter(startTime)) {
+            result.addAll(findMinuteMetrics(instanceIds, startTime, rollupFrom, false));
+        }
+        result.sort(Comparator.comparing(ApiInstanceMetricsEntity::getTimestampWindow).reversed());
+
+        logger.debug("指标查询完成: resolution={}, rollupRange=[{}, {}), rows={}",
+                resolution, rollupFrom, rollupTo, result.size());
+        return result;
+    }
+
+    /**
+     * 在数据库中按固定间隔聚合时间范围内的指标，每个时间桶只返回一行
+     * 时间桶通过 date_bin 对齐，已汇总区间从汇总表聚合，其余区间从分钟指标表聚合
+     *
+     * @param instanceIds 实例ID列表，为 null 时聚合全部实例
+     * @param startTime 开始时间（含）
+     * @param endTime 结束时间（含）
+     * @param intervalMinutes 时间桶间隔（分钟）
+     * @return 按时间升序排列的时间桶
+     */
+    public List<MetricsTimeBucket> aggregateTimeBuckets(List<String> instanceIds, LocalDateTime startTime,
+                                                        LocalDateTime endTime, int intervalMinutes) {
+        if (instanceIds != null && instanceIds.isEmpty()) {
+            return List.of();
+        }
+
+        // 汇总粒度需能整除时间桶间隔，才能保证汇总记录完整落入一个时间桶
+        MetricsResolution resolution = MetricsResolution.coarsestWithin(Duration.ofMinutes(intervalMinutes));
+        if (resolution != null && intervalMinutes % resolution.getMinutes() != 0) {
+            resolution = null;
+        }
+
+        Map<LocalDateTime, MetricsTimeBucket> buckets = new TreeMap<>();
+        LocalDateTime[] rollupSpan = findRollupSpan(resolution, startTime, endTime);
+        if (rollupSpan == null) {
+            mergeBuckets(buckets, aggregateMinuteBuckets(instanceIds, startTime, endTime, true, intervalMinutes));
+        } else {
+            mergeBuckets(buckets, aggregateMinuteBuckets(instanceIds, startTime, rollupSpan[0], false, intervalMinutes));
+            mergeBuckets(buckets, aggregateRollupBuckets(instanceIds, resolution, rollupSpan[0], rollupSpan[1],
+                    intervalMinutes));
+            mergeBuckets(buckets, aggregateMinuteBuckets(instanceIds, rollupSpan[1], endTime, true, intervalMinutes));
+        }
+
+        logger.debug("时间桶聚合完成: interval={}分钟, resolution={}, buckets={}",
+                intervalMinutes, resolution, buckets.size());
+        return new ArrayList<>(buckets.values());
+    }
+
+    /**
+     * 查询每个实例最新的一条分钟指标
+     * 使用 DISTINCT ON 一次查询取回所有实例的最新记录，没有指标的实例不在结果中
+     *
+     * @param instanceIds 实例ID列表
+     * @return 实例ID到最新指标的映射
+     */
+    public Map<String, ApiInstanceMetricsEntity> findLatestMetrics(List<String> instanceIds) {
+        if (instanceIds == null || instanceIds.isEmpty()) {
+            return Map.of();
+        }
+
+        String columns = TableInfoHelper.getTableInfo(ApiInstanceMetricsEntity.class).getAllSqlSelect();
+        QueryWrapper<ApiInstanceMetricsEntity> wrapper = new QueryWrapper<>();
+        wrapper.select("DISTINCT ON (registry_id) " + columns)
+               .in("registry_id", instanceIds)
+               .orderByAsc("registry_id")
+               .orderByDesc("timestamp_window");
+
+        Map<String, ApiInstanceMetricsEntity> result = new HashMap<>();
+        for (ApiInstanceMetricsEntity metrics : apiInstanceMetricsRepository.selectList(wrapper)) {
+            result.put(metrics.getRegistryId(), metrics);
+        }
+        logger.debug("最新指标查询完成，实例数量: {}，有指标的实例数量: {}", instanceIds.size(), result.size());
+        return result;
+    }
+
+    /**
+     * 计算可以从汇总表读取的区间 [from, to)，没有可用汇总数据时返回 null
+     * 区间从开始时间向上对齐，结束于水位线与结束时间向下对齐两者中较早的一个
+     */
+    private LocalDateTime[] findRollupSpan(MetricsResolution resolution, LocalDateTime startTime,
+                                           LocalDateTime endTime) {
+        LocalDateTime watermark = resolution == null ? null : metricsRollupDomainService.findWatermark(resolution);
+        if (watermark == null) {
+            return null;
+        }
+        LocalDateTime rollupFrom = resolution.alignUp(startTime);
+        LocalDateTime alignedEnd = resolution.alignDown(endTime);
+        LocalDateTime rollupTo = watermark.isBefore(alignedEnd) ? watermark : alignedEnd;
+        return rollupTo.isAfter(rollupFrom) ? new LocalDateTime[]{rollupFrom, rollupTo} : null;
+    }
+
+    private List<Map<String, Object>> aggregateMinuteBuckets(List<String> instanceIds, LocalDateTime startTime,
+                                                             LocalDateTime endTime, boolean includeEnd,
+                                                             int intervalMinutes) {
+        if (!endTime.isAfter(startTime) && !includeEnd) {
+            return List.of();
+        }
+        QueryWrapper<ApiInstanceMetricsEntity> wrapper = new QueryWrapper<>();
+        wrapper.select(bucketColumns("timestamp_window", intervalMinutes))
+               .in(instanceIds != null, "registry_id", instanceIds)
+               .ge("timestamp_window", startTime)
+               .le(includeEnd, "timestamp_window", endTime)
+               .lt(!includeEnd, "timestamp_window", endTime)
+               .groupBy("bucket");
+        return apiInstanceMetricsRepository.selectMaps(wrapper);
+    }
+
+    private List<Map<String, Object>> aggregateRollupBuckets(List<String> instanceIds, MetricsResolution resolution,
+                                                             LocalDateTime from, LocalDateTime to,
+                                                             int intervalMinutes) {
+        QueryWrapper<MetricsRollupEntity> wrapper = new QueryWrapper<>();
+        wrapper.select(bucketColumns("bucket_start", intervalMinutes))
+               .eq("resolution", resolution)
+               .in(instanceIds != null, "registry_id", instanceIds)
+               .ge("bucket_start", from)
+               .lt("bucket_start", to)
+               .groupBy("bucket");
+        return metricsRollupRepository.selectMaps(wrapper);
+    }
+
+    /**
+     * 时间桶聚合的查询列，时间桶以 2000-01-01 00:00 为原点按间隔对齐
+     */
+    private String[] bucketColumns(String timeColumn, int intervalMinutes) {
+        return new String[]{
+                "date_bin('" + intervalMinutes + " minutes', " + timeColumn + ", TIMESTAMP '2000-01-01') AS bucket",
+                "SUM(success_count) AS success_count",
+                "SUM(failure_count) AS failure_count",
+                "SUM(total_latency_ms) AS total_latency_ms"
+        };
+    }
+
+    private void mergeBuckets(Map<LocalDateTime, MetricsTimeBucket> buckets, List<Map<String, Object>> rows) {
+        for (Map<String, Object> row : rows) {
+            LocalDateTime bucketStart = toLocalDateTime(row.get("bucket"));
+            buckets.computeIfAbsent(bucketStart, MetricsTimeBucket::new)
+                    .merge(toLong(row.get("success_count")), toLong(row.get("failure_count")),
+                            toLong(row.get("total_latency_ms")));
+        }
+    }
+
+    private LocalDateTime toLocalDateTime(Object value) {
+        if (value instanceof Timestamp timestamp) {
+            return timestamp.toLocalDateTime();
+        }
+        return (LocalDateTime) value;
+    }
+
+    private long toLong(Object value) {
+        return value == null ? 0L : ((Number) value).longValue();
+    }
+
+    private List<ApiInstanceMetricsEntity> findMinuteMetrics(List<String> instanceIds, LocalDateTime startTime,
+                                                             LocalDateTime endTime, boolean includeEnd) {
+        LambdaQueryWrapper<ApiInstanceMetricsEntity> wrapper = new LambdaQueryWrapper<>();
+        wrapper.in(instanceIds != null, ApiInstanceMetricsEntity::getRegistryId, instanceIds)
+               .ge(ApiInstanceMetricsEntity::getTimestampWindow, startTime)
+               .le(includeEnd, ApiInstanceMetricsEntity::getTimestampWindow, endTime)
+               .lt(!includeEnd, ApiInstanceMetricsEntity::getTimestampWindow, endTime)
+               .orderByDesc(ApiInstanceMetricsEntity::getTimestampWindow);
+        return apiInstanceMetricsRepository.selectList(wrapper);
+    }
+
+    private List<ApiInstanceMetricsEntity> findRollupMetrics(List<String> instanceIds, MetricsResolution resolution,
+                                                             LocalDateTime from, LocalDateTime to) {
+        LambdaQueryWrapper<MetricsRollupEntity> wrapper = new LambdaQueryWrapper<>();
+        wrapper.eq(MetricsRollupEntity::getResolution, resolution)
+               .in(instanceIds != null, MetricsRollupEntity::getRegistryId, instanceIds)
+               .ge(MetricsRollupEntity::getBucketStart, from)
+               .lt(MetricsRollupEntity::getBucketStart, to);
+        return metricsRollupRepository.selectList(wrapper).stream()
+                .map(MetricsRollupEntity::toMetricsEntity)
+                .toList();
+    }
+}
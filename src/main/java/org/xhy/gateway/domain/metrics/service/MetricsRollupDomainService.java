@@ -0,0 +1,242 @@
+package org.xhy.gateway.domain.metrics.service;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.conditions.update.LambdaUpdateWrapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.xhy.gateway.domain.metrics.entity.InstanceMetricsEntity;
+import org.xhy.gateway.domain.metrics.entity.LatencyHistogram;
+import org.xhy.gateway.domain.metrics.entity.MetricsResolution;
+import org.xhy.gateway.domain.metrics.entity.MetricsRollupEntity;
+import org.xhy.gateway.domain.metrics.entity.MetricsRollupWatermarkEntity;
+import org.xhy.gateway.domain.metrics.repository.MetricsRepository;
+import org.xhy.gateway.domain.metrics.repository.MetricsRollupRepository;
+import org.xhy.gateway.domain.metrics.repository.MetricsRollupWatermarkRepository;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 指标汇总领域服务
+ * 将已关闭的分钟指标逐级汇总为 5 分钟、1 小时、1 天粒度，每个粒度通过水位线增量推进
+ *
+ * @author xhy
+ * @since 1.0.0
+ */
+@Service
+public class MetricsRollupDomainService {
+
+    private static final Logger logger = LoggerFactory.getLogger(MetricsRollupDomainService.class);
+
+    /**
+     * 单次汇总最多推进的时间桶数量，避免追赶历史数据时一次加载过多记录
+     */
+    private static final int MAX_BUCKETS_PER_RUN = 12;
+
+    private final MetricsRepository metricsRepository;
+    private final MetricsRollupRepository metricsRollupRepository;
+    private final MetricsRollupWatermarkRepository metricsRollupWatermarkRepository;
+
+    public MetricsRollupDomainService(MetricsRepository metricsRepository,
+                                      MetricsRollupRepository metricsRollupRepository,
+                                      MetricsRollupWatermarkRepository metricsRollupWatermarkRepository) {
+        this.metricsRepository = metricsRepository;
+        this.metricsRollupRepository = metricsRollupRepository;
+        this.metricsRollupWatermarkRepository = metricsRollupWatermarkRepository;
+    }
+
+    /**
+     * 汇总下一批已关闭的时间桶
+     *
+     * @param resolution 目标粒度
+     * @param closedBefore 分钟指标的关闭边界，早于该时间点的分钟窗口不会再有数据写入
+     * @return 写入的汇总记录数
+     */
+    public int rollupClosedBuckets(MetricsResolution resolution, LocalDateTime closedBefore) {
+        MetricsResolution source = resolution.getSource();
+        LocalDateTime sourceBoundary = source == null ? closedBefore : findWatermark(source);
+        if (sourceBoundary == null) {
+            return 0;
+        }
+        LocalDateTime upper = resolution.alignDown(sourceBoundary);
+
+        LocalDateTime watermark = findWatermark(resolution);
+        LocalDateTime from = watermark != null ? watermark : findInitialWatermark(resolution, upper);
+        LocalDateTime to = from.plusMinutes((long) resolution.getMinutes() * MAX_BUCKETS_PER_RUN);
+        if (to.isAfter(upper)) {
+            to = upper;
+        }
+
+        if (!to.isAfter(from)) {
+            if (watermark == null) {
+                saveWatermark(resolution, from, false);
+            }
+            return 0;
+        }
+
+        Map<String, MetricsRollupEntity> buckets = source == null
+                ? aggregateMinuteMetrics(resolution, from, to)
+                : aggregateRollups(resolution, source, from, to);
+
+        // 清理区间内已有的汇总记录（上次执行中断时可能已部分写入），保证重跑幂等
+        LambdaQueryWrapper<MetricsRollupEntity> deleteWrapper = new LambdaQueryWrapper<>();
+        deleteWrapper.eq(MetricsRollupEntity::getResolution, resolution)
+                    .ge(MetricsRollupEntity::getBucketStart, from)
+                    .lt(MetricsRollupEntity::getBucketStart, to);
+        metricsRollupRepository.delete(deleteWrapper);
+
+        for (MetricsRollupEntity bucket : buckets.values()) {
+            bucket.encodeLatencyHistogram();
+            metricsRollupRepository.insert(bucket);
+        }
+        saveWatermark(resolution, to, watermark != null);
+
+        logger.debug("指标汇总完成: resolution={}, from={}, to={}, buckets={}", resolution, from, to, buckets.size());
+        return buckets.size();
+    }
+
+    /**
+     * 将一次迟到的上报补记到已经汇总过的时间桶
+     * 只处理桶起点早于水位线的粒度，尚未汇总的桶会在之后的汇总中自然包含这次上报。
+     * 桶记录加行锁后再累加，多个上报（或多个节点）同时补记同一个桶时依次执行，不会丢失更新；
+     * 桶不存在时先以 ON CONFLICT DO NOTHING 插入空桶，并发插入只有一条生效，随后同样加锁读取。需要在事务中调用。
+     */
+    public void amendLateReport(String registryId, LocalDateTime window, boolean success, long latencyMs) {
+        byte[] histogram = null;
+        for (MetricsResolution resolution : MetricsResolution.values()) {
+            LocalDateTime watermark = findWatermark(resolution);
+            LocalDateTime bucketStart = resolution.alignDown(window);
+            if (watermark == null || !bucketStart.isBefore(watermark)) {
+                // 更粗的粒度以更细粒度的水位线为边界，这里没有汇总过，后面的粒度也不会有
+                return;
+            }
+            if (histogram == null) {
+                LatencyHistogram latency = new LatencyHistogram();
+                latency.record(latencyMs);
+                histogram = latency.toBytes();
+            }
+
+            MetricsRollupEntity bucket = lockBucket(resolution, bucketStart, registryId);
+            if (bucket == null) {
+                metricsRollupRepository.insertBatchOnConflictDoNothing(
+                        List.of(new MetricsRollupEntity(registryId, resolution, bucketStart)));
+                bucket = lockBucket(resolution, bucketStart, registryId);
+            }
+            bucket.accumulate(success ? 1 : 0, success ? 0 : 1, latencyMs, histogram, null, null);
+            bucket.encodeLatencyHistogram();
+            metricsRollupRepository.updateById(bucket);
+            logger.debug("迟到上报补记到汇总桶: resolution={}, bucket={}, instanceId={}", resolution, bucketStart, registryId);
+        }
+    }
+
+    /**
+     * 查询汇总桶并加行锁，持有到事务结束
+     */
+    private MetricsRollupEntity lockBucket(MetricsResolution resolution, LocalDateTime bucketStart, String registryId) {
+        LambdaQueryWrapper<MetricsRollupEntity> wrapper = new LambdaQueryWrapper<>();
+        wrapper.eq(MetricsRollupEntity::getResolution, resolution)
+               .eq(MetricsRollupEntity::getBucketStart, bucketStart)
+               .eq(MetricsRollupEntity::getRegistryId, registryId)
+               .last("FOR UPDATE");
+        return metricsRollupRepository.selectOne(wrapper);
+    }
+
+    /**
+     * 查询粒度的水位线，尚未汇总过时返回 null
+     */
+    public LocalDateTime findWatermark(MetricsResolution resolution) {
+        LambdaQueryWrapper<MetricsRollupWatermarkEntity> wrapper = new LambdaQueryWrapper<>();
+        wrapper.eq(MetricsRollupWatermarkEntity::getResolution, resolution);
+        MetricsRollupWatermarkEntity entity = metricsRollupWatermarkRepository.selectOne(wrapper);
+        return entity == null ? null : entity.getWatermark();
+    }
+
+    /**
+     * 首次汇总时从来源数据最早的时间桶开始，没有来源数据时直接从当前边界开始
+     */
+    private LocalDateTime findInitialWatermark(MetricsResolution resolution, LocalDateTime upper) {
+        LocalDateTime earliest;
+        MetricsResolution source = resolution.getSource();
+        if (source == null) {
+            LambdaQueryWrapper<InstanceMetricsEntity> wrapper = new LambdaQueryWrapper<>();
+            wrapper.orderByAsc(InstanceMetricsEntity::getTimestampWindow).last("LIMIT 1");
+            InstanceMetricsEntity first = metricsRepository.selectOne(wrapper);
+            earliest = first == null ? null : first.getTimestampWindow();
+        } else {
+            LambdaQueryWrapper<MetricsRollupEntity> wrapper = new LambdaQueryWrapper<>();
+            wrapper.eq(MetricsRollupEntity::getResolution, source)
+                   .orderByAsc(MetricsRollupEntity::getBucketStart)
+                   .last("LIMIT 1");
+            MetricsRollupEntity first = metricsRollupRepository.selectOne(wrapper);
+            earliest = first == null ? null : first.getBucketStart();
+        }
+
+        if (earliest == null || earliest.isAfter(upper)) {
+            return upper;
+        }
+        return resolution.alignDown(earliest);
+    }
+
+    /**
+     * 将分钟指标汇总到目标粒度
+     */
+    private Map<String, MetricsRollupEntity> aggregateMinuteMetrics(MetricsResolution resolution,
+                                                                   LocalDateTime from, LocalDateTime to) {
+        LambdaQueryWrapper<InstanceMetricsEntity> wrapper = new LambdaQueryWrapper<>();
+        wrapper.ge(InstanceMetricsEntity::getTimestampWindow, from)
+               .lt(InstanceMetricsEntity::getTimestampWindow, to);
+        List<InstanceMetricsEntity> minutes = metricsRepository.selectList(wrapper);
+
+        Map<String, MetricsRollupEntity> buckets = new LinkedHashMap<>();
+        for (InstanceMetricsEntity metrics : minutes) {
+            LocalDateTime bucketStart = resolution.alignDown(metrics.getTimestampWindow());
+            buckets.computeIfAbsent(bucketKey(metrics.getRegistryId(), bucketStart),
+                            key -> new MetricsRollupEntity(metrics.getRegistryId(), resolution, bucketStart))
+                    .accumulate(metrics.getSuccessCount(), metrics.getFailureCount(), metrics.getTotalLatencyMs(),
+                            metrics.getLatencyHistogram(), metrics.getCurrentGatewayStatus(),
+                            metrics.getLastReportedAt());
+        }
+        return buckets;
+    }
+
+    /**
+     * 将更细粒度的汇总数据汇总到目标粒度
+     */
+    private Map<String, MetricsRollupEntity> aggregateRollups(MetricsResolution resolution, MetricsResolution source,
+                                                             LocalDateTime from, LocalDateTime to) {
+        LambdaQueryWrapper<MetricsRollupEntity> wrapper = new LambdaQueryWrapper<>();
+        wrapper.eq(MetricsRollupEntity::getResolution, source)
+               .ge(MetricsRollupEntity::getBucketStart, from)
+               .lt(MetricsRollupEntity::getBucketStart, to);
+        List<MetricsRollupEntity> sourceBuckets = metricsRollupRepository.selectList(wrapper);
+
+        Map<String, MetricsRollupEntity> buckets = new LinkedHashMap<>();
+        for (MetricsRollupEntity rollup : sourceBuckets) {
+            LocalDateTime bucketStart = resolution.alignDown(rollup.getBucketStart());
+            buckets.computeIfAbsent(bucketKey(rollup.getRegistryId(), bucketStart),
+                            key -> new MetricsRollupEntity(rollup.getRegistryId(), resolution, bucketStart))
+                    .accumulate(rollup.getSuccessCount(), rollup.getFailureCount(), rollup.getTotalLatencyMs(),
+                            rollup.getLatencyHistogram(), rollup.getCurrentGatewayStatus(),
+                            rollup.getLastReportedAt());
+        }
+        return buckets;
+    }
+
+    private String bucketKey(String registryId, LocalDateTime bucketStart) {
+        return registryId + "|" + bucketStart;
+    }
+
+    private void saveWatermark(MetricsResolution resolution, LocalDateTime watermark, boolean exists) {
+        MetricsRollupWatermarkEntity entity = new MetricsRollupWatermarkEntity(resolution, watermark);
+        if (exists) {
+            LambdaUpdateWrapper<MetricsRollupWatermarkEntity> wrapper = new LambdaUpdateWrapper<>();
+            wrapper.eq(MetricsRollupWatermarkEntity::getResolution, resolution);
+            metricsRollupWatermarkRepository.update(entity, wrapper);
+        } else {
+            metricsRollupWatermarkRepository.insert(entity);
+        }
+    }
+}
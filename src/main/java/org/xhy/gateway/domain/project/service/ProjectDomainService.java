@@ -1,17 +1,28 @@
 package org.xhy.gateway.domain.project.service;
 
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.xhy.gateway.domain.apikey.repository.ApiKeyRepository;
 import org.xhy.gateway.domain.apikey.entity.ApiKeyEntity;
 import org.xhy.gateway.domain.project.entity.ProjectEntity;
+import org.xhy.gateway.domain.project.entity.ProjectStatus;
 import org.xhy.gateway.domain.project.repository.ProjectRepository;
 import org.xhy.gateway.infrastructure.exception.BusinessException;
 import org.xhy.gateway.infrastructure.exception.EntityNotFoundException;
 
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 /**
  * 项目领域服务
@@ -28,6 +39,16 @@ public class ProjectDomainService {
     private final ProjectRepository projectRepository;
     private final ApiKeyRepository apiKeyRepository;
 
+    /**
+     * 项目摘要缓存（是否存在、是否活跃、名称）
+     * 选择和认证的热路径每次都要校验项目，这里把校验变成内存查找；不存在的项目也会缓存，
+     * 本节点创建、删除、变更状态时失效，其他途径的修改（直接改库、其他节点）最迟在过期后生效
+     */
+    private final Cache<String, ProjectSummary> projectCache = Caffeine.newBuilder()
+            .maximumSize(10000)
+            .expireAfterWrite(Duration.ofMinutes(5))
+            .build();
+
     public ProjectDomainService(ProjectRepository projectRepository, ApiKeyRepository apiKeyRepository) {
         this.projectRepository = projectRepository;
         this.apiKeyRepository = apiKeyRepository;
@@ -54,6 +75,7 @@ public class ProjectDomainService {
         
         // 保存项目
         projectRepository.insert(project);
+        invalidateProject(project.getId());
         
         logger.info("项目创建成功，项目ID: {}，项目名: {}", project.getId(), project.getName());
         return project;
@@ -127,8 +149,7 @@ public class ProjectDomainService {
 
     // 是否存在，不存在抛异常
     public void validateProjectExists(String projectId) {
-        ProjectEntity project = projectRepository.selectById(projectId);
-        if (project == null) {
+        if (!getProjectSummary(projectId).exists()) {
             throw new EntityNotFoundException("项目不存在，ID: " + projectId);
         }
     }
@@ -144,15 +165,15 @@ public class ProjectDomainService {
             return false;
         }
         
-        ProjectEntity project = projectRepository.selectById(projectId);
-        if (project == null) {
+        ProjectSummary project = getProjectSummary(projectId);
+        if (!project.exists()) {
             logger.debug("项目不存在: {}", projectId);
             return false;
         }
         
-        boolean isActive = project.isActive();
+        boolean isActive = project.active();
         if (!isActive) {
-            logger.debug("项目不是活跃状态: {}, 状态: {}", projectId, project.getStatus());
+            logger.debug("项目不是活跃状态: {}", projectId);
         }
         
         return isActive;
@@ -213,6 +234,7 @@ public class ProjectDomainService {
         
         // 目前只删除项目记录
         int deleted = projectRepository.deleteById(projectId);
+        invalidateProject(projectId);
         if (deleted > 0) {
             logger.warn("项目删除成功，项目ID: {}", projectId);
         } else {
@@ -220,6 +242,24 @@ public class ProjectDomainService {
         }
     }
 
+    /**
+     * 变更项目状态
+     * 停用后该项目的 API Key 认证立即失败
+     */
+    public ProjectEntity changeProjectStatus(String projectId, ProjectStatus status) {
+        ProjectEntity project = getProjectById(projectId);
+        if (status == ProjectStatus.ACTIVE) {
+            project.activate();
+        } else {
+            project.deactivate();
+        }
+        projectRepository.updateById(project);
+        invalidateProject(projectId);
+
+        logger.info("项目状态已变更，项目ID: {}，状态: {}", projectId, status);
+        return project;
+    }
+
     /**
      * 获取项目统计信息
      */
@@ -258,12 +298,75 @@ public class ProjectDomainService {
     public String getProjectNameById(String projectId) {
         logger.debug("根据项目ID获取项目名称: {}", projectId);
         
-        ProjectEntity project = projectRepository.selectById(projectId);
-        if (project == null) {
-            logger.debug("项目不存在: {}", projectId);
-            return null;
+        return getProjectSummary(projectId).name();
+    }
+
+    /**
+     * 批量获取项目名称
+     * 缓存未命中的项目用一条 IN 查询加载，不存在的项目不出现在结果中
+     */
+    public Map<String, String> getProjectNamesByIds(Collection<String> projectIds) {
+        Set<String> ids = projectIds.stream()
+                .filter(id -> id != null && !id.isEmpty())
+                .collect(Collectors.toSet());
+        if (ids.isEmpty()) {
+            return Map.of();
+        }
+
+        Map<String, ProjectSummary> summaries = projectCache.getAll(ids, this::loadProjectSummaries);
+        Map<String, String> names = new HashMap<>(summaries.size());
+        summaries.forEach((id, summary) -> {
+            if (summary.exists()) {
+                names.put(id, summary.name());
+            }
+        });
+        return names;
+    }
+
+    private ProjectSummary getProjectSummary(String projectId) {
+        return projectCache.get(projectId, id -> {
+            ProjectEntity project = projectRepository.selectById(id);
+            return project == null ? ProjectSummary.MISSING : ProjectSummary.of(project);
+        });
+    }
+
+    private Map<String, ProjectSummary> loadProjectSummaries(Set<? extends String> projectIds) {
+        LambdaQueryWrapper<ProjectEntity> queryWrapper = new LambdaQueryWrapper<>();
+        queryWrapper.in(ProjectEntity::getId, projectIds);
+        Map<String, ProjectSummary> loaded = new HashMap<>(projectIds.size());
+        for (ProjectEntity project : projectRepository.selectList(queryWrapper)) {
+            loaded.put(project.getId(), ProjectSummary.of(project));
+        }
+        for (String projectId : projectIds) {
+            loaded.putIfAbsent(projectId, ProjectSummary.MISSING);
+        }
+        return loaded;
+    }
+
+    /**
+     * 使项目缓存失效；在事务中时提交后再失效一次，避免并发请求在提交前把旧数据重新读进缓存
+     */
+    private void invalidateProject(String projectId) {
+        projectCache.invalidate(projectId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    projectCache.invalidate(projectId);
+                }
+            });
+        }
+    }
+
+    /**
+     * 缓存中的项目摘要
+     */
+    private record ProjectSummary(boolean exists, boolean active, String name) {
+
+        static final ProjectSummary MISSING = new ProjectSummary(false, false, null);
+
+        static ProjectSummary of(ProjectEntity project) {
+            return new ProjectSummary(true, project.isActive(), project.getName());
         }
-        
-        return project.getName();
     }
 } 
\ No newline at end of file
@@ -8,6 +8,9 @@ import org.springframework.stereotype.Component;
 import org.springframework.util.StringUtils;
 import org.springframework.web.servlet.HandlerInterceptor;
 import org.xhy.gateway.application.service.AuthenticationAppService;
+import org.xhy.gateway.infrastructure.metrics.GatewayMetrics;
+import org.xhy.gateway.infrastructure.metrics.StageTimings;
+import org.xhy.gateway.infrastructure.metrics.TimedStage;
 
 /**
  * API Key 校验拦截器
@@ -23,12 +26,20 @@ public class ApiKeyInterceptor implements HandlerInterceptor {
     private static final Logger logger = LoggerFactory.getLogger(ApiKeyInterceptor.class);
 
     private final AuthenticationAppService authenticationAppService;
+    private final GatewayMetrics gatewayMetrics;
+    private final StageTimings stageTimings;
 
     // API Key 请求头名称
     private static final String API_KEY_HEADER = "api-key";
 
-    public ApiKeyInterceptor(AuthenticationAppService authenticationAppService) {
+    // 请求开始时间的请求属性名，用于统计整个请求（含序列化）的耗时
+    private static final String REQUEST_START_ATTRIBUTE = ApiKeyInterceptor.class.getName() + ".start";
+
+    public ApiKeyInterceptor(AuthenticationAppService authenticationAppService, GatewayMetrics gatewayMetrics,
+                             StageTimings stageTimings) {
         this.authenticationAppService = authenticationAppService;
+        this.gatewayMetrics = gatewayMetrics;
+        this.stageTimings = stageTimings;
     }
 
     @Override
@@ -37,6 +48,7 @@ public class ApiKeyInterceptor implements HandlerInterceptor {
         String method = request.getMethod();
 
         logger.debug("拦截请求: {} {}", method, requestURI);
+        request.setAttribute(REQUEST_START_ATTRIBUTE, System.nanoTime());
 
         // OPTIONS 请求跳过（CORS 预检请求）
         if ("OPTIONS".equalsIgnoreCase(method)) {
@@ -48,12 +60,16 @@ public class ApiKeyInterceptor implements HandlerInterceptor {
         String apiKey = extractApiKey(request);
         if (!StringUtils.hasText(apiKey)) {
             logger.warn("请求缺少API Key: {} {}", method, requestURI);
+            gatewayMetrics.recordAuthentication("missing");
             writeErrorResponse(response, 401, "缺少API Key，请在请求头中提供 " + API_KEY_HEADER);
             return false;
         }
 
         // 通过应用层服务进行认证
+        long authStart = System.nanoTime();
         AuthenticationAppService.AuthenticationResult result = authenticationAppService.authenticate(apiKey);
+        stageTimings.record(TimedStage.AUTHENTICATION, authStart);
+        gatewayMetrics.recordAuthentication(authenticationResultLabel(result));
         
         if (!result.isSuccess()) {
             logger.warn("认证失败: {}, URI: {} {}", result.getMessage(), method, requestURI);
@@ -68,11 +84,43 @@ public class ApiKeyInterceptor implements HandlerInterceptor {
     @Override
     public void afterCompletion(HttpServletRequest request, HttpServletResponse response, 
                                Object handler, Exception ex) throws Exception {
+        recordRequestTiming(request);
         // 通过应用层服务清理认证上下文，避免内存泄漏
         authenticationAppService.clearAuthenticationContext();
         logger.debug("API上下文已清理");
     }
 
+    /**
+     * 记录选择和上报接口的整体耗时
+     */
+    private void recordRequestTiming(HttpServletRequest request) {
+        Object start = request.getAttribute(REQUEST_START_ATTRIBUTE);
+        if (!(start instanceof Long startNanos)) {
+            return;
+        }
+        String requestURI = request.getRequestURI();
+        if (requestURI.endsWith("/gateway/select-instance")) {
+            stageTimings.record(TimedStage.HTTP_SELECT, startNanos);
+        } else if (requestURI.endsWith("/gateway/report-result")) {
+            stageTimings.record(TimedStage.HTTP_REPORT, startNanos);
+        }
+    }
+
+    /**
+     * 认证结果对应的指标标签
+     */
+    private String authenticationResultLabel(AuthenticationAppService.AuthenticationResult result) {
+        if (result.isSuccess()) {
+            return "success";
+        }
+        switch (result.getStatusCode()) {
+            case 401: return "unauthorized";
+            case 403: return "forbidden";
+            case 503: return "unavailable";
+            default: return "error";
+        }
+    }
+
     /**
      * 从请求中提取API Key
      */
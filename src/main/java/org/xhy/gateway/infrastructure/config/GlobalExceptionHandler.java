@@ -14,6 +14,7 @@ import org.springframework.web.bind.annotation.RestControllerAdvice;
 import org.xhy.gateway.infrastructure.exception.BusinessException;
 import org.xhy.gateway.infrastructure.exception.EntityNotFoundException;
 import org.xhy.gateway.infrastructure.exception.ParamValidationException;
+import org.xhy.gateway.infrastructure.exception.ServiceUnavailableException;
 import org.xhy.gateway.interfaces.api.common.Result;
 
 import java.util.List;
@@ -58,6 +59,16 @@ public class GlobalExceptionHandler {
         return Result.notFound(e.getMessage());
     }
 
+    /**
+     * 处理服务过载异常
+     */
+    @ExceptionHandler(ServiceUnavailableException.class)
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    public Result<Void> handleServiceUnavailableException(ServiceUnavailableException e, HttpServletRequest request) {
+        logger.warn("服务暂时不可用: {}, URL: {}", e.getMessage(), request.getRequestURL());
+        return Result.error(503, e.getMessage());
+    }
+
     /**
      * 处理方法参数校验异常（@Valid注解导致的异常）
      */
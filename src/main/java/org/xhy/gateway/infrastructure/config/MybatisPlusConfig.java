@@ -1,11 +1,18 @@
 package org.xhy.gateway.infrastructure.config;
 
 import com.baomidou.mybatisplus.core.handlers.MetaObjectHandler;
+import com.baomidou.mybatisplus.core.injector.AbstractMethod;
+import com.baomidou.mybatisplus.core.injector.DefaultSqlInjector;
+import com.baomidou.mybatisplus.core.injector.ISqlInjector;
+import com.baomidou.mybatisplus.core.metadata.TableInfo;
 import org.apache.ibatis.reflection.MetaObject;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.xhy.gateway.infrastructure.mybatis.InsertBatchOnConflictDoNothing;
+import org.xhy.gateway.infrastructure.mybatis.InsertBatchOnConflictDoUpdate;
 
 import java.time.LocalDateTime;
+import java.util.List;
 
 /**
  * MyBatis Plus 配置类
@@ -16,7 +23,23 @@ import java.time.LocalDateTime;
 @Configuration
 public class MybatisPlusConfig {
 
-
+    /**
+     * 配置 SQL 注入器
+     * 在默认方法之外注入批量插入和批量 upsert 方法，供继承 BatchInsertMapper 的仓储使用
+     */
+    @Bean
+    public ISqlInjector sqlInjector() {
+        return new DefaultSqlInjector() {
+            @Override
+            public List<AbstractMethod> getMethodList(org.apache.ibatis.session.Configuration configuration,
+                                                      Class<?> mapperClass, TableInfo tableInfo) {
+                List<AbstractMethod> methods = super.getMethodList(configuration, mapperClass, tableInfo);
+                methods.add(new InsertBatchOnConflictDoNothing());
+                methods.add(new InsertBatchOnConflictDoUpdate());
+                return methods;
+            }
+        };
+    }
 
     /**
      * 配置自动填充处理器
@@ -0,0 +1,126 @@
+package org.xhy.gateway.infrastructure.datasource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.TransientDataAccessResourceException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.CannotCreateTransactionException;
+
+import java.sql.SQLException;
+import java.sql.SQLNonTransientConnectionException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 数据库可用性
+ * 热路径上访问数据库失败且属于连接类故障时标记为不可用，之后不再每次都去等待连接超时，
+ * 只按探测间隔放行一个请求去试探，试探成功即恢复。路由和认证在不可用期间改用内存中的最近快照。
+ *
+ * @author xhy
+ * @since 1.0.0
+ */
+@Component
+public class DatabaseAvailability {
+
+    private static final Logger logger = LoggerFactory.getLogger(DatabaseAvailability.class);
+
+    private static final int MAX_CAUSE_DEPTH = 10;
+
+    private final long probeIntervalMs;
+
+    /**
+     * 开始不可用的时间戳（毫秒），0 表示可用
+     */
+    private volatile long unavailableSince;
+
+    private volatile String lastError;
+
+    private final AtomicLong nextProbeAt = new AtomicLong();
+
+    public DatabaseAvailability(@Value("${gateway.degraded.probe-interval-ms:5000}") long probeIntervalMs) {
+        this.probeIntervalMs = probeIntervalMs;
+    }
+
+    /**
+     * 判断异常是否由数据库不可达引起（连接失败、连接中断、事务无法开启等），沿异常链查找
+     * 只认连接类故障；死锁、锁等待超时、查询超时等其他瞬时异常说明数据库可达，不触发降级。
+     * JDBC 规范中 SQLTransientConnectionException / SQLNonTransientConnectionException 对应 SQLState 08 类。
+     */
+    public static boolean isUnavailableError(Throwable error) {
+        Throwable current = error;
+        for (int depth = 0; current != null && depth < MAX_CAUSE_DEPTH; depth++) {
+            if (current instanceof DataAccessResourceFailureException
+                    || current instanceof TransientDataAccessResourceException
+                    || current instanceof CannotCreateTransactionException
+                    || current instanceof SQLTransientConnectionException
+                    || current instanceof SQLNonTransientConnectionException) {
+                return true;
+            }
+            // SQLState 08 开头为连接异常
+            if (current instanceof SQLException sqlException && sqlException.getSQLState() != null
+                    && sqlException.getSQLState().startsWith("08")) {
+                return true;
+            }
+            current = current.getCause();
+        }
+        return false;
+    }
+
+    /**
+     * 是否应当访问数据库：可用时总是放行；不可用时每个探测间隔只放行一次
+     */
+    public boolean allowQuery() {
+        if (unavailableSince == 0) {
+            return true;
+        }
+        long now = System.currentTimeMillis();
+        long probeAt = nextProbeAt.get();
+        return now >= probeAt && nextProbeAt.compareAndSet(probeAt, now + probeIntervalMs);
+    }
+
+    /**
+     * 记录一次成功的数据库访问
+     */
+    public void recordSuccess() {
+        long since = unavailableSince;
+        if (since != 0) {
+            unavailableSince = 0;
+            lastError = null;
+            logger.info("数据库已恢复，退出降级模式，持续 {}ms", System.currentTimeMillis() - since);
+        }
+    }
+
+    /**
+     * 记录一次数据库不可达
+     */
+    public void recordFailure(Throwable error) {
+        long now = System.currentTimeMillis();
+        nextProbeAt.set(now + probeIntervalMs);
+        lastError = error.getMessage();
+        if (unavailableSince == 0) {
+            unavailableSince = now;
+            logger.error("数据库不可用，进入降级模式: {}", error.getMessage());
+        }
+    }
+
+    public boolean isAvailable() {
+        return unavailableSince == 0;
+    }
+
+    /**
+     * 开始不可用的时间，可用时返回 null
+     */
+    public LocalDateTime getUnavailableSince() {
+        long since = unavailableSince;
+        return since == 0 ? null : LocalDateTime.ofInstant(Instant.ofEpochMilli(since), ZoneId.systemDefault());
+    }
+
+    public String getLastError() {
+        return lastError;
+    }
+}
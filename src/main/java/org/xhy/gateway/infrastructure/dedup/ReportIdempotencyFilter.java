@@ -0,0 +1,80 @@
+package org.xhy.gateway.infrastructure.dedup;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 调用结果上报的幂等过滤器
+ * 客户端重试会带着相同的幂等键重复上报，这里用内存中的轮转布隆过滤器识别重复，不查询数据库。
+ * 幂等键在项目内唯一，记住的时长为一到两个轮转周期；误判会让极少量新上报被当作重复丢弃，没有幂等键的上报不受影响。
+ * 只在当前节点内去重，多节点部署时同一个键的重试落到其他节点不会被识别。
+ * 幂等键在上报成功入队后才被登记，队列已满被拒绝或丢弃的上报可以用同一个键重试。
+ *
+ * @author xhy
+ * @since 1.0.0
+ */
+@Component
+public class ReportIdempotencyFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReportIdempotencyFilter.class);
+
+    private final RotatingBloomFilter filter;
+
+    /**
+     * 正在入队的幂等键，保证同一个键的并发重试只有一个进入队列
+     */
+    private final Set<String> inflight = ConcurrentHashMap.newKeySet();
+
+    public ReportIdempotencyFilter(@Value("${gateway.metrics.report.dedup.expected-keys:1000000}") long expectedKeys,
+                                   @Value("${gateway.metrics.report.dedup.false-positive-rate:0.001}") double falsePositiveRate,
+                                   @Value("${gateway.metrics.report.dedup.window-minutes:10}") long windowMinutes) {
+        this.filter = new RotatingBloomFilter(expectedKeys, falsePositiveRate, windowMinutes * 60 * 1000);
+        logger.info("上报幂等过滤器已初始化: expectedKeys={}, fpp={}, window={}min, hashes={}, 内存={}KB",
+                expectedKeys, falsePositiveRate, windowMinutes, filter.getHashCount(),
+                filter.getBytesPerGeneration() * 2 / 1024);
+    }
+
+    /**
+     * 开始处理一次上报，幂等键未出现过且没有同键的上报正在入队时返回 true，否则返回 false；没有幂等键时总是返回 true
+     * 返回 true 后必须调用 {@link #release}，只有被接收的上报才会登记幂等键。
+     */
+    public boolean tryAcquire(String projectId, String idempotencyKey) {
+        if (idempotencyKey == null || idempotencyKey.isEmpty()) {
+            return true;
+        }
+        String key = scopedKey(projectId, idempotencyKey);
+        if (filter.mightContain(key) || !inflight.add(key)) {
+            return false;
+        }
+        // 占位前另一个同键的上报可能刚好完成登记并释放了占位
+        if (filter.mightContain(key)) {
+            inflight.remove(key);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * 结束一次上报的处理，accepted 为 true 时登记幂等键，之后同一个键的上报被当作重复
+     */
+    public void release(String projectId, String idempotencyKey, boolean accepted) {
+        if (idempotencyKey == null || idempotencyKey.isEmpty()) {
+            return;
+        }
+        String key = scopedKey(projectId, idempotencyKey);
+        // 先登记再释放占位，并发的重试不会在两者之间漏过
+        if (accepted) {
+            filter.put(key);
+        }
+        inflight.remove(key);
+    }
+
+    private static String scopedKey(String projectId, String idempotencyKey) {
+        return projectId + ':' + idempotencyKey;
+    }
+}
@@ -0,0 +1,152 @@
+package org.xhy.gateway.infrastructure.dedup;
+
+import cn.hutool.core.lang.hash.MurmurHash;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.function.LongSupplier;
+
+/**
+ * 轮转布隆过滤器
+ * 由当前、上一代两个位数组组成，每个周期轮转一次，丢弃上一代并清空复用，因此一个键会被记住一到两个周期，
+ * 内存固定为两个位数组。判断只需要一次 Murmur3 128 位哈希加 k 次位探测；存在误判（把新键当作重复），
+ * 误判率由预计键数量和位数组大小决定，不存在漏判。
+ * 判断和登记在同一把锁内完成（{@link #putIfAbsent}），并发写入同一个键时只有一个调用方会得到 true。
+ *
+ * @author xhy
+ * @since 1.0.0
+ */
+public class RotatingBloomFilter {
+
+    private final int bitCount;
+    private final int hashCount;
+    private final long periodMillis;
+    private final LongSupplier clock;
+
+    private long[] current;
+    private long[] previous;
+    private long currentStartedAt;
+
+    /**
+     * @param expectedKeys 一个周期内预计写入的键数量
+     * @param falsePositiveRate 期望的误判率，例如 0.001
+     * @param periodMillis 轮转周期（毫秒）
+     */
+    public RotatingBloomFilter(long expectedKeys, double falsePositiveRate, long periodMillis) {
+        this(expectedKeys, falsePositiveRate, periodMillis, System::currentTimeMillis);
+    }
+
+    /**
+     * 指定时钟，测试中用来模拟轮转
+     */
+    RotatingBloomFilter(long expectedKeys, double falsePositiveRate, long periodMillis, LongSupplier clock) {
+        if (expectedKeys <= 0 || falsePositiveRate <= 0 || falsePositiveRate >= 1 || periodMillis <= 0) {
+            throw new IllegalArgumentException("布隆过滤器参数不合法");
+        }
+        // m = -n·ln(p) / (ln2)^2，k = m/n·ln2
+        long bits = (long) Math.ceil(-expectedKeys * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        this.bitCount = (int) Math.min(Math.max(bits, 64), Integer.MAX_VALUE - 63);
+        this.hashCount = Math.max(1, (int) Math.round((double) bitCount / expectedKeys * Math.log(2)));
+        this.periodMillis = periodMillis;
+        this.clock = clock;
+        this.current = new long[(bitCount + 63) >>> 6];
+        this.previous = new long[current.length];
+        this.currentStartedAt = clock.getAsLong();
+    }
+
+    /**
+     * 键是否在最近一到两个周期内出现过（可能误判）
+     */
+    public synchronized boolean mightContain(String key) {
+        rotateIfNeeded();
+        long[] hash = hash(key);
+        return contains(current, hash) || contains(previous, hash);
+    }
+
+    /**
+     * 记录一个键
+     */
+    public synchronized void put(String key) {
+        rotateIfNeeded();
+        setBits(hash(key));
+    }
+
+    /**
+     * 键未出现过时记录它并返回 true，已出现过（或误判为出现过）时返回 false
+     * 当前代里有任意一位是新置上的，说明这个键此前不在当前代中；再排除上一代，即为首次出现。
+     */
+    public synchronized boolean putIfAbsent(String key) {
+        rotateIfNeeded();
+        long[] hash = hash(key);
+        if (contains(previous, hash)) {
+            return false;
+        }
+        return setBits(hash);
+    }
+
+    /**
+     * 每个位数组占用的字节数
+     */
+    public long getBytesPerGeneration() {
+        return (long) current.length * Long.BYTES;
+    }
+
+    public int getHashCount() {
+        return hashCount;
+    }
+
+    /**
+     * 在当前代置位，返回是否有位由 0 变为 1
+     */
+    private boolean setBits(long[] hash) {
+        boolean changed = false;
+        for (int i = 0; i < hashCount; i++) {
+            int bit = bitIndex(hash, i);
+            long mask = 1L << bit;
+            long word = current[bit >>> 6];
+            if ((word & mask) == 0) {
+                current[bit >>> 6] = word | mask;
+                changed = true;
+            }
+        }
+        return changed;
+    }
+
+    private boolean contains(long[] bits, long[] hash) {
+        for (int i = 0; i < hashCount; i++) {
+            int bit = bitIndex(hash, i);
+            if ((bits[bit >>> 6] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static long[] hash(String key) {
+        return MurmurHash.hash128(key.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 双重哈希 h1 + i·h2 生成第 i 个探测位
+     */
+    private int bitIndex(long[] hash, int i) {
+        return (int) Long.remainderUnsigned(hash[0] + i * hash[1], bitCount);
+    }
+
+    private void rotateIfNeeded() {
+        long now = clock.getAsLong();
+        long elapsed = now - currentStartedAt;
+        if (elapsed < periodMillis) {
+            return;
+        }
+        long[] recycled = previous;
+        Arrays.fill(recycled, 0L);
+        if (elapsed >= 2 * periodMillis) {
+            // 超过两个周期没有访问，两代都已过期
+            Arrays.fill(current, 0L);
+        }
+        previous = current;
+        current = recycled;
+        currentStartedAt = now - elapsed % periodMillis;
+    }
+}
@@ -0,0 +1,14 @@
+package org.xhy.gateway.infrastructure.exception;
+
+/**
+ * 服务暂时不可用异常
+ * 网关过载、暂时无法接收请求时抛出，客户端可以稍后重试
+ */
+public class ServiceUnavailableException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public ServiceUnavailableException(String message) {
+        super(message);
+    }
+}
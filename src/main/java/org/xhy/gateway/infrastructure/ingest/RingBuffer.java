@@ -0,0 +1,129 @@
+package org.xhy.gateway.infrastructure.ingest;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Supplier;
+
+/**
+ * 有界环形缓冲区（多生产者、单消费者）
+ * 槽位在创建时一次性分配并循环复用，生产者通过 CAS 抢占写入位置后就地填充槽位，发布和消费都不分配对象。
+ * 每个槽位带一个序号：序号等于写入位置表示可写，等于写入位置 + 1 表示已发布待消费；
+ * 缓冲区满时发布立即失败，由调用方决定丢弃还是拒绝，不会阻塞生产者。
+ *
+ * @author xhy
+ * @since 1.0.0
+ */
+public class RingBuffer<E> {
+
+    private final E[] slots;
+    private final AtomicLongArray sequences;
+    private final int mask;
+
+    /**
+     * 下一个写入位置，由生产者竞争推进
+     */
+    private final AtomicLong tail = new AtomicLong();
+
+    /**
+     * 下一个读取位置，只有消费线程读写
+     */
+    private volatile long head;
+
+    /**
+     * @param capacity 槽位数量，必须是 2 的幂
+     * @param factory 槽位对象的创建方法
+     */
+    @SuppressWarnings("unchecked")
+    public RingBuffer(int capacity, Supplier<E> factory) {
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("环形缓冲区容量必须是 2 的幂: " + capacity);
+        }
+        this.slots = (E[]) new Object[capacity];
+        this.sequences = new AtomicLongArray(capacity);
+        this.mask = capacity - 1;
+        for (int i = 0; i < capacity; i++) {
+            slots[i] = factory.get();
+            sequences.set(i, i);
+        }
+    }
+
+    /**
+     * 抢占一个槽位并填充，缓冲区已满时返回 false
+     */
+    public <A, B> boolean tryPublish(Translator<E, A, B> translator, A arg0, B arg1) {
+        long position = tail.get();
+        while (true) {
+            int index = (int) (position & mask);
+            long diff = sequences.get(index) - position;
+            if (diff == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    translator.translateTo(slots[index], arg0, arg1);
+                    sequences.set(index, position + 1);
+                    return true;
+                }
+                position = tail.get();
+            } else if (diff < 0) {
+                // 消费者还没有释放这一圈之前的槽位
+                return false;
+            } else {
+                position = tail.get();
+            }
+        }
+    }
+
+    /**
+     * 消费已发布的事件，最多 maxEvents 个，返回实际消费数量；只能由唯一的消费线程调用
+     * 处理器抛出异常时该事件的槽位仍会被释放，异常继续向上抛出
+     */
+    public int drain(Handler<E> handler, int maxEvents) {
+        int consumed = 0;
+        long position = head;
+        while (consumed < maxEvents) {
+            int index = (int) (position & mask);
+            if (sequences.get(index) != position + 1) {
+                break;
+            }
+            try {
+                handler.onEvent(slots[index]);
+            } finally {
+                sequences.set(index, position + slots.length);
+                head = ++position;
+                consumed++;
+            }
+        }
+        return consumed;
+    }
+
+    /**
+     * 已发布未消费的事件数（近似值）
+     */
+    public int size() {
+        return (int) Math.max(0, Math.min(tail.get() - head, slots.length));
+    }
+
+    public int getCapacity() {
+        return slots.length;
+    }
+
+    /**
+     * 就地填充槽位，实现应当是无状态的，避免每次发布分配捕获变量的 lambda
+     */
+    @FunctionalInterface
+    public interface Translator<E, A, B> {
+        void translateTo(E slot, A arg0, B arg1);
+    }
+
+    /**
+     * 消费一个事件，槽位在返回后会被复用，不能保留引用
+     */
+    @FunctionalInterface
+    public interface Handler<E> {
+        void onEvent(E event);
+
+        /**
+         * 缓冲区空闲时在消费线程上周期性调用，可用于补做积压的工作
+         */
+        default void onIdle() {
+        }
+    }
+}
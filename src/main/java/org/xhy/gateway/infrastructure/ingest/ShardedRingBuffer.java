@@ -0,0 +1,157 @@
+package org.xhy.gateway.infrastructure.ingest;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+
+/**
+ * 按键分片的环形缓冲区
+ * 每个分片是一个独立的 {@link RingBuffer}，由一个专属的消费线程处理；同一个分片键总是落到同一个分片，
+ * 因此同一个键的事件只被一个线程按发布顺序处理（单写者），消费侧不需要加锁。
+ * 每个分片有自己的处理器实例，处理器可以持有只属于该分片的状态。消费线程空闲时先自旋，再挂起，
+ * 持续空闲时挂起时间逐次翻倍到上限，有事件到达后恢复为最短；空闲分片每秒只唤醒约百次，新事件最多延迟一个上限的时间被处理。
+ *
+ * @author xhy
+ * @since 1.0.0
+ */
+public class ShardedRingBuffer<E> {
+
+    private static final Logger logger = LoggerFactory.getLogger(ShardedRingBuffer.class);
+
+    /**
+     * 每次最多连续消费的事件数
+     */
+    private static final int DRAIN_BATCH_SIZE = 256;
+
+    private static final int IDLE_SPINS = 100;
+
+    private static final long MIN_IDLE_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(200);
+
+    private static final long MAX_IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    private final String name;
+    private final RingBuffer<E>[] shards;
+    private final Thread[] consumers;
+
+    private volatile boolean running;
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public ShardedRingBuffer(String name, int shardCount, int capacityPerShard, Supplier<E> factory) {
+        if (shardCount <= 0) {
+            throw new IllegalArgumentException("分片数量必须大于 0: " + shardCount);
+        }
+        this.name = name;
+        this.shards = new RingBuffer[shardCount];
+        this.consumers = new Thread[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new RingBuffer<>(capacityPerShard, factory);
+        }
+    }
+
+    /**
+     * 为每个分片创建处理器并启动消费线程
+     */
+    public synchronized void start(IntFunction<RingBuffer.Handler<E>> handlerFactory) {
+        if (running) {
+            return;
+        }
+        running = true;
+        for (int i = 0; i < shards.length; i++) {
+            RingBuffer<E> shard = shards[i];
+            RingBuffer.Handler<E> handler = handlerFactory.apply(i);
+            Thread consumer = new Thread(() -> consume(shard, handler), name + "-" + i);
+            consumer.setDaemon(true);
+            consumers[i] = consumer;
+            consumer.start();
+        }
+    }
+
+    /**
+     * 停止接收新事件，等待消费线程处理完缓冲区中剩余的事件
+     *
+     * @return 所有消费线程都已退出时返回 true，超时或被中断时返回 false
+     */
+    public synchronized boolean shutdown(long timeoutMillis) {
+        running = false;
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        for (Thread consumer : consumers) {
+            if (consumer == null) {
+                continue;
+            }
+            LockSupport.unpark(consumer);
+            try {
+                consumer.join(Math.max(1, deadline - System.currentTimeMillis()));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        boolean terminated = true;
+        for (Thread consumer : consumers) {
+            terminated &= consumer == null || !consumer.isAlive();
+        }
+        for (int i = 0; i < shards.length; i++) {
+            if (shards[i].size() > 0) {
+                logger.warn("{} 分片 {} 停止时仍有 {} 个事件未处理", name, i, shards[i].size());
+            }
+        }
+        return terminated;
+    }
+
+    /**
+     * 发布到分片键对应的分片，分片已满或已停止时返回 false
+     */
+    public <A, B> boolean tryPublish(int shardKey, RingBuffer.Translator<E, A, B> translator, A arg0, B arg1) {
+        if (!running) {
+            return false;
+        }
+        return shards[Math.floorMod(shardKey, shards.length)].tryPublish(translator, arg0, arg1);
+    }
+
+    public int getShardCount() {
+        return shards.length;
+    }
+
+    public int getCapacityPerShard() {
+        return shards[0].getCapacity();
+    }
+
+    /**
+     * 分片中待处理的事件数
+     */
+    public int getDepth(int shard) {
+        return shards[shard].size();
+    }
+
+    private void consume(RingBuffer<E> shard, RingBuffer.Handler<E> handler) {
+        int idle = 0;
+        long parkNanos = MIN_IDLE_PARK_NANOS;
+        while (running || shard.size() > 0) {
+            int consumed;
+            try {
+                consumed = shard.drain(handler, DRAIN_BATCH_SIZE);
+            } catch (Throwable e) {
+                logger.error("{} 事件处理失败", name, e);
+                consumed = 1;
+            }
+            if (consumed > 0) {
+                idle = 0;
+                parkNanos = MIN_IDLE_PARK_NANOS;
+            } else if (++idle < IDLE_SPINS) {
+                Thread.onSpinWait();
+            } else {
+                try {
+                    handler.onIdle();
+                } catch (Throwable e) {
+                    logger.error("{} 空闲任务执行失败", name, e);
+                }
+                LockSupport.parkNanos(parkNanos);
+                parkNanos = Math.min(parkNanos * 2, MAX_IDLE_PARK_NANOS);
+            }
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package org.xhy.gateway.infrastructure.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * 调用结果上报 JFR 事件
+ * 记录上报的实例、上游调用延迟和是否成功，事件持续时间为网关处理这次上报（含指标写库）的耗时。
+ * 与 {@link GatewaySelectionEvent} 一样默认关闭。
+ *
+ * @author xhy
+ * @since 1.0.0
+ */
+@Name("org.xhy.gateway.GatewayReport")
+@Label("Gateway Report")
+@Category({"API Premium Gateway"})
+@Description("Call result reported by a client and recorded into instance metrics")
+@Enabled(false)
+@StackTrace(false)
+public class GatewayReportEvent extends Event {
+
+    @Label("Instance")
+    public String instance;
+
+    @Label("Upstream Latency")
+    @Timespan(Timespan.MILLISECONDS)
+    public long latency;
+
+    @Label("Success")
+    public boolean success;
+}
@@ -0,0 +1,44 @@
+package org.xhy.gateway.infrastructure.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * 实例选择 JFR 事件
+ * 记录一次策略选择的路由分组、候选数、使用的策略和选中的实例，事件持续时间即策略选择耗时。
+ * 默认关闭，需要在录制配置中把 org.xhy.gateway.GatewaySelection 的 enabled 设为 true；
+ * 关闭时 begin/commit 为空操作，调用方应先判断 shouldCommit() 再填充字段。
+ *
+ * @author xhy
+ * @since 1.0.0
+ */
+@Name("org.xhy.gateway.GatewaySelection")
+@Label("Gateway Selection")
+@Category({"API Premium Gateway"})
+@Description("Load balancing decision made for a select-instance call")
+@Enabled(false)
+@StackTrace(false)
+public class GatewaySelectionEvent extends Event {
+
+    @Label("Route Group")
+    @Description("projectId:apiType:apiIdentifier")
+    public String routeGroup;
+
+    @Label("Candidate Count")
+    @Description("Healthy candidates passed to the strategy")
+    public int candidateCount;
+
+    @Label("Strategy")
+    public String strategy;
+
+    @Label("Affinity Key")
+    public String affinityKey;
+
+    @Label("Chosen Instance")
+    public String chosenInstance;
+}
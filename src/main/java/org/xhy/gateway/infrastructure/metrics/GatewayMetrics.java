@@ -0,0 +1,165 @@
+package org.xhy.gateway.infrastructure.metrics;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * 网关运行指标
+ * 进程内的计数器和直方图，只在内存中累加，由 /metrics 接口按 OpenMetrics 格式导出。
+ * 所有计数自进程启动起单调递增，速率和分位数由 Prometheus 侧计算。
+ * 按实例的调用指标以上报中的实例ID为键，长时间没有上报的实例由 {@link #evictIdle()} 移除，
+ * 避免已删除或伪造的实例ID一直占用内存；实例再次上报时计数从零开始，Prometheus 按计数器重置处理。
+ *
+ * @author xhy
+ * @since 1.0.0
+ */
+@Component
+public class GatewayMetrics {
+
+    /**
+     * 调用延迟的桶边界（秒）
+     */
+    private static final double[] CALL_LATENCY_BUCKETS = {
+            0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10, 30};
+
+    /**
+     * 实例选择耗时的桶边界（秒），选择在进程内完成，量级远小于上游调用
+     */
+    private static final double[] SELECTION_DURATION_BUCKETS = {
+            0.0005, 0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 1};
+
+    /**
+     * 超过该时长没有上报的实例，调用指标从内存中移除
+     */
+    private static final long IDLE_MILLIS = 600_000;
+
+    private final Map<String, InstanceCallMetrics> callMetrics = new ConcurrentHashMap<>();
+    private final Histogram selectionDuration = new Histogram(SELECTION_DURATION_BUCKETS);
+    private final Map<String, LongAdder> selectionResults = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> authenticationResults = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> droppedReports = new ConcurrentHashMap<>();
+
+    /**
+     * 毫秒时钟，测试中可替换
+     */
+    private final LongSupplier clock;
+
+    public GatewayMetrics() {
+        this(System::currentTimeMillis);
+    }
+
+    GatewayMetrics(LongSupplier clock) {
+        this.clock = clock;
+    }
+
+    /**
+     * 记录一次上报的调用结果
+     *
+     * @param errorClass 失败的错误分类，成功时为 null
+     */
+    public void recordCall(String instanceId, boolean success, long latencyMs, String errorClass) {
+        InstanceCallMetrics metrics = callMetrics.computeIfAbsent(instanceId, k -> new InstanceCallMetrics());
+        metrics.lastActiveMillis = clock.getAsLong();
+        (success ? metrics.success : metrics.failure).increment();
+        if (!success && errorClass != null) {
+            metrics.errors.computeIfAbsent(errorClass, k -> new LongAdder()).increment();
+        }
+        metrics.latency.observe(latencyMs / 1000.0);
+    }
+
+    /**
+     * 记录一次实例选择
+     *
+     * @param result 选择结果，成功为 success，失败为业务错误码
+     */
+    public void recordSelection(long durationNanos, String result) {
+        selectionDuration.observe(durationNanos / 1_000_000_000.0);
+        selectionResults.computeIfAbsent(result, k -> new LongAdder()).increment();
+    }
+
+    /**
+     * 记录一次 API Key 认证
+     *
+     * @param result 认证结果，如 success、unauthorized、forbidden
+     */
+    public void recordAuthentication(String result) {
+        authenticationResults.computeIfAbsent(result, k -> new LongAdder()).increment();
+    }
+
+    /**
+     * 记录一次被丢弃的调用结果上报
+     *
+     * @param reason 丢弃原因，如 too_late
+     */
+    public void recordDroppedReport(String reason) {
+        droppedReports.computeIfAbsent(reason, k -> new LongAdder()).increment();
+    }
+
+    /**
+     * 移除长时间没有上报的实例的调用指标，由定时任务调用
+     * 与清理并发的那次上报可能记到被移除的对象上而丢失，只影响已空闲很久的实例。
+     *
+     * @return 移除的实例数
+     */
+    public int evictIdle() {
+        long threshold = clock.getAsLong() - IDLE_MILLIS;
+        int before = callMetrics.size();
+        callMetrics.values().removeIf(metrics -> metrics.lastActiveMillis < threshold);
+        return before - callMetrics.size();
+    }
+
+    public Map<String, InstanceCallMetrics> getCallMetrics() {
+        return callMetrics;
+    }
+
+    public Histogram getSelectionDuration() {
+        return selectionDuration;
+    }
+
+    public Map<String, LongAdder> getSelectionResults() {
+        return selectionResults;
+    }
+
+    public Map<String, LongAdder> getAuthenticationResults() {
+        return authenticationResults;
+    }
+
+    public Map<String, LongAdder> getDroppedReports() {
+        return droppedReports;
+    }
+
+    /**
+     * 单个实例的调用计数和延迟分布
+     */
+    public static final class InstanceCallMetrics {
+
+        private final LongAdder success = new LongAdder();
+        private final LongAdder failure = new LongAdder();
+        private final Map<String, LongAdder> errors = new ConcurrentHashMap<>();
+        private final Histogram latency = new Histogram(CALL_LATENCY_BUCKETS);
+        private volatile long lastActiveMillis;
+
+        public long getSuccessCount() {
+            return success.sum();
+        }
+
+        public long getFailureCount() {
+            return failure.sum();
+        }
+
+        /**
+         * 按错误分类的失败次数
+         */
+        public Map<String, LongAdder> getErrors() {
+            return errors;
+        }
+
+        public Histogram getLatency() {
+            return latency;
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package org.xhy.gateway.infrastructure.metrics;
+
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 固定桶直方图
+ * 桶边界在创建时确定，记录时只做一次线性查找和一次 LongAdder 累加，适合热路径上的高并发写入
+ *
+ * @author xhy
+ * @since 1.0.0
+ */
+public class Histogram {
+
+    private final double[] upperBounds;
+
+    /**
+     * 各桶的计数（非累积），最后一个元素对应 +Inf
+     */
+    private final LongAdder[] buckets;
+    private final DoubleAdder sum = new DoubleAdder();
+
+    public Histogram(double... upperBounds) {
+        this.upperBounds = upperBounds.clone();
+        this.buckets = new LongAdder[upperBounds.length + 1];
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * 记录一次观测值
+     */
+    public void observe(double value) {
+        int i = 0;
+        while (i < upperBounds.length && value > upperBounds[i]) {
+            i++;
+        }
+        buckets[i].increment();
+        sum.add(value);
+    }
+
+    public double[] getUpperBounds() {
+        return upperBounds.clone();
+    }
+
+    /**
+     * 获取累积计数，第 i 个元素为小于等于第 i 个边界的观测次数，最后一个元素为总次数
+     */
+    public long[] getCumulativeCounts() {
+        long[] result = new long[buckets.length];
+        long running = 0;
+        for (int i = 0; i < buckets.length; i++) {
+            running += buckets[i].sum();
+            result[i] = running;
+        }
+        return result;
+    }
+
+    public double getSum() {
+        return sum.sum();
+    }
+}
@@ -0,0 +1,106 @@
+package org.xhy.gateway.infrastructure.metrics;
+
+import java.math.BigDecimal;
+
+/**
+ * OpenMetrics 文本格式输出
+ * 只实现网关用到的 counter、gauge、stateset 和 histogram，调用方负责按指标族顺序输出样本
+ *
+ * @author xhy
+ * @since 1.0.0
+ */
+public class OpenMetricsWriter {
+
+    public static final String CONTENT_TYPE = "application/openmetrics-text; version=1.0.0; charset=utf-8";
+
+    private final StringBuilder out = new StringBuilder(4096);
+
+    /**
+     * 输出指标族的元数据
+     *
+     * @param name 指标族名称（counter 不带 _total 后缀）
+     * @param type counter、gauge、stateset、histogram
+     */
+    public OpenMetricsWriter family(String name, String type, String help) {
+        out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        return this;
+    }
+
+    /**
+     * 输出一个样本
+     *
+     * @param labels 交替排列的标签名和标签值
+     */
+    public OpenMetricsWriter sample(String name, double value, String... labels) {
+        out.append(name);
+        appendLabels(labels, null);
+        out.append(' ').append(formatValue(value)).append('\n');
+        return this;
+    }
+
+    /**
+     * 输出直方图的 _bucket、_count、_sum 样本
+     */
+    public OpenMetricsWriter histogram(String name, Histogram histogram, String... labels) {
+        double[] bounds = histogram.getUpperBounds();
+        long[] counts = histogram.getCumulativeCounts();
+        for (int i = 0; i < counts.length; i++) {
+            String le = i < bounds.length ? formatBound(bounds[i]) : "+Inf";
+            out.append(name).append("_bucket");
+            appendLabels(labels, le);
+            out.append(' ').append(counts[i]).append('\n');
+        }
+        sample(name + "_count", counts[counts.length - 1], labels);
+        sample(name + "_sum", histogram.getSum(), labels);
+        return this;
+    }
+
+    /**
+     * 结束输出，返回完整文本
+     */
+    public String finish() {
+        out.append("# EOF\n");
+        return out.toString();
+    }
+
+    private void appendLabels(String[] labels, String le) {
+        if (labels.length == 0 && le == null) {
+            return;
+        }
+        out.append('{');
+        for (int i = 0; i + 1 < labels.length; i += 2) {
+            if (i > 0) {
+                out.append(',');
+            }
+            out.append(labels[i]).append("=\"").append(escape(labels[i + 1])).append('"');
+        }
+        if (le != null) {
+            if (labels.length > 0) {
+                out.append(',');
+            }
+            out.append("le=\"").append(le).append('"');
+        }
+        out.append('}');
+    }
+
+    private static String escape(String value) {
+        if (value == null) {
+            return "";
+        }
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    private static String formatValue(double value) {
+        if (value == Math.rint(value) && !Double.isInfinite(value) && Math.abs(value) < 1e15) {
+            return Long.toString((long) value);
+        }
+        return Double.toString(value);
+    }
+
+    private static String formatBound(double bound) {
+        String text = Double.toString(bound);
+        // 避免科学计数法，例如 5.0E-4 输出为 0.0005
+        return text.indexOf('E') < 0 ? text : new BigDecimal(text).stripTrailingZeros().toPlainString();
+    }
+}
@@ -0,0 +1,35 @@
+package org.xhy.gateway.infrastructure.metrics;
+
+/**
+ * 计时阶段
+ * 选择和上报热路径上的各个阶段，HTTP 阶段在拦截器中计时，包含参数绑定、JSON 序列化和事务提交
+ *
+ * @author xhy
+ * @since 1.0.0
+ */
+public enum TimedStage {
+
+    HTTP_SELECT("http.select-instance"),
+    AUTHENTICATION("auth"),
+    SELECT_TOTAL("select.total"),
+    SELECT_PROJECT_VALIDATION("select.project-validation"),
+    SELECT_CANDIDATE_LOOKUP("select.candidate-lookup"),
+    SELECT_METRICS_LOOKUP("select.metrics-lookup"),
+    SELECT_HEALTH_FILTER("select.health-filter"),
+    SELECT_STRATEGY("select.strategy"),
+    SELECT_ASSEMBLE("select.assemble"),
+    HTTP_REPORT("http.report-result"),
+    REPORT_ENQUEUE("report.enqueue"),
+    REPORT_TOTAL("report.total"),
+    REPORT_RECORD("report.record");
+
+    private final String code;
+
+    TimedStage(String code) {
+        this.code = code;
+    }
+
+    public String getCode() {
+        return code;
+    }
+}
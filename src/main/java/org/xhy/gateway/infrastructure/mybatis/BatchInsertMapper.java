@@ -0,0 +1,31 @@
+package org.xhy.gateway.infrastructure.mybatis;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+
+import java.util.List;
+
+/**
+ * 支持批量插入的 Mapper
+ * 在 BaseMapper 之上增加由 SQL 注入器生成的批量方法，仓储继承它即可使用，同样不需要手写 SQL
+ *
+ * @author xhy
+ * @since 1.0.0
+ */
+public interface BatchInsertMapper<T> extends BaseMapper<T> {
+
+    /**
+     * 一条语句插入整批实体，与 {@link UpsertKey} 声明的冲突键重复的行被跳过
+     * 仅对标注了 UpsertKey 的实体可用；受 PostgreSQL 单条语句 65535 个参数的限制，调用方需要自行分批
+     *
+     * @return 实际插入的行数
+     */
+    int insertBatchOnConflictDoNothing(List<T> entityList);
+
+    /**
+     * 一条语句插入整批实体，与 {@link UpsertKey} 声明的冲突键重复的行改为更新
+     * 仅对标注了 UpsertKey 的实体可用；批内冲突键不能重复，同样需要调用方分批
+     *
+     * @return 插入和更新的总行数
+     */
+    int insertBatchOnConflictDoUpdate(List<T> entityList);
+}
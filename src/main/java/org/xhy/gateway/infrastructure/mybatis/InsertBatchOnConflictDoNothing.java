@@ -0,0 +1,53 @@
+package org.xhy.gateway.infrastructure.mybatis;
+
+import com.baomidou.mybatisplus.core.injector.AbstractMethod;
+import com.baomidou.mybatisplus.core.metadata.TableInfo;
+import com.baomidou.mybatisplus.core.toolkit.sql.SqlScriptUtils;
+import org.apache.ibatis.executor.keygen.NoKeyGenerator;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.SqlSource;
+
+/**
+ * 多行插入并忽略唯一约束冲突
+ * 生成 INSERT INTO t (...) VALUES (...), (...) ON CONFLICT (冲突键) DO NOTHING，一条语句写入整批实体，
+ * 在冲突键上与已有记录（或同批中靠前的记录）重复的行被数据库跳过，不报错。
+ * 冲突键由实体上的 {@link UpsertKey} 声明；显式指定冲突目标后，缺少对应唯一索引时语句直接报错，
+ * 不会在没有索引的库上静默写入重复数据，其他唯一约束的冲突也照常报错。
+ * 列和参数取自表元数据，字段的类型处理器、主键生成和自动填充与单条 insert 一致。
+ *
+ * @author xhy
+ * @since 1.0.0
+ */
+public class InsertBatchOnConflictDoNothing extends AbstractMethod {
+
+    public static final String METHOD_NAME = "insertBatchOnConflictDoNothing";
+
+    public InsertBatchOnConflictDoNothing() {
+        super(METHOD_NAME);
+    }
+
+    @Override
+    public MappedStatement injectMappedStatement(Class<?> mapperClass, Class<?> modelClass, TableInfo tableInfo) {
+        UpsertKey upsertKey = modelClass.getAnnotation(UpsertKey.class);
+        if (upsertKey == null) {
+            return null;
+        }
+
+        String columns = tableInfo.getKeyInsertSqlColumn(true, null, false)
+                + filterTableFieldInfo(tableInfo.getFieldList(), null, field -> field.getInsertSqlColumn(), EMPTY);
+        String properties = tableInfo.getKeyInsertSqlProperty(true, ENTITY_DOT, false)
+                + filterTableFieldInfo(tableInfo.getFieldList(), null, field -> field.getInsertSqlProperty(ENTITY_DOT), EMPTY);
+
+        String columnScript = LEFT_BRACKET + columns.substring(0, columns.length() - 1) + RIGHT_BRACKET;
+        String valuesScript = SqlScriptUtils.convertForeach(
+                LEFT_BRACKET + properties.substring(0, properties.length() - 1) + RIGHT_BRACKET,
+                "list", null, ENTITY, COMMA);
+
+        String sql = "<script>\nINSERT INTO " + tableInfo.getTableName() + " " + columnScript
+                + " VALUES " + valuesScript
+                + "\nON CONFLICT (" + String.join(COMMA, upsertKey.columns()) + ") DO NOTHING"
+                + "\n</script>";
+        SqlSource sqlSource = super.createSqlSource(configuration, sql, modelClass);
+        return addInsertMappedStatement(mapperClass, modelClass, methodName, sqlSource, NoKeyGenerator.INSTANCE, null, null);
+    }
+}
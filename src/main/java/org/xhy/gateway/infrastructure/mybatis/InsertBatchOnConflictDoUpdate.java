@@ -0,0 +1,65 @@
+package org.xhy.gateway.infrastructure.mybatis;
+
+import com.baomidou.mybatisplus.annotation.FieldFill;
+import com.baomidou.mybatisplus.core.injector.AbstractMethod;
+import com.baomidou.mybatisplus.core.metadata.TableFieldInfo;
+import com.baomidou.mybatisplus.core.metadata.TableInfo;
+import com.baomidou.mybatisplus.core.toolkit.sql.SqlScriptUtils;
+import org.apache.ibatis.executor.keygen.NoKeyGenerator;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.SqlSource;
+
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * 多行 upsert
+ * 生成 INSERT INTO t (...) VALUES (...), (...) ON CONFLICT (冲突键) DO UPDATE SET col = EXCLUDED.col，
+ * 冲突键由实体上的 {@link UpsertKey} 声明。冲突时覆盖除冲突键、主键、仅插入时填充的字段和声明保留的列之外的所有列。
+ * 同一条语句中冲突键不能重复（PostgreSQL 不允许一条语句更新同一行两次），调用方需要先去重。
+ *
+ * @author xhy
+ * @since 1.0.0
+ */
+public class InsertBatchOnConflictDoUpdate extends AbstractMethod {
+
+    public static final String METHOD_NAME = "insertBatchOnConflictDoUpdate";
+
+    public InsertBatchOnConflictDoUpdate() {
+        super(METHOD_NAME);
+    }
+
+    @Override
+    public MappedStatement injectMappedStatement(Class<?> mapperClass, Class<?> modelClass, TableInfo tableInfo) {
+        UpsertKey upsertKey = modelClass.getAnnotation(UpsertKey.class);
+        if (upsertKey == null) {
+            return null;
+        }
+        Set<String> conflictColumns = Set.of(upsertKey.columns());
+        Set<String> preservedColumns = Set.of(upsertKey.preserved());
+
+        String columns = tableInfo.getKeyInsertSqlColumn(true, null, false)
+                + filterTableFieldInfo(tableInfo.getFieldList(), null, field -> field.getInsertSqlColumn(), EMPTY);
+        String properties = tableInfo.getKeyInsertSqlProperty(true, ENTITY_DOT, false)
+                + filterTableFieldInfo(tableInfo.getFieldList(), null, field -> field.getInsertSqlProperty(ENTITY_DOT), EMPTY);
+
+        String columnScript = LEFT_BRACKET + columns.substring(0, columns.length() - 1) + RIGHT_BRACKET;
+        String valuesScript = SqlScriptUtils.convertForeach(
+                LEFT_BRACKET + properties.substring(0, properties.length() - 1) + RIGHT_BRACKET,
+                "list", null, ENTITY, COMMA);
+        String updateScript = tableInfo.getFieldList().stream()
+                .filter(field -> !conflictColumns.contains(field.getColumn()))
+                .filter(field -> !preservedColumns.contains(field.getColumn()))
+                .filter(field -> field.getFieldFill() != FieldFill.INSERT)
+                .map(TableFieldInfo::getColumn)
+                .map(column -> column + " = EXCLUDED." + column)
+                .collect(Collectors.joining(COMMA));
+
+        String sql = "<script>\nINSERT INTO " + tableInfo.getTableName() + " " + columnScript
+                + " VALUES " + valuesScript
+                + "\nON CONFLICT (" + String.join(COMMA, upsertKey.columns()) + ") DO UPDATE SET " + updateScript
+                + "\n</script>";
+        SqlSource sqlSource = super.createSqlSource(configuration, sql, modelClass);
+        return addInsertMappedStatement(mapperClass, modelClass, methodName, sqlSource, NoKeyGenerator.INSTANCE, null, null);
+    }
+}
@@ -0,0 +1,28 @@
+package org.xhy.gateway.infrastructure.mybatis;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 批量 upsert 的冲突键
+ * 标注在实体上，声明唯一索引对应的列；只有标注了的实体才会注入 insertBatchOnConflictDoUpdate
+ *
+ * @author xhy
+ * @since 1.0.0
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface UpsertKey {
+
+    /**
+     * 冲突判断使用的列，必须与某个唯一索引的列一致
+     */
+    String[] columns();
+
+    /**
+     * 冲突时保留原值、不被覆盖的列
+     */
+    String[] preserved() default {};
+}
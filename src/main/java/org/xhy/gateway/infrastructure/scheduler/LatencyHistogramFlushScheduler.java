@@ -0,0 +1,45 @@
+package org.xhy.gateway.infrastructure.scheduler;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.xhy.gateway.application.service.SelectionAppService;
+
+/**
+ * 延迟分布落库调度器
+ * 定时把内存中累积的分钟窗口延迟分布合并进数据库，停机前再落库一次
+ *
+ * @author xhy
+ * @since 1.0.0
+ */
+@Component
+public class LatencyHistogramFlushScheduler {
+
+    private static final Logger logger = LoggerFactory.getLogger(LatencyHistogramFlushScheduler.class);
+
+    private final SelectionAppService selectionAppService;
+
+    public LatencyHistogramFlushScheduler(SelectionAppService selectionAppService) {
+        this.selectionAppService = selectionAppService;
+    }
+
+    @Scheduled(initialDelayString = "${gateway.metrics.histogram.flush-interval-ms:5000}",
+               fixedDelayString = "${gateway.metrics.histogram.flush-interval-ms:5000}")
+    public void flush() {
+        try {
+            int flushed = selectionAppService.flushLatencyHistograms();
+            if (flushed > 0) {
+                logger.debug("延迟分布落库: windows={}", flushed);
+            }
+        } catch (Exception e) {
+            logger.error("延迟分布落库失败，下次重试", e);
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+}
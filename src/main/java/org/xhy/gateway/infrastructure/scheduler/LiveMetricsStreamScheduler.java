@@ -0,0 +1,44 @@
+package org.xhy.gateway.infrastructure.scheduler;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.xhy.gateway.application.service.LiveMetricsStreamAppService;
+import org.xhy.gateway.infrastructure.metrics.GatewayMetrics;
+
+/**
+ * 实时指标推送调度器
+ * 按固定频率向管理后台的 SSE 订阅者推送实例状态变化，同时清理 /metrics 中长时间没有上报的实例
+ *
+ * @author xhy
+ * @since 1.0.0
+ */
+@Component
+public class LiveMetricsStreamScheduler {
+
+    private static final Logger logger = LoggerFactory.getLogger(LiveMetricsStreamScheduler.class);
+
+    private final LiveMetricsStreamAppService liveMetricsStreamAppService;
+    private final GatewayMetrics gatewayMetrics;
+
+    public LiveMetricsStreamScheduler(LiveMetricsStreamAppService liveMetricsStreamAppService,
+                                      GatewayMetrics gatewayMetrics) {
+        this.liveMetricsStreamAppService = liveMetricsStreamAppService;
+        this.gatewayMetrics = gatewayMetrics;
+    }
+
+    @Scheduled(fixedRateString = "${gateway.monitoring.stream.push-interval-ms:1000}")
+    public void push() {
+        try {
+            liveMetricsStreamAppService.push();
+        } catch (Exception e) {
+            logger.error("实时指标推送失败", e);
+        }
+        // 与实时指标的空闲实例清理同一频率
+        int evicted = gatewayMetrics.evictIdle();
+        if (evicted > 0) {
+            logger.debug("清理空闲实例的调用指标: {}", evicted);
+        }
+    }
+}
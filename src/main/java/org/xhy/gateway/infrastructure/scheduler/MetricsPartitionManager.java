@@ -0,0 +1,100 @@
+package org.xhy.gateway.infrastructure.scheduler;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Date;
+import java.time.LocalDate;
+
+/**
+ * 指标表分区管理器
+ * api_instance_metrics 按天范围分区，启动时及每天定时预创建未来的日分区，并按保留期分离删除过期分区。
+ * 分区 DDL 封装在数据库函数中（见 docs/sql/sql.sql），这里只负责按日期调度。
+ *
+ * @author xhy
+ * @since 1.0.0
+ */
+@Component
+@Order(50)
+public class MetricsPartitionManager implements ApplicationRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(MetricsPartitionManager.class);
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * 指标数据保留天数，早于该天数的日分区会被删除
+     */
+    private final int retentionDays;
+
+    /**
+     * 预创建未来分区的天数（不含当天）
+     */
+    private final int premakeDays;
+
+    public MetricsPartitionManager(JdbcTemplate jdbcTemplate,
+                                   @Value("${gateway.metrics.partition.retention-days:30}") int retentionDays,
+                                   @Value("${gateway.metrics.partition.premake-days:3}") int premakeDays) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.retentionDays = retentionDays;
+        this.premakeDays = premakeDays;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        maintainPartitions();
+    }
+
+    /**
+     * 每天定时维护分区
+     */
+    @Scheduled(cron = "${gateway.metrics.partition.cron:0 5 0 * * *}")
+    public void maintainPartitions() {
+        try {
+            LocalDate today = LocalDate.now();
+            int created = premakePartitions(today);
+            int dropped = dropExpiredPartitions(today);
+            logger.info("指标分区维护完成: created={}, dropped={}, retentionDays={}", created, dropped, retentionDays);
+        } catch (Exception e) {
+            // 不抛出异常，未预创建的数据会落入默认分区，下次维护时迁出
+            logger.error("指标分区维护失败", e);
+        }
+    }
+
+    /**
+     * 预创建从当天开始的日分区
+     */
+    private int premakePartitions(LocalDate today) {
+        int created = 0;
+        for (int i = 0; i <= premakeDays; i++) {
+            LocalDate day = today.plusDays(i);
+            Boolean result = jdbcTemplate.queryForObject(
+                    "SELECT ensure_metrics_partition(?)", Boolean.class, Date.valueOf(day));
+            if (Boolean.TRUE.equals(result)) {
+                created++;
+                logger.debug("创建指标日分区: day={}", day);
+            }
+        }
+        return created;
+    }
+
+    /**
+     * 删除超出保留期的日分区
+     */
+    private int dropExpiredPartitions(LocalDate today) {
+        if (retentionDays <= 0) {
+            return 0;
+        }
+        LocalDate before = today.minusDays(retentionDays);
+        Integer dropped = jdbcTemplate.queryForObject(
+                "SELECT drop_expired_metrics_partitions(?)", Integer.class, Date.valueOf(before));
+        return dropped == null ? 0 : dropped;
+    }
+}
@@ -0,0 +1,53 @@
+package org.xhy.gateway.infrastructure.scheduler;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.xhy.gateway.application.service.MetricsRollupAppService;
+import org.xhy.gateway.domain.metrics.entity.MetricsResolution;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * 指标汇总调度器
+ * 定时将已关闭的分钟指标按 5 分钟 → 1 小时 → 1 天逐级汇总
+ *
+ * @author xhy
+ * @since 1.0.0
+ */
+@Component
+public class MetricsRollupScheduler {
+
+    private static final Logger logger = LoggerFactory.getLogger(MetricsRollupScheduler.class);
+
+    private final MetricsRollupAppService metricsRollupAppService;
+
+    /**
+     * 分钟窗口结束后等待的宽限时间，宽限期内仍可能有迟到的上报写入该窗口
+     */
+    private final int graceMinutes;
+
+    public MetricsRollupScheduler(MetricsRollupAppService metricsRollupAppService,
+                                  @Value("${gateway.metrics.rollup.grace-minutes:2}") int graceMinutes) {
+        this.metricsRollupAppService = metricsRollupAppService;
+        this.graceMinutes = graceMinutes;
+    }
+
+    @Scheduled(initialDelayString = "${gateway.metrics.rollup.interval-ms:60000}",
+               fixedDelayString = "${gateway.metrics.rollup.interval-ms:60000}")
+    public void rollup() {
+        LocalDateTime closedBefore = LocalDateTime.now().truncatedTo(ChronoUnit.MINUTES).minusMinutes(graceMinutes);
+        // 按粒度由细到粗执行，粗粒度以细粒度的水位线为边界
+        for (MetricsResolution resolution : MetricsResolution.values()) {
+            try {
+                metricsRollupAppService.rollup(resolution, closedBefore);
+            } catch (Exception e) {
+                logger.error("指标汇总失败: resolution={}", resolution, e);
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package org.xhy.gateway.infrastructure.scheduler;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.xhy.gateway.application.service.MonitoringSnapshotAppService;
+
+/**
+ * 监控快照调度器
+ * 定时刷新管理后台的概览快照
+ *
+ * @author xhy
+ * @since 1.0.0
+ */
+@Component
+public class MonitoringSnapshotScheduler {
+
+    private static final Logger logger = LoggerFactory.getLogger(MonitoringSnapshotScheduler.class);
+
+    private final MonitoringSnapshotAppService monitoringSnapshotAppService;
+
+    public MonitoringSnapshotScheduler(MonitoringSnapshotAppService monitoringSnapshotAppService) {
+        this.monitoringSnapshotAppService = monitoringSnapshotAppService;
+    }
+
+    @Scheduled(initialDelayString = "${gateway.monitoring.snapshot.refresh-interval-ms:15000}",
+               fixedDelayString = "${gateway.monitoring.snapshot.refresh-interval-ms:15000}")
+    public void refresh() {
+        try {
+            monitoringSnapshotAppService.refreshAll();
+        } catch (Exception e) {
+            logger.error("监控快照定时刷新失败", e);
+        }
+    }
+}
@@ -0,0 +1,332 @@
+package org.xhy.gateway.infrastructure.spool;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * 分段的内存映射追加日志
+ * 记录定长，每个分段文件固定容纳 recordsPerSegment 条，写满后切换到新分段；分段内的记录全部确认后删除文件，
+ * 分段数达到上限时拒绝追加，磁盘占用不超过 maxSegments 个分段。
+ * 每条记录带 CRC32 校验，进程崩溃时写了一半的记录在重新打开时被识别并丢弃；已确认位置保存在分段头部。
+ * 写入落在页缓存中，进程崩溃不会丢失，操作系统崩溃只保留最近一次 {@link #force()} 之前的内容。
+ * 删除分段时立即解除映射，不等 GC 回收映射内存；{@link #close()} 之后不能再使用。
+ * 非线程安全，只能由一个线程读写；{@link #getBacklog()} 可以从其他线程读取。
+ *
+ * @author xhy
+ * @since 1.0.0
+ */
+public class SegmentedSpool {
+
+    private static final Logger logger = LoggerFactory.getLogger(SegmentedSpool.class);
+
+    private static final int MAGIC = 0x53504F4C;
+    private static final int HEADER_SIZE = 32;
+    private static final int ACKED_OFFSET = 16;
+    private static final int CRC_SIZE = 4;
+    private static final Pattern SEGMENT_NAME = Pattern.compile("segment-(\\d{20})\\.spool");
+
+    /**
+     * sun.misc.Unsafe#invokeCleaner，用于主动解除映射；不可用时退回由 GC 回收
+     */
+    private static final Object UNSAFE;
+    private static final Method INVOKE_CLEANER;
+
+    static {
+        Object unsafe = null;
+        Method invokeCleaner = null;
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Field field = unsafeClass.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            unsafe = field.get(null);
+            invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            logger.warn("无法主动解除内存映射，删除的日志分段将在 GC 时释放: {}", e.toString());
+        }
+        UNSAFE = unsafe;
+        INVOKE_CLEANER = invokeCleaner;
+    }
+
+    private final Path directory;
+    private final int payloadSize;
+    private final int recordSize;
+    private final int recordsPerSegment;
+    private final int maxSegments;
+
+    /**
+     * 从旧到新排列，最后一个是正在写入的分段
+     */
+    private final ArrayDeque<Segment> segments = new ArrayDeque<>();
+
+    private final ByteBuffer writeScratch;
+    private final ByteBuffer readScratch;
+    private final CRC32 crc = new CRC32();
+
+    private long nextSequence;
+    private volatile long backlog;
+
+    /**
+     * 打开目录中已有的分段，恢复写入位置和确认位置
+     *
+     * @param payloadSize 每条记录的有效载荷字节数
+     * @param recordsPerSegment 每个分段的记录数
+     * @param maxSegments 最多保留的分段数
+     */
+    public SegmentedSpool(Path directory, int payloadSize, int recordsPerSegment, int maxSegments) throws IOException {
+        if (payloadSize <= 0 || recordsPerSegment <= 0 || maxSegments <= 0) {
+            throw new IllegalArgumentException("日志参数不合法");
+        }
+        this.directory = directory;
+        this.payloadSize = payloadSize;
+        this.recordSize = payloadSize + CRC_SIZE;
+        this.recordsPerSegment = recordsPerSegment;
+        this.maxSegments = maxSegments;
+        this.writeScratch = ByteBuffer.allocate(payloadSize);
+        this.readScratch = ByteBuffer.allocate(payloadSize);
+
+        Files.createDirectories(directory);
+        recover();
+        if (segments.isEmpty()) {
+            segments.addLast(createSegment());
+        }
+    }
+
+    /**
+     * 追加一条记录；写入器拒绝编码或分段数已达上限时返回 false
+     */
+    public <A> boolean append(RecordWriter<A> writer, A arg) {
+        Segment active = segments.peekLast();
+        if (active.written == recordsPerSegment) {
+            if (active.acked == active.written) {
+                segments.pollLast();
+                delete(active);
+            } else if (segments.size() >= maxSegments) {
+                return false;
+            } else {
+                active.buffer.force();
+            }
+            try {
+                active = createSegment();
+            } catch (IOException e) {
+                logger.error("创建日志分段失败: dir={}", directory, e);
+                return false;
+            }
+            segments.addLast(active);
+        }
+
+        writeScratch.clear();
+        if (!writer.write(writeScratch, arg)) {
+            return false;
+        }
+        crc.reset();
+        crc.update(writeScratch.array(), 0, payloadSize);
+        int offset = HEADER_SIZE + active.written * recordSize;
+        // 先写载荷再写校验和，写到一半的记录校验不通过
+        active.buffer.put(offset + CRC_SIZE, writeScratch.array(), 0, payloadSize);
+        active.buffer.putInt(offset, (int) crc.getValue());
+        active.written++;
+        backlog++;
+        return true;
+    }
+
+    /**
+     * 读取最早一条未确认的记录，没有时返回 false
+     */
+    public <A> boolean peek(RecordReader<A> reader, A target) {
+        Segment oldest = oldestWithBacklog();
+        if (oldest == null) {
+            return false;
+        }
+        int offset = HEADER_SIZE + oldest.acked * recordSize;
+        oldest.buffer.get(offset + CRC_SIZE, readScratch.array(), 0, payloadSize);
+        readScratch.clear();
+        reader.read(readScratch, target);
+        return true;
+    }
+
+    /**
+     * 确认最早一条未确认的记录，分段全部确认后删除
+     */
+    public void acknowledge() {
+        Segment oldest = oldestWithBacklog();
+        if (oldest == null) {
+            return;
+        }
+        oldest.acked++;
+        oldest.buffer.putLong(ACKED_OFFSET, oldest.acked);
+        backlog--;
+        if (oldest.acked == recordsPerSegment && oldest != segments.peekLast()) {
+            segments.pollFirst();
+            delete(oldest);
+        }
+    }
+
+    /**
+     * 已写入未确认的记录数
+     */
+    public long getBacklog() {
+        return backlog;
+    }
+
+    /**
+     * 把映射内容刷到磁盘
+     */
+    public void force() {
+        for (Segment segment : segments) {
+            segment.buffer.force();
+        }
+    }
+
+    /**
+     * 刷盘并解除所有分段的映射，未确认的记录留在文件中，下次打开时恢复
+     */
+    public void close() {
+        force();
+        for (Segment segment : segments) {
+            unmap(segment.buffer);
+        }
+        segments.clear();
+    }
+
+    private Segment oldestWithBacklog() {
+        Segment oldest = segments.peekFirst();
+        while (oldest != null && oldest.acked == oldest.written) {
+            if (oldest == segments.peekLast()) {
+                return null;
+            }
+            segments.pollFirst();
+            delete(oldest);
+            oldest = segments.peekFirst();
+        }
+        return oldest;
+    }
+
+    private void recover() throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (Stream<Path> stream = Files.list(directory)) {
+            stream.filter(path -> SEGMENT_NAME.matcher(path.getFileName().toString()).matches()).forEach(files::add);
+        }
+        files.sort(Comparator.comparing(path -> path.getFileName().toString()));
+
+        long recovered = 0;
+        for (Path file : files) {
+            Matcher matcher = SEGMENT_NAME.matcher(file.getFileName().toString());
+            matcher.matches();
+            long sequence = Long.parseLong(matcher.group(1));
+            nextSequence = Math.max(nextSequence, sequence + 1);
+
+            MappedByteBuffer buffer = map(file);
+            if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != recordSize || buffer.getInt(8) != recordsPerSegment) {
+                logger.warn("日志分段格式不匹配，已跳过: {}", file);
+                unmap(buffer);
+                Files.move(file, file.resolveSibling(file.getFileName() + ".corrupt"));
+                continue;
+            }
+            Segment segment = new Segment(file, buffer);
+            segment.acked = (int) Math.min(buffer.getLong(ACKED_OFFSET), recordsPerSegment);
+            segment.written = segment.acked;
+            while (segment.written < recordsPerSegment && isValid(segment, segment.written)) {
+                segment.written++;
+            }
+            recovered += segment.written - segment.acked;
+            segments.addLast(segment);
+        }
+        backlog = recovered;
+        if (recovered > 0) {
+            logger.info("恢复未确认的日志记录: dir={}, segments={}, records={}", directory, segments.size(), recovered);
+        }
+    }
+
+    private boolean isValid(Segment segment, int index) {
+        int offset = HEADER_SIZE + index * recordSize;
+        segment.buffer.get(offset + CRC_SIZE, readScratch.array(), 0, payloadSize);
+        crc.reset();
+        crc.update(readScratch.array(), 0, payloadSize);
+        return segment.buffer.getInt(offset) == (int) crc.getValue();
+    }
+
+    private Segment createSegment() throws IOException {
+        long sequence = nextSequence++;
+        Path file = directory.resolve(String.format("segment-%020d.spool", sequence));
+        MappedByteBuffer buffer = map(file);
+        buffer.putInt(0, MAGIC);
+        buffer.putInt(4, recordSize);
+        buffer.putInt(8, recordsPerSegment);
+        buffer.putLong(ACKED_OFFSET, 0);
+        return new Segment(file, buffer);
+    }
+
+    private MappedByteBuffer map(Path file) throws IOException {
+        long size = HEADER_SIZE + (long) recordSize * recordsPerSegment;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+    }
+
+    private void delete(Segment segment) {
+        unmap(segment.buffer);
+        try {
+            Files.deleteIfExists(segment.path);
+        } catch (IOException e) {
+            logger.warn("删除日志分段失败: {}", segment.path, e);
+        }
+    }
+
+    private static void unmap(MappedByteBuffer buffer) {
+        if (INVOKE_CLEANER == null) {
+            return;
+        }
+        try {
+            INVOKE_CLEANER.invoke(UNSAFE, buffer);
+        } catch (ReflectiveOperationException e) {
+            logger.warn("解除内存映射失败: {}", e.toString());
+        }
+    }
+
+    /**
+     * 把一条记录编码到缓冲区，缓冲区大小等于载荷大小；无法编码时返回 false
+     */
+    @FunctionalInterface
+    public interface RecordWriter<A> {
+        boolean write(ByteBuffer buffer, A arg);
+    }
+
+    /**
+     * 从缓冲区解码一条记录
+     */
+    @FunctionalInterface
+    public interface RecordReader<A> {
+        void read(ByteBuffer buffer, A target);
+    }
+
+    private static final class Segment {
+        private final Path path;
+        private final MappedByteBuffer buffer;
+        private int written;
+        private int acked;
+
+        private Segment(Path path, MappedByteBuffer buffer) {
+            this.path = path;
+            this.buffer = buffer;
+        }
+    }
+}
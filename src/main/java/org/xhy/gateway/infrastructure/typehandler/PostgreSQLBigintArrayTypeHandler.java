@@ -0,0 +1,54 @@
+package org.xhy.gateway.infrastructure.typehandler;
+
+import org.apache.ibatis.type.BaseTypeHandler;
+import org.apache.ibatis.type.JdbcType;
+import org.apache.ibatis.type.MappedTypes;
+
+import java.sql.*;
+
+/**
+ * PostgreSQL BIGINT[] 类型处理器
+ * 处理 PostgreSQL 的 bigint 数组与 Java long[] 之间的转换，用于按枚举序号存放的计数数组
+ *
+ * @author xhy
+ * @since 1.0.0
+ */
+@MappedTypes({long[].class})
+public class PostgreSQLBigintArrayTypeHandler extends BaseTypeHandler<long[]> {
+
+    @Override
+    public void setNonNullParameter(PreparedStatement ps, int i, long[] parameter, JdbcType jdbcType) throws SQLException {
+        Long[] boxed = new Long[parameter.length];
+        for (int j = 0; j < parameter.length; j++) {
+            boxed[j] = parameter[j];
+        }
+        ps.setArray(i, ps.getConnection().createArrayOf("bigint", boxed));
+    }
+
+    @Override
+    public long[] getNullableResult(ResultSet rs, String columnName) throws SQLException {
+        return toLongArray(rs.getArray(columnName));
+    }
+
+    @Override
+    public long[] getNullableResult(ResultSet rs, int columnIndex) throws SQLException {
+        return toLongArray(rs.getArray(columnIndex));
+    }
+
+    @Override
+    public long[] getNullableResult(CallableStatement cs, int columnIndex) throws SQLException {
+        return toLongArray(cs.getArray(columnIndex));
+    }
+
+    private long[] toLongArray(Array array) throws SQLException {
+        if (array == null) {
+            return null;
+        }
+        Object[] values = (Object[]) array.getArray();
+        long[] result = new long[values.length];
+        for (int i = 0; i < values.length; i++) {
+            result[i] = values[i] == null ? 0 : ((Number) values[i]).longValue();
+        }
+        return result;
+    }
+}
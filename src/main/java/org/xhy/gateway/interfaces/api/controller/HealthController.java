@@ -3,6 +3,7 @@ package org.xhy.gateway.interfaces.api.controller;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.xhy.gateway.application.service.DiagnosticsAppService;
 import org.xhy.gateway.interfaces.api.common.Result;
 
 import java.time.LocalDateTime;
@@ -19,18 +20,28 @@ import java.util.Map;
 @RequestMapping("/health")
 public class HealthController {
 
+    private final DiagnosticsAppService diagnosticsAppService;
+
+    public HealthController(DiagnosticsAppService diagnosticsAppService) {
+        this.diagnosticsAppService = diagnosticsAppService;
+    }
+
     /**
      * 健康检查接口（不需要API Key）
+     * 数据库不可用时状态为 DEGRADED：实例选择仍由内存快照提供，上报暂存本地日志
+     * 这里只给出状态，降级的详细信息（含数据库错误）见 /admin/diagnostics/degraded-mode
      */
     @GetMapping
     public Result<Map<String, Object>> health() {
+        boolean degraded = diagnosticsAppService.isDegraded();
+
         Map<String, Object> healthInfo = new HashMap<>();
-        healthInfo.put("status", "UP");
+        healthInfo.put("status", degraded ? "DEGRADED" : "UP");
         healthInfo.put("service", "API Premium Gateway");
         healthInfo.put("timestamp", LocalDateTime.now());
         healthInfo.put("version", "1.0.0");
         
-        return Result.success("服务运行正常", healthInfo);
+        return Result.success(degraded ? "服务降级运行：数据库不可用，路由使用内存快照" : "服务运行正常", healthInfo);
     }
 
     /**
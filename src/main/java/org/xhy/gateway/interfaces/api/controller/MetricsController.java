@@ -0,0 +1,37 @@
+package org.xhy.gateway.interfaces.api.controller;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.xhy.gateway.application.service.MetricsExpositionAppService;
+import org.xhy.gateway.infrastructure.metrics.OpenMetricsWriter;
+
+/**
+ * 指标导出控制器
+ * 供 Prometheus 抓取，返回 OpenMetrics 文本而不是统一的 Result 包装
+ *
+ * @author xhy
+ * @since 1.0.0
+ */
+@RestController
+@RequestMapping("/metrics")
+public class MetricsController {
+
+    private final MetricsExpositionAppService metricsExpositionAppService;
+
+    public MetricsController(MetricsExpositionAppService metricsExpositionAppService) {
+        this.metricsExpositionAppService = metricsExpositionAppService;
+    }
+
+    /**
+     * 导出网关运行指标（不需要API Key）
+     */
+    @GetMapping
+    public ResponseEntity<String> scrape() {
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_TYPE, OpenMetricsWriter.CONTENT_TYPE)
+                .body(metricsExpositionAppService.scrape());
+    }
+}
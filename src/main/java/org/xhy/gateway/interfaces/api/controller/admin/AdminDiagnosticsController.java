@@ -0,0 +1,57 @@
+package org.xhy.gateway.interfaces.api.controller.admin;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.bind.annotation.*;
+import org.xhy.gateway.application.dto.DegradedModeDTO;
+import org.xhy.gateway.application.dto.StageTimingDTO;
+import org.xhy.gateway.application.service.DiagnosticsAppService;
+import org.xhy.gateway.interfaces.api.common.Result;
+
+import java.util.List;
+
+/**
+ * 诊断控制器 - 内部管理接口
+ * 提供热路径耗时等性能排查数据和降级模式详情，不需要API Key校验
+ *
+ * @author xhy
+ * @since 1.0.0
+ */
+@RestController
+@RequestMapping("/admin/diagnostics")
+public class AdminDiagnosticsController {
+
+    private static final Logger logger = LoggerFactory.getLogger(AdminDiagnosticsController.class);
+
+    private final DiagnosticsAppService diagnosticsAppService;
+
+    public AdminDiagnosticsController(DiagnosticsAppService diagnosticsAppService) {
+        this.diagnosticsAppService = diagnosticsAppService;
+    }
+
+    /**
+     * 获取降级模式详情：数据库不可用的起始时间和最近一次错误、路由快照条目数、本地日志中待写入的上报数
+     */
+    @GetMapping("/degraded-mode")
+    public Result<DegradedModeDTO> getDegradedMode() {
+        return Result.success("降级模式状态获取成功", diagnosticsAppService.getDegradedMode());
+    }
+
+    /**
+     * 获取选择和上报各阶段的耗时分位数（p50/p99/p999，单位微秒）
+     */
+    @GetMapping("/stage-timings")
+    public Result<List<StageTimingDTO>> getStageTimings() {
+        return Result.success("阶段耗时获取成功", diagnosticsAppService.getStageTimings());
+    }
+
+    /**
+     * 清空阶段耗时统计
+     */
+    @PostMapping("/stage-timings/reset")
+    public Result<Void> resetStageTimings() {
+        logger.info("管理后台清空阶段耗时统计");
+        diagnosticsAppService.resetStageTimings();
+        return Result.success("阶段耗时已清空", null);
+    }
+}
@@ -7,6 +7,7 @@ import org.springframework.web.bind.annotation.*;
 import org.xhy.gateway.application.dto.InstanceObservationDTO;
 import org.xhy.gateway.application.dto.ObservationOverviewDTO;
 import org.xhy.gateway.application.service.InstanceObservationAppService;
+import org.xhy.gateway.application.service.MonitoringSnapshotAppService;
 import org.xhy.gateway.interfaces.api.common.Result;
 import org.xhy.gateway.interfaces.api.request.monitoring.InstanceObservationRequest;
 
@@ -28,20 +29,23 @@ public class AdminInstanceObservationController {
     private static final Logger logger = LoggerFactory.getLogger(AdminInstanceObservationController.class);
 
     private final InstanceObservationAppService instanceObservationAppService;
+    private final MonitoringSnapshotAppService monitoringSnapshotAppService;
 
-    public AdminInstanceObservationController(InstanceObservationAppService instanceObservationAppService) {
+    public AdminInstanceObservationController(InstanceObservationAppService instanceObservationAppService,
+                                              MonitoringSnapshotAppService monitoringSnapshotAppService) {
         this.instanceObservationAppService = instanceObservationAppService;
+        this.monitoringSnapshotAppService = monitoringSnapshotAppService;
     }
 
     /**
      * 获取观测概览数据
-     * 用于页面顶部的统计卡片展示
+     * 用于页面顶部的统计卡片展示，读取后台定时计算的快照
      */
     @GetMapping("/overview")
     public Result<ObservationOverviewDTO> getObservationOverview(@Valid InstanceObservationRequest request) {
         logger.info("管理后台获取观测概览数据，请求参数: {}", request);
         
-        ObservationOverviewDTO result = instanceObservationAppService.getObservationOverview(request);
+        ObservationOverviewDTO result = monitoringSnapshotAppService.getObservationOverview(request);
         
         return Result.success("观测概览数据获取成功", result);
     }
@@ -2,11 +2,15 @@ package org.xhy.gateway.interfaces.api.controller.admin;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import org.xhy.gateway.application.dto.ApiInstanceMonitoringDTO;
 import org.xhy.gateway.application.dto.MonitoringOverviewDTO;
 import org.xhy.gateway.application.dto.TimeSeriesDTO;
+import org.xhy.gateway.application.service.LiveMetricsStreamAppService;
 import org.xhy.gateway.application.service.MonitoringAppService;
+import org.xhy.gateway.application.service.MonitoringSnapshotAppService;
 import org.xhy.gateway.domain.apiinstance.entity.ApiInstanceStatus;
 import org.xhy.gateway.domain.metrics.entity.GatewayStatus;
 import org.xhy.gateway.interfaces.api.common.Result;
@@ -27,21 +31,27 @@ public class AdminMonitoringController {
     private static final Logger logger = LoggerFactory.getLogger(AdminMonitoringController.class);
 
     private final MonitoringAppService monitoringAppService;
+    private final MonitoringSnapshotAppService monitoringSnapshotAppService;
+    private final LiveMetricsStreamAppService liveMetricsStreamAppService;
 
-    public AdminMonitoringController(MonitoringAppService monitoringAppService) {
+    public AdminMonitoringController(MonitoringAppService monitoringAppService,
+                                     MonitoringSnapshotAppService monitoringSnapshotAppService,
+                                     LiveMetricsStreamAppService liveMetricsStreamAppService) {
         this.monitoringAppService = monitoringAppService;
+        this.monitoringSnapshotAppService = monitoringSnapshotAppService;
+        this.liveMetricsStreamAppService = liveMetricsStreamAppService;
     }
 
     /**
      * 获取监控概览数据
-     * 包含总实例数、健康实例数、平均成功率、平均延迟等核心指标
+     * 包含总实例数、健康实例数、平均成功率、平均延迟等核心指标，读取后台定时计算的快照
      */
     @GetMapping("/overview")
     public Result<MonitoringOverviewDTO> getMonitoringOverview(
             @RequestParam(required = false) String projectId) {
         logger.info("管理后台获取监控概览数据，项目ID: {}", projectId);
         
-        MonitoringOverviewDTO result = monitoringAppService.getMonitoringOverview(projectId);
+        MonitoringOverviewDTO result = monitoringSnapshotAppService.getMonitoringOverview(projectId);
         
         return Result.success("监控概览数据获取成功", result);
     }
@@ -86,6 +96,16 @@ public class AdminMonitoringController {
         return Result.success("实例监控列表获取成功", result);
     }
 
+    /**
+     * 订阅实例实时指标（Server-Sent Events）
+     * 连接建立后先推送一次全量 snapshot 事件，之后每秒推送一次发生变化的实例（delta 事件）
+     */
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamLiveMetrics() {
+        logger.info("管理后台订阅实时指标推送");
+        return liveMetricsStreamAppService.subscribe();
+    }
+
     /**
      * 获取时间序列数据
      * 用于监控图表展示
@@ -108,14 +128,13 @@ public class AdminMonitoringController {
 
     /**
      * 刷新监控数据
-     * 用于手动触发数据刷新
+     * 用于手动触发快照刷新，不指定项目时刷新全部快照
      */
     @PostMapping("/refresh")
     public Result<Void> refreshMonitoringData(@RequestParam(required = false) String projectId) {
         logger.info("管理后台手动刷新监控数据，项目ID: {}", projectId);
         
-        // 这里可以添加缓存清理或数据刷新逻辑
-        // 目前直接返回成功，因为数据是实时查询的
+        monitoringSnapshotAppService.refresh(projectId);
         
         return Result.success("监控数据刷新成功", null);
     }
@@ -81,6 +81,19 @@ public class AdminProjectController {
         return Result.success("项目状态查询成功", projects);
     }
 
+    /**
+     * 变更项目状态（ACTIVE / INACTIVE）
+     * 停用的项目立即无法通过 API Key 认证
+     */
+    @PutMapping("/{projectId}/status")
+    public Result<ProjectDTO> changeProjectStatus(@PathVariable String projectId, @RequestParam String status) {
+        logger.warn("管理后台变更项目状态，项目ID: {}，状态: {}", projectId, status);
+
+        ProjectDTO project = projectAppService.changeProjectStatus(projectId, status);
+
+        return Result.success("项目状态变更成功", project);
+    }
+
     /**
      * 删除项目（管理员权限）
      * 注意：删除项目会同时删除相关的API实例和指标数据
@@ -1,11 +1,18 @@
 package org.xhy.gateway.interfaces.api.controller.external;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 import org.xhy.gateway.application.dto.ApiInstanceDTO;
+import org.xhy.gateway.application.dto.ApiInstanceImportProgressDTO;
+import org.xhy.gateway.application.dto.ReconciliationResultDTO;
 import org.xhy.gateway.application.service.ApiInstanceAppService;
+import org.xhy.gateway.application.service.ApiInstanceImportAppService;
+import org.xhy.gateway.domain.apiinstance.entity.ApiInstanceStatus;
 import org.xhy.gateway.domain.apiinstance.entity.ApiType;
 import org.xhy.gateway.infrastructure.context.ApiContext;
 import org.xhy.gateway.interfaces.api.common.Result;
@@ -13,8 +20,13 @@ import org.xhy.gateway.interfaces.api.request.api_instance.ApiInstanceCreateRequ
 import org.xhy.gateway.interfaces.api.request.api_instance.ApiInstanceUpdateRequest;
 import org.xhy.gateway.interfaces.api.request.api_instance.ApiInstanceBatchCreateRequest;
 import org.xhy.gateway.interfaces.api.request.api_instance.ApiInstanceBatchDeleteRequest;
+import org.xhy.gateway.interfaces.api.request.api_instance.ApiInstanceBulkStatusRequest;
+import org.xhy.gateway.interfaces.api.request.api_instance.ApiInstanceDesiredStateRequest;
 
 import jakarta.validation.Valid;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.util.List;
 
 /**
@@ -31,10 +43,18 @@ public class ApiInstanceController {
 
     private static final Logger logger = LoggerFactory.getLogger(ApiInstanceController.class);
 
+    private static final String NDJSON = "application/x-ndjson";
+
     private final ApiInstanceAppService apiInstanceAppService;
+    private final ApiInstanceImportAppService apiInstanceImportAppService;
+    private final ObjectMapper objectMapper;
 
-    public ApiInstanceController(ApiInstanceAppService apiInstanceAppService) {
+    public ApiInstanceController(ApiInstanceAppService apiInstanceAppService,
+                                 ApiInstanceImportAppService apiInstanceImportAppService,
+                                 ObjectMapper objectMapper) {
         this.apiInstanceAppService = apiInstanceAppService;
+        this.apiInstanceImportAppService = apiInstanceImportAppService;
+        this.objectMapper = objectMapper;
     }
 
     /**
@@ -76,6 +96,51 @@ public class ApiInstanceController {
         return Result.success("批量API实例创建成功", result);
     }
 
+    /**
+     * 流式导入API实例
+     * 请求体为 NDJSON，每行一个实例，边读边按分块 upsert：不存在的新建，已存在的更新配置（状态不变）。
+     * 响应同样是 NDJSON，每提交一个分块输出一行进度，最后一行 finished 为 true
+     */
+    @PostMapping(value = "/import", consumes = NDJSON, produces = NDJSON)
+    public void importApiInstances(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        String projectId = ApiContext.getProjectId();
+        logger.info("接收到流式导入API实例请求，项目ID: {}", projectId);
+
+        response.setContentType(NDJSON);
+        response.setCharacterEncoding("UTF-8");
+        OutputStream output = response.getOutputStream();
+        apiInstanceImportAppService.importInstances(request.getInputStream(), projectId, progress -> {
+            try {
+                writeProgressLine(output, progress);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    private void writeProgressLine(OutputStream output, ApiInstanceImportProgressDTO progress) throws IOException {
+        output.write(objectMapper.writeValueAsBytes(progress));
+        output.write('\n');
+        output.flush();
+    }
+
+    /**
+     * 按期望状态同步API实例
+     * 提交某一类 API 的完整实例集合，网关一次事务内完成新建、更新、重新激活和多出实例的停用或删除
+     */
+    @PutMapping("/desired-state")
+    public Result<ReconciliationResultDTO> reconcileApiInstances(@Validated @RequestBody ApiInstanceDesiredStateRequest request) {
+        String projectId = ApiContext.getProjectId();
+        logger.info("接收到期望状态同步请求，项目ID: {}，API类型: {}，期望实例数量: {}",
+                projectId, request.getApiType(), request.getInstances().size());
+
+        ReconciliationResultDTO result = apiInstanceAppService.reconcileApiInstances(projectId, request);
+
+        logger.info("期望状态同步完成，新建: {}，更新: {}，重新激活: {}，移除: {}",
+                result.getCreated(), result.getUpdated(), result.getReactivated(), result.getRemoved());
+        return Result.success("期望状态同步成功", result);
+    }
+
     /**
      * 批量删除API实例
      * 使用方通过API Key批量删除不再需要的API实例
@@ -171,4 +236,40 @@ public class ApiInstanceController {
         logger.info("API实例标记为已弃用成功，实例ID: {}", result.getId());
         return Result.success("API实例标记为已弃用成功", result);
     }
-} 
\ No newline at end of file
+
+    /**
+     * 批量激活API实例
+     * 按业务ID列表、API标识符或元数据标签筛选，一条语句完成
+     */
+    @PostMapping("/bulk/activate")
+    public Result<Integer> bulkActivateApiInstances(@Validated @RequestBody ApiInstanceBulkStatusRequest request) {
+        return bulkChangeStatus(request, ApiInstanceStatus.ACTIVE, "批量激活");
+    }
+
+    /**
+     * 批量停用API实例
+     * 例如按 metadata 中的 region 标签摘除整个地域
+     */
+    @PostMapping("/bulk/deactivate")
+    public Result<Integer> bulkDeactivateApiInstances(@Validated @RequestBody ApiInstanceBulkStatusRequest request) {
+        return bulkChangeStatus(request, ApiInstanceStatus.INACTIVE, "批量停用");
+    }
+
+    /**
+     * 批量标记API实例为已弃用
+     */
+    @PostMapping("/bulk/deprecate")
+    public Result<Integer> bulkDeprecateApiInstances(@Validated @RequestBody ApiInstanceBulkStatusRequest request) {
+        return bulkChangeStatus(request, ApiInstanceStatus.DEPRECATED, "批量弃用");
+    }
+
+    private Result<Integer> bulkChangeStatus(ApiInstanceBulkStatusRequest request, ApiInstanceStatus status, String action) {
+        String projectId = ApiContext.getProjectId();
+        logger.info("接收到{}API实例请求，项目ID: {}，API类型: {}", action, projectId, request.getApiType());
+
+        int updated = apiInstanceAppService.bulkChangeStatus(projectId, request, status);
+
+        logger.info("{}API实例完成，变更数量: {}", action, updated);
+        return Result.success(action + "API实例成功", updated);
+    }
+}
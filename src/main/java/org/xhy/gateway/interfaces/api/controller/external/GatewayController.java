@@ -4,6 +4,7 @@ import jakarta.validation.Valid;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.web.bind.annotation.*;
+import org.xhy.gateway.application.service.ReportIngestionAppService;
 import org.xhy.gateway.application.service.SelectionAppService;
 import org.xhy.gateway.application.dto.ApiInstanceDTO;
 import org.xhy.gateway.interfaces.api.common.Result;
@@ -25,9 +26,12 @@ public class GatewayController {
     private static final Logger logger = LoggerFactory.getLogger(GatewayController.class);
 
     private final SelectionAppService selectionAppService;
+    private final ReportIngestionAppService reportIngestionAppService;
 
-    public GatewayController(SelectionAppService selectionAppService) {
+    public GatewayController(SelectionAppService selectionAppService,
+                             ReportIngestionAppService reportIngestionAppService) {
         this.selectionAppService = selectionAppService;
+        this.reportIngestionAppService = reportIngestionAppService;
     }
 
     /**
@@ -58,7 +62,7 @@ public class GatewayController {
 
     /**
      * 上报API调用结果
-     * 用于更新实例指标和健康状态
+     * 用于更新实例指标和健康状态，入队后立即返回，指标由后台线程异步记录
      * 需要API Key校验
      */
     @PostMapping("/report-result")
@@ -68,9 +72,9 @@ public class GatewayController {
 
         String projectId = ApiContext.getProjectId();
 
-        selectionAppService.reportCallResult(request,projectId);
+        reportIngestionAppService.submit(request, projectId);
 
-        logger.debug("调用结果上报成功");
+        logger.debug("调用结果上报已入队");
         return Result.success("调用结果上报成功", null);
     }
 } 
\ No newline at end of file
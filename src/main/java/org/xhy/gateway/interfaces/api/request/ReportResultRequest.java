@@ -2,6 +2,7 @@ package org.xhy.gateway.interfaces.api.request;
 
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
 
 import java.util.Map;
 
@@ -56,6 +57,7 @@ public class ReportResultRequest {
     /**
      * 使用指标，可选
      * 例如：{"promptTokens": 100, "completionTokens": 200, "totalCost": 0.003}
+     * 只有 token 数和费用会按时间窗口累加，其他键会被忽略
      */
     private Map<String, Object> usageMetrics;
 
@@ -65,6 +67,13 @@ public class ReportResultRequest {
     @NotNull(message = "调用时间戳不能为空")
     private Long callTimestamp;
 
+    /**
+     * 幂等键，可选
+     * 同一次调用重试上报时保持不变，重复的上报会被直接忽略
+     */
+    @Size(max = 128, message = "幂等键长度不能超过128")
+    private String idempotencyKey;
+
     public ReportResultRequest() {
     }
 
@@ -142,6 +151,14 @@ public class ReportResultRequest {
         this.callTimestamp = callTimestamp;
     }
 
+    public String getIdempotencyKey() {
+        return idempotencyKey;
+    }
+
+    public void setIdempotencyKey(String idempotencyKey) {
+        this.idempotencyKey = idempotencyKey;
+    }
+
     @Override
     public String toString() {
         return "ReportResultRequest{" +
@@ -153,6 +170,7 @@ public class ReportResultRequest {
                 ", errorMessage='" + errorMessage + '\'' +
                 ", errorType='" + errorType + '\'' +
                 ", callTimestamp=" + callTimestamp +
+                ", idempotencyKey='" + idempotencyKey + '\'' +
                 '}';
     }
 } 
\ No newline at end of file
@@ -1,6 +1,7 @@
 package org.xhy.gateway.interfaces.api.request;
 
 import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.PositiveOrZero;
 import java.util.List;
 
 /**
@@ -48,6 +49,13 @@ public class SelectInstanceRequest {
      */
     private List<String> fallbackChain;
 
+    /**
+     * 预计消耗的 token 数，可选
+     * 供 token_aware 策略判断实例的 TPM 余量是否足够
+     */
+    @PositiveOrZero(message = "预计token数不能为负数")
+    private Long expectedTokens;
+
     public SelectInstanceRequest() {
     }
 
@@ -99,6 +107,14 @@ public class SelectInstanceRequest {
         this.fallbackChain = fallbackChain;
     }
 
+    public Long getExpectedTokens() {
+        return expectedTokens;
+    }
+
+    public void setExpectedTokens(Long expectedTokens) {
+        this.expectedTokens = expectedTokens;
+    }
+
     /**
      * 检查是否有亲和性要求
      */
@@ -123,6 +139,7 @@ public class SelectInstanceRequest {
                 ", affinityKey='" + affinityKey + '\'' +
                 ", affinityType='" + affinityType + '\'' +
                 ", fallbackChain=" + fallbackChain +
+                ", expectedTokens=" + expectedTokens +
                 '}';
     }
 } 
\ No newline at end of file
@@ -0,0 +1,70 @@
+package org.xhy.gateway.interfaces.api.request.api_instance;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * API实例批量状态变更请求
+ * 在指定 API 类型下按业务ID列表、API标识符、元数据标签筛选实例，多个条件同时生效，至少提供一个
+ *
+ * @author xhy
+ * @since 1.0.0
+ */
+public class ApiInstanceBulkStatusRequest {
+
+    @NotBlank(message = "API类型不能为空")
+    private String apiType;
+
+    /**
+     * 业务ID列表
+     */
+    @Size(max = 10000, message = "业务ID列表最多10000个")
+    private List<String> businessIds;
+
+    /**
+     * API标识符，如 "gpt4o"
+     */
+    private String apiIdentifier;
+
+    /**
+     * 元数据标签，实例 metadata 中对应键的值需全部相等，如 {"region": "us-east-1"}
+     */
+    private Map<String, String> metadataLabels;
+
+    public ApiInstanceBulkStatusRequest() {}
+
+    public String getApiType() {
+        return apiType;
+    }
+
+    public void setApiType(String apiType) {
+        this.apiType = apiType;
+    }
+
+    public List<String> getBusinessIds() {
+        return businessIds;
+    }
+
+    public void setBusinessIds(List<String> businessIds) {
+        this.businessIds = businessIds;
+    }
+
+    public String getApiIdentifier() {
+        return apiIdentifier;
+    }
+
+    public void setApiIdentifier(String apiIdentifier) {
+        this.apiIdentifier = apiIdentifier;
+    }
+
+    public Map<String, String> getMetadataLabels() {
+        return metadataLabels;
+    }
+
+    public void setMetadataLabels(Map<String, String> metadataLabels) {
+        this.metadataLabels = metadataLabels;
+    }
+}
@@ -0,0 +1,128 @@
+package org.xhy.gateway.interfaces.api.request.api_instance;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Pattern;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * API实例期望状态请求
+ * 描述某一类 API 在项目下应当存在的完整实例集合，网关据此新建、更新、重新激活，并处理多出的实例
+ *
+ * @author xhy
+ * @since 1.0.0
+ */
+public class ApiInstanceDesiredStateRequest {
+
+    @NotBlank(message = "API类型不能为空")
+    private String apiType;
+
+    /**
+     * 期望存在的全部实例，为空列表表示该类型下不应再有活跃实例
+     */
+    @NotNull(message = "期望实例列表不能为空")
+    @Valid
+    private List<DesiredInstance> instances;
+
+    /**
+     * 注册表中多出的实例如何处理：DEACTIVATE（停用，默认）或 DELETE（删除）
+     */
+    @Pattern(regexp = "DEACTIVATE|DELETE", message = "多出实例的处理方式只能是 DEACTIVATE 或 DELETE")
+    private String absentAction;
+
+    public ApiInstanceDesiredStateRequest() {}
+
+    public String getApiType() {
+        return apiType;
+    }
+
+    public void setApiType(String apiType) {
+        this.apiType = apiType;
+    }
+
+    public List<DesiredInstance> getInstances() {
+        return instances;
+    }
+
+    public void setInstances(List<DesiredInstance> instances) {
+        this.instances = instances;
+    }
+
+    public String getAbsentAction() {
+        return absentAction;
+    }
+
+    public void setAbsentAction(String absentAction) {
+        this.absentAction = absentAction;
+    }
+
+    /**
+     * 是否删除多出的实例
+     */
+    public boolean isDeleteAbsent() {
+        return "DELETE".equals(absentAction);
+    }
+
+    /**
+     * 期望的实例
+     */
+    public static class DesiredInstance {
+
+        private String userId;
+
+        @NotBlank(message = "API标识符不能为空")
+        private String apiIdentifier;
+
+        @NotBlank(message = "业务ID不能为空")
+        private String businessId;
+
+        private Map<String, Object> routingParams;
+
+        private Map<String, Object> metadata;
+
+        public DesiredInstance() {}
+
+        public String getUserId() {
+            return userId;
+        }
+
+        public void setUserId(String userId) {
+            this.userId = userId;
+        }
+
+        public String getApiIdentifier() {
+            return apiIdentifier;
+        }
+
+        public void setApiIdentifier(String apiIdentifier) {
+            this.apiIdentifier = apiIdentifier;
+        }
+
+        public String getBusinessId() {
+            return businessId;
+        }
+
+        public void setBusinessId(String businessId) {
+            this.businessId = businessId;
+        }
+
+        public Map<String, Object> getRoutingParams() {
+            return routingParams;
+        }
+
+        public void setRoutingParams(Map<String, Object> routingParams) {
+            this.routingParams = routingParams;
+        }
+
+        public Map<String, Object> getMetadata() {
+            return metadata;
+        }
+
+        public void setMetadata(Map<String, Object> metadata) {
+            this.metadata = metadata;
+        }
+    }
+}
@@ -78,7 +78,9 @@ const app = createApp({
                 gatewayStatus: ''
             },
             autoRefreshPaused: false,
-            autoRefreshTimer: null
+            autoRefreshTimer: null,
+            liveMetricsSource: null,
+            liveMetricsById: {}
 
         };
     },
@@ -626,6 +628,7 @@ const app = createApp({
             if (this.autoRefreshTimer) {
                 clearInterval(this.autoRefreshTimer);
             }
+            this.startLiveMetrics();
             
             this.autoRefreshTimer = setInterval(() => {
                 if (!this.autoRefreshPaused && this.activeMenu === 'monitoring') {
@@ -641,6 +644,54 @@ const app = createApp({
                 clearInterval(this.autoRefreshTimer);
                 this.autoRefreshTimer = null;
             }
+            this.stopLiveMetrics();
+        },
+        
+        // 订阅实例实时指标（SSE），状态变化每秒推送，不再依赖轮询
+        startLiveMetrics() {
+            this.stopLiveMetrics();
+            if (!window.EventSource) {
+                return;
+            }
+            const source = new EventSource(`${API_BASE_URL}/admin/monitoring/stream`);
+            // 每次（重新）连接都会先收到全量数据，之后只收到变化的实例
+            source.addEventListener('snapshot', (event) => {
+                this.liveMetricsById = {};
+                this.applyLiveMetrics(JSON.parse(event.data));
+            });
+            source.addEventListener('delta', (event) => this.applyLiveMetrics(JSON.parse(event.data)));
+            source.onerror = () => console.warn('实时指标连接中断，浏览器将自动重连');
+            this.liveMetricsSource = source;
+        },
+        
+        // 关闭实时指标订阅
+        stopLiveMetrics() {
+            if (this.liveMetricsSource) {
+                this.liveMetricsSource.close();
+                this.liveMetricsSource = null;
+            }
+            this.liveMetricsById = {};
+        },
+        
+        // 将推送的实时指标合并到观测列表（调用量、成功率、延迟仍以所选时间窗口为准）
+        applyLiveMetrics(event) {
+            (event.instances || []).forEach(item => { this.liveMetricsById[item.instanceId] = item; });
+            (event.removed || []).forEach(id => { delete this.liveMetricsById[id]; });
+            if (this.autoRefreshPaused) {
+                return;
+            }
+            this.observationInstances.forEach(row => {
+                const live = this.liveMetricsById[row.instanceId];
+                if (!live) {
+                    row.inFlight = 0;
+                    return;
+                }
+                row.gatewayStatus = live.gatewayStatus;
+                if (live.lastReportedAt) {
+                    row.lastActiveTime = live.lastReportedAt;
+                }
+                row.inFlight = live.inFlight;
+            });
         },
         
         // 切换自动刷新状态
@@ -700,6 +751,7 @@ const app = createApp({
                 
                 if (response.data.code === 200) {
                     this.observationInstances = response.data.data || [];
+                    this.applyLiveMetrics({});
                     console.log('观测实例数据加载成功，数量:', this.observationInstances.length);
                     console.log('观测实例数据内容:', this.observationInstances);
                     // 强制触发Vue响应式更新
@@ -0,0 +1,44 @@
+package org.xhy.gateway;
+
+import org.apache.ibatis.executor.statement.StatementHandler;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Signature;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+
+/**
+ * SQL 语句计数器
+ * 仅用于测试，拦截实际发往数据库的语句（一级缓存命中不计数），按线程统计，避免后台调度任务干扰
+ *
+ * @author xhy
+ * @since 1.0.0
+ */
+@Component
+@Intercepts(@Signature(type = StatementHandler.class, method = "prepare", args = {Connection.class, Integer.class}))
+public class SqlStatementCounter implements Interceptor {
+
+    private static final ThreadLocal<Integer> COUNT = ThreadLocal.withInitial(() -> 0);
+
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+        COUNT.set(COUNT.get() + 1);
+        return invocation.proceed();
+    }
+
+    /**
+     * 重置当前线程的计数
+     */
+    public void reset() {
+        COUNT.set(0);
+    }
+
+    /**
+     * 获取当前线程自上次重置以来执行的语句数
+     */
+    public int getCount() {
+        return COUNT.get();
+    }
+}
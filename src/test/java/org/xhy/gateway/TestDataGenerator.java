@@ -4,7 +4,7 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.context.ActiveProfiles;
-import org.xhy.gateway.application.service.SelectionAppService;
+import org.xhy.gateway.application.service.ReportIngestionAppService;
 import org.xhy.gateway.domain.apiinstance.entity.ApiInstanceEntity;
 import org.xhy.gateway.domain.apiinstance.entity.ApiInstanceStatus;
 import org.xhy.gateway.domain.apiinstance.entity.ApiType;
@@ -18,6 +18,7 @@ import org.xhy.gateway.domain.project.repository.ProjectRepository;
 import org.xhy.gateway.interfaces.api.request.ReportResultRequest;
 
 import java.time.LocalDateTime;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -42,7 +43,7 @@ public class TestDataGenerator {
     private ApiInstanceRepository apiInstanceRepository;
 
     @Autowired
-    private SelectionAppService selectionAppService;
+    private ReportIngestionAppService reportIngestionAppService;
 
     // 测试数据常量
     private static final String TEST_API_KEY = "test-data-generator-key-" + System.currentTimeMillis();
@@ -50,7 +51,7 @@ public class TestDataGenerator {
     private static final String TEST_PROJECT_DESC = "用于生成持久化测试数据的项目";
 
     @Test
-    public void generateTestData() {
+    public void generateTestData() throws InterruptedException {
         System.out.println("=== 开始生成持久化测试数据 ===");
         
         // 1. 创建API Key
@@ -71,6 +72,7 @@ public class TestDataGenerator {
         generateHealthyInstanceMetrics(instance1);
         generateHighErrorRateMetrics(instance2);
         generateHighLatencyMetrics(instance3);
+        awaitReportsRecorded();
         
         System.out.println("=== 持久化测试数据生成完成 ===");
         System.out.println("项目ID: " + projectId);
@@ -139,12 +141,12 @@ public class TestDataGenerator {
         // 生成20次调用：18次成功，2次失败，成功率90%
         for (int i = 0; i < 18; i++) {
             ReportResultRequest request = createSuccessRequest(instanceId, 500 + (i * 50));
-            selectionAppService.reportCallResult(request,TEST_PROJECT_NAME);
+            reportIngestionAppService.submit(request, TEST_PROJECT_NAME);
         }
         
         for (int i = 0; i < 2; i++) {
             ReportResultRequest request = createFailureRequest(instanceId, 1000L, "轻微错误", "RETRY_ERROR");
-            selectionAppService.reportCallResult(request,TEST_PROJECT_NAME);
+            reportIngestionAppService.submit(request, TEST_PROJECT_NAME);
         }
         
         System.out.println("✅ 健康实例数据：20次调用，90%成功率，平均延迟~600ms");
@@ -159,12 +161,12 @@ public class TestDataGenerator {
         // 生成15次调用：3次成功，12次失败，成功率20%，触发熔断
         for (int i = 0; i < 3; i++) {
             ReportResultRequest request = createSuccessRequest(instanceId, 800L);
-            selectionAppService.reportCallResult(request,TEST_PROJECT_NAME);
+            reportIngestionAppService.submit(request, TEST_PROJECT_NAME);
         }
         
         for (int i = 0; i < 12; i++) {
             ReportResultRequest request = createFailureRequest(instanceId, 5000L, "服务不可用", "SERVICE_ERROR");
-            selectionAppService.reportCallResult(request,TEST_PROJECT_NAME);
+            reportIngestionAppService.submit(request, TEST_PROJECT_NAME);
         }
         
         System.out.println("✅ 高错误率实例数据：15次调用，20%成功率，应触发熔断状态");
@@ -182,12 +184,23 @@ public class TestDataGenerator {
             ReportResultRequest request = createSuccessRequestWithUsage(
                 instanceId, latency, createGptUsageMetrics(150 + i*10, 200 + i*10, 0.003 + i*0.001)
             );
-            selectionAppService.reportCallResult(request,TEST_PROJECT_NAME);
+            reportIngestionAppService.submit(request, TEST_PROJECT_NAME);
         }
         
         System.out.println("✅ 高延迟实例数据：12次调用，100%成功率，平均延迟>6000ms，应触发降级状态");
     }
 
+    /**
+     * 等待上报摄取的消费线程把已提交的上报写入数据库
+     */
+    private void awaitReportsRecorded() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 30_000;
+        while (Arrays.stream(reportIngestionAppService.getQueueDepths()).sum() > 0
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+
     /**
      * 创建成功调用请求
      */
@@ -0,0 +1,323 @@
+package org.xhy.gateway.application.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.Validator;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.xhy.gateway.BaseIntegrationTest;
+import org.xhy.gateway.SqlStatementCounter;
+import org.xhy.gateway.application.dto.ApiInstanceDTO;
+import org.xhy.gateway.application.dto.ApiInstanceImportProgressDTO;
+import org.xhy.gateway.application.dto.ReconciliationResultDTO;
+import org.xhy.gateway.domain.apiinstance.entity.ApiInstanceEntity;
+import org.xhy.gateway.domain.apiinstance.entity.ApiInstanceStatus;
+import org.xhy.gateway.domain.apiinstance.entity.ApiType;
+import org.xhy.gateway.domain.project.entity.ProjectEntity;
+import org.xhy.gateway.domain.project.entity.ProjectStatus;
+import org.xhy.gateway.domain.project.service.ProjectDomainService;
+import org.xhy.gateway.interfaces.api.request.api_instance.ApiInstanceBulkStatusRequest;
+import org.xhy.gateway.interfaces.api.request.api_instance.ApiInstanceCreateRequest;
+import org.xhy.gateway.interfaces.api.request.api_instance.ApiInstanceDesiredStateRequest;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * API实例应用服务测试
+ * 验证实例列表和批量注册的语句数量不随实例数量增长
+ *
+ * @author xhy
+ * @since 1.0.0
+ */
+@DisplayName("API实例应用服务测试")
+class ApiInstanceAppServiceTest extends BaseIntegrationTest {
+
+    /**
+     * 实例列表允许的最大语句数：实例列表、项目名称各一条
+     */
+    private static final int MAX_STATEMENTS_FOR_INSTANCE_LIST = 2;
+
+    @Autowired
+    private ApiInstanceAppService apiInstanceAppService;
+
+    @Autowired
+    private ApiInstanceImportAppService apiInstanceImportAppService;
+
+    @Autowired
+    private SqlStatementCounter sqlStatementCounter;
+
+    @Autowired
+    private ProjectDomainService projectDomainService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private Validator validator;
+
+    @Test
+    @DisplayName("测试实例列表批量解析项目名称")
+    void testProjectNamesResolvedInBatch() {
+        // Given: 10个项目，每个项目5个实例
+        Map<String, String> expectedNames = new HashMap<>();
+        for (int i = 0; i < 10; i++) {
+            ProjectEntity project = new ProjectEntity();
+            project.setName("批量项目-" + randomString());
+            project.setApiKey("bulk-key-" + randomString());
+            project.setStatus(ProjectStatus.ACTIVE);
+            projectRepository.insert(project);
+            expectedNames.put(project.getId(), project.getName());
+
+            for (int j = 0; j < 5; j++) {
+                ApiInstanceEntity instance = new ApiInstanceEntity();
+                instance.setProjectId(project.getId());
+                instance.setApiIdentifier(TEST_API_IDENTIFIER);
+                instance.setApiType(ApiType.MODEL);
+                instance.setBusinessId("bulk-instance-" + randomString());
+                instance.setStatus(ApiInstanceStatus.ACTIVE);
+                apiInstanceRepository.insert(instance);
+            }
+        }
+
+        // When: 查询全部实例
+        sqlStatementCounter.reset();
+        List<ApiInstanceDTO> result = apiInstanceAppService.getAllInstancesWithProjects(null, null);
+        int statements = sqlStatementCounter.getCount();
+
+        // Then: 语句数量为常数，且每个实例都带上了正确的项目名称
+        System.out.println("实例数量: " + result.size() + ", SQL语句数量: " + statements);
+        assertTrue(result.size() >= 50);
+        assertTrue(statements <= MAX_STATEMENTS_FOR_INSTANCE_LIST,
+                "实例列表查询语句数应为常数，实际: " + statements);
+
+        int matched = 0;
+        for (ApiInstanceDTO dto : result) {
+            String expectedName = expectedNames.get(dto.getProjectId());
+            if (expectedName != null) {
+                assertEquals(expectedName, dto.getProjectName());
+                matched++;
+            }
+        }
+        assertEquals(50, matched);
+    }
+
+    @Test
+    @DisplayName("测试批量注册单条语句写入并跳过已存在实例")
+    void testBatchCreateSkipsExistingInstances() {
+        // Given: 一个已存在的实例、一批新实例，以及批内重复的一项
+        List<ApiInstanceCreateRequest> requests = new ArrayList<>();
+        requests.add(createRequest(TEST_BUSINESS_ID_1));
+        for (int i = 0; i < 20; i++) {
+            requests.add(createRequest("batch-instance-" + i));
+        }
+        requests.add(createRequest("batch-instance-0"));
+
+        // When: 批量注册
+        sqlStatementCounter.reset();
+        List<ApiInstanceDTO> created = apiInstanceAppService.batchCreateApiInstances(requests, testProjectId);
+        int statements = sqlStatementCounter.getCount();
+
+        // Then: 只返回新建的20个实例，插入本身只有一条语句（另有项目校验和冲突时的主键回查）
+        System.out.println("新建实例数量: " + created.size() + ", SQL语句数量: " + statements);
+        assertEquals(20, created.size());
+        assertTrue(created.stream().noneMatch(dto -> TEST_BUSINESS_ID_1.equals(dto.getBusinessId())));
+        assertTrue(statements <= 3, "批量注册语句数应为常数，实际: " + statements);
+        assertEquals(23, apiInstanceAppService.getAllInstancesWithProjects(testProjectId, null).size());
+    }
+
+    @Test
+    @DisplayName("测试NDJSON流式导入新建、更新并跳过非法行")
+    void testStreamingImport() {
+        // Given: 一个已存在实例的新配置、一个新实例、一个缺少业务ID的非法行
+        String ndjson = String.join("\n",
+                "{\"apiIdentifier\":\"gpt4o\",\"apiType\":\"MODEL\",\"businessId\":\"" + TEST_BUSINESS_ID_1
+                        + "\",\"routingParams\":{\"priority\":7}}",
+                "{\"apiIdentifier\":\"gpt4o\",\"apiType\":\"MODEL\",\"businessId\":\"imported-instance\"}",
+                "{\"apiIdentifier\":\"gpt4o\",\"apiType\":\"MODEL\"}");
+        List<ApiInstanceImportProgressDTO> progress = new ArrayList<>();
+
+        // When: 导入
+        ApiInstanceImportProgressDTO result = apiInstanceImportAppService.importInstances(
+                new ByteArrayInputStream(ndjson.getBytes(StandardCharsets.UTF_8)), testProjectId, progress::add);
+
+        // Then: 两条写入（一新建一更新），一条被拒绝并带行号
+        assertTrue(result.getFinished());
+        assertNull(result.getError());
+        assertEquals(3L, result.getReceived());
+        assertEquals(2L, result.getUpserted());
+        assertEquals(1L, result.getRejected());
+        assertTrue(result.getRejections().get(0).contains("3"));
+        assertSame(result, progress.get(progress.size() - 1));
+
+        List<ApiInstanceDTO> instances = apiInstanceAppService.getAllInstancesWithProjects(testProjectId, null);
+        assertEquals(4, instances.size());
+        ApiInstanceDTO updated = instances.stream()
+                .filter(dto -> TEST_BUSINESS_ID_1.equals(dto.getBusinessId()))
+                .findFirst()
+                .orElseThrow();
+        assertEquals(7, updated.getRoutingParams().get("priority"));
+    }
+
+    @Test
+    @DisplayName("测试流式导入每提交一个分块输出一次进度")
+    void testStreamingImportChunkProgress() {
+        // Given: 分块大小为 2，5 个合法实例，第 3 行非法
+        ApiInstanceImportAppService importService = createImportService(2);
+        String ndjson = String.join("\n",
+                importLine("chunk-instance-1"),
+                importLine("chunk-instance-2"),
+                "{\"apiIdentifier\":\"gpt4o\",\"apiType\":\"MODEL\"}",
+                importLine("chunk-instance-3"),
+                importLine("chunk-instance-4"),
+                importLine("chunk-instance-5"));
+        List<ApiInstanceImportProgressDTO> progress = new ArrayList<>();
+
+        // When: 导入
+        ApiInstanceImportProgressDTO result = importService.importInstances(
+                new ByteArrayInputStream(ndjson.getBytes(StandardCharsets.UTF_8)), testProjectId, progress::add);
+
+        // Then: 两个完整分块各一行进度，最后一行是最终结果
+        assertEquals(3, progress.size());
+        assertProgress(progress.get(0), 2, 2, 0, false);
+        assertProgress(progress.get(1), 5, 4, 1, false);
+        assertProgress(progress.get(2), 6, 5, 1, true);
+        assertSame(result, progress.get(2));
+        assertNull(result.getError());
+    }
+
+    @Test
+    @DisplayName("测试进度回调失败时停止导入且不再回调")
+    void testStreamingImportStopsWhenListenerFails() {
+        // Given: 分块大小为 2，写出第一行进度时客户端已断开
+        ApiInstanceImportAppService importService = createImportService(2);
+        String ndjson = String.join("\n",
+                importLine("broken-instance-1"),
+                importLine("broken-instance-2"),
+                importLine("broken-instance-3"),
+                importLine("broken-instance-4"));
+        List<ApiInstanceImportProgressDTO> progress = new ArrayList<>();
+
+        // When: 导入
+        ApiInstanceImportProgressDTO result = importService.importInstances(
+                new ByteArrayInputStream(ndjson.getBytes(StandardCharsets.UTF_8)), testProjectId, p -> {
+                    progress.add(p);
+                    throw new UncheckedIOException(new IOException("Broken pipe"));
+                });
+
+        // Then: 回调只被调用一次，第一个分块已写入，后续行不再读取
+        assertEquals(1, progress.size());
+        assertTrue(result.getFinished());
+        assertNotNull(result.getError());
+        assertEquals(2L, result.getReceived());
+        assertEquals(2L, result.getUpserted());
+        assertEquals(5, apiInstanceAppService.getAllInstancesWithProjects(testProjectId, null).size());
+    }
+
+    @Test
+    @DisplayName("测试期望状态同步的差异计算与幂等")
+    void testDesiredStateReconciliation() {
+        // Given: 实例1改路由参数，实例2保持原样，新增一个实例，实例3不在期望中
+        ApiInstanceDesiredStateRequest request = new ApiInstanceDesiredStateRequest();
+        request.setApiType("MODEL");
+        request.setInstances(List.of(
+                desiredInstance(TEST_BUSINESS_ID_1, Map.of("priority", 5)),
+                desiredInstance(TEST_BUSINESS_ID_2, null),
+                desiredInstance("reconciled-instance", null)));
+
+        // When: 同步
+        ReconciliationResultDTO result = apiInstanceAppService.reconcileApiInstances(testProjectId, request);
+
+        // Then: 新建1、更新1、未变化1、停用1
+        assertEquals(1, result.getCreated());
+        assertEquals(1, result.getUpdated());
+        assertEquals(1, result.getUnchanged());
+        assertEquals(1, result.getRemoved());
+        assertEquals("DEACTIVATE", result.getAbsentAction());
+        assertEquals(3, result.getActiveInstances());
+        assertEquals(3, apiInstanceAppService.getAllInstancesWithProjects(testProjectId, ApiInstanceStatus.ACTIVE).size());
+
+        // When: 再次提交相同的期望状态
+        ReconciliationResultDTO again = apiInstanceAppService.reconcileApiInstances(testProjectId, request);
+
+        // Then: 没有任何变更
+        assertEquals(0, again.getCreated());
+        assertEquals(0, again.getUpdated());
+        assertEquals(0, again.getRemoved());
+        assertEquals(3, again.getUnchanged());
+    }
+
+    @Test
+    @DisplayName("测试按标签和业务ID批量变更状态")
+    void testBulkStatusChange() {
+        // Given: 按地域标签筛选同一类型的全部实例
+        ApiInstanceBulkStatusRequest byRegion = new ApiInstanceBulkStatusRequest();
+        byRegion.setApiType("MODEL");
+        byRegion.setMetadataLabels(Map.of("region", "us-east-1"));
+
+        // When: 批量停用，一条语句完成
+        sqlStatementCounter.reset();
+        int deactivated = apiInstanceAppService.bulkChangeStatus(testProjectId, byRegion, ApiInstanceStatus.INACTIVE);
+        int statements = sqlStatementCounter.getCount();
+
+        // Then: 3个实例被停用；语句为项目校验（缓存未命中时）、UPDATE 和刷新路由快照用的活跃实例查询
+        assertEquals(3, deactivated);
+        assertTrue(statements <= 3, "批量变更状态语句数应为常数，实际: " + statements);
+        assertEquals(0, apiInstanceAppService.bulkChangeStatus(testProjectId, byRegion, ApiInstanceStatus.INACTIVE),
+                "已处于目标状态的实例不计入");
+
+        // When: 按业务ID激活其中一个
+        ApiInstanceBulkStatusRequest byBusinessId = new ApiInstanceBulkStatusRequest();
+        byBusinessId.setApiType("MODEL");
+        byBusinessId.setBusinessIds(List.of(TEST_BUSINESS_ID_1));
+
+        // Then: 只有该实例恢复活跃
+        assertEquals(1, apiInstanceAppService.bulkChangeStatus(testProjectId, byBusinessId, ApiInstanceStatus.ACTIVE));
+        List<ApiInstanceDTO> active = apiInstanceAppService.getAllInstancesWithProjects(testProjectId, ApiInstanceStatus.ACTIVE);
+        assertEquals(1, active.size());
+        assertEquals(TEST_BUSINESS_ID_1, active.get(0).getBusinessId());
+    }
+
+    private ApiInstanceDesiredStateRequest.DesiredInstance desiredInstance(String businessId,
+                                                                          Map<String, Object> routingParams) {
+        ApiInstanceDesiredStateRequest.DesiredInstance instance = new ApiInstanceDesiredStateRequest.DesiredInstance();
+        instance.setApiIdentifier(TEST_API_IDENTIFIER);
+        instance.setBusinessId(businessId);
+        instance.setRoutingParams(routingParams);
+        instance.setMetadata(Map.of("provider", businessId.split("-")[0], "region", "us-east-1"));
+        return instance;
+    }
+
+    private ApiInstanceCreateRequest createRequest(String businessId) {
+        ApiInstanceCreateRequest request = new ApiInstanceCreateRequest();
+        request.setApiIdentifier(TEST_API_IDENTIFIER);
+        request.setApiType(ApiType.MODEL);
+        request.setBusinessId(businessId);
+        return request;
+    }
+
+    private ApiInstanceImportAppService createImportService(int chunkSize) {
+        return new ApiInstanceImportAppService(apiInstanceAppService, projectDomainService, objectMapper, validator,
+                chunkSize);
+    }
+
+    private String importLine(String businessId) {
+        return "{\"apiIdentifier\":\"gpt4o\",\"apiType\":\"MODEL\",\"businessId\":\"" + businessId + "\"}";
+    }
+
+    private void assertProgress(ApiInstanceImportProgressDTO progress, long received, long upserted, long rejected,
+                                boolean finished) {
+        assertEquals(received, progress.getReceived());
+        assertEquals(upserted, progress.getUpserted());
+        assertEquals(rejected, progress.getRejected());
+        assertEquals(finished, progress.getFinished());
+    }
+}
@@ -4,8 +4,10 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.CannotGetJdbcConnectionException;
 import org.xhy.gateway.BaseIntegrationTest;
 import org.xhy.gateway.infrastructure.context.ApiContext;
+import org.xhy.gateway.infrastructure.datasource.DatabaseAvailability;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -22,6 +24,12 @@ class AuthenticationAppServiceTest extends BaseIntegrationTest {
     @Autowired
     private AuthenticationAppService authenticationAppService;
 
+    @Autowired
+    private ProjectAppService projectAppService;
+
+    @Autowired
+    private DatabaseAvailability databaseAvailability;
+
     @BeforeEach
     void setUp() {
         // 确保每个测试开始前上下文是清洁的
@@ -48,6 +56,31 @@ class AuthenticationAppServiceTest extends BaseIntegrationTest {
         assertEquals(testProjectId, authenticationAppService.getCurrentProjectId(), "上下文中的项目ID应该正确");
     }
 
+    @Test
+    @DisplayName("数据库不可用时按最近的认证记录放行")
+    void testAuthenticationDuringDatabaseOutage() {
+        // Given: 数据库可用时认证过一次
+        assertTrue(authenticationAppService.authenticate(TEST_API_KEY).isSuccess());
+        ApiContext.clear();
+
+        // When: 模拟数据库连接失败，进入降级模式
+        databaseAvailability.recordFailure(new CannotGetJdbcConnectionException("模拟数据库连接失败"));
+        try {
+            AuthenticationAppService.AuthenticationResult result = authenticationAppService.authenticate(TEST_API_KEY);
+
+            // Then: 最近认证过的 Key 仍然放行，没有记录的 Key 返回 503
+            assertTrue(result.isSuccess(), "降级期间最近认证过的 Key 应该放行");
+            assertEquals(testProjectId, result.getProjectId());
+
+            AuthenticationAppService.AuthenticationResult unknown =
+                    authenticationAppService.authenticate("never-seen-key-" + randomString());
+            assertFalse(unknown.isSuccess());
+            assertEquals(503, unknown.getStatusCode());
+        } finally {
+            databaseAvailability.recordSuccess();
+        }
+    }
+
     @Test
     @DisplayName("空API Key认证失败")
     void testEmptyApiKeyAuthentication() {
@@ -83,6 +116,29 @@ class AuthenticationAppServiceTest extends BaseIntegrationTest {
         assertFalse(authenticationAppService.isAuthenticated(), "认证失败后应该不处于已认证状态");
     }
 
+    @Test
+    @DisplayName("停用项目后认证立即失败")
+    void testDeactivatedProjectAuthentication() {
+        // Given: 先认证一次，项目状态进入缓存
+        assertTrue(authenticationAppService.authenticate(TEST_API_KEY).isSuccess(), "首次认证应该成功");
+        authenticationAppService.clearAuthenticationContext();
+
+        // When: 停用项目
+        projectAppService.changeProjectStatus(testProjectId, "INACTIVE");
+
+        // Then: 缓存已失效，认证被拒绝
+        AuthenticationAppService.AuthenticationResult result =
+                authenticationAppService.authenticate(TEST_API_KEY);
+        assertFalse(result.isSuccess(), "项目停用后认证应该失败");
+        assertEquals(403, result.getStatusCode(), "应该返回403状态码");
+
+        // When: 重新启用项目
+        projectAppService.changeProjectStatus(testProjectId, "ACTIVE");
+
+        // Then: 认证恢复
+        assertTrue(authenticationAppService.authenticate(TEST_API_KEY).isSuccess(), "项目启用后认证应该恢复");
+    }
+
     @Test
     @DisplayName("认证上下文清理测试")
     void testAuthenticationContextCleanup() {
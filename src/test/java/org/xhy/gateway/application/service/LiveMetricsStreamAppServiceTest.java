@@ -0,0 +1,124 @@
+package org.xhy.gateway.application.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.xhy.gateway.domain.metrics.service.LiveMetricsDomainService;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 实时指标推送应用服务测试
+ * 用替换了 send 的 SseEmitter 模拟慢连接和断开的连接，不依赖 Spring 容器和数据库
+ *
+ * @author xhy
+ * @since 1.0.0
+ */
+@DisplayName("实时指标推送应用服务测试")
+class LiveMetricsStreamAppServiceTest {
+
+    private final LiveMetricsDomainService liveMetricsDomainService = new LiveMetricsDomainService();
+    private final LiveMetricsStreamAppService service = new LiveMetricsStreamAppService(liveMetricsDomainService);
+
+    private final CountDownLatch releaseSlow = new CountDownLatch(1);
+
+    @AfterEach
+    void tearDown() {
+        releaseSlow.countDown();
+        service.stop();
+    }
+
+    @Test
+    @DisplayName("测试慢连接不阻塞推送和其他订阅者")
+    void testSlowSubscriberDoesNotBlockPush() throws InterruptedException {
+        RecordingEmitter slow = new RecordingEmitter(releaseSlow, false);
+        RecordingEmitter fast = new RecordingEmitter(null, false);
+        service.subscribe(slow);
+        service.subscribe(fast);
+
+        liveMetricsDomainService.recordDispatched("instance-1");
+        long start = System.nanoTime();
+        service.push();
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 1_000, "推送不应等待慢连接");
+
+        // 快照 + 增量
+        assertTrue(fast.awaitSent(2), "正常连接应收到快照和增量");
+        assertEquals(0, slow.sent.get(), "慢连接仍阻塞在第一个事件上");
+    }
+
+    @Test
+    @DisplayName("测试积压过多的订阅者被断开")
+    void testBackloggedSubscriberDropped() {
+        RecordingEmitter slow = new RecordingEmitter(releaseSlow, false);
+        service.subscribe(slow);
+        assertEquals(1, service.getSubscriberCount());
+
+        for (int i = 0; i < 20; i++) {
+            service.push();
+        }
+        assertEquals(0, service.getSubscriberCount());
+    }
+
+    @Test
+    @DisplayName("测试发送失败的订阅者被移除")
+    void testFailedSubscriberRemoved() throws InterruptedException {
+        RecordingEmitter broken = new RecordingEmitter(null, true);
+        RecordingEmitter healthy = new RecordingEmitter(null, false);
+        service.subscribe(broken);
+        service.subscribe(healthy);
+
+        assertTrue(healthy.awaitSent(1));
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (service.getSubscriberCount() > 1 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(1, service.getSubscriberCount());
+
+        service.push();
+        assertTrue(healthy.awaitSent(2), "剩余的订阅者继续收到推送");
+    }
+
+    /**
+     * 记录发送次数的 SseEmitter，可以在发送时阻塞或抛出异常
+     */
+    private static class RecordingEmitter extends SseEmitter {
+
+        private final CountDownLatch blockUntil;
+        private final boolean fail;
+        private final AtomicInteger sent = new AtomicInteger();
+
+        RecordingEmitter(CountDownLatch blockUntil, boolean fail) {
+            this.blockUntil = blockUntil;
+            this.fail = fail;
+        }
+
+        @Override
+        public void send(SseEventBuilder builder) throws IOException {
+            if (fail) {
+                throw new IOException("连接已断开");
+            }
+            if (blockUntil != null) {
+                try {
+                    blockUntil.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            sent.incrementAndGet();
+        }
+
+        boolean awaitSent(int expected) throws InterruptedException {
+            long deadline = System.currentTimeMillis() + 5_000;
+            while (sent.get() < expected && System.currentTimeMillis() < deadline) {
+                Thread.sleep(5);
+            }
+            return sent.get() >= expected;
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package org.xhy.gateway.application.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.xhy.gateway.BaseIntegrationTest;
+import org.xhy.gateway.SqlStatementCounter;
+import org.xhy.gateway.application.dto.ApiInstanceMonitoringDTO;
+import org.xhy.gateway.domain.apiinstance.entity.ApiInstanceStatus;
+import org.xhy.gateway.domain.metrics.entity.GatewayStatus;
+import org.xhy.gateway.domain.metrics.entity.InstanceMetricsEntity;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 监控应用服务测试
+ * 验证监控列表查询的 SQL 语句数量不随实例数量增长
+ *
+ * @author xhy
+ * @since 1.0.0
+ */
+@DisplayName("监控应用服务测试")
+class MonitoringAppServiceTest extends BaseIntegrationTest {
+
+    /**
+     * 监控列表允许的最大语句数：实例列表、项目名称、最新指标各一条
+     */
+    private static final int MAX_STATEMENTS_FOR_INSTANCE_LIST = 3;
+
+    @Autowired
+    private MonitoringAppService monitoringAppService;
+
+    @Autowired
+    private SqlStatementCounter sqlStatementCounter;
+
+    @Test
+    @DisplayName("测试实例监控列表不产生 N+1 查询")
+    void testInstanceListUsesConstantStatements() {
+        // Given: 在基础的3个实例之外再创建20个实例，并为部分实例写入多个时间窗口的指标
+        for (int i = 0; i < 20; i++) {
+            createApiInstance("bulk-instance-" + randomString(), ApiInstanceStatus.ACTIVE);
+        }
+        LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.MINUTES);
+        insertMetrics(testInstanceId1, now.minusMinutes(2), 5L, 0L, GatewayStatus.HEALTHY);
+        insertMetrics(testInstanceId1, now, 1L, 9L, GatewayStatus.CIRCUIT_BREAKER_OPEN);
+        insertMetrics(testInstanceId2, now.minusMinutes(1), 3L, 1L, GatewayStatus.HEALTHY);
+
+        // When: 查询实例监控列表
+        sqlStatementCounter.reset();
+        List<ApiInstanceMonitoringDTO> result = monitoringAppService.getInstancesWithMetrics(testProjectId, null, null);
+        int statements = sqlStatementCounter.getCount();
+
+        // Then: 语句数量为常数，且每个实例取到的是最新时间窗口的指标
+        System.out.println("实例数量: " + result.size() + ", SQL语句数量: " + statements);
+        assertEquals(23, result.size());
+        assertTrue(statements <= MAX_STATEMENTS_FOR_INSTANCE_LIST,
+                "监控列表查询语句数应为常数，实际: " + statements);
+
+        Map<String, ApiInstanceMonitoringDTO> byInstance = result.stream()
+                .collect(Collectors.toMap(ApiInstanceMonitoringDTO::getInstanceId, Function.identity()));
+        assertEquals(GatewayStatus.CIRCUIT_BREAKER_OPEN, byInstance.get(testInstanceId1).getGatewayStatus());
+        assertEquals(9L, byInstance.get(testInstanceId1).getFailureCount());
+        assertEquals(3L, byInstance.get(testInstanceId2).getSuccessCount());
+        assertNotNull(byInstance.get(testInstanceId3), "无指标的实例也应出现在列表中");
+    }
+
+    private void insertMetrics(String instanceId, LocalDateTime window, long success, long failure,
+                               GatewayStatus status) {
+        InstanceMetricsEntity metrics = new InstanceMetricsEntity();
+        metrics.setRegistryId(instanceId);
+        metrics.setTimestampWindow(window);
+        metrics.setSuccessCount(success);
+        metrics.setFailureCount(failure);
+        metrics.setTotalLatencyMs((success + failure) * 100);
+        metrics.setCurrentGatewayStatus(status);
+        metrics.setLastReportedAt(window);
+        metricsRepository.insert(metrics);
+    }
+}
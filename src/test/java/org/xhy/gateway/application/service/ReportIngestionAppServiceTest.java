@@ -0,0 +1,329 @@
+package org.xhy.gateway.application.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.jdbc.CannotGetJdbcConnectionException;
+import org.xhy.gateway.domain.metrics.command.CallResultCommand;
+import org.xhy.gateway.domain.metrics.entity.ErrorClass;
+import org.xhy.gateway.domain.metrics.entity.UsageMetric;
+import org.xhy.gateway.infrastructure.datasource.DatabaseAvailability;
+import org.xhy.gateway.infrastructure.dedup.ReportIdempotencyFilter;
+import org.xhy.gateway.infrastructure.exception.ServiceUnavailableException;
+import org.xhy.gateway.infrastructure.metrics.GatewayMetrics;
+import org.xhy.gateway.infrastructure.metrics.StageTimings;
+import org.xhy.gateway.interfaces.api.request.ReportResultRequest;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+/**
+ * 调用结果摄取应用服务测试
+ * 上报经 submit 进入环形缓冲区，由消费线程交给记录步骤；记录步骤用桩代替，不依赖数据库，
+ * 桩抛出 CannotGetJdbcConnectionException 模拟数据库不可用，本地日志写在临时目录中
+ *
+ * @author xhy
+ * @since 1.0.0
+ */
+@DisplayName("调用结果摄取应用服务测试")
+class ReportIngestionAppServiceTest {
+
+    private static final String PROJECT_ID = "project-1";
+
+    private final List<CallResultCommand> recorded = Collections.synchronizedList(new ArrayList<>());
+    private final GatewayMetrics gatewayMetrics = new GatewayMetrics();
+
+    /**
+     * 记录步骤在第一条上报处阻塞，用来把缓冲区填满
+     */
+    private final CountDownLatch consumerBlocked = new CountDownLatch(1);
+    private final CountDownLatch releaseConsumer = new CountDownLatch(1);
+    private volatile boolean blockFirst;
+
+    /**
+     * 为 true 时记录步骤抛出数据库连接异常
+     */
+    private volatile boolean databaseDown;
+
+    @TempDir
+    Path spoolDir;
+
+    private ReportIngestionAppService service;
+
+    @AfterEach
+    void tearDown() {
+        releaseConsumer.countDown();
+        if (service != null) {
+            service.stop();
+        }
+    }
+
+    @Test
+    @DisplayName("测试上报入队后按实例顺序被记录")
+    void testSubmitAndDrain() throws InterruptedException {
+        service = createService(1024, "drop");
+
+        for (long i = 0; i < 200; i++) {
+            service.submit(createRequest("instance-" + (i % 3), i, null), PROJECT_ID);
+        }
+        awaitRecorded(200);
+
+        long[] lastLatency = {-1, -1, -1};
+        for (CallResultCommand command : recorded) {
+            int instance = command.getInstanceId().charAt(command.getInstanceId().length() - 1) - '0';
+            assertTrue(command.getLatencyMs() > lastLatency[instance], "同一实例的上报必须按提交顺序记录");
+            lastLatency[instance] = command.getLatencyMs();
+            assertEquals(PROJECT_ID, command.getProjectId());
+        }
+        assertEquals(0, service.getQueueDepths()[0]);
+    }
+
+    @Test
+    @DisplayName("测试同一个幂等键只入队一次")
+    void testDuplicateSubmitIgnored() throws InterruptedException {
+        service = createService(1024, "drop");
+
+        service.submit(createRequest("instance-1", 100, "call-1"), PROJECT_ID);
+        service.submit(createRequest("instance-1", 100, "call-1"), PROJECT_ID);
+        service.submit(createRequest("instance-1", 200, "call-2"), PROJECT_ID);
+        awaitRecorded(2);
+
+        assertEquals(2, recorded.size());
+        assertEquals(1, droppedCount("duplicate"));
+    }
+
+    @Test
+    @DisplayName("测试 drop 策略在队列满时丢弃并计数")
+    void testDropPolicyWhenFull() throws InterruptedException {
+        service = createService(2, "drop");
+        fillQueue();
+
+        service.submit(createRequest("instance-1", 99, null), PROJECT_ID);
+        assertEquals(1, droppedCount("queue_full"));
+
+        releaseConsumer.countDown();
+        awaitRecorded(2);
+        Thread.sleep(50);
+        assertEquals(2, recorded.size(), "被丢弃的上报不应被记录");
+    }
+
+    @Test
+    @DisplayName("测试 reject 策略在队列满时返回 503")
+    void testRejectPolicyWhenFull() throws InterruptedException {
+        service = createService(2, "reject");
+        fillQueue();
+
+        assertThrows(ServiceUnavailableException.class,
+                () -> service.submit(createRequest("instance-1", 99, null), PROJECT_ID));
+        assertEquals(1, droppedCount("rejected"));
+    }
+
+    @Test
+    @DisplayName("测试被拒绝的上报可以用同一个幂等键重试")
+    void testRejectedReportRetriedWithSameKey() throws InterruptedException {
+        service = createService(2, "reject");
+        fillQueue();
+
+        assertThrows(ServiceUnavailableException.class,
+                () -> service.submit(createRequest("instance-1", 99, "call-1"), PROJECT_ID));
+
+        // 队列腾出空间后，客户端带着同一个幂等键重试
+        releaseConsumer.countDown();
+        awaitRecorded(2);
+        service.submit(createRequest("instance-1", 99, "call-1"), PROJECT_ID);
+        awaitRecorded(3);
+
+        assertEquals(99, recorded.get(2).getLatencyMs());
+        assertEquals(0, droppedCount("duplicate"));
+
+        // 被接收之后，同一个键的再次重试才算重复
+        service.submit(createRequest("instance-1", 99, "call-1"), PROJECT_ID);
+        assertEquals(1, droppedCount("duplicate"));
+    }
+
+    @Test
+    @DisplayName("测试停止时排空缓冲区中剩余的上报")
+    void testShutdownDrains() throws InterruptedException {
+        service = createService(2, "drop");
+        fillQueue();
+
+        // 停止过程中放开消费线程，剩余的上报应在停止返回前处理完
+        new Thread(() -> {
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            releaseConsumer.countDown();
+        }).start();
+        service.stop();
+        service = null;
+
+        assertEquals(2, recorded.size());
+    }
+
+    @Test
+    @DisplayName("测试数据库不可用时上报留在本地日志中并计入积压")
+    void testSpoolWhileDatabaseDown() throws InterruptedException {
+        databaseDown = true;
+        service = createService(1024, "drop", spoolDir);
+
+        for (long i = 0; i < 5; i++) {
+            service.submit(createRequest("instance-1", i, null), PROJECT_ID);
+        }
+        awaitBacklog(5);
+
+        assertTrue(recorded.isEmpty());
+        assertEquals(0, droppedCount("record_failed"));
+        assertEquals(0, droppedCount("spool_full"));
+    }
+
+    @Test
+    @DisplayName("测试数据库恢复后按提交顺序补放本地日志")
+    void testReplayInOrderAfterRecovery() throws InterruptedException {
+        databaseDown = true;
+        service = createService(1024, "drop", spoolDir);
+
+        for (long i = 0; i < 20; i++) {
+            service.submit(createRequest("instance-" + (i % 2), i, null), PROJECT_ID);
+        }
+        awaitBacklog(20);
+
+        databaseDown = false;
+        awaitRecorded(20);
+        awaitBacklog(0);
+
+        for (int i = 0; i < 20; i++) {
+            assertEquals(i, recorded.get(i).getLatencyMs(), "补放必须保持提交顺序");
+        }
+    }
+
+    @Test
+    @DisplayName("测试重启后补放未确认的记录，字段保持不变")
+    void testReplayAfterRestart() throws InterruptedException {
+        databaseDown = true;
+        service = createService(1024, "drop", spoolDir);
+
+        ReportResultRequest succeeded = createRequest("instance-1", 321, null);
+        succeeded.setUsageMetrics(Map.of("promptTokens", 120, "completion_tokens", 80, "cost", 0.0042));
+        ReportResultRequest failed = createRequest("instance-2", 5000, null);
+        failed.setSuccess(false);
+        failed.setErrorType("READ_TIMEOUT");
+        failed.setErrorMessage("upstream timed out");
+        service.submit(succeeded, PROJECT_ID);
+        service.submit(failed, PROJECT_ID);
+        awaitBacklog(2);
+
+        // 数据库仍不可用时停机，日志留在磁盘上
+        service.stop();
+        assertTrue(recorded.isEmpty());
+
+        databaseDown = false;
+        service = createService(1024, "drop", spoolDir);
+        awaitRecorded(2);
+        awaitBacklog(0);
+
+        CallResultCommand first = recorded.get(0);
+        assertEquals("instance-1", first.getInstanceId());
+        assertTrue(first.getSuccess());
+        assertEquals(321L, first.getLatencyMs());
+        assertEquals(succeeded.getCallTimestamp(), first.getCallTimestamp());
+        assertEquals(120L, first.getUsageMetrics().get(UsageMetric.PROMPT_TOKENS.getKey()));
+        assertEquals(80L, first.getUsageMetrics().get(UsageMetric.COMPLETION_TOKENS.getKey()));
+        assertEquals(0.0042, (Double) first.getUsageMetrics().get(UsageMetric.COST.getKey()), 1e-12);
+        assertNull(first.getErrorClass());
+
+        CallResultCommand second = recorded.get(1);
+        assertEquals("instance-2", second.getInstanceId());
+        assertFalse(second.getSuccess());
+        assertEquals(5000L, second.getLatencyMs());
+        assertEquals(ErrorClass.TIMEOUT, second.getErrorClass());
+        assertNull(second.getUsageMetrics());
+    }
+
+    /**
+     * 让消费线程阻塞在第一条上报上，再写满容量为 2 的缓冲区
+     * 正在处理的上报在处理器返回前仍占用槽位，因此再提交一条即满
+     */
+    private void fillQueue() throws InterruptedException {
+        blockFirst = true;
+        service.submit(createRequest("instance-1", 0, null), PROJECT_ID);
+        assertTrue(consumerBlocked.await(10, TimeUnit.SECONDS));
+        service.submit(createRequest("instance-1", 1, null), PROJECT_ID);
+        assertEquals(2, service.getQueueDepths()[0]);
+    }
+
+    private ReportIngestionAppService createService(int capacity, String overflowPolicy) {
+        return createService(capacity, overflowPolicy, null);
+    }
+
+    /**
+     * spoolDirectory 为 null 时不使用本地日志
+     */
+    private ReportIngestionAppService createService(int capacity, String overflowPolicy, Path spoolDirectory) {
+        SelectionAppService selectionAppService = mock(SelectionAppService.class);
+        doAnswer(invocation -> {
+            if (databaseDown) {
+                throw new CannotGetJdbcConnectionException("模拟数据库连接失败");
+            }
+            if (blockFirst && consumerBlocked.getCount() > 0) {
+                consumerBlocked.countDown();
+                releaseConsumer.await(10, TimeUnit.SECONDS);
+            }
+            recorded.add(invocation.getArgument(0));
+            return null;
+        }).when(selectionAppService).recordCallResult(any());
+
+        ReportIngestionAppService created = new ReportIngestionAppService(selectionAppService,
+                new ReportIdempotencyFilter(10_000, 0.001, 10), gatewayMetrics, new StageTimings(),
+                new DatabaseAvailability(5_000), 1, capacity, overflowPolicy,
+                spoolDirectory != null,
+                spoolDirectory != null ? spoolDirectory.toString() : System.getProperty("java.io.tmpdir"), 1024, 2);
+        created.start();
+        return created;
+    }
+
+    private void awaitRecorded(int expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (recorded.size() < expected && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(expected, recorded.size(), "上报未在超时前被处理");
+    }
+
+    private void awaitBacklog(long expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (service.getSpoolBacklogs()[0] != expected && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(expected, service.getSpoolBacklogs()[0], "本地日志积压与预期不符");
+    }
+
+    private long droppedCount(String reason) {
+        LongAdder counter = gatewayMetrics.getDroppedReports().get(reason);
+        return counter == null ? 0 : counter.sum();
+    }
+
+    private ReportResultRequest createRequest(String instanceId, long latencyMs, String idempotencyKey) {
+        ReportResultRequest request = new ReportResultRequest();
+        request.setInstanceId(instanceId);
+        request.setBusinessId("test-business-id");
+        request.setSuccess(true);
+        request.setLatencyMs(latencyMs);
+        request.setCallTimestamp(System.currentTimeMillis());
+        request.setIdempotencyKey(idempotencyKey);
+        return request;
+    }
+}
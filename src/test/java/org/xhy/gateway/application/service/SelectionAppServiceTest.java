@@ -3,6 +3,7 @@ package org.xhy.gateway.application.service;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.CannotGetJdbcConnectionException;
 import org.xhy.gateway.BaseIntegrationTest;
 import org.xhy.gateway.application.dto.ApiInstanceDTO;
 import org.xhy.gateway.domain.apiinstance.entity.ApiInstanceEntity;
@@ -11,7 +12,9 @@ import org.xhy.gateway.domain.apiinstance.entity.ApiType;
 import org.xhy.gateway.domain.metrics.entity.GatewayStatus;
 import org.xhy.gateway.domain.metrics.entity.InstanceMetricsEntity;
 import org.xhy.gateway.domain.metrics.repository.MetricsRepository;
+import org.xhy.gateway.infrastructure.datasource.DatabaseAvailability;
 import org.xhy.gateway.infrastructure.exception.BusinessException;
+import org.xhy.gateway.interfaces.api.controller.HealthController;
 import org.xhy.gateway.interfaces.api.request.ReportResultRequest;
 import org.xhy.gateway.interfaces.api.request.SelectInstanceRequest;
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
@@ -36,17 +39,26 @@ class SelectionAppServiceTest extends BaseIntegrationTest {
     @Autowired
     private SelectionAppService selectionAppService;
 
+    @Autowired
+    private ReportIngestionAppService reportIngestionAppService;
+
     @Autowired
     private MetricsRepository metricsRepository;
 
+    @Autowired
+    private DatabaseAvailability databaseAvailability;
+
+    @Autowired
+    private HealthController healthController;
+
     @Test
     @DisplayName("测试成功调用结果上报 - 生成测试数据")
-    void testReportSuccessCallResult() {
+    void testReportSuccessCallResult() throws InterruptedException {
         // Given: 准备成功调用的上报请求
         ReportResultRequest request = createSuccessReportRequest(testInstanceId1, 800L);
 
         // When: 上报调用结果
-        selectionAppService.reportCallResult(request,this.testProjectId);
+        reportAndAwait(request);
 
         // Then: 验证数据已写入数据库
         InstanceMetricsEntity metrics = findLatestMetrics(testInstanceId1);
@@ -63,13 +75,13 @@ class SelectionAppServiceTest extends BaseIntegrationTest {
 
     @Test
     @DisplayName("测试失败调用结果上报 - 生成测试数据")
-    void testReportFailureCallResult() {
+    void testReportFailureCallResult() throws InterruptedException {
         // Given: 准备失败调用的上报请求
         ReportResultRequest request = createFailureReportRequest(
                 testInstanceId1, 2000L, "API调用超时", "TIMEOUT_ERROR");
 
         // When: 上报调用结果
-        selectionAppService.reportCallResult(request,this.testProjectId);
+        reportAndAwait(request);
 
         // Then: 验证数据已写入数据库
         InstanceMetricsEntity metrics = findLatestMetrics(testInstanceId1);
@@ -83,9 +95,31 @@ class SelectionAppServiceTest extends BaseIntegrationTest {
         System.out.println("✅ 失败上报测试数据: " + metrics);
     }
 
+    @Test
+    @DisplayName("测试带幂等键的重复上报只记录一次")
+    void testDuplicateReportIgnored() throws InterruptedException {
+        // Given: 同一次调用的上报被客户端重试两次
+        String idempotencyKey = "call-" + System.nanoTime();
+        ReportResultRequest first = createSuccessReportRequest(testInstanceId1, 600L);
+        first.setIdempotencyKey(idempotencyKey);
+        ReportResultRequest retry = createSuccessReportRequest(testInstanceId1, 600L);
+        retry.setIdempotencyKey(idempotencyKey);
+
+        // When: 上报三次，其中两次是重复的
+        reportAndAwait(first);
+        reportAndAwait(retry);
+        reportAndAwait(retry);
+
+        // Then: 只记录了一次调用
+        InstanceMetricsEntity metrics = findLatestMetrics(testInstanceId1);
+        assertNotNull(metrics);
+        assertEquals(1L, metrics.getSuccessCount());
+        assertEquals(600L, metrics.getTotalLatencyMs());
+    }
+
     @Test
     @DisplayName("测试混合调用结果上报 - 生成复杂场景数据")
-    void testMixedCallResults() {
+    void testMixedCallResults() throws InterruptedException {
         // Given: 创建混合调用场景
         String instanceId = testInstanceId1;
 
@@ -94,13 +128,13 @@ class SelectionAppServiceTest extends BaseIntegrationTest {
         // 7次成功，3次失败 = 70%成功率
         for (int i = 0; i < 7; i++) {
             ReportResultRequest successRequest = createSuccessReportRequest(instanceId, 500L + (i * 50));
-            selectionAppService.reportCallResult(successRequest,this.testProjectId);
+            reportAndAwait(successRequest);
         }
 
         for (int i = 0; i < 3; i++) {
             ReportResultRequest failureRequest = createFailureReportRequest(
                     instanceId, 1500L + (i * 200), "间歇性错误", "INTERMITTENT_ERROR");
-            selectionAppService.reportCallResult(failureRequest,this.testProjectId);
+            reportAndAwait(failureRequest);
         }
 
         // When & Then: 验证混合结果
@@ -118,7 +152,7 @@ class SelectionAppServiceTest extends BaseIntegrationTest {
 
     @Test
     @DisplayName("测试高错误率场景 - 触发熔断状态")
-    void testHighErrorRateScenario() {
+    void testHighErrorRateScenario() throws InterruptedException {
         // Given: 创建高错误率场景 (错误率 > 50%)
         String instanceId = testInstanceId2;
 
@@ -127,13 +161,13 @@ class SelectionAppServiceTest extends BaseIntegrationTest {
         // 2次成功，8次失败 = 80%错误率
         for (int i = 0; i < 2; i++) {
             ReportResultRequest successRequest = createSuccessReportRequest(instanceId, 600L);
-            selectionAppService.reportCallResult(successRequest,this.testProjectId);
+            reportAndAwait(successRequest);
         }
 
         for (int i = 0; i < 8; i++) {
             ReportResultRequest failureRequest = createFailureReportRequest(
                     instanceId, 4000L, "服务异常", "SERVICE_ERROR");
-            selectionAppService.reportCallResult(failureRequest,this.testProjectId);
+            reportAndAwait(failureRequest);
         }
 
         // When & Then: 验证熔断状态
@@ -150,7 +184,7 @@ class SelectionAppServiceTest extends BaseIntegrationTest {
 
     @Test
     @DisplayName("测试高延迟场景 - 触发降级状态")
-    void testHighLatencyScenario() {
+    void testHighLatencyScenario() throws InterruptedException {
         // Given: 创建高延迟场景
         String instanceId = testInstanceId3;
 
@@ -159,7 +193,7 @@ class SelectionAppServiceTest extends BaseIntegrationTest {
         // 10次成功调用，但延迟都很高 (>5000ms)
         for (int i = 0; i < 10; i++) {
             ReportResultRequest request = createSuccessReportRequest(instanceId, 6000L + (i * 100));
-            selectionAppService.reportCallResult(request,this.testProjectId);
+            reportAndAwait(request);
         }
 
         // When & Then: 验证降级状态
@@ -266,6 +300,38 @@ class SelectionAppServiceTest extends BaseIntegrationTest {
         System.out.println("   异常信息: " + exception.getMessage());
     }
 
+    @Test
+    @DisplayName("测试数据库不可用时用路由快照选择实例，健康检查报告 DEGRADED")
+    void testSelectionFromSnapshotDuringDatabaseOutage() {
+        // Given: 数据库可用时成功选择一次，留下项目、候选实例和指标快照
+        SelectInstanceRequest request = new SelectInstanceRequest();
+        request.setApiIdentifier(TEST_API_IDENTIFIER);
+        request.setApiType(ApiType.MODEL.getCode());
+        ApiInstanceDTO fresh = selectionAppService.selectBestInstance(request, testProjectId);
+        assertNotEquals(Boolean.TRUE, fresh.getStale());
+        assertEquals("UP", healthController.health().getData().get("status"));
+
+        // 停用全部实例：如果仍然查询数据库，选择会失败
+        deactivateInstance(testInstanceId1);
+        deactivateInstance(testInstanceId2);
+        deactivateInstance(testInstanceId3);
+
+        // When: 模拟数据库连接失败，进入降级模式
+        databaseAvailability.recordFailure(new CannotGetJdbcConnectionException("模拟数据库连接失败"));
+        try {
+            ApiInstanceDTO stale = selectionAppService.selectBestInstance(request, testProjectId);
+
+            // Then: 结果来自快照并标记为 stale，健康检查报告降级
+            assertNotNull(stale);
+            assertEquals(Boolean.TRUE, stale.getStale());
+            assertTrue(Arrays.asList(testInstanceId1, testInstanceId2, testInstanceId3).contains(stale.getId()));
+            assertEquals("DEGRADED", healthController.health().getData().get("status"));
+        } finally {
+            databaseAvailability.recordSuccess();
+        }
+        assertEquals("UP", healthController.health().getData().get("status"));
+    }
+
     // 辅助方法
 
     /**
@@ -310,6 +376,20 @@ class SelectionAppServiceTest extends BaseIntegrationTest {
         }
     }
 
+    /**
+     * 通过上报摄取服务提交，等待消费线程处理完
+     * 消费线程在自己的事务里写入指标，这些指标行不随测试事务回滚；实例 ID 每次随机生成，不影响其他测试
+     */
+    private void reportAndAwait(ReportResultRequest request) throws InterruptedException {
+        reportIngestionAppService.submit(request, this.testProjectId);
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (Arrays.stream(reportIngestionAppService.getQueueDepths()).sum() > 0
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(0, Arrays.stream(reportIngestionAppService.getQueueDepths()).sum(), "上报应被消费线程处理完");
+    }
+
     /**
      * 创建成功调用上报请求
      */
@@ -166,6 +166,64 @@ class ApiInstanceSelectionDomainServiceTest extends BaseIntegrationTest {
         System.out.println("无健康实例异常测试通过: " + exception.getMessage());
     }
 
+    @Test
+    @DisplayName("尾延迟SLO策略测试")
+    void testP99SloStrategyAvoidsViolatingInstances() {
+        // Given: 路由配置 p99 SLO 为 500ms，只有第一个实例近期 p99 达标
+        InstanceSelectionCommand command = new InstanceSelectionCommand(
+                testProjectId, null, TEST_API_IDENTIFIER, ApiType.MODEL.getCode(), LoadBalancingType.P99_SLO
+        );
+        List<ApiInstanceEntity> candidates = selectionDomainService.findCandidateInstances(command);
+        assertTrue(candidates.size() >= 2, "需要至少两个候选实例");
+
+        Map<String, InstanceMetricsEntity> metricsMap = new HashMap<>();
+        for (int i = 0; i < candidates.size(); i++) {
+            ApiInstanceEntity candidate = candidates.get(i);
+            candidate.setRoutingParams(Map.of("load_balancing_type", "p99_slo", "p99_slo_ms", 500));
+            InstanceMetricsEntity metrics = createSimpleMetrics(candidate.getId(), 20, 0);
+            metrics.setRecentP99Latency(i == 0 ? 300.0 : 1200.0);
+            metricsMap.put(candidate.getId(), metrics);
+        }
+
+        // When & Then: 多次选择都应该落在达标实例上
+        for (int i = 0; i < 20; i++) {
+            ApiInstanceEntity selected = selectionDomainService.selectInstanceWithStrategy(candidates, metricsMap, command);
+            assertEquals(candidates.get(0).getId(), selected.getId(), "p99 超过 SLO 的实例不应被选中");
+        }
+
+        // 全部超标时仍然返回超标最轻的实例
+        metricsMap.get(candidates.get(0).getId()).setRecentP99Latency(900.0);
+        ApiInstanceEntity leastViolating = selectionDomainService.selectInstanceWithStrategy(candidates, metricsMap, command);
+        assertEquals(candidates.get(0).getId(), leastViolating.getId());
+    }
+
+    @Test
+    @DisplayName("令牌余量策略测试")
+    void testTokenAwareStrategySkipsInstancesWithoutHeadroom() {
+        // Given: 所有实例 TPM 上限 10000，除最后一个外最近一分钟都已消耗 9500
+        List<ApiInstanceEntity> candidates = selectionDomainService.findCandidateInstances(new InstanceSelectionCommand(
+                testProjectId, null, TEST_API_IDENTIFIER, ApiType.MODEL.getCode(), LoadBalancingType.TOKEN_AWARE));
+        assertTrue(candidates.size() >= 2, "需要至少两个候选实例");
+        ApiInstanceEntity roomy = candidates.get(candidates.size() - 1);
+
+        Map<String, InstanceMetricsEntity> metricsMap = new HashMap<>();
+        for (ApiInstanceEntity candidate : candidates) {
+            candidate.setRoutingParams(Map.of("load_balancing_type", "token_aware", "tpm_limit", 10000));
+            InstanceMetricsEntity metrics = createSimpleMetrics(candidate.getId(), 20, 0);
+            metrics.setRecentTokens(candidate == roomy ? 1000L : 9500L);
+            metrics.setRecentRequests(10L);
+            metricsMap.put(candidate.getId(), metrics);
+        }
+
+        // When & Then: 预计消耗 1000 token 的请求只能落在余量足够的实例上
+        InstanceSelectionCommand command = new InstanceSelectionCommand(testProjectId, null, TEST_API_IDENTIFIER,
+                ApiType.MODEL.getCode(), null, null, 1000L);
+        for (int i = 0; i < 20; i++) {
+            ApiInstanceEntity selected = selectionDomainService.selectInstanceWithStrategy(candidates, metricsMap, command);
+            assertEquals(roomy.getId(), selected.getId(), "TPM 余量不足的实例不应被选中");
+        }
+    }
+
     // ========== 辅助方法 ==========
 
     /**
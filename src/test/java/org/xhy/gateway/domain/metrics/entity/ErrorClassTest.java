@@ -0,0 +1,61 @@
+package org.xhy.gateway.domain.metrics.entity;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 错误分类测试
+ * 不依赖 Spring 容器和数据库
+ *
+ * @author xhy
+ * @since 1.0.0
+ */
+@DisplayName("错误分类测试")
+class ErrorClassTest {
+
+    @Test
+    @DisplayName("测试 errorType 中的状态码按独立的词匹配")
+    void testStatusCodeInErrorType() {
+        assertEquals(ErrorClass.RATE_LIMITED, ErrorClass.classify("429", null));
+        assertEquals(ErrorClass.SERVER_ERROR, ErrorClass.classify("HTTP_503", null));
+        assertEquals(ErrorClass.AUTH_ERROR, ErrorClass.classify("401", null));
+        assertEquals(ErrorClass.CLIENT_ERROR, ErrorClass.classify(" 404 ", null));
+
+        // 数字的一部分不是状态码
+        assertEquals(ErrorClass.UNKNOWN, ErrorClass.classify("E14290", null));
+        assertEquals(ErrorClass.UNKNOWN, ErrorClass.classify("1.500", null));
+    }
+
+    @Test
+    @DisplayName("测试 errorMessage 中只匹配结构化的状态码")
+    void testStatusCodeInErrorMessage() {
+        assertEquals(ErrorClass.SERVER_ERROR, ErrorClass.classify(null, "upstream returned HTTP 502"));
+        assertEquals(ErrorClass.RATE_LIMITED, ErrorClass.classify(null, "HTTP/1.1 429"));
+        assertEquals(ErrorClass.SERVER_ERROR, ErrorClass.classify(null, "{\"status_code\":500,\"message\":\"oops\"}"));
+        assertEquals(ErrorClass.CLIENT_ERROR, ErrorClass.classify(null, "status: 422"));
+
+        // 请求 ID、耗时中的数字不被当成状态码
+        assertEquals(ErrorClass.UNKNOWN, ErrorClass.classify(null, "request 429a1f failed after 503 attempts"));
+        assertEquals(ErrorClass.UNKNOWN, ErrorClass.classify(null, "failed in 429ms"));
+    }
+
+    @Test
+    @DisplayName("测试鉴权关键字先于客户端错误关键字和状态码")
+    void testAuthKeywordsFirst() {
+        assertEquals(ErrorClass.AUTH_ERROR, ErrorClass.classify("INVALID_API_KEY", null));
+        assertEquals(ErrorClass.AUTH_ERROR, ErrorClass.classify(null, "HTTP 400: API key not valid"));
+        assertEquals(ErrorClass.AUTH_ERROR, ErrorClass.classify("UNAUTHORIZED", null));
+        assertEquals(ErrorClass.CLIENT_ERROR, ErrorClass.classify("INVALID_REQUEST", null));
+    }
+
+    @Test
+    @DisplayName("测试关键字分类和 errorType 优先")
+    void testKeywords() {
+        assertEquals(ErrorClass.TIMEOUT, ErrorClass.classify("READ_TIMEOUT", "HTTP 500"));
+        assertEquals(ErrorClass.RATE_LIMITED, ErrorClass.classify(null, "Too Many Requests"));
+        assertEquals(ErrorClass.SERVER_ERROR, ErrorClass.classify("CONNECTION_REFUSED", null));
+        assertEquals(ErrorClass.UNKNOWN, ErrorClass.classify("SOMETHING", "something went wrong"));
+    }
+}
@@ -0,0 +1,75 @@
+package org.xhy.gateway.domain.metrics.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.xhy.gateway.domain.metrics.entity.GatewayStatus;
+import org.xhy.gateway.domain.metrics.entity.InstanceMetricsEntity;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 实时指标领域服务测试
+ * 不依赖 Spring 容器和数据库，用可控时钟模拟时间流逝
+ *
+ * @author xhy
+ * @since 1.0.0
+ */
+@DisplayName("实时指标领域服务测试")
+class LiveMetricsDomainServiceTest {
+
+    private final AtomicLong now = new AtomicLong(1_000_000_000L);
+    private final LiveMetricsDomainService service = new LiveMetricsDomainService(now::get);
+
+    @Test
+    @DisplayName("测试低精度直方图的 p99 误差在 10% 以内")
+    void testRecentP99WithCompactHistograms() {
+        for (int i = 1; i <= 1000; i++) {
+            service.recordCompleted("instance-1", true, null, i, 0, GatewayStatus.HEALTHY);
+        }
+
+        InstanceMetricsEntity metrics = new InstanceMetricsEntity();
+        service.applyLiveSignals(Map.of("instance-1", metrics));
+
+        assertNotNull(metrics.getRecentP99Latency());
+        assertEquals(990, metrics.getRecentP99Latency(), 99);
+        assertEquals(0L, metrics.getRecentRequests());
+    }
+
+    @Test
+    @DisplayName("测试样本不足时没有 p99，分钟窗口过期后样本被清空")
+    void testRecentP99Window() {
+        for (int i = 0; i < 30; i++) {
+            service.recordCompleted("instance-1", true, null, 100, 0, GatewayStatus.HEALTHY);
+        }
+        InstanceMetricsEntity metrics = new InstanceMetricsEntity();
+        service.applyLiveSignals(Map.of("instance-1", metrics));
+        assertNotNull(metrics.getRecentP99Latency());
+
+        // 超过直方图保留的分钟数后，新的少量样本不足以给出 p99
+        now.addAndGet(5 * 60_000L);
+        service.recordCompleted("instance-1", true, null, 100, 0, GatewayStatus.HEALTHY);
+        service.applyLiveSignals(Map.of("instance-1", metrics));
+        assertNull(metrics.getRecentP99Latency());
+    }
+
+    @Test
+    @DisplayName("测试长时间无活动的实例被清理，不依赖快照调用")
+    void testEvictIdle() {
+        service.recordDispatched("instance-1");
+        service.recordDispatched("instance-2");
+        assertEquals(0, service.evictIdle());
+        assertEquals(2, service.size());
+
+        // 只有实例2继续有调用
+        now.addAndGet(400_000L);
+        service.recordCompleted("instance-2", true, null, 10, 0, GatewayStatus.HEALTHY);
+        now.addAndGet(400_000L);
+
+        assertEquals(1, service.evictIdle());
+        assertEquals(1, service.size());
+        assertEquals("instance-2", service.snapshot().get(0).getInstanceId());
+    }
+}
@@ -1,13 +1,16 @@
 package org.xhy.gateway.domain.metrics.service;
 
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.conditions.update.LambdaUpdateWrapper;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.xhy.gateway.BaseIntegrationTest;
 import org.xhy.gateway.domain.metrics.command.CallResultCommand;
+import org.xhy.gateway.domain.metrics.entity.ErrorClass;
 import org.xhy.gateway.domain.metrics.entity.GatewayStatus;
 import org.xhy.gateway.domain.metrics.entity.InstanceMetricsEntity;
+import org.xhy.gateway.domain.metrics.entity.LatencyHistogram;
 import org.xhy.gateway.domain.metrics.repository.MetricsRepository;
 
 import java.time.LocalDateTime;
@@ -107,6 +110,60 @@ class MetricsCollectionDomainServiceTest extends BaseIntegrationTest {
         System.out.println("多次调用聚合测试通过: " + metrics);
     }
 
+    @Test
+    @DisplayName("测试延迟分布随指标记录持久化")
+    void testLatencyHistogramPersisted() {
+        // Given: 同一时间窗口内 100 次调用，延迟为 10ms、20ms ... 1000ms
+        for (int i = 1; i <= 100; i++) {
+            metricsCollectionDomainService.recordCallResult(createSuccessCallResult(testInstanceId1, i * 10L));
+        }
+
+        // When: 落库后从数据库读取指标记录并解码延迟分布
+        metricsCollectionDomainService.flushLatencyHistograms();
+        InstanceMetricsEntity metrics = findMetricsByInstanceId(testInstanceId1);
+        assertNotNull(metrics);
+        assertNotNull(metrics.getLatencyHistogram(), "延迟分布应随指标记录写入");
+        LatencyHistogram histogram = LatencyHistogram.fromBytes(metrics.getLatencyHistogram());
+
+        // Then: 分位数与实际分布一致（2 位有效数字，允许 1% 误差）
+        assertEquals(100L, histogram.getTotalCount());
+        assertEquals(500.0, histogram.getPercentile(50), 5.0);
+        assertEquals(950.0, histogram.getPercentile(95), 10.0);
+        assertEquals(990.0, histogram.getPercentile(99), 10.0);
+
+        System.out.println("延迟分布持久化测试通过: bytes=" + metrics.getLatencyHistogram().length
+                + ", p99=" + histogram.getPercentile(99));
+    }
+
+    @Test
+    @DisplayName("测试延迟分布落库时与其他节点写入的分布合并")
+    void testLatencyHistogramMergedOnFlush() {
+        // Given: 本节点记录一次调用并落库
+        metricsCollectionDomainService.recordCallResult(createSuccessCallResult(testInstanceId1, 100L));
+        metricsCollectionDomainService.flushLatencyHistograms();
+
+        // 模拟另一个节点向同一窗口合并了 10 次 2000ms 的调用
+        InstanceMetricsEntity stored = findMetricsByInstanceId(testInstanceId1);
+        LatencyHistogram otherNode = LatencyHistogram.fromBytes(stored.getLatencyHistogram());
+        for (int i = 0; i < 10; i++) {
+            otherNode.record(2000L);
+        }
+        metricsRepository.update(null, new LambdaUpdateWrapper<InstanceMetricsEntity>()
+                .set(InstanceMetricsEntity::getLatencyHistogram, otherNode.toBytes())
+                .eq(InstanceMetricsEntity::getId, stored.getId()));
+
+        // When: 本节点再记录一次调用，计数更新不应覆盖分布，落库后合并
+        metricsCollectionDomainService.recordCallResult(createSuccessCallResult(testInstanceId1, 300L));
+        assertEquals(11L, LatencyHistogram.fromBytes(findMetricsByInstanceId(testInstanceId1).getLatencyHistogram())
+                .getTotalCount(), "上报时不应改写延迟分布");
+        metricsCollectionDomainService.flushLatencyHistograms();
+
+        // Then: 两个节点的数据都保留
+        LatencyHistogram merged = LatencyHistogram.fromBytes(findMetricsByInstanceId(testInstanceId1).getLatencyHistogram());
+        assertEquals(12L, merged.getTotalCount());
+        assertEquals(2000.0, merged.getPercentile(99), 20.0);
+    }
+
     @Test
     @DisplayName("测试熔断器触发 - 错误率过高")
     void testCircuitBreakerTriggeredByHighErrorRate() {
@@ -136,6 +193,60 @@ class MetricsCollectionDomainServiceTest extends BaseIntegrationTest {
         System.out.println("熔断器触发测试通过: 错误率=" + metrics.getSuccessRate() + ", 状态=" + metrics.getCurrentGatewayStatus());
     }
 
+    @Test
+    @DisplayName("测试限流和客户端错误不触发熔断")
+    void testRateLimitAndClientErrorsDoNotTripBreaker() {
+        // Given: 3次成功、5次限流、4次客户端错误，失败率 75% 但没有实例故障
+        String instanceId = testInstanceId1;
+        for (int i = 0; i < 3; i++) {
+            metricsCollectionDomainService.recordCallResult(createSuccessCallResult(instanceId, 500L));
+        }
+        for (int i = 0; i < 5; i++) {
+            metricsCollectionDomainService.recordCallResult(
+                    createCallResult(instanceId, false, 100L, "Too Many Requests", "429", null));
+        }
+        for (int i = 0; i < 4; i++) {
+            metricsCollectionDomainService.recordCallResult(
+                    createCallResult(instanceId, false, 100L, "Bad request", "400", null));
+        }
+
+        // When & Then: 按错误分类计数，熔断器不打开
+        InstanceMetricsEntity metrics = findMetricsByInstanceId(instanceId);
+        assertNotNull(metrics);
+        assertEquals(9L, metrics.getFailureCount());
+        assertEquals(5L, metrics.getErrorCount(ErrorClass.RATE_LIMITED));
+        assertEquals(4L, metrics.getErrorCount(ErrorClass.CLIENT_ERROR));
+        assertEquals(0L, metrics.getInstanceFaultCount());
+        assertFalse(metrics.isCircuitBreakerOpen());
+    }
+
+    @Test
+    @DisplayName("测试迟到上报按调用时间归入对应窗口")
+    void testLateReportBucketedByCallTimestamp() {
+        // Given: 一次 3 分钟前发生的调用，一次早于容忍范围的调用
+        String instanceId = testInstanceId1;
+        LocalDateTime lateWindow = LocalDateTime.now().minusMinutes(3).withSecond(0).withNano(0);
+        long lateTimestamp = System.currentTimeMillis() - 3 * 60 * 1000L;
+        long expiredTimestamp = System.currentTimeMillis() - 24 * 60 * 60 * 1000L;
+
+        // When
+        boolean recorded = metricsCollectionDomainService.recordCallResult(
+                new CallResultCommand(instanceId, true, 300L, null, null, null, lateTimestamp));
+        boolean dropped = !metricsCollectionDomainService.recordCallResult(
+                new CallResultCommand(instanceId, true, 300L, null, null, null, expiredTimestamp));
+
+        // Then: 迟到上报落在调用所在的窗口，过期上报被丢弃，当前窗口不受影响
+        assertTrue(recorded);
+        assertTrue(dropped);
+        LambdaQueryWrapper<InstanceMetricsEntity> queryWrapper = new LambdaQueryWrapper<>();
+        queryWrapper.eq(InstanceMetricsEntity::getRegistryId, instanceId)
+                   .eq(InstanceMetricsEntity::getTimestampWindow, lateWindow);
+        InstanceMetricsEntity lateMetrics = metricsRepository.selectOne(queryWrapper);
+        assertNotNull(lateMetrics);
+        assertEquals(1L, lateMetrics.getSuccessCount());
+        assertNull(findMetricsByInstanceId(instanceId));
+    }
+
     @Test
     @DisplayName("测试延迟过高导致降级")
     void testDegradationByHighLatency() {
@@ -249,6 +360,7 @@ class MetricsCollectionDomainServiceTest extends BaseIntegrationTest {
         usage2.put("promptTokens", 200);
         usage2.put("completionTokens", 250);
         usage2.put("totalCost", 0.004);
+        usage2.put("model", "gpt-4o");
 
         CallResultCommand call1 = createCallResult(instanceId, true, 500L, null, null, usage1);
         CallResultCommand call2 = createCallResult(instanceId, true, 600L, null, null, usage2);
@@ -261,15 +373,13 @@ class MetricsCollectionDomainServiceTest extends BaseIntegrationTest {
         InstanceMetricsEntity metrics = findMetricsByInstanceId(instanceId);
         assertNotNull(metrics);
         
-        Map<String, Object> additionalMetrics = metrics.getAdditionalMetrics();
-        assertNotNull(additionalMetrics);
-        
-        // 第二次调用的指标应该覆盖第一次的（这是当前实现的行为）
-        assertEquals(200, additionalMetrics.get("promptTokens"));
-        assertEquals(250, additionalMetrics.get("completionTokens"));
-        assertEquals(0.004, additionalMetrics.get("totalCost"));
+        // 已登记的指标按窗口累加，未登记的键被丢弃
+        assertEquals(300L, metrics.getPromptTokens());
+        assertEquals(400L, metrics.getCompletionTokens());
+        assertEquals(0.006, metrics.getTotalCost(), 1e-9);
 
-        System.out.println("使用指标累积测试通过: " + additionalMetrics);
+        System.out.println("使用指标累积测试通过: promptTokens=" + metrics.getPromptTokens()
+                + ", completionTokens=" + metrics.getCompletionTokens() + ", totalCost=" + metrics.getTotalCost());
     }
 
     // ========== 辅助方法 ==========
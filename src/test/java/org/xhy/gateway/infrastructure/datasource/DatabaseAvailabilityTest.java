@@ -0,0 +1,58 @@
+package org.xhy.gateway.infrastructure.datasource;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.dao.TransientDataAccessResourceException;
+import org.springframework.jdbc.CannotGetJdbcConnectionException;
+import org.springframework.transaction.CannotCreateTransactionException;
+
+import java.sql.SQLException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 数据库可用性测试
+ * 不依赖 Spring 容器和数据库
+ *
+ * @author xhy
+ * @since 1.0.0
+ */
+@DisplayName("数据库可用性测试")
+class DatabaseAvailabilityTest {
+
+    @Test
+    @DisplayName("测试只有连接类故障被识别为数据库不可用")
+    void testUnavailableErrorClassification() {
+        assertTrue(DatabaseAvailability.isUnavailableError(new CannotGetJdbcConnectionException("连接失败")));
+        assertTrue(DatabaseAvailability.isUnavailableError(new TransientDataAccessResourceException("连接中断")));
+        assertTrue(DatabaseAvailability.isUnavailableError(new CannotCreateTransactionException("无法开启事务")));
+        assertTrue(DatabaseAvailability.isUnavailableError(
+                new RuntimeException(new SQLException("connection refused", "08001"))));
+
+        // 数据库可达时的瞬时错误和约束错误不触发降级
+        assertFalse(DatabaseAvailability.isUnavailableError(new CannotAcquireLockException("死锁")));
+        assertFalse(DatabaseAvailability.isUnavailableError(new QueryTimeoutException("查询超时")));
+        assertFalse(DatabaseAvailability.isUnavailableError(new DataIntegrityViolationException("唯一约束冲突")));
+        assertFalse(DatabaseAvailability.isUnavailableError(new SQLException("deadlock detected", "40P01")));
+    }
+
+    @Test
+    @DisplayName("测试降级期间每个探测间隔只放行一次查询，成功后恢复")
+    void testProbeAndRecovery() {
+        DatabaseAvailability availability = new DatabaseAvailability(60_000);
+        assertTrue(availability.allowQuery());
+
+        availability.recordFailure(new CannotGetJdbcConnectionException("连接失败"));
+        assertFalse(availability.isAvailable());
+        assertNotNull(availability.getUnavailableSince());
+        assertFalse(availability.allowQuery(), "探测间隔内不应放行");
+
+        availability.recordSuccess();
+        assertTrue(availability.isAvailable());
+        assertTrue(availability.allowQuery());
+        assertNull(availability.getLastError());
+    }
+}
@@ -0,0 +1,119 @@
+package org.xhy.gateway.infrastructure.dedup;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 轮转布隆过滤器测试
+ * 不依赖 Spring 容器和数据库，用可控时钟模拟轮转
+ *
+ * @author xhy
+ * @since 1.0.0
+ */
+@DisplayName("轮转布隆过滤器测试")
+class RotatingBloomFilterTest {
+
+    private static final long PERIOD_MS = 1_000;
+
+    @Test
+    @DisplayName("测试写入过的键不会漏判")
+    void testNoFalseNegatives() {
+        RotatingBloomFilter filter = new RotatingBloomFilter(10_000, 0.001, PERIOD_MS);
+
+        for (int i = 0; i < 10_000; i++) {
+            filter.put("key-" + i);
+        }
+
+        for (int i = 0; i < 10_000; i++) {
+            assertTrue(filter.mightContain("key-" + i), "写入过的键必须被识别: key-" + i);
+        }
+    }
+
+    @Test
+    @DisplayName("测试 putIfAbsent 只在首次出现时返回 true")
+    void testPutIfAbsent() {
+        RotatingBloomFilter filter = new RotatingBloomFilter(10_000, 0.001, PERIOD_MS);
+
+        assertTrue(filter.putIfAbsent("call-1"));
+        assertFalse(filter.putIfAbsent("call-1"));
+        assertTrue(filter.mightContain("call-1"));
+
+        int accepted = 0;
+        for (int i = 0; i < 10_000; i++) {
+            if (filter.putIfAbsent("other-" + i)) {
+                accepted++;
+            }
+        }
+        // 允许少量误判，但不能远超配置的误判率
+        assertTrue(accepted >= 9_950, "新键被误判为重复的数量过多: accepted=" + accepted);
+    }
+
+    @Test
+    @DisplayName("测试键在一到两个周期内被记住，之后过期")
+    void testRotation() {
+        AtomicLong now = new AtomicLong(0);
+        RotatingBloomFilter filter = new RotatingBloomFilter(1_000, 0.001, PERIOD_MS, now::get);
+
+        assertTrue(filter.putIfAbsent("call-1"));
+
+        // 进入下一个周期，键在上一代中仍然可见
+        now.set(PERIOD_MS + 1);
+        assertTrue(filter.mightContain("call-1"));
+        assertFalse(filter.putIfAbsent("call-1"));
+
+        // 再轮转一次，上一代被丢弃
+        now.set(2 * PERIOD_MS + 1);
+        assertFalse(filter.mightContain("call-1"));
+        assertTrue(filter.putIfAbsent("call-1"));
+
+        // 超过两个周期没有访问，两代都过期
+        now.set(10 * PERIOD_MS);
+        assertFalse(filter.mightContain("call-1"));
+    }
+
+    @Test
+    @DisplayName("测试并发写入同一个键时只有一个调用方成功")
+    void testConcurrentPutIfAbsent() throws Exception {
+        RotatingBloomFilter filter = new RotatingBloomFilter(100_000, 0.001, 60_000);
+        int threads = 8;
+        int keys = 2_000;
+        AtomicInteger accepted = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            for (int t = 0; t < threads; t++) {
+                executor.execute(() -> {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                    for (int i = 0; i < keys; i++) {
+                        if (filter.putIfAbsent("call-" + i)) {
+                            accepted.incrementAndGet();
+                        }
+                    }
+                });
+            }
+            start.countDown();
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // 每个键最多被接收一次，误判只会让接收数更少
+        assertTrue(accepted.get() <= keys, "同一个键被接收了多次: accepted=" + accepted.get());
+        assertTrue(accepted.get() >= keys - 10, "新键被误判为重复的数量过多: accepted=" + accepted.get());
+    }
+}
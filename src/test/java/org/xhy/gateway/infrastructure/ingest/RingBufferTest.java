@@ -0,0 +1,128 @@
+package org.xhy.gateway.infrastructure.ingest;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 环形缓冲区测试
+ * 不依赖 Spring 容器和数据库
+ *
+ * @author xhy
+ * @since 1.0.0
+ */
+@DisplayName("环形缓冲区测试")
+class RingBufferTest {
+
+    private static final RingBuffer.Translator<long[], Long, Void> TRANSLATOR =
+            (slot, value, ignored) -> slot[0] = value;
+
+    @Test
+    @DisplayName("测试按发布顺序消费，多圈复用槽位")
+    void testOrderingAndWraparound() {
+        RingBuffer<long[]> buffer = new RingBuffer<>(8, () -> new long[1]);
+        List<Long> consumed = new ArrayList<>();
+
+        // 每轮发布 5 个再消费，写入位置会多次绕过容量边界
+        long next = 0;
+        for (int round = 0; round < 20; round++) {
+            for (int i = 0; i < 5; i++) {
+                assertTrue(buffer.tryPublish(TRANSLATOR, next++, null));
+            }
+            assertEquals(5, buffer.size());
+            assertEquals(5, buffer.drain(event -> consumed.add(event[0]), 100));
+            assertEquals(0, buffer.size());
+        }
+
+        assertEquals(100, consumed.size());
+        for (int i = 0; i < consumed.size(); i++) {
+            assertEquals(i, consumed.get(i).longValue());
+        }
+    }
+
+    @Test
+    @DisplayName("测试缓冲区满时发布失败，消费后可继续发布")
+    void testFullBuffer() {
+        RingBuffer<long[]> buffer = new RingBuffer<>(4, () -> new long[1]);
+        for (long i = 0; i < 4; i++) {
+            assertTrue(buffer.tryPublish(TRANSLATOR, i, null));
+        }
+        assertFalse(buffer.tryPublish(TRANSLATOR, 4L, null));
+        assertEquals(4, buffer.size());
+
+        List<Long> consumed = new ArrayList<>();
+        assertEquals(1, buffer.drain(event -> consumed.add(event[0]), 1));
+        assertTrue(buffer.tryPublish(TRANSLATOR, 4L, null));
+        assertEquals(4, buffer.drain(event -> consumed.add(event[0]), 100));
+        assertEquals(List.of(0L, 1L, 2L, 3L, 4L), consumed);
+    }
+
+    @Test
+    @DisplayName("测试处理器抛出异常时槽位仍被释放")
+    void testHandlerFailureReleasesSlot() {
+        RingBuffer<long[]> buffer = new RingBuffer<>(2, () -> new long[1]);
+        buffer.tryPublish(TRANSLATOR, 1L, null);
+        buffer.tryPublish(TRANSLATOR, 2L, null);
+
+        assertThrows(IllegalStateException.class, () -> buffer.drain(event -> {
+            throw new IllegalStateException("boom");
+        }, 1));
+        assertEquals(1, buffer.size());
+        assertTrue(buffer.tryPublish(TRANSLATOR, 3L, null));
+    }
+
+    @Test
+    @DisplayName("测试容量必须是 2 的幂")
+    void testCapacityMustBePowerOfTwo() {
+        assertThrows(IllegalArgumentException.class, () -> new RingBuffer<>(6, () -> new long[1]));
+    }
+
+    @Test
+    @DisplayName("测试多个生产者并发发布，同一分片内保持各自的发布顺序，停止时排空")
+    void testShardedConcurrentPublishAndShutdownDrain() throws Exception {
+        ShardedRingBuffer<long[]> sharded = new ShardedRingBuffer<>("test", 2, 1024, () -> new long[2]);
+        List<long[]> consumed = Collections.synchronizedList(new ArrayList<>());
+        sharded.start(shard -> event -> consumed.add(new long[]{event[0], event[1]}));
+
+        int producers = 4;
+        int perProducer = 500;
+        RingBuffer.Translator<long[], Long, Long> translator = (slot, producer, sequence) -> {
+            slot[0] = producer;
+            slot[1] = sequence;
+        };
+        CountDownLatch done = new CountDownLatch(producers);
+        for (int p = 0; p < producers; p++) {
+            long producer = p;
+            new Thread(() -> {
+                for (long seq = 0; seq < perProducer; seq++) {
+                    // 发布失败时重试，保证全部事件都进入缓冲区
+                    while (!sharded.tryPublish((int) producer, translator, producer, seq)) {
+                        Thread.onSpinWait();
+                    }
+                }
+                done.countDown();
+            }).start();
+        }
+        assertTrue(done.await(30, TimeUnit.SECONDS));
+
+        assertTrue(sharded.shutdown(10_000), "消费线程应在超时前退出");
+        assertFalse(sharded.tryPublish(0, translator, 0L, 0L), "停止后不再接收事件");
+        assertEquals(producers * perProducer, consumed.size());
+
+        long[] lastSequence = new long[producers];
+        Arrays.fill(lastSequence, -1);
+        for (long[] event : consumed) {
+            int producer = (int) event[0];
+            assertEquals(lastSequence[producer] + 1, event[1], "同一个分片键的事件必须按发布顺序消费");
+            lastSequence[producer] = event[1];
+        }
+    }
+}
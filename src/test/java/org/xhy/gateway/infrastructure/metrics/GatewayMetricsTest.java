@@ -0,0 +1,41 @@
+package org.xhy.gateway.infrastructure.metrics;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 网关运行指标测试
+ * 不依赖 Spring 容器，用可控时钟模拟时间流逝
+ *
+ * @author xhy
+ * @since 1.0.0
+ */
+@DisplayName("网关运行指标测试")
+class GatewayMetricsTest {
+
+    private final AtomicLong now = new AtomicLong(1_000_000_000L);
+    private final GatewayMetrics metrics = new GatewayMetrics(now::get);
+
+    @Test
+    @DisplayName("测试长时间没有上报的实例被清理")
+    void testEvictIdle() {
+        metrics.recordCall("instance-1", true, 100, null);
+        metrics.recordCall("instance-2", false, 200, "TIMEOUT");
+        assertEquals(0, metrics.evictIdle());
+
+        // 只有实例2继续有上报
+        now.addAndGet(400_000L);
+        metrics.recordCall("instance-2", true, 100, null);
+        now.addAndGet(400_000L);
+
+        assertEquals(1, metrics.evictIdle());
+        assertEquals(1, metrics.getCallMetrics().size());
+        GatewayMetrics.InstanceCallMetrics remaining = metrics.getCallMetrics().get("instance-2");
+        assertEquals(1, remaining.getSuccessCount());
+        assertEquals(1, remaining.getFailureCount());
+    }
+}
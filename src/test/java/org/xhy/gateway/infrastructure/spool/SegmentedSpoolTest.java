@@ -0,0 +1,182 @@
+package org.xhy.gateway.infrastructure.spool;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 分段追加日志测试
+ * 不依赖 Spring 容器和数据库，每条记录的载荷是一个 long
+ *
+ * @author xhy
+ * @since 1.0.0
+ */
+@DisplayName("分段追加日志测试")
+class SegmentedSpoolTest {
+
+    private static final int PAYLOAD_SIZE = Long.BYTES;
+    private static final int HEADER_SIZE = 32;
+    private static final int RECORD_SIZE = PAYLOAD_SIZE + 4;
+
+    private static final SegmentedSpool.RecordWriter<Long> WRITER = (buffer, value) -> {
+        buffer.putLong(value);
+        return true;
+    };
+
+    private static final SegmentedSpool.RecordReader<long[]> READER = (buffer, target) -> target[0] = buffer.getLong();
+
+    @TempDir
+    Path directory;
+
+    private SegmentedSpool spool;
+
+    @AfterEach
+    void tearDown() {
+        if (spool != null) {
+            spool.close();
+        }
+    }
+
+    @Test
+    @DisplayName("测试追加、确认后重新打开只恢复未确认的记录")
+    void testAppendAcknowledgeReopen() throws IOException {
+        spool = new SegmentedSpool(directory, PAYLOAD_SIZE, 16, 4);
+        for (long i = 0; i < 5; i++) {
+            assertTrue(spool.append(WRITER, i));
+        }
+        assertEquals(5, spool.getBacklog());
+
+        long[] slot = new long[1];
+        for (long expected = 0; expected < 2; expected++) {
+            assertTrue(spool.peek(READER, slot));
+            assertEquals(expected, slot[0]);
+            spool.acknowledge();
+        }
+        assertEquals(3, spool.getBacklog());
+        spool.close();
+
+        // 重新打开后从第一条未确认的记录继续，并能接着追加
+        spool = new SegmentedSpool(directory, PAYLOAD_SIZE, 16, 4);
+        assertEquals(3, spool.getBacklog());
+        assertTrue(spool.append(WRITER, 5L));
+        for (long expected = 2; expected < 6; expected++) {
+            assertTrue(spool.peek(READER, slot));
+            assertEquals(expected, slot[0]);
+            spool.acknowledge();
+        }
+        assertEquals(0, spool.getBacklog());
+        assertFalse(spool.peek(READER, slot));
+    }
+
+    @Test
+    @DisplayName("测试校验和不通过的尾部记录在重新打开时被丢弃")
+    void testCorruptTailDiscarded() throws IOException {
+        spool = new SegmentedSpool(directory, PAYLOAD_SIZE, 16, 4);
+        for (long i = 0; i < 4; i++) {
+            spool.append(WRITER, i);
+        }
+        spool.close();
+        spool = null;
+
+        // 模拟崩溃时最后一条只写了一半：载荷被改写，校验和仍是旧值
+        Path segment = listSegments().get(0);
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            ByteBuffer torn = ByteBuffer.allocate(PAYLOAD_SIZE).putLong(0, 99L);
+            channel.write(torn, HEADER_SIZE + 3L * RECORD_SIZE + 4);
+        }
+
+        spool = new SegmentedSpool(directory, PAYLOAD_SIZE, 16, 4);
+        assertEquals(3, spool.getBacklog());
+
+        // 新记录覆盖损坏的位置
+        assertTrue(spool.append(WRITER, 3L));
+        long[] slot = new long[1];
+        for (long expected = 0; expected < 4; expected++) {
+            assertTrue(spool.peek(READER, slot));
+            assertEquals(expected, slot[0]);
+            spool.acknowledge();
+        }
+    }
+
+    @Test
+    @DisplayName("测试格式不匹配的分段被隔离")
+    void testMismatchedSegmentQuarantined() throws IOException {
+        spool = new SegmentedSpool(directory, PAYLOAD_SIZE, 16, 4);
+        spool.append(WRITER, 1L);
+        spool.close();
+
+        // 用不同的每段记录数重新打开
+        spool = new SegmentedSpool(directory, PAYLOAD_SIZE, 8, 4);
+        assertEquals(0, spool.getBacklog());
+        try (Stream<Path> files = Files.list(directory)) {
+            assertTrue(files.anyMatch(path -> path.getFileName().toString().endsWith(".corrupt")));
+        }
+    }
+
+    @Test
+    @DisplayName("测试分段写满后切换，全部确认后删除旧分段")
+    void testSegmentRollover() throws IOException {
+        spool = new SegmentedSpool(directory, PAYLOAD_SIZE, 4, 8);
+        for (long i = 0; i < 10; i++) {
+            assertTrue(spool.append(WRITER, i));
+        }
+        assertEquals(3, listSegments().size());
+
+        long[] slot = new long[1];
+        for (long expected = 0; expected < 4; expected++) {
+            assertTrue(spool.peek(READER, slot));
+            assertEquals(expected, slot[0]);
+            spool.acknowledge();
+        }
+        assertEquals(2, listSegments().size(), "第一个分段全部确认后应被删除");
+
+        spool.close();
+        spool = new SegmentedSpool(directory, PAYLOAD_SIZE, 4, 8);
+        assertEquals(6, spool.getBacklog());
+        for (long expected = 4; expected < 10; expected++) {
+            assertTrue(spool.peek(READER, slot));
+            assertEquals(expected, slot[0]);
+            spool.acknowledge();
+        }
+        assertEquals(1, listSegments().size(), "只保留正在写入的分段");
+    }
+
+    @Test
+    @DisplayName("测试分段数达到上限时拒绝追加，确认后恢复")
+    void testMaxSegmentsOverflow() throws IOException {
+        spool = new SegmentedSpool(directory, PAYLOAD_SIZE, 4, 2);
+        for (long i = 0; i < 8; i++) {
+            assertTrue(spool.append(WRITER, i));
+        }
+        assertFalse(spool.append(WRITER, 8L), "两个分段都写满且未确认时应拒绝追加");
+        assertEquals(8, spool.getBacklog());
+        assertEquals(2, listSegments().size());
+
+        long[] slot = new long[1];
+        for (int i = 0; i < 4; i++) {
+            spool.peek(READER, slot);
+            spool.acknowledge();
+        }
+        assertTrue(spool.append(WRITER, 8L));
+        assertEquals(5, spool.getBacklog());
+        assertEquals(2, listSegments().size());
+    }
+
+    private List<Path> listSegments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> path.getFileName().toString().endsWith(".spool")).sorted().toList();
+        }
+    }
+}